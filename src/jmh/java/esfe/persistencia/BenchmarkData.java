@@ -0,0 +1,48 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.Proveedor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Datos de prueba de los benchmarks: una base de datos H2 en memoria (la misma de las pruebas,
+ * sin servidor SQL Server) con una categoría, un proveedor y el número de computadoras indicado.
+ * Los datos son deterministas para que los resultados sean comparables entre ejecuciones.
+ */
+final class BenchmarkData {
+    static final String[] MARCAS = {"Dell", "HP", "Lenovo", "Asus", "Acer", "Apple", "MSI", "Toshiba"};
+    static final String[] MODELOS = {"Latitude", "ProBook", "ThinkPad", "VivoBook", "Aspire", "MacBook", "Modern", "Satellite"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Crea la base de datos y carga las computadoras. La primera computadora tiene ID 1 y
+     * número de serie SN-000000; la i-ésima, ID i + 1 y número de serie SN-%06d.
+     */
+    static TestDatabase populate(String name, int rows) throws SQLException {
+        TestDatabase db = TestDatabase.create(name);
+        ConnectionManager conn = db.getConnectionManager();
+        int categoriaId = new CategoriaDAO(conn).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+        int proveedorId = new ProveedorDAO(conn).create(new Proveedor(0, "Tecnosur", null, "ventas@tecnosur.com", null)).getProveedorID();
+        new ComputadoraDAO(conn).createAll(computadoras(rows, categoriaId, proveedorId), 1000);
+        return db;
+    }
+
+    /**
+     * Computadoras de ejemplo, sin guardar: la mitad con proveedor y una de cada diez con observaciones.
+     */
+    static List<Computadora> computadoras(int rows, int categoriaId, Integer proveedorId) {
+        List<Computadora> computadoras = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            computadoras.add(new Computadora(categoriaId, i % 2 == 0 ? proveedorId : null, MARCAS[i % MARCAS.length],
+                    MODELOS[(i / MARCAS.length) % MODELOS.length] + " " + (i % 1000), String.format("SN-%06d", i),
+                    500.0 + i % 700, i % 10 == 0 ? "Revisar batería" : null));
+        }
+        return computadoras;
+    }
+}
@@ -0,0 +1,96 @@
+package esfe.persistencia;
+
+import esfe.dominio.Computadora;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Línea base de las operaciones más frecuentes de ComputadoraDAO sobre H2 en memoria:
+ * el mapeo de una fila, la lectura por ID y las búsquedas por LIKE y por prefijo.
+ * El mapeo se mide sobre un ResultSet en memoria para no incluir el costo de la consulta.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputadoraDAOBenchmark {
+    @Param({"20000"})
+    public int rows;
+
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private SimpleResultSet row;
+    private int nextId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = BenchmarkData.populate("daobenchmark", rows);
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+
+        // Las mismas columnas que lee mapRowToComputadora, con una sola fila que se vuelve a recorrer
+        row = new SimpleResultSet();
+        row.setAutoClose(false);
+        row.addColumn("ComputadoraID", Types.INTEGER, 10, 0);
+        row.addColumn("CategoriaID", Types.INTEGER, 10, 0);
+        row.addColumn("ProveedorID", Types.INTEGER, 10, 0);
+        row.addColumn("Marca", Types.NVARCHAR, 100, 0);
+        row.addColumn("Modelo", Types.NVARCHAR, 100, 0);
+        row.addColumn("NumeroSerie", Types.NVARCHAR, 100, 0);
+        row.addColumn("FechaCompra", Types.TIMESTAMP, 0, 0);
+        row.addColumn("Precio", Types.DECIMAL, 10, 2);
+        row.addColumn("Estado", Types.TINYINT, 3, 0);
+        row.addColumn("Observaciones", Types.NVARCHAR, 255, 0);
+        row.addColumn("Version", Types.INTEGER, 10, 0);
+        row.addRow(1, 1, 1, "Dell", "Latitude 5420", "SN-000000", Timestamp.valueOf(LocalDateTime.of(2024, 5, 10, 9, 30)),
+                850.0, (byte) 1, "Revisar batería", 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Benchmark
+    public Computadora mapRowToComputadora() throws SQLException {
+        row.beforeFirst();
+        row.next();
+        return ComputadoraDAO.mapRowToComputadora(row);
+    }
+
+    @Benchmark
+    public Computadora getById() throws SQLException {
+        nextId = nextId % rows + 1;
+        return computadoraDAO.getById(nextId);
+    }
+
+    @Benchmark
+    public List<Computadora> searchLike() throws SQLException {
+        return computadoraDAO.search("ProBook 1");
+    }
+
+    @Benchmark
+    public List<Computadora> searchPrefix() throws SQLException {
+        return computadoraDAO.search("SN-0012", ComputadoraDAO.SearchMode.PREFIX, 50, null);
+    }
+}
@@ -0,0 +1,78 @@
+package esfe.persistencia;
+
+import esfe.dominio.Computadora;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la búsqueda por subcadena con el índice invertido en memoria contra la búsqueda
+ * original de ComputadoraDAO (LIKE '%texto%', que recorre la tabla), sobre H2 en memoria.
+ *
+ * <ul>
+ *     <li>indexLookup: solo el índice (IDs ordenados por relevancia).</li>
+ *     <li>indexedSearch: índice más la lectura de las filas encontradas, como la usa ComputadoraForm.</li>
+ *     <li>likeSearch: ComputadoraDAO.search(String).</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputadoraSearchBenchmark {
+    private static final int LIMIT = 200;
+
+    @Param({"20000"})
+    public int rows;
+
+    @Param({"latitude 1", "SN-001234", "pad 7"})
+    public String query;
+
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private ComputadoraSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = BenchmarkData.populate("searchbenchmark", rows);
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        index = ComputadoraDAO.searchIndex(db.getConnectionManager());
+        computadoraDAO.loadSearchIndex();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Benchmark
+    public int[] indexLookup() throws SQLException {
+        return index.search(query, LIMIT);
+    }
+
+    @Benchmark
+    public List<Computadora> indexedSearch() throws SQLException {
+        return computadoraDAO.search(query, ComputadoraDAO.SearchMode.SUBSTRING, LIMIT, null);
+    }
+
+    @Benchmark
+    public List<Computadora> likeSearch() throws SQLException {
+        return computadoraDAO.search(query);
+    }
+}
@@ -0,0 +1,71 @@
+package esfe.persistencia;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de pedir una conexión a ConnectionManager y devolverla al pool, sin ejecutar
+ * sentencias, con un solo hilo y con más hilos que conexiones (espera por el pool).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionPoolBenchmark {
+    private static final int MAX_CONNECTIONS = 4;
+
+    private TestDatabase db;
+    private ConnectionManager conn;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        db = TestDatabase.create("poolbenchmark", MAX_CONNECTIONS);
+        conn = db.getConnectionManager();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Benchmark
+    public boolean acquireRelease() throws SQLException {
+        try (Connection connection = conn.getConnection()) {
+            return connection.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean acquireReleaseContended() throws SQLException {
+        try (Connection connection = conn.getConnection()) {
+            return connection.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    public boolean connectDisconnect() throws SQLException {
+        try {
+            return conn.connect().getAutoCommit();
+        } finally {
+            conn.disconnect();
+        }
+    }
+}
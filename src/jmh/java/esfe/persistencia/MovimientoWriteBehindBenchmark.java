@@ -0,0 +1,79 @@
+package esfe.persistencia;
+
+import esfe.dominio.MovimientoInventario;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registro de entradas en una jornada de ingreso masivo: una transacción por movimiento
+ * ({@link InventarioService#registrarMovimiento}) frente a la escritura diferida con confirmación
+ * en grupo. Cada invocación registra {@value #MOVIMIENTOS} entradas y espera a que estén confirmadas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MovimientoWriteBehindBenchmark {
+    static final int MOVIMIENTOS = 1000;
+    private static final int COMPUTADORAS = 100;
+
+    private TestDatabase db;
+    private InventarioService inventarioService;
+    private MovimientoWriteBehind writeBehind;
+    private Path journalFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        db = BenchmarkData.populate("writebehindbenchmark", COMPUTADORAS);
+        inventarioService = new InventarioService(db.getConnectionManager());
+        journalFile = Files.createTempFile("movimientos", ".journal");
+        writeBehind = new MovimientoWriteBehind(db.getConnectionManager(), journalFile, 10_000, 500, 20, true, true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException, IOException {
+        writeBehind.close();
+        db.close();
+        Files.deleteIfExists(journalFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIMIENTOS)
+    public void registrarUnoPorUno() throws SQLException {
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            inventarioService.registrarMovimiento(entrada(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVIMIENTOS)
+    public void registrarDiferido() throws SQLException {
+        for (int i = 0; i < MOVIMIENTOS; i++) {
+            writeBehind.submit(entrada(i));
+        }
+        writeBehind.flush();
+    }
+
+    private static MovimientoInventario entrada(int i) {
+        return new MovimientoInventario(i % COMPUTADORAS + 1, MovimientoInventario.TIPO_ENTRADA, "Ingreso masivo");
+    }
+}
@@ -0,0 +1,64 @@
+package esfe.presentacion;
+
+import esfe.dominio.Computadora;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de mostrar un resultado en la tabla de ComputadoraForm (lo que hace createTable):
+ * cargar las filas en el modelo y leer todas sus celdas, como al dibujar la tabla.
+ * No necesita pantalla: el modelo no crea componentes Swing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputadoraTableModelBenchmark {
+    @Param({"200", "5000"})
+    public int rows;
+
+    private List<Computadora> computadoras;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        computadoras = new ArrayList<>(rows);
+        LocalDateTime fecha = LocalDateTime.of(2024, 5, 10, 9, 30);
+        for (int i = 0; i < rows; i++) {
+            Computadora c = new Computadora(i + 1, 1, i % 2 == 0 ? 1 : null, "Dell", "Latitude " + i, String.format("SN-%06d", i),
+                    fecha.plusDays(i % 365), 500.0 + i % 700, Computadora.ESTADO_DISPONIBLE, i % 10 == 0 ? "Revisar batería" : null);
+            c.setCategoriaNombre("Laptops");
+            c.setProveedorNombre(i % 2 == 0 ? "Tecnosur" : null);
+            computadoras.add(c);
+        }
+    }
+
+    @Benchmark
+    public void buildAndRender(Blackhole blackhole) {
+        ComputadoraTableModel model = new ComputadoraTableModel();
+        model.setRows(computadoras);
+        int columns = model.getColumnCount();
+        for (int r = 0; r < model.getRowCount(); r++) {
+            for (int c = 0; c < columns; c++) {
+                blackhole.consume(model.getValueAt(r, c));
+            }
+        }
+    }
+}
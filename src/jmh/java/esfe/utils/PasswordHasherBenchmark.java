@@ -0,0 +1,58 @@
+package esfe.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo de hashear y verificar una contraseña, que se paga en cada inicio de sesión y cambio de
+ * contraseña, según el número de iteraciones de PBKDF2. verifyConcurrent mide la latencia de un
+ * inicio de sesión cuando varios usuarios entran a la vez (el Mac es por hilo, sin contención).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHasherBenchmark {
+    @Param({"10000", "210000"})
+    public int iterations;
+
+    public String password = "Inventario#2024";
+    private PasswordHashEngine engine;
+    private String stored;
+
+    @Setup
+    public void setUp() {
+        engine = new PasswordHasher.Pbkdf2Sha256(iterations);
+        stored = engine.hash(password);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return engine.hash(password);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return engine.verify(password, stored);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean verifyConcurrent() {
+        return engine.verify(password, stored);
+    }
+}
@@ -1,11 +1,23 @@
 package esfe;
 
+import esfe.persistencia.ComputadoraDAO;
 import esfe.presentacion.LoginForm;
 import esfe.presentacion.MainForm;
 import javax.swing.*;
 
 public class Main {
     public static void main(String[] args) {
+        // El índice de búsqueda de computadoras se carga en segundo plano mientras el usuario inicia sesión,
+        // para que la primera búsqueda no tenga que esperarlo.
+        Thread indexLoader = new Thread(() -> {
+            try {
+                new ComputadoraDAO().loadSearchIndex();
+            } catch (Exception e) {
+                System.err.println("Error al precargar el índice de búsqueda; se cargará en la primera búsqueda: " + e.getMessage());
+            }
+        }, "search-index-loader");
+        indexLoader.setDaemon(true);
+        indexLoader.start();
 
         SwingUtilities.invokeLater(() -> {
             // Utiliza el hilo de despacho de eventos (Event Dispatch Thread - EDT) para asegurar
@@ -13,6 +13,12 @@ public class Computadora {
     private double precio;
     private byte estado; // 1: Disponible, 2: Agotado
     private String observaciones;
+    // Versión de la fila para el control de concurrencia optimista; la base de datos la incrementa en cada cambio.
+    private int version;
+    // Datos de solo lectura: las consultas de listado los traen con un JOIN para mostrar
+    // nombres en lugar de IDs. No se guardan al crear o modificar la computadora.
+    private String categoriaNombre;
+    private String proveedorNombre;
 
     // Constantes para los estados de la computadora
     public static final byte ESTADO_DISPONIBLE = 1;
@@ -177,6 +183,30 @@ public class Computadora {
         this.observaciones = observaciones;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public String getCategoriaNombre() {
+        return categoriaNombre;
+    }
+
+    public void setCategoriaNombre(String categoriaNombre) {
+        this.categoriaNombre = categoriaNombre;
+    }
+
+    public String getProveedorNombre() {
+        return proveedorNombre;
+    }
+
+    public void setProveedorNombre(String proveedorNombre) {
+        this.proveedorNombre = proveedorNombre;
+    }
+
     /**
      * Sobrescribe el método toString() para proporcionar una representación legible
      * de la computadora, que será utilizada por JComboBox y otros componentes de UI.
@@ -0,0 +1,297 @@
+package esfe.persistencia;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Inserción por lotes dentro de una sola transacción.
+ *
+ * Cada lote se ejecuta bajo un savepoint:
+ * <ul>
+ *     <li>En SQL Server, como un único INSERT de varias filas con {@code OUTPUT INSERTED.<id>}:
+ *     el driver de SQL Server no devuelve un ID por fila después de {@code executeBatch}.</li>
+ *     <li>En los demás motores (H2), con JDBC batching ({@code executeBatch}).</li>
+ * </ul>
+ * Si una fila del lote falla (p. ej. un NumeroSerie duplicado), o si no se obtiene un ID por
+ * fila, el lote se deshace hasta el savepoint y se repite fila por fila, cada una con su propio
+ * savepoint: las filas válidas se insertan y las inválidas se reportan sin abortar el resto.
+ * La transacción se confirma al final; un error de conexión deshace todo.
+ *
+ * Los savepoints no se liberan con {@code releaseSavepoint}: terminan con la transacción, y el
+ * driver de SQL Server no admite liberarlos (siempre lanza una excepción).
+ */
+final class BatchInserter {
+    /**
+     * Filas por lote cuando no se indica otro tamaño.
+     */
+    static final int DEFAULT_BATCH_SIZE = 100;
+
+    // SQL Server admite hasta 2100 parámetros por sentencia
+    private static final int MAX_PARAMETERS = 2_000;
+    private static final Pattern INSERT = Pattern.compile(
+            "INSERT INTO (\\w+) \\(([^)]*)\\) VALUES \\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Asigna los parámetros de la sentencia INSERT para un elemento.
+     */
+    @FunctionalInterface
+    interface Binder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
+
+    /**
+     * Trabajo adicional sobre las filas insertadas, dentro de la misma transacción y antes de confirmarla.
+     */
+    @FunctionalInterface
+    interface AfterInsert<T> {
+        void apply(Connection connection, List<T> created) throws SQLException;
+    }
+
+    private BatchInserter() {
+    }
+
+    /**
+     * Inserta todos los elementos.
+     *
+     * @param conn Administrador de conexiones.
+     * @param sql Sentencia INSERT con parámetros, de la forma {@code INSERT INTO Tabla (columnas) VALUES (?, ...)}.
+     * @param idColumn Columna IDENTITY de la tabla.
+     * @param items Elementos a insertar.
+     * @param batchSize Filas por lote.
+     * @param binder Asigna los parámetros de cada elemento.
+     * @param idSetter Asigna a cada elemento su ID generado.
+     * @return Los elementos insertados y las filas que fallaron.
+     * @throws SQLException Si falla la conexión o la transacción (en ese caso no se inserta nada).
+     */
+    static <T> BatchResult<T> insertAll(ConnectionManager conn, String sql, String idColumn, List<T> items, int batchSize,
+                                        Binder<T> binder, ObjIntConsumer<T> idSetter) throws SQLException {
+        return insertAll(conn, sql, idColumn, items, batchSize, binder, idSetter, null);
+    }
+
+    /**
+     * Igual que {@link #insertAll(ConnectionManager, String, String, List, int, Binder, ObjIntConsumer)}, pero
+     * ejecuta {@code afterInsert} con las filas insertadas antes de confirmar la transacción.
+     *
+     * @param afterInsert Trabajo adicional en la misma transacción, o null si no se necesita.
+     */
+    static <T> BatchResult<T> insertAll(ConnectionManager conn, String sql, String idColumn, List<T> items, int batchSize,
+                                        Binder<T> binder, ObjIntConsumer<T> idSetter, AfterInsert<T> afterInsert) throws SQLException {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser mayor que 0.");
+        }
+        BatchResult<T> result = new BatchResult<>();
+        if (items.isEmpty()) {
+            return result;
+        }
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            boolean multiRow = ConnectionManager.isSqlServer(connection);
+            int chunkSize = multiRow ? Math.max(1, Math.min(batchSize, MAX_PARAMETERS / parameterCount(sql))) : batchSize;
+            connection.setAutoCommit(false);
+            try {
+                for (int from = 0; from < items.size(); from += chunkSize) {
+                    int to = Math.min(from + chunkSize, items.size());
+                    int[] ids = multiRow
+                            ? insertMultiRow(connection, sql, idColumn, items, from, to, binder)
+                            : insertBatch(connection, ps, items, from, to, binder);
+                    if (ids != null) {
+                        for (int i = from; i < to; i++) {
+                            idSetter.accept(items.get(i), ids[i - from]);
+                            result.addCreated(items.get(i), ids[i - from]);
+                        }
+                        continue;
+                    }
+                    for (int i = from; i < to; i++) {
+                        insertOne(connection, ps, i, items.get(i), binder, idSetter, result);
+                    }
+                }
+                if (afterInsert != null) {
+                    afterInsert.apply(connection, result.getCreated());
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inserta el lote con {@code executeBatch}.
+     *
+     * @return Los IDs generados, o null si alguna fila falló o el driver no devolvió un ID por fila
+     * (en ese caso el lote ya se deshizo hasta su savepoint).
+     */
+    private static <T> int[] insertBatch(Connection connection, PreparedStatement ps, List<T> items, int from, int to,
+                                         Binder<T> binder) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        int[] ids = null;
+        try {
+            for (int i = from; i < to; i++) {
+                binder.bind(ps, items.get(i));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            ids = readBatchKeys(ps, to - from);
+        } catch (BatchUpdateException ex) {
+            // Alguna fila falló: el lote se repite fila por fila para aislarla.
+        } finally {
+            ps.clearBatch();
+        }
+        if (ids == null) {
+            connection.rollback(savepoint);
+        }
+        return ids;
+    }
+
+    /**
+     * Inserta el lote con un único INSERT de varias filas (ver {@link #multiRowSql}).
+     *
+     * @return Los IDs generados en el orden de los elementos, o null si la sentencia falló
+     * (en ese caso el lote ya se deshizo hasta su savepoint).
+     */
+    private static <T> int[] insertMultiRow(Connection connection, String sql, String idColumn, List<T> items, int from, int to,
+                                            Binder<T> binder) throws SQLException {
+        int parameters = parameterCount(sql);
+        Savepoint savepoint = connection.setSavepoint();
+        try (PreparedStatement ps = connection.prepareStatement(multiRowSql(sql, idColumn, to - from))) {
+            int[] offset = new int[1];
+            PreparedStatement row = withParameterOffset(ps, offset);
+            for (int i = from; i < to; i++) {
+                offset[0] = (i - from) * parameters;
+                binder.bind(row, items.get(i));
+            }
+            int[] ids = new int[to - from];
+            int count = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next() && count < ids.length) {
+                    ids[count++] = rs.getInt(1);
+                }
+            }
+            if (count == ids.length) {
+                // Los IDs se asignan en el orden del ORDER BY; OUTPUT no garantiza el orden de las filas
+                Arrays.sort(ids);
+                return ids;
+            }
+        } catch (SQLException ex) {
+            if (CircuitBreaker.isConnectionFailure(ex)) {
+                throw ex;
+            }
+            // Alguna fila falló: el lote se repite fila por fila para aislarla.
+        }
+        connection.rollback(savepoint);
+        return null;
+    }
+
+    /**
+     * Convierte un {@code INSERT INTO Tabla (columnas) VALUES (?, ...)} en un INSERT de varias filas
+     * que devuelve los IDs generados:
+     * <pre>
+     *   INSERT INTO Tabla (columnas) OUTPUT INSERTED.id
+     *   SELECT columnas FROM (VALUES (?, ..., 0), (?, ..., 1)) AS v (columnas, Orden) ORDER BY Orden
+     * </pre>
+     * Con INSERT ... SELECT ... ORDER BY, SQL Server asigna los valores IDENTITY en ese orden.
+     */
+    static String multiRowSql(String sql, String idColumn, int rows) {
+        Matcher matcher = INSERT.matcher(sql.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Sentencia INSERT no admitida para inserción por lotes: " + sql);
+        }
+        String columns = matcher.group(2).trim();
+        String values = matcher.group(3).trim();
+        StringBuilder multi = new StringBuilder("INSERT INTO ").append(matcher.group(1))
+                .append(" (").append(columns).append(") OUTPUT INSERTED.").append(idColumn)
+                .append(" SELECT ").append(columns).append(" FROM (VALUES ");
+        for (int i = 0; i < rows; i++) {
+            multi.append(i == 0 ? "(" : ", (").append(values).append(", ").append(i).append(')');
+        }
+        return multi.append(") AS v (").append(columns).append(", Orden) ORDER BY Orden").toString();
+    }
+
+    private static int parameterCount(String sql) {
+        return (int) sql.chars().filter(c -> c == '?').count();
+    }
+
+    /**
+     * Sentencia que suma {@code offset[0]} al índice de cada parámetro que se asigna, para que el
+     * {@link Binder} de una fila pueda llenar la fila correspondiente de un INSERT de varias filas.
+     */
+    private static PreparedStatement withParameterOffset(PreparedStatement ps, int[] offset) {
+        return (PreparedStatement) Proxy.newProxyInstance(BatchInserter.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                        args[0] = index + offset[0];
+                    }
+                    try {
+                        return method.invoke(ps, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                });
+    }
+
+    private static <T> void insertOne(Connection connection, PreparedStatement ps, int index, T item,
+                                      Binder<T> binder, ObjIntConsumer<T> idSetter, BatchResult<T> result) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        try {
+            binder.bind(ps, item);
+            ps.executeUpdate();
+            int[] ids = readGeneratedKeys(ps, 1);
+            if (ids == null) {
+                throw new SQLException("No se generó ID.");
+            }
+            idSetter.accept(item, ids[0]);
+            result.addCreated(item, ids[0]);
+        } catch (SQLException ex) {
+            if (CircuitBreaker.isConnectionFailure(ex)) {
+                throw ex;
+            }
+            connection.rollback(savepoint);
+            result.addFailure(index, item, ex);
+        }
+    }
+
+    /**
+     * Lee los IDs generados por un lote. Algunos drivers no admiten claves generadas después de
+     * {@code executeBatch}; en ese caso se devuelve null y el lote se repite fila por fila.
+     */
+    private static int[] readBatchKeys(PreparedStatement ps, int expected) {
+        try {
+            return readGeneratedKeys(ps, expected);
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Lee los IDs generados por la última ejecución.
+     *
+     * @return Los IDs, o null si el driver no devolvió exactamente uno por fila.
+     */
+    private static int[] readGeneratedKeys(PreparedStatement ps, int expected) throws SQLException {
+        int[] ids = new int[expected];
+        int count = 0;
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            while (keys.next()) {
+                if (count == expected) {
+                    return null;
+                }
+                ids[count++] = keys.getInt(1);
+            }
+        }
+        return count == expected ? ids : null;
+    }
+}
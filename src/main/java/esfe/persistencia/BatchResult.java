@@ -0,0 +1,80 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resultado de una inserción por lotes. Contiene los elementos insertados (con su ID generado)
+ * y las filas que fallaron, con su posición en la lista original y el error de la base de datos.
+ *
+ * @param <T> Tipo de los elementos insertados.
+ */
+public class BatchResult<T> {
+
+    /**
+     * Fila que no se pudo insertar.
+     */
+    public static final class Failure<T> {
+        private final int index;
+        private final T item;
+        private final SQLException error;
+
+        Failure(int index, T item, SQLException error) {
+            this.index = index;
+            this.item = item;
+            this.error = error;
+        }
+
+        /**
+         * Posición del elemento en la lista recibida por {@code createAll}.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public SQLException getError() {
+            return error;
+        }
+    }
+
+    private final List<T> created = new ArrayList<>();
+    private final List<Integer> generatedIds = new ArrayList<>();
+    private final List<Failure<T>> failures = new ArrayList<>();
+
+    void addCreated(T item, int id) {
+        created.add(item);
+        generatedIds.add(id);
+    }
+
+    void addFailure(int index, T item, SQLException error) {
+        failures.add(new Failure<>(index, item, error));
+    }
+
+    /**
+     * Elementos insertados, en el orden de la lista original, con su ID ya asignado.
+     */
+    public List<T> getCreated() {
+        return Collections.unmodifiableList(created);
+    }
+
+    /**
+     * IDs generados, en el mismo orden que {@link #getCreated()}.
+     */
+    public List<Integer> getGeneratedIds() {
+        return Collections.unmodifiableList(generatedIds);
+    }
+
+    public List<Failure<T>> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
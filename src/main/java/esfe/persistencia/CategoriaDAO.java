@@ -1,5 +1,6 @@
 package esfe.persistencia;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -8,172 +9,217 @@ import java.util.List;
 
 import esfe.dominio.Categoria;
 
+/**
+ * DAO de la tabla Categorias.
+ * Es seguro para uso concurrente: cada método obtiene su propia conexión del pool y
+ * declara sus sentencias y resultados como variables locales.
+ */
 public class CategoriaDAO {
-    private ConnectionManager conn;
-    private PreparedStatement ps;
-    private ResultSet rs;
+    /**
+     * Tiempo de vida de la caché de categorías. Los cambios hechos con este DAO la invalidan
+     * al instante; el TTL solo cubre cambios hechos desde otra instancia de la aplicación.
+     */
+    private static final long CACHE_TTL_MS = 5 * 60_000L;
+
+    private final ConnectionManager conn;
+    private final ReferenceCache<Categoria> cache;
 
     public CategoriaDAO() {
-        conn = ConnectionManager.getInstance();
+        this(ConnectionManager.getInstance());
     }
 
+    CategoriaDAO(ConnectionManager conn) {
+        this.conn = conn;
+        this.cache = conn.getShared("Categorias", () -> new ReferenceCache<>(
+                this::loadAllCategorias,
+                Categoria::getCategoriaID,
+                c -> new Categoria(c.getCategoriaID(), c.getNombre(), c.getDescripcion()),
+                CACHE_TTL_MS));
+    }
 
-    // *** MÉTODO getAllCategorias() - NECESARIO PARA JComboBox ***
+    /**
+     * Devuelve todas las categorías ordenadas por nombre (p. ej. para un JComboBox).
+     * Se leen de la caché de datos de referencia; solo se consulta la base de datos
+     * la primera vez o después de una invalidación.
+     */
     public List<Categoria> getAllCategorias() throws SQLException {
-        List<Categoria> categorias = new ArrayList<>(); // Usar la interfaz List para el tipo de la variable
-        try {
+        return cache.getAll();
+    }
+
+    /**
+     * Devuelve la caché de categorías, útil para búsquedas por ID sin ir a la base de datos
+     * y para consultar sus estadísticas.
+     */
+    public ReferenceCache<Categoria> getCache() {
+        return cache;
+    }
+
+    private List<Categoria> loadAllCategorias() throws SQLException {
+        return conn.read(() -> {
+            List<Categoria> categorias = new ArrayList<>(); // Usar la interfaz List para el tipo de la variable
             // No usamos WHERE, obtenemos todos los registros. Ordenar por nombre es buena práctica para JComboBox.
-            ps = conn.connect().prepareStatement("SELECT CategoriaID, Nombre, Descripcion FROM Categorias ORDER BY Nombre");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Categoria categoria = new Categoria();
-                categoria.setCategoriaID(rs.getInt("CategoriaID")); // Puedes usar el nombre de la columna
-                categoria.setNombre(rs.getString("Nombre"));
-                categoria.setDescripcion(rs.getString("Descripcion"));
-                categorias.add(categoria);
-            }
-        } catch (SQLException ex) {
-            // Es crucial lanzar una nueva SQLException con un mensaje más descriptivo y la causa original.
-            throw new SQLException("Error al obtener todas las categorías de la base de datos: " + ex.getMessage(), ex);
-        } finally {
-            // Asegurarse de cerrar los recursos en el bloque finally
-            if (rs != null) {
-                try { rs.close(); } catch (SQLException e) { /* Loguear o ignorar */ }
-            }
-            if (ps != null) {
-                try { ps.close(); } catch (SQLException e) { /* Loguear o ignorar */ }
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT CategoriaID, Nombre, Descripcion FROM Categorias ORDER BY Nombre");
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    Categoria categoria = new Categoria();
+                    categoria.setCategoriaID(rs.getInt("CategoriaID")); // Puedes usar el nombre de la columna
+                    categoria.setNombre(rs.getString("Nombre"));
+                    categoria.setDescripcion(rs.getString("Descripcion"));
+                    categorias.add(categoria);
+                }
+            } catch (SQLException ex) {
+                // Es crucial lanzar una nueva SQLException con un mensaje más descriptivo y la causa original.
+                throw new SQLException("Error al obtener todas las categorías de la base de datos: " + ex.getMessage(), ex);
             }
-            conn.disconnect(); // Desconectar la conexión
-        }
-        return categorias;
+            return categorias;
+        });
     }
+
+    /**
+     * Inserta la categoría y le asigna el ID generado. Cuesta un solo viaje a la base de datos:
+     * se devuelve el mismo objeto recibido, sin volver a leerlo.
+     */
     public Categoria create(Categoria categoria) throws SQLException {
-        Categoria res = null;
-        ResultSet generatedKeys = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "INSERT INTO Categorias (nombre, descripcion) VALUES (?, ?)",
-                    java.sql.Statement.RETURN_GENERATED_KEYS
-            );
+        return create(categoria, false);
+    }
+
+    /**
+     * Igual que {@link #create(Categoria)}, pero permite volver a leer la fila recién insertada.
+     * Solo es necesario cuando importan valores asignados por el servidor (p. ej. valores
+     * por defecto o conversiones de tipo de la columna); cuesta una consulta adicional.
+     *
+     * @param reread true para devolver la fila leída de la base de datos en lugar del objeto recibido.
+     */
+    public Categoria create(Categoria categoria, boolean reread) throws SQLException {
+        int idGenerado;
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO Categorias (nombre, descripcion) VALUES (?, ?)",
+                     java.sql.Statement.RETURN_GENERATED_KEYS
+             )) {
             ps.setString(1, categoria.getNombre());
             ps.setString(2, categoria.getDescripcion());
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows != 0) {
-                generatedKeys = ps.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int idGenerado = generatedKeys.getInt(1);
-                    res = getById(idGenerado);
-                } else {
+            if (ps.executeUpdate() == 0) {
+                return null;
+            }
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
                     throw new SQLException("Error al crear la categoría, no se generó ID.");
                 }
+                idGenerado = generatedKeys.getInt(1);
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al crear la categoría: " + ex.getMessage(), ex);
-        } finally {
-            if (generatedKeys != null) try { generatedKeys.close(); } catch (SQLException e) {}
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
         }
-        return res;
+        cache.invalidate();
+        categoria.setCategoriaID(idGenerado);
+        return reread ? getById(idGenerado) : categoria;
     }
 
     public boolean update(Categoria categoria) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Categorias SET nombre = ?, descripcion = ? WHERE categoriaId = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Categorias SET nombre = ?, descripcion = ? WHERE categoriaId = ?"
+             )) {
             ps.setString(1, categoria.getNombre());
             ps.setString(2, categoria.getDescripcion());
             ps.setInt(3, categoria.getCategoriaID());
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
-            }
-            ps.close();
+            return invalidateIfChanged(ps.executeUpdate());
         } catch (SQLException ex) {
             throw new SQLException("Error al modificar la categoría: " + ex.getMessage(), ex);
-        } finally {
-            ps = null;
-            conn.disconnect();
         }
-        return res;
     }
 
     public boolean delete(int categoriaId) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Categorias WHERE categoriaId = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM Categorias WHERE categoriaId = ?"
+             )) {
             ps.setInt(1, categoriaId);
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
-            }
+            return invalidateIfChanged(ps.executeUpdate());
         } catch (SQLException ex) {
             throw new SQLException("Error al eliminar la categoría: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
         }
-        return res;
     }
 
     public ArrayList<Categoria> search(String nombre) throws SQLException {
-        ArrayList<Categoria> records = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT categoriaId, nombre, descripcion FROM Categorias WHERE nombre LIKE ?"
-            );
-            ps.setString(1, "%" + nombre + "%");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Categoria cat = new Categoria();
-                cat.setCategoriaID(rs.getInt(1));
-                cat.setNombre(rs.getString(2));
-                cat.setDescripcion(rs.getString(3));
-                records.add(cat);
+        return search(nombre, null);
+    }
+
+    /**
+     * Igual que {@link #search(String)}, pero la consulta puede cancelarse desde otro hilo
+     * mediante el objeto de cancelación (p. ej. cuando el usuario sigue escribiendo).
+     *
+     * @param nombre Texto a buscar.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Las categorías que coinciden con la búsqueda.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public ArrayList<Categoria> search(String nombre, QueryCancellation cancellation) throws SQLException {
+        return conn.read(() -> {
+            ArrayList<Categoria> records = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT categoriaId, nombre, descripcion FROM Categorias WHERE nombre LIKE ?"
+                 )) {
+                ps.setString(1, "%" + nombre + "%");
+
+                if (cancellation != null) {
+                    cancellation.register(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Categoria cat = new Categoria();
+                        cat.setCategoriaID(rs.getInt(1));
+                        cat.setNombre(rs.getString(2));
+                        cat.setDescripcion(rs.getString(3));
+                        records.add(cat);
+                    }
+                } finally {
+                    if (cancellation != null) {
+                        cancellation.unregister();
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al buscar categorías: " + ex.getMessage(), ex);
             }
-            ps.close();
-            rs.close();
-        } catch (SQLException ex) {
-            throw new SQLException("Error al buscar categorías: " + ex.getMessage(), ex);
-        } finally {
-            ps = null;
-            rs = null;
-            conn.disconnect();
-        }
-        return records;
+            return records;
+        });
     }
 
     public Categoria getById(int id) throws SQLException {
-        Categoria cat = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT categoriaId, nombre, descripcion FROM Categorias WHERE categoriaId = ?"
-            );
-            ps.setInt(1, id);
-            rs = ps.executeQuery();
-
-            if (rs.next()) {
-                cat = new Categoria();
-                cat.setCategoriaID(rs.getInt(1));
-                cat.setNombre(rs.getString(2));
-                cat.setDescripcion(rs.getString(3));
+        return conn.read(() -> {
+            Categoria cat = null;
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT categoriaId, nombre, descripcion FROM Categorias WHERE categoriaId = ?"
+                 )) {
+                ps.setInt(1, id);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        cat = new Categoria();
+                        cat.setCategoriaID(rs.getInt(1));
+                        cat.setNombre(rs.getString(2));
+                        cat.setDescripcion(rs.getString(3));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener categoría por ID: " + ex.getMessage(), ex);
             }
-            ps.close();
-            rs.close();
-        } catch (SQLException ex) {
-            throw new SQLException("Error al obtener categoría por ID: " + ex.getMessage(), ex);
-        } finally {
-            ps = null;
-            rs = null;
-            conn.disconnect();
+            return cat;
+        });
+    }
+
+    private boolean invalidateIfChanged(int affectedRows) {
+        if (affectedRows > 0) {
+            cache.invalidate();
         }
-        return cat;
+        return affectedRows > 0;
     }
 }
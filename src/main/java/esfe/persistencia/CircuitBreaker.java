@@ -0,0 +1,223 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Interruptor de circuito de la conexión a la base de datos.
+ *
+ * Tras varios fallos de conexión seguidos el circuito se abre: las llamadas fallan de inmediato,
+ * sin esperar los tiempos de espera del driver, y un hilo en segundo plano prueba la conexión
+ * pasado un tiempo (que se duplica en cada prueba fallida, hasta un máximo). Si la prueba tiene
+ * éxito el circuito se cierra y todo vuelve a la normalidad; los formularios pueden mostrar el
+ * estado registrando un observador con {@link #addListener}.
+ *
+ * <pre>
+ * CLOSED --(N fallos seguidos)--> OPEN --(tiempo de espera)--> HALF_OPEN --(prueba correcta)--> CLOSED
+ *                                  ^                                |
+ *                                  +---------(prueba fallida)-------+
+ * </pre>
+ */
+public final class CircuitBreaker {
+    /**
+     * Estado del circuito.
+     */
+    public enum State {
+        /** La base de datos responde; las llamadas pasan. */
+        CLOSED,
+        /** La base de datos no responde; las llamadas fallan de inmediato hasta la siguiente prueba. */
+        OPEN,
+        /** Se está probando la conexión; las llamadas siguen fallando de inmediato. */
+        HALF_OPEN
+    }
+
+    /**
+     * Comprueba que la base de datos vuelva a responder.
+     */
+    @FunctionalInterface
+    interface Probe {
+        void run() throws SQLException;
+    }
+
+    private final Probe probe;
+    private final int failureThreshold;
+    private final long initialOpenMillis;
+    private final long maxOpenMillis;
+    private final List<Consumer<State>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMillis;
+    private long retryAt;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param probe Prueba de conexión que se ejecuta mientras el circuito está abierto.
+     * @param failureThreshold Fallos de conexión seguidos que abren el circuito.
+     * @param initialOpenMillis Tiempo hasta la primera prueba después de abrirse.
+     * @param maxOpenMillis Tiempo máximo entre pruebas.
+     */
+    CircuitBreaker(Probe probe, int failureThreshold, long initialOpenMillis, long maxOpenMillis) {
+        this.probe = probe;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.initialOpenMillis = initialOpenMillis;
+        this.maxOpenMillis = Math.max(initialOpenMillis, maxOpenMillis);
+        this.openMillis = initialOpenMillis;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Milisegundos que faltan para la siguiente prueba de conexión, o 0 si el circuito está cerrado.
+     */
+    public synchronized long getMillisUntilRetry() {
+        return state == State.CLOSED ? 0 : Math.max(0, retryAt - System.currentTimeMillis());
+    }
+
+    /**
+     * Registra un observador de los cambios de estado. Se llama desde el hilo que provoca el cambio
+     * (un DAO o el hilo de prueba): los formularios deben pasar al EDT con SwingUtilities.invokeLater.
+     */
+    public void addListener(Consumer<State> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<State> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Falla de inmediato si el circuito no está cerrado.
+     *
+     * @throws SQLTransientConnectionException Si la base de datos se considera no disponible.
+     */
+    void check() throws SQLException {
+        if (state != State.CLOSED) {
+            long seconds = (getMillisUntilRetry() + 999) / 1000;
+            throw new SQLTransientConnectionException(
+                    "La base de datos no está disponible; se volverá a intentar en " + seconds + " s.", "08000");
+        }
+    }
+
+    /**
+     * Registra una conexión obtenida correctamente.
+     */
+    void recordSuccess() {
+        if (state == State.CLOSED && consecutiveFailures == 0) {
+            return; // Camino habitual, sin bloqueo
+        }
+        synchronized (this) {
+            consecutiveFailures = 0;
+        }
+    }
+
+    /**
+     * Registra un fallo. Solo los fallos de conexión cuentan para abrir el circuito.
+     */
+    void recordFailure(SQLException ex) {
+        if (!isConnectionFailure(ex)) {
+            return;
+        }
+        boolean opened = false;
+        synchronized (this) {
+            if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+                openMillis = initialOpenMillis;
+                open();
+                opened = true;
+            }
+        }
+        if (opened) {
+            notifyListeners(State.OPEN);
+        }
+    }
+
+    /**
+     * Detiene el hilo de prueba.
+     */
+    synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Indica si el error (o alguna de sus causas) se debe a la conexión y no a la sentencia:
+     * SQLState de clase 08 o las excepciones de conexión de JDBC.
+     */
+    static boolean isConnectionFailure(SQLException ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException
+                    || t instanceof SQLNonTransientConnectionException
+                    || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException sql && sql.getSQLState() != null && sql.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Debe llamarse con el monitor tomado
+    private void open() {
+        state = State.OPEN;
+        retryAt = System.currentTimeMillis() + openMillis;
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "db-circuit-probe");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        scheduler.schedule(this::runProbe, openMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void runProbe() {
+        synchronized (this) {
+            state = State.HALF_OPEN;
+        }
+        notifyListeners(State.HALF_OPEN);
+        State result;
+        try {
+            probe.run();
+            synchronized (this) {
+                consecutiveFailures = 0;
+                openMillis = initialOpenMillis;
+                state = State.CLOSED;
+            }
+            result = State.CLOSED;
+        } catch (SQLException | RuntimeException ex) {
+            synchronized (this) {
+                openMillis = Math.min(openMillis * 2, maxOpenMillis);
+                if (scheduler != null) {
+                    open();
+                } else {
+                    state = State.OPEN; // Cerrado con close(): no se programan más pruebas
+                }
+            }
+            result = State.OPEN;
+        }
+        notifyListeners(result);
+    }
+
+    private void notifyListeners(State newState) {
+        for (Consumer<State> listener : listeners) {
+            try {
+                listener.accept(newState);
+            } catch (RuntimeException ex) {
+                System.err.println("Error al notificar a un observador del interruptor de circuito: " + ex.getMessage());
+            }
+        }
+    }
+}
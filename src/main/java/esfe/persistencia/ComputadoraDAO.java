@@ -1,74 +1,208 @@
 package esfe.persistencia;
 
 import esfe.dominio.Computadora;
+import esfe.dominio.Proveedor;
 
 import java.sql.*;
 import java.time.LocalDateTime; // Importar LocalDateTime
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * DAO de la tabla Computadoras.
+ * Es seguro para uso concurrente: cada método obtiene su propia conexión del pool y
+ * declara sus sentencias y resultados como variables locales.
+ */
 public class ComputadoraDAO {
-    private ConnectionManager conn;
-    private PreparedStatement ps;
-    private ResultSet rs;
+    private static final String SELECT_ALL_ORDERED =
+            "SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones, Version FROM Computadoras ORDER BY Marca, Modelo";
+
+    /**
+     * Columnas y origen de las consultas de listado: incluyen los nombres de la categoría y
+     * del proveedor (LEFT JOIN, el proveedor es opcional) para que la tabla los muestre sin
+     * una consulta adicional por fila.
+     */
+    private static final String SELECT_LIST =
+            "SELECT c.ComputadoraID, c.CategoriaID, c.ProveedorID, c.Marca, c.Modelo, c.NumeroSerie, c.FechaCompra, c.Precio, c.Estado, c.Observaciones, c.Version, "
+            + "cat.Nombre AS CategoriaNombre, p.Nombre AS ProveedorNombre "
+            + "FROM Computadoras c "
+            + "LEFT JOIN Categorias cat ON cat.CategoriaID = c.CategoriaID "
+            + "LEFT JOIN Proveedores p ON p.ProveedorID = c.ProveedorID ";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * Escape de los comodines de LIKE ('%', '_', '[') en el texto buscado.
+     */
+    private static final String LIKE_ESCAPE = " ESCAPE '\\'";
+
+    /**
+     * Campos que carga el índice de búsqueda: los de la computadora y los de su proveedor.
+     */
+    private static final String SELECT_SEARCH_DOCUMENTS =
+            "SELECT c.ComputadoraID, c.Version, c.ProveedorID, c.Marca, c.Modelo, c.NumeroSerie, c.Observaciones, "
+            + "p.Nombre AS ProveedorNombre, p.Email AS ProveedorEmail "
+            + "FROM Computadoras c LEFT JOIN Proveedores p ON p.ProveedorID = c.ProveedorID";
+
+    /**
+     * Filas por viaje a la base de datos al cargar el índice de búsqueda.
+     */
+    private static final int SEARCH_INDEX_FETCH_SIZE = 1000;
+
+    /**
+     * Modo de búsqueda de {@link #search(String, SearchMode, int, QueryCancellation)}.
+     */
+    public enum SearchMode {
+        /**
+         * Marca, modelo o número de serie que empiezan con el texto. Usa los índices de la tabla.
+         */
+        PREFIX,
+        /**
+         * Marca, modelo, número de serie, observaciones o nombre o email del proveedor que contienen
+         * el texto (como LIKE '%texto%'), resuelto con el índice invertido en memoria; solo las filas
+         * encontradas se leen de la base de datos.
+         */
+        SUBSTRING
+    }
+
+    /**
+     * Tiempo de vida del índice de búsqueda (ver {@link ComputadoraSearchIndex}).
+     */
+    private static final long SEARCH_INDEX_TTL_MS = 5 * 60_000L;
+
+    private final ConnectionManager conn;
+    private final ComputadoraSearchIndex searchIndex;
+    private final ReferenceCache<Proveedor> proveedores;
 
     public ComputadoraDAO() {
-        conn = ConnectionManager.getInstance();
+        this(ConnectionManager.getInstance());
+    }
+
+    ComputadoraDAO(ConnectionManager conn) {
+        this.conn = conn;
+        this.searchIndex = searchIndex(conn);
+        this.proveedores = new ProveedorDAO(conn).getCache();
     }
 
+    /**
+     * Índice de búsqueda de las computadoras de una base de datos; lo comparten todos sus DAO.
+     */
+    static ComputadoraSearchIndex searchIndex(ConnectionManager conn) {
+        return conn.getShared("Computadoras.busqueda", () -> new ComputadoraSearchIndex(index -> loadSearchDocuments(conn, index), SEARCH_INDEX_TTL_MS));
+    }
+
+    /**
+     * Carga el índice de búsqueda si aún no está cargado. Se llama al iniciar la aplicación para
+     * que la primera búsqueda no espere la carga; desde entonces el índice se mantiene al día
+     * con los cambios hechos por los DAO y se vuelve a cargar cada {@value #SEARCH_INDEX_TTL_MS} ms.
+     *
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public void loadSearchIndex() throws SQLException {
+        searchIndex.load();
+    }
+
+    /**
+     * Inserta la computadora con la fecha de compra actual y le asigna el ID generado.
+     * Cuesta un solo viaje a la base de datos: se devuelve el mismo objeto recibido, sin volver a leerlo.
+     */
     public Computadora create(Computadora computadora) throws SQLException {
-        Computadora res = null;
-        ResultSet generatedKeys = null;
-        try {
-            // Asignar la fecha y hora actual automáticamente antes de insertar
-            computadora.setFechaCompra(LocalDateTime.now());
+        return create(computadora, false);
+    }
 
-            ps = conn.connect().prepareStatement(
-                    "INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS
-            );
-            ps.setInt(1, computadora.getCategoriaID());
-            // ps.setObject(2, computadora.getProveedorID(), Types.INTEGER); es correcto si ProveedorID puede ser null
-            if (computadora.getProveedorID() == null) {
-                ps.setNull(2, Types.INTEGER);
-            } else {
-                ps.setInt(2, computadora.getProveedorID());
-            }
-            ps.setString(3, computadora.getMarca());
-            ps.setString(4, computadora.getModelo());
-            ps.setString(5, computadora.getNumeroSerie());
-            // Usar setObject para LocalDateTime, que JDBC 4.2+ puede mapear a DATETIME/DATETIME2
-            ps.setObject(6, computadora.getFechaCompra());
-            ps.setDouble(7, computadora.getPrecio());
-            ps.setByte(8, computadora.getEstado());
-            ps.setString(9, computadora.getObservaciones());
+    /**
+     * Igual que {@link #create(Computadora)}, pero permite volver a leer la fila recién insertada.
+     * Solo es necesario cuando importan valores asignados por el servidor (p. ej. valores
+     * por defecto o conversiones de tipo de la columna); cuesta una consulta adicional.
+     *
+     * @param reread true para devolver la fila leída de la base de datos en lugar del objeto recibido.
+     */
+    public Computadora create(Computadora computadora, boolean reread) throws SQLException {
+        int idGenerado;
+        // Asignar la fecha y hora actual automáticamente antes de insertar
+        computadora.setFechaCompra(LocalDateTime.now());
+
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(ps, computadora);
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows != 0) {
-                generatedKeys = ps.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int idGenerado = generatedKeys.getInt(1);
-                    res = getById(idGenerado); // Recuperar el objeto completo con el ID generado
-                } else {
+            if (ps.executeUpdate() == 0) {
+                return null;
+            }
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
                     throw new SQLException("Error al crear la computadora, no se generó ID.");
                 }
+                idGenerado = generatedKeys.getInt(1);
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al crear la computadora: " + ex.getMessage(), ex);
-        } finally {
-            if (generatedKeys != null) try { generatedKeys.close(); } catch (SQLException e) { /* Ignorar */ }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { /* Ignorar */ }
-            conn.disconnect();
         }
-        return res;
+        computadora.setComputadoraID(idGenerado);
+        index(computadora);
+        // Solo se vuelve a leer si se pide (la conexión anterior ya fue devuelta al pool)
+        return reread ? getById(idGenerado) : computadora;
     }
 
-    public boolean update(Computadora computadora) throws SQLException {
-        boolean res = false;
+    /**
+     * Inserta varias computadoras (p. ej. un envío completo) usando lotes JDBC en una sola transacción,
+     * con el tamaño de lote por defecto.
+     *
+     * @see #createAll(List, int)
+     */
+    public BatchResult<Computadora> createAll(List<Computadora> computadoras) throws SQLException {
+        return createAll(computadoras, BatchInserter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Inserta varias computadoras usando lotes JDBC en una sola transacción. A cada computadora
+     * insertada se le asigna su ID generado y la fecha de compra actual. Una fila que falla
+     * (p. ej. un NumeroSerie duplicado) se reporta en el resultado sin detener las demás.
+     *
+     * @param computadoras Computadoras a insertar.
+     * @param batchSize Filas por lote.
+     * @return Las computadoras insertadas y las filas que fallaron.
+     * @throws SQLException Si falla la conexión o la transacción; en ese caso no se inserta ninguna.
+     */
+    public BatchResult<Computadora> createAll(List<Computadora> computadoras, int batchSize) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        for (Computadora computadora : computadoras) {
+            computadora.setFechaCompra(now);
+        }
+        BatchResult<Computadora> result;
         try {
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Computadoras SET CategoriaID = ?, ProveedorID = ?, Marca = ?, Modelo = ?, NumeroSerie = ?, FechaCompra = ?, Precio = ?, Estado = ?, Observaciones = ? WHERE ComputadoraID = ?"
-            );
+            result = BatchInserter.insertAll(conn, INSERT_SQL, "ComputadoraID", computadoras, batchSize,
+                    ComputadoraDAO::bindInsert, Computadora::setComputadoraID);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al crear las computadoras: " + ex.getMessage(), ex);
+        }
+        for (Computadora computadora : result.getCreated()) {
+            index(computadora);
+        }
+        return result;
+    }
+
+    /**
+     * Modifica la computadora con control de concurrencia optimista: solo se guarda si la fila
+     * conserva la versión con la que se leyó. Al guardar, la versión se incrementa en la base de
+     * datos y en el objeto.
+     *
+     * @param computadora La computadora con los datos modificados y la versión leída.
+     * @return true si se modificó, false si la computadora ya no existe.
+     * @throws OptimisticLockException Si otro usuario (o un movimiento de inventario) la modificó después de leerla.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public boolean update(Computadora computadora) throws SQLException {
+        int updated;
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Computadoras SET CategoriaID = ?, ProveedorID = ?, Marca = ?, Modelo = ?, NumeroSerie = ?, FechaCompra = ?, Precio = ?, Estado = ?, Observaciones = ?, Version = Version + 1 WHERE ComputadoraID = ? AND Version = ?"
+             )) {
             ps.setInt(1, computadora.getCategoriaID());
             if (computadora.getProveedorID() == null) {
                 ps.setNull(2, Types.INTEGER);
@@ -84,107 +218,254 @@ public class ComputadoraDAO {
             ps.setByte(8, computadora.getEstado());
             ps.setString(9, computadora.getObservaciones());
             ps.setInt(10, computadora.getComputadoraID());
+            ps.setInt(11, computadora.getVersion());
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
-            }
+            updated = ps.executeUpdate();
         } catch (SQLException ex) {
             throw new SQLException("Error al modificar la computadora: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { /* Ignorar */ }
-            conn.disconnect();
         }
-        return res;
+        if (updated > 0) {
+            computadora.setVersion(computadora.getVersion() + 1);
+            index(computadora);
+            return true;
+        }
+        // Ninguna fila con esa versión: se distingue entre una computadora eliminada y una modificada por otro.
+        if (getById(computadora.getComputadoraID()) != null) {
+            throw new OptimisticLockException("La computadora fue modificada por otro usuario. Vuelva a abrirla para ver los cambios.");
+        }
+        return false;
     }
 
     public boolean delete(int computadoraID) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Computadoras WHERE ComputadoraID = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM Computadoras WHERE ComputadoraID = ?"
+             )) {
             ps.setInt(1, computadoraID);
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
+            if (ps.executeUpdate() == 0) {
+                return false;
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al eliminar la computadora: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { /* Ignorar */ }
-            conn.disconnect();
         }
-        return res;
+        searchIndex.remove(computadoraID);
+        return true;
     }
 
     public ArrayList<Computadora> search(String query) throws SQLException {
-        ArrayList<Computadora> records = new ArrayList<>();
-        // Mejora: Permite buscar también por Número de Serie
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones FROM Computadoras WHERE Marca LIKE ? OR Modelo LIKE ? OR NumeroSerie LIKE ?"
-            );
-            ps.setString(1, "%" + query + "%");
-            ps.setString(2, "%" + query + "%");
-            ps.setString(3, "%" + query + "%"); // Añadir búsqueda por Número de Serie
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Computadora comp = new Computadora();
-                comp.setComputadoraID(rs.getInt("ComputadoraID")); // Usar nombre de columna para claridad
-                comp.setCategoriaID(rs.getInt("CategoriaID"));
-                comp.setProveedorID(rs.getObject("ProveedorID", Integer.class));
-                comp.setMarca(rs.getString("Marca"));
-                comp.setModelo(rs.getString("Modelo"));
-                comp.setNumeroSerie(rs.getString("NumeroSerie"));
-                // Leer LocalDateTime directamente
-                comp.setFechaCompra(rs.getObject("FechaCompra", LocalDateTime.class));
-                comp.setPrecio(rs.getDouble("Precio"));
-                comp.setEstado(rs.getByte("Estado"));
-                comp.setObservaciones(rs.getString("Observaciones"));
-                records.add(comp);
+        return search(query, null);
+    }
+
+    /**
+     * Igual que {@link #search(String)}, pero la consulta puede cancelarse desde otro hilo
+     * mediante el objeto de cancelación (p. ej. cuando el usuario sigue escribiendo).
+     *
+     * @param query Texto a buscar.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Las computadoras que coinciden con la búsqueda.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public ArrayList<Computadora> search(String query, QueryCancellation cancellation) throws SQLException {
+        return conn.read(() -> {
+            ArrayList<Computadora> records = new ArrayList<>();
+            // Mejora: Permite buscar también por Número de Serie
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         SELECT_LIST + "WHERE c.Marca LIKE ? OR c.Modelo LIKE ? OR c.NumeroSerie LIKE ?"
+                 )) {
+                ps.setString(1, "%" + query + "%");
+                ps.setString(2, "%" + query + "%");
+                ps.setString(3, "%" + query + "%"); // Añadir búsqueda por Número de Serie
+
+                if (cancellation != null) {
+                    cancellation.register(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        records.add(mapListRow(rs));
+                    }
+                } finally {
+                    if (cancellation != null) {
+                        cancellation.unregister();
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al buscar computadoras: " + ex.getMessage(), ex);
+            }
+            return records;
+        });
+    }
+
+    /**
+     * Búsqueda con relevancia y límite de resultados, pensada para la búsqueda mientras se escribe.
+     * Los resultados se ordenan así: número de serie igual al texto, número de serie que empieza
+     * con el texto, marca o modelo que empiezan con el texto y, solo en modo SUBSTRING, cualquier
+     * otra coincidencia; los empates se ordenan por marca y modelo.
+     *
+     * @param query Texto a buscar.
+     * @param mode Modo de búsqueda.
+     * @param limit Número máximo de resultados.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Las computadoras encontradas, de la más a la menos relevante.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public List<Computadora> search(String query, SearchMode mode, int limit, QueryCancellation cancellation) throws SQLException {
+        return conn.read(() -> {
+            if (limit < 1) {
+                throw new IllegalArgumentException("El límite de resultados debe ser mayor que 0.");
+            }
+            String text = query.trim();
+            if (mode == SearchMode.SUBSTRING) {
+                try {
+                    return getByIds(searchIndex.search(text, limit), cancellation);
+                } catch (SQLException ex) {
+                    throw new SQLException("Error al buscar computadoras: " + ex.getMessage(), ex);
+                }
+            }
+            return searchPrefix(text, limit, cancellation);
+        });
+    }
+
+    private List<Computadora> searchPrefix(String text, int limit, QueryCancellation cancellation) throws SQLException {
+        String prefix = escapeLike(text) + "%";
+        List<Computadora> records = new ArrayList<>();
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     SELECT_LIST + "WHERE c.NumeroSerie LIKE ?" + LIKE_ESCAPE + " OR c.Marca LIKE ?" + LIKE_ESCAPE + " OR c.Modelo LIKE ?" + LIKE_ESCAPE + " "
+                             + "ORDER BY CASE WHEN c.NumeroSerie = ? THEN 0 WHEN c.NumeroSerie LIKE ?" + LIKE_ESCAPE + " THEN 1 ELSE 2 END, c.Marca, c.Modelo, c.ComputadoraID "
+                             + "OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY"
+             )) {
+            ps.setString(1, prefix);
+            ps.setString(2, prefix);
+            ps.setString(3, prefix);
+            ps.setString(4, text);
+            ps.setString(5, prefix);
+            ps.setInt(6, limit);
+
+            if (cancellation != null) {
+                cancellation.register(ps);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    records.add(mapListRow(rs));
+                }
+            } finally {
+                if (cancellation != null) {
+                    cancellation.unregister();
+                }
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al buscar computadoras: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { /* Ignorar */ }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { /* Ignorar */ }
-            conn.disconnect();
         }
         return records;
     }
 
-    public Computadora getById(int id) throws SQLException {
-        Computadora comp = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones FROM Computadoras WHERE ComputadoraID = ?"
-            );
-            ps.setInt(1, id);
-            rs = ps.executeQuery();
-
-            if (rs.next()) {
-                comp = new Computadora();
-                comp.setComputadoraID(rs.getInt("ComputadoraID"));
-                comp.setCategoriaID(rs.getInt("CategoriaID"));
-                comp.setProveedorID(rs.getObject("ProveedorID", Integer.class));
-                comp.setMarca(rs.getString("Marca"));
-                comp.setModelo(rs.getString("Modelo"));
-                comp.setNumeroSerie(rs.getString("NumeroSerie"));
-                // Leer LocalDateTime directamente
-                comp.setFechaCompra(rs.getObject("FechaCompra", LocalDateTime.class));
-                comp.setPrecio(rs.getDouble("Precio"));
-                comp.setEstado(rs.getByte("Estado"));
-                comp.setObservaciones(rs.getString("Observaciones"));
+    /**
+     * Lee las computadoras indicadas con una sola consulta y las devuelve en el mismo orden que los IDs.
+     */
+    private List<Computadora> getByIds(int[] ids, QueryCancellation cancellation) throws SQLException {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        StringBuilder sql = new StringBuilder(SELECT_LIST).append("WHERE c.ComputadoraID IN (");
+        for (int i = 0; i < ids.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+
+        Map<Integer, Computadora> byId = new HashMap<>(ids.length * 2);
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.length; i++) {
+                ps.setInt(i + 1, ids[i]);
+            }
+            if (cancellation != null) {
+                cancellation.register(ps);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Computadora comp = mapListRow(rs);
+                    byId.put(comp.getComputadoraID(), comp);
+                }
+            } finally {
+                if (cancellation != null) {
+                    cancellation.unregister();
+                }
             }
+        }
+        List<Computadora> ordered = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Computadora comp = byId.get(id);
+            // Puede faltar si se eliminó después de cargar el índice
+            if (comp != null) {
+                ordered.add(comp);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Carga todas las computadoras en el índice de búsqueda, leyendo las filas a medida que se
+     * recorren para no tener la tabla completa en memoria además del índice.
+     */
+    private static void loadSearchDocuments(ConnectionManager conn, ComputadoraSearchIndex index) throws SQLException {
+        try {
+            RowStreams.forEach(conn, SELECT_SEARCH_DOCUMENTS, SEARCH_INDEX_FETCH_SIZE, rs -> new ComputadoraSearchIndex.Document(
+                    rs.getInt("ComputadoraID"), rs.getInt("Version"), rs.getObject("ProveedorID", Integer.class),
+                    rs.getString("Marca"), rs.getString("Modelo"), rs.getString("NumeroSerie"), rs.getString("Observaciones"),
+                    rs.getString("ProveedorNombre"), rs.getString("ProveedorEmail")), index::put);
         } catch (SQLException ex) {
-            throw new SQLException("Error al obtener computadora por ID: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { /* Ignorar */ }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { /* Ignorar */ }
-            conn.disconnect();
+            throw new SQLException("Error al cargar el índice de búsqueda de computadoras: " + ex.getMessage(), ex);
         }
-        return comp;
+    }
+
+    /**
+     * Informa al índice de búsqueda una computadora creada o modificada, con los datos de su
+     * proveedor leídos de la caché. Si el índice no está cargado no hace nada: la carga leerá la fila.
+     * El cambio ya está guardado, así que un error al leer el proveedor no se propaga: el índice
+     * se descarta y se vuelve a cargar en la próxima búsqueda.
+     */
+    private void index(Computadora computadora) {
+        if (!searchIndex.isActive()) {
+            return;
+        }
+        Proveedor proveedor;
+        try {
+            proveedor = computadora.getProveedorID() == null ? null : proveedores.getById(computadora.getProveedorID());
+        } catch (SQLException ex) {
+            searchIndex.invalidate();
+            return;
+        }
+        searchIndex.put(new ComputadoraSearchIndex.Document(computadora.getComputadoraID(), computadora.getVersion(),
+                computadora.getProveedorID(), computadora.getMarca(), computadora.getModelo(), computadora.getNumeroSerie(),
+                computadora.getObservaciones(), proveedor == null ? null : proveedor.getNombre(),
+                proveedor == null ? null : proveedor.getEmail()));
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_").replace("[", "\\[");
+    }
+
+    public Computadora getById(int id) throws SQLException {
+        return conn.read(() -> {
+            Computadora comp = null;
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones, Version FROM Computadoras WHERE ComputadoraID = ?"
+                 )) {
+                ps.setInt(1, id);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        comp = mapRowToComputadora(rs);
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener computadora por ID: " + ex.getMessage(), ex);
+            }
+            return comp;
+        });
     }
 
     /**
@@ -194,24 +475,128 @@ public class ComputadoraDAO {
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public List<Computadora> getAllComputadoras() throws SQLException {
-        List<Computadora> computadoras = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones FROM Computadoras ORDER BY Marca, Modelo"
-            );
-            rs = ps.executeQuery();
+        return conn.read(() -> {
+            List<Computadora> computadoras = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(SELECT_ALL_ORDERED);
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    computadoras.add(mapRowToComputadora(rs)); // Reutiliza el método de mapeo
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener todas las computadoras: " + ex.getMessage(), ex);
+            }
+            return computadoras;
+        });
+    }
 
-            while (rs.next()) {
-                computadoras.add(mapRowToComputadora(rs)); // Reutiliza el método de mapeo
+    /**
+     * Obtiene una página de computadoras ordenadas por Marca, Modelo y ComputadoraID.
+     * Usa paginación por conjunto de claves: cada página continúa a partir de la última fila
+     * de la anterior, por lo que el costo no crece con el número de página y la memoria
+     * usada se limita al tamaño de la página.
+     *
+     * @param pageToken Token de continuación de la página anterior, o null para la primera página.
+     * @param pageSize Número máximo de computadoras de la página.
+     * @return La página de computadoras con el token para la siguiente.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public Page<Computadora> getComputadorasPage(String pageToken, int pageSize) throws SQLException {
+        return conn.read(() -> {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0.");
             }
+            String sql = SELECT_LIST
+                    + (pageToken == null ? "" : "WHERE c.Marca > ? OR (c.Marca = ? AND (c.Modelo > ? OR (c.Modelo = ? AND c.ComputadoraID > ?))) ")
+                    + "ORDER BY c.Marca, c.Modelo, c.ComputadoraID OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+            List<Computadora> computadoras = new ArrayList<>(pageSize + 1);
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(sql)) {
+                int index = 1;
+                if (pageToken != null) {
+                    String[] last = PageToken.decode(pageToken, 3);
+                    ps.setString(index++, last[0]);
+                    ps.setString(index++, last[0]);
+                    ps.setString(index++, last[1]);
+                    ps.setString(index++, last[1]);
+                    ps.setInt(index++, Integer.parseInt(last[2]));
+                }
+                // Se pide una fila extra para saber si existe una página siguiente.
+                ps.setInt(index, pageSize + 1);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        computadoras.add(mapListRow(rs));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener la página de computadoras: " + ex.getMessage(), ex);
+            }
+
+            String nextToken = null;
+            if (computadoras.size() > pageSize) {
+                computadoras.remove(pageSize);
+                Computadora last = computadoras.get(pageSize - 1);
+                nextToken = PageToken.encode(last.getMarca(), last.getModelo(), String.valueOf(last.getComputadoraID()));
+            }
+            return new Page<>(computadoras, nextToken);
+        });
+    }
+
+    /**
+     * Devuelve todas las computadoras como un Stream que lee las filas a medida que se consumen,
+     * en el mismo orden que getAllComputadoras. Pensado para exportaciones y reportes:
+     * la memoria usada no depende del número de filas.
+     * El Stream mantiene una conexión prestada y debe cerrarse (try-with-resources).
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @return Stream de computadoras.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public Stream<Computadora> streamComputadoras(int fetchSize) throws SQLException {
+        try {
+            return RowStreams.stream(conn, SELECT_ALL_ORDERED, fetchSize, ComputadoraDAO::mapRowToComputadora);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al recorrer las computadoras: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Entrega cada computadora al consumidor a medida que se lee, sin construir una lista.
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @param action Consumidor de cada computadora.
+     * @return Número de computadoras procesadas.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public int forEachComputadora(int fetchSize, Consumer<? super Computadora> action) throws SQLException {
+        try {
+            return RowStreams.forEach(conn, SELECT_ALL_ORDERED, fetchSize, ComputadoraDAO::mapRowToComputadora, action);
         } catch (SQLException ex) {
-            throw new SQLException("Error al obtener todas las computadoras: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
+            throw new SQLException("Error al recorrer las computadoras: " + ex.getMessage(), ex);
         }
-        return computadoras;
+    }
+
+    /**
+     * Asigna los parámetros de INSERT_SQL a partir de una computadora.
+     */
+    private static void bindInsert(PreparedStatement ps, Computadora computadora) throws SQLException {
+        ps.setInt(1, computadora.getCategoriaID());
+        // ps.setObject(2, computadora.getProveedorID(), Types.INTEGER); es correcto si ProveedorID puede ser null
+        if (computadora.getProveedorID() == null) {
+            ps.setNull(2, Types.INTEGER);
+        } else {
+            ps.setInt(2, computadora.getProveedorID());
+        }
+        ps.setString(3, computadora.getMarca());
+        ps.setString(4, computadora.getModelo());
+        ps.setString(5, computadora.getNumeroSerie());
+        // Usar setObject para LocalDateTime, que JDBC 4.2+ puede mapear a DATETIME/DATETIME2
+        ps.setObject(6, computadora.getFechaCompra());
+        ps.setDouble(7, computadora.getPrecio());
+        ps.setByte(8, computadora.getEstado());
+        ps.setString(9, computadora.getObservaciones());
     }
 
     /**
@@ -222,7 +607,7 @@ public class ComputadoraDAO {
      * @return Un objeto Computadora con los datos de la fila actual.
      * @throws SQLException Si ocurre un error al leer los datos del ResultSet.
      */
-    private Computadora mapRowToComputadora(ResultSet rs) throws SQLException {
+    static Computadora mapRowToComputadora(ResultSet rs) throws SQLException {
         Computadora comp = new Computadora();
         comp.setComputadoraID(rs.getInt("ComputadoraID"));
         comp.setCategoriaID(rs.getInt("CategoriaID"));
@@ -246,6 +631,18 @@ public class ComputadoraDAO {
         comp.setPrecio(rs.getDouble("Precio"));
         comp.setEstado(rs.getByte("Estado"));
         comp.setObservaciones(rs.getString("Observaciones"));
+        comp.setVersion(rs.getInt("Version"));
+        return comp;
+    }
+
+    /**
+     * Mapea una fila de las consultas de listado: la computadora más los nombres de su
+     * categoría y proveedor.
+     */
+    private Computadora mapListRow(ResultSet rs) throws SQLException {
+        Computadora comp = mapRowToComputadora(rs);
+        comp.setCategoriaNombre(rs.getString("CategoriaNombre"));
+        comp.setProveedorNombre(rs.getString("ProveedorNombre"));
         return comp;
     }
 }
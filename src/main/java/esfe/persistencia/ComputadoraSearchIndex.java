@@ -0,0 +1,423 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria sobre los campos de texto de las computadoras (marca, modelo,
+ * número de serie y observaciones) y de su proveedor (nombre y email). Resuelve búsquedas por
+ * subcadena, equivalentes a LIKE '%texto%', sin ir a la base de datos.
+ *
+ * Los términos del índice son trigramas (tres caracteres seguidos, en minúsculas); cada uno
+ * apunta a la lista ordenada de IDs de las computadoras que lo contienen, guardada en un
+ * arreglo de int. Una búsqueda intersecta las listas de los trigramas del texto, empezando
+ * por la más corta, y verifica los candidatos. Los textos de menos de 3 caracteres no tienen
+ * trigramas: se recorren todos los documentos en memoria.
+ *
+ * El índice se carga completo una vez (al iniciar la aplicación o en la primera búsqueda) y
+ * luego se mantiene al día con cada alta, cambio o baja hecha por los DAO. Cada documento
+ * guarda la versión de la fila: un cambio que llega con una versión anterior a la indexada
+ * se ignora, así que el orden en que se aplican los cambios concurrentes no importa.
+ * Como en {@link ReferenceCache}, un tiempo de vida (TTL) cubre los cambios hechos por otras
+ * instancias de la aplicación: vencido, la siguiente búsqueda vuelve a cargar el índice completo.
+ * Es seguro para uso concurrente.
+ */
+final class ComputadoraSearchIndex {
+    private static final int TRIGRAM_LENGTH = 3;
+
+    /**
+     * Documento encontrado y su relevancia, calculada una sola vez.
+     */
+    private record Match(int rank, Document document) {
+    }
+
+    private static final Comparator<Match> MATCH_ORDER = Comparator.comparingInt(Match::rank)
+            .thenComparing(m -> m.document().marca)
+            .thenComparing(m -> m.document().modelo)
+            .thenComparingInt(m -> m.document().id);
+
+    /**
+     * Carga todas las computadoras, con los datos de su proveedor, en el índice.
+     */
+    @FunctionalInterface
+    interface Loader {
+        void loadAll(ComputadoraSearchIndex index) throws SQLException;
+    }
+
+    /**
+     * Campos de búsqueda de una computadora, ya normalizados.
+     */
+    static final class Document {
+        private final int id;
+        private final int version;
+        private final Integer proveedorID;
+        private final String marca;
+        private final String modelo;
+        private final String numeroSerie;
+        private final String observaciones;
+        private final String proveedorNombre;
+        private final String proveedorEmail;
+
+        Document(int id, int version, Integer proveedorID, String marca, String modelo, String numeroSerie,
+                 String observaciones, String proveedorNombre, String proveedorEmail) {
+            this.id = id;
+            this.version = version;
+            this.proveedorID = proveedorID;
+            this.marca = normalize(marca);
+            this.modelo = normalize(modelo);
+            this.numeroSerie = normalize(numeroSerie);
+            this.observaciones = normalize(observaciones);
+            this.proveedorNombre = normalize(proveedorNombre);
+            this.proveedorEmail = normalize(proveedorEmail);
+        }
+
+        private Document withProveedor(String nombre, String email) {
+            return new Document(id, version, proveedorID, marca, modelo, numeroSerie, observaciones, nombre, email);
+        }
+
+        private String[] fields() {
+            return new String[]{marca, modelo, numeroSerie, observaciones, proveedorNombre, proveedorEmail};
+        }
+    }
+
+    /**
+     * Lista de IDs ordenada de forma ascendente y sin repetidos, en un arreglo de int que crece
+     * según se necesita. Los IDs nuevos suelen ser los mayores (columnas IDENTITY), así que
+     * agregar uno normalmente no desplaza elementos.
+     */
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int pos = Arrays.binarySearch(ids, 0, size, id);
+                if (pos >= 0) {
+                    return;
+                }
+                insertAt(-pos - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int pos, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        private void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+    }
+
+    private final Loader loader;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    // true desde que empieza la carga; los cambios que llegan durante la carga esperan a que termine
+    private volatile boolean started;
+    private volatile boolean loaded;
+    private volatile long loadedAt;
+    private volatile long ttlMillis;
+
+    /**
+     * @param ttlMillis Tiempo de vida del índice en milisegundos; 0 para que no venza.
+     */
+    ComputadoraSearchIndex(Loader loader, long ttlMillis) {
+        this.loader = loader;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Carga el índice si aún no está cargado o si venció su tiempo de vida. Mientras dura la
+     * carga, las búsquedas y los cambios esperan.
+     *
+     * @throws SQLException Si falla la consulta; el índice queda sin cargar y se reintenta en la próxima búsqueda.
+     */
+    void load() throws SQLException {
+        if (loaded && !isExpired()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (loaded && !isExpired()) {
+                return;
+            }
+            if (loaded) {
+                loaded = false;
+                postings.clear();
+                documents.clear();
+            }
+            started = true;
+            try {
+                loader.loadAll(this);
+                loadedAt = System.currentTimeMillis();
+                loaded = true;
+            } finally {
+                if (!loaded) {
+                    started = false;
+                    postings.clear();
+                    documents.clear();
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Descarta el contenido; la próxima búsqueda vuelve a cargar el índice. Se usa cuando no se
+     * puede informar un cambio (p. ej. porque no se pudieron leer los datos del proveedor).
+     */
+    void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            started = false;
+            postings.clear();
+            documents.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    private boolean isExpired() {
+        long ttl = ttlMillis;
+        return ttl > 0 && System.currentTimeMillis() - loadedAt > ttl;
+    }
+
+    /**
+     * Indica si el índice está cargado o cargándose, es decir, si los DAO deben informarle sus cambios.
+     * Si no, la carga posterior leerá directamente el estado de la tabla.
+     */
+    boolean isActive() {
+        return started;
+    }
+
+    /**
+     * Agrega o reemplaza un documento. Se ignora si el índice ya tiene una versión posterior de la fila.
+     */
+    void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            if (!started) {
+                return;
+            }
+            Document old = documents.get(document.id);
+            if (old != null) {
+                if (old.version > document.version) {
+                    return;
+                }
+                unindex(old);
+            }
+            documents.put(document.id, document);
+            for (String trigram : trigrams(document.fields())) {
+                postings.computeIfAbsent(trigram, k -> new Postings()).add(document.id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita un documento (la computadora se eliminó).
+     */
+    void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Document old = documents.remove(id);
+            if (old != null) {
+                unindex(old);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Actualiza el nombre y el email del proveedor en los documentos de sus computadoras.
+     */
+    void updateProveedor(int proveedorID, String nombre, String email) {
+        lock.writeLock().lock();
+        try {
+            List<Document> affected = new ArrayList<>();
+            for (Document document : documents.values()) {
+                if (document.proveedorID != null && document.proveedorID == proveedorID) {
+                    affected.add(document);
+                }
+            }
+            for (Document document : affected) {
+                put(document.withProveedor(nombre, email));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca las computadoras que contienen el texto en alguno de sus campos, sin distinguir mayúsculas.
+     * El resultado se ordena por relevancia: número de serie igual al texto, número de serie que
+     * empieza con el texto, marca o modelo que empiezan con el texto y, al final, cualquier otra
+     * coincidencia; los empates se ordenan por marca, modelo e ID.
+     *
+     * @param query Texto buscado.
+     * @param limit Número máximo de resultados.
+     * @return Los IDs encontrados, ordenados.
+     * @throws SQLException Si hay que cargar el índice y la consulta falla.
+     */
+    int[] search(String query, int limit) throws SQLException {
+        load();
+        String normalized = normalize(query);
+        lock.readLock().lock();
+        try {
+            // Se conservan solo los {@code limit} mejores: la raíz del montículo es el peor de ellos
+            PriorityQueue<Match> best = new PriorityQueue<>(MATCH_ORDER.reversed());
+            if (normalized.length() < TRIGRAM_LENGTH) {
+                for (Document document : documents.values()) {
+                    offer(best, document, normalized, limit);
+                }
+            } else {
+                for (int id : candidates(normalized)) {
+                    // Los trigramas pueden venir de campos distintos: se verifica la subcadena completa
+                    offer(best, documents.get(id), normalized, limit);
+                }
+            }
+            Match[] sorted = best.toArray(new Match[0]);
+            Arrays.sort(sorted, MATCH_ORDER);
+            int[] ids = new int[sorted.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = sorted[i].document().id;
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<Match> best, Document document, String normalized, int limit) {
+        int rank = rank(document, normalized);
+        if (rank < 0) {
+            return;
+        }
+        Match match = new Match(rank, document);
+        if (best.size() < limit) {
+            best.add(match);
+        } else if (MATCH_ORDER.compare(match, best.peek()) < 0) {
+            best.poll();
+            best.add(match);
+        }
+    }
+
+    /**
+     * Número de computadoras indexadas.
+     */
+    int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Intersección de las listas de los trigramas del texto. Se parte de la lista más corta y
+     * cada candidato se busca en las demás por búsqueda binaria.
+     */
+    private int[] candidates(String normalized) {
+        Set<String> queryTrigrams = trigrams(normalized);
+        Postings[] lists = new Postings[queryTrigrams.size()];
+        int n = 0;
+        for (String trigram : queryTrigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists[n++] = list;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+
+        int[] result = Arrays.copyOf(lists[0].ids, lists[0].size);
+        int count = result.length;
+        for (int l = 1; l < lists.length && count > 0; l++) {
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (Arrays.binarySearch(lists[l].ids, 0, lists[l].size, result[i]) >= 0) {
+                    result[kept++] = result[i];
+                }
+            }
+            count = kept;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private void unindex(Document document) {
+        for (String trigram : trigrams(document.fields())) {
+            Postings list = postings.get(trigram);
+            if (list != null) {
+                list.remove(document.id);
+                if (list.size == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String... fields) {
+        Set<String> trigrams = new HashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i + TRIGRAM_LENGTH <= field.length(); i++) {
+                trigrams.add(field.substring(i, i + TRIGRAM_LENGTH));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Relevancia de un documento para el texto (menor es mejor), o -1 si no lo contiene.
+     */
+    private static int rank(Document document, String normalizedQuery) {
+        if (document.numeroSerie.equals(normalizedQuery)) {
+            return 0;
+        }
+        if (document.numeroSerie.startsWith(normalizedQuery)) {
+            return 1;
+        }
+        if (document.marca.startsWith(normalizedQuery) || document.modelo.startsWith(normalizedQuery)) {
+            return 2;
+        }
+        if (document.marca.contains(normalizedQuery) || document.modelo.contains(normalizedQuery)
+                || document.numeroSerie.contains(normalizedQuery) || document.observaciones.contains(normalizedQuery)
+                || document.proveedorNombre.contains(normalizedQuery) || document.proveedorEmail.contains(normalizedQuery)) {
+            return 3;
+        }
+        return -1;
+    }
+}
@@ -1,38 +1,52 @@
 package esfe.persistencia;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection; // Representa una conexión a la base de datos.
-import java.sql.DriverManager; // Gestiona los drivers JDBC y establece conexiones.
 import java.sql.SQLException; // Representa errores específicos de la base de datos.
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 
 /**
- * Esta clase se encarga de gestionar la conexión a la base de datos SQL Server utilizando JDBC.
+ * Esta clase se encarga de gestionar las conexiones a la base de datos (SQL Server o, para pruebas
+ * y benchmarks, H2 embebida; ver {@link DatabaseConfig}) utilizando JDBC.
  * Implementa el patrón Singleton para asegurar que solo exista una única instancia
- * de la clase y, por lo tanto, una única conexión a la base de datos compartida.
+ * de la clase y, por lo tanto, un único pool de conexiones compartido por todos los DAO.
  */
 public class ConnectionManager {
     /**
-     * Define la cadena de conexión a la base de datos. Contiene la información
-     * necesaria para establecer la comunicación con el servidor de base de datos.
-     *
-     * - jdbc:sqlserver://... : Indica el tipo de conexión (JDBC para SQL Server).
-     * - DESKTOP-9KSCT6V\\SQLEXPRESS01:1433: Dirección del servidor y puerto.
-     * - encrypt=true: Indica si la conexión debe ser encriptada.
-     * - database=Inventario: Especifica la base de datos a la que se quiere conectar.
-     * - trustServerCertificate=true: Indica que se confíe en el certificado del servidor (para entornos de desarrollo).
-     * - user=dev: Nombre de usuario para la autenticación.
-     * - password=dev: Contraseña para la autenticación.
+     * Pool de conexiones físicas. Las conexiones se reutilizan entre llamadas a los DAO
+     * en lugar de abrir una nueva sesión (TCP + TLS + login) en cada operación.
+     */
+    private final ConnectionPool pool;
+
+    /**
+     * Interruptor de circuito: cuando la base de datos deja de responder, las llamadas fallan
+     * de inmediato en lugar de esperar los tiempos de espera del driver.
+     */
+    private final CircuitBreaker breaker;
+
+    /**
+     * Intentos de una lectura (ver {@link #read}) y espera antes del primer reintento;
+     * la espera se duplica en cada reintento.
+     */
+    private final int retryAttempts;
+    private final long retryBackoffMillis;
+
+    /**
+     * Conexión prestada al hilo actual mediante {@link #connect()}, junto con el número de
+     * llamadas anidadas a {@code connect()} pendientes de su {@code disconnect()}.
      */
-    private static final String STR_CONNECTION = "jdbc:sqlserver://LAPTOP-MEDK1FMF\\SQLEXPRESS:1433; " +
-            "encrypt=true; " +
-            "database=InventarioComputadoras; " +
-            "trustServerCertificate=true;" +
-            "user=inventario;" +
-            "password=12345";
+    private final ThreadLocal<Lease> currentLease = new ThreadLocal<>();
 
     /**
-     * Representa la conexión activa a la base de datos. Inicialmente es nula.
+     * Estructuras en memoria compartidas por los DAO de esta base de datos (cachés de datos de
+     * referencia, índices de búsqueda). Viven aquí para que todas las instancias de un DAO que usan
+     * la misma base de datos compartan la misma estructura (y la misma invalidación).
      */
-    private Connection connection;
+    private final Map<String, Object> shared = new ConcurrentHashMap<>();
 
     /**
      * Única instancia de la clase JDBCConnectionManager (para el patrón Singleton).
@@ -42,69 +56,275 @@ public class ConnectionManager {
 
     /**
      * Constructor privado para evitar la creación de instancias directamente desde fuera de la clase.
-     * Esto es fundamental para el patrón Singleton.
+     * Esto es fundamental para el patrón Singleton. La conexión se configura con
+     * {@link DatabaseConfig#load()} (inventario.properties, variables de entorno o propiedades del sistema).
      */
     private ConnectionManager() {
-        this.connection = null;
-        try {
-            // Carga el driver JDBC de Microsoft SQL Server. Esto es necesario para que Java pueda
-            // comunicarse con la base de datos SQL Server.
-            Class.forName("com.microsoft.sqlserver.jdbc.SQLServerDriver");
-        } catch (ClassNotFoundException e) {
-            // Si el driver no se encuentra, se lanza una excepción indicando el error.
-            throw new RuntimeException("Error al cargar el driver JDBC de SQL Server", e);
+        this(DatabaseConfig.load(), true);
+    }
+
+    private ConnectionManager(DatabaseConfig config, boolean singleton) {
+        this(config);
+        if (singleton) {
+            // Las métricas de la instancia única se publican por JMX y se resumen periódicamente en el log
+            pool.getMetrics().registerMBeans();
+            pool.getMetrics().startPeriodicLog(config.getMetricsLogIntervalSeconds());
+            // Al salir (System.exit o cierre de la ventana) se confirma lo que quede en la escritura diferida
+            Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "db-shutdown"));
         }
     }
 
     /**
-     * Este método se encarga de establecer la conexión con la base de datos.
-     * Es sincronizado (`synchronized`) para asegurar que solo un hilo a la vez pueda
-     * intentar establecer la conexión, lo cual es importante en entornos multihilo.
+     * Crea el pool a partir de la configuración. En modo embebido, además, crea el esquema de
+     * Script.sql.txt (y aplica el script de datos configurado) si la base de datos está vacía.
      *
-     * @return La instancia de la conexión a la base de datos.
-     * @throws SQLException Sí ocurre un error al intentar conectar a la base de datos.
+     * @param config Configuración de la conexión y del pool.
      */
-    public synchronized Connection connect() throws SQLException {
-        // Verifica si la conexión ya existe y si no está cerrada.
-        if (this.connection == null || this.connection.isClosed()) {
+    ConnectionManager(DatabaseConfig config) {
+        this(config.createPool(),
+                config.getInt(DatabaseConfig.RETRY_MAX_ATTEMPTS, 3),
+                config.getLong(DatabaseConfig.RETRY_BACKOFF_MS, 100L),
+                config.getInt(DatabaseConfig.BREAKER_FAILURE_THRESHOLD, 3),
+                config.getLong(DatabaseConfig.BREAKER_OPEN_MS, 2_000L),
+                config.getLong(DatabaseConfig.BREAKER_MAX_OPEN_MS, 30_000L));
+        if (config.getMode() == DatabaseConfig.Mode.EMBEDDED) {
             try {
-                // Intenta establecer la conexión utilizando la cadena de conexión.
-                this.connection = DriverManager.getConnection(STR_CONNECTION);
-            } catch (SQLException exception) {
-                // Si ocurre un error durante la conexión, se lanza una excepción SQLException
-                // con un mensaje más descriptivo que incluye el mensaje original de la excepción.
-                throw new SQLException("Error al conectar a la base de datos: " + exception.getMessage(), exception);
+                SqlScript.applySchema(this, config.getSeedScript());
+            } catch (SQLException ex) {
+                pool.close();
+                throw new RuntimeException("Error al crear el esquema de la base de datos embebida: " + ex.getMessage(), ex);
+            }
+        }
+        boolean writeBehind = Boolean.parseBoolean(config.get(DatabaseConfig.WRITE_BEHIND_ENABLED, "false").trim());
+        boolean offline = Boolean.parseBoolean(config.get(DatabaseConfig.OFFLINE_ENABLED, "false").trim());
+        if (writeBehind || offline) {
+            Path journalFile = Path.of(config.get(DatabaseConfig.WRITE_BEHIND_JOURNAL_FILE,
+                    Path.of(System.getProperty("user.home"), ".inventario", "movimientos.journal").toString()));
+            try {
+                shared.put(MovimientoWriteBehind.SHARED_KEY, new MovimientoWriteBehind(this, journalFile,
+                        config.getInt(DatabaseConfig.WRITE_BEHIND_QUEUE_CAPACITY, 10_000),
+                        config.getInt(DatabaseConfig.WRITE_BEHIND_BATCH_SIZE, 500),
+                        config.getLong(DatabaseConfig.WRITE_BEHIND_FLUSH_MS, 20L),
+                        Boolean.parseBoolean(config.get(DatabaseConfig.WRITE_BEHIND_JOURNAL_SYNC, "true").trim()),
+                        writeBehind));
+            } catch (IOException ex) {
+                pool.close();
+                throw new RuntimeException("Error al abrir el diario local de movimientos " + journalFile + ": " + ex.getMessage(), ex);
             }
         }
-        // Retorna la conexión (ya sea la existente o la recién creada).
-        return this.connection;
     }
 
     /**
-     * Este método se encarga de cerrar la conexión a la base de datos.
-     * También lanza una SQLException si ocurre un error al intentar cerrar la conexión.
+     * Constructor que recibe un pool ya configurado. Permite que las pruebas usen
+     * una base de datos distinta sin afectar a la instancia única.
+     *
+     * @param pool El pool de conexiones a utilizar.
+     */
+    ConnectionManager(ConnectionPool pool) {
+        this(pool, 3, 100L, 3, 2_000L, 30_000L);
+    }
+
+    /**
+     * Constructor con la política de reintentos y del interruptor de circuito.
      *
-     * @throws SQLException Si ocurre un error al intentar cerrar la conexión.
+     * @param pool El pool de conexiones a utilizar.
+     * @param retryAttempts Intentos de cada lectura ante fallos de conexión (1 = sin reintentos).
+     * @param retryBackoffMillis Espera antes del primer reintento; se duplica en cada uno.
+     * @param failureThreshold Fallos de conexión seguidos que abren el circuito.
+     * @param openMillis Tiempo hasta la primera prueba de conexión con el circuito abierto.
+     * @param maxOpenMillis Tiempo máximo entre pruebas de conexión.
+     */
+    ConnectionManager(ConnectionPool pool, int retryAttempts, long retryBackoffMillis,
+                      int failureThreshold, long openMillis, long maxOpenMillis) {
+        this.pool = pool;
+        this.retryAttempts = Math.max(1, retryAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.breaker = new CircuitBreaker(this::probe, failureThreshold, openMillis, maxOpenMillis);
+        // Un servidor que se cae a mitad de la sesión suele fallar al ejecutar, no al prestar
+        pool.setFailureListener(breaker::recordFailure);
+    }
+
+    /**
+     * Obtiene una conexión prestada del pool. Quien la recibe es responsable de cerrarla
+     * (por ejemplo, con try-with-resources); al cerrarla vuelve al pool en lugar de cerrarse físicamente.
+     *
+     * @return Una conexión válida del pool.
+     * @throws SQLException Si no se puede obtener una conexión o el circuito está abierto.
+     */
+    public Connection getConnection() throws SQLException {
+        breaker.check();
+        try {
+            Connection connection = pool.borrow();
+            breaker.recordSuccess();
+            return connection;
+        } catch (SQLException exception) {
+            breaker.recordFailure(exception);
+            throw new SQLException("Error al conectar a la base de datos: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Este método obtiene la conexión del pool asociada al hilo actual.
+     * Las llamadas anidadas dentro del mismo hilo (por ejemplo, un `create` que llama a `getById`)
+     * reutilizan la misma conexión; esta vuelve al pool con el último {@link #disconnect()}.
+     *
+     * @return La conexión a la base de datos asociada al hilo actual.
+     * @throws SQLException Sí ocurre un error al intentar conectar a la base de datos.
+     */
+    public Connection connect() throws SQLException {
+        Lease lease = currentLease.get();
+        // Verifica si el hilo ya tiene una conexión prestada y si no está cerrada.
+        if (lease == null || lease.connection.isClosed()) {
+            lease = new Lease(getConnection());
+            currentLease.set(lease);
+        }
+        lease.depth++;
+        // Retorna la conexión (ya sea la existente o la recién prestada).
+        return lease.connection;
+    }
+
+    /**
+     * Este método libera la conexión asociada al hilo actual. La conexión no se cierra
+     * físicamente: se devuelve al pool para ser reutilizada.
+     *
+     * @throws SQLException Si ocurre un error al intentar devolver la conexión.
      */
     public void disconnect() throws SQLException {
-        // Verifica si la conexión existe (no es nula).
-        if (this.connection != null) {
+        Lease lease = currentLease.get();
+        // Verifica si el hilo tiene una conexión prestada.
+        if (lease != null && --lease.depth <= 0) {
             try {
-                // Intenta cerrar la conexión.
-                this.connection.close();
+                // Devuelve la conexión al pool.
+                lease.connection.close();
             } catch (SQLException exception) {
-                // Si ocurre un error al cerrar la conexión, se lanza una excepción SQLException
+                // Si ocurre un error al devolver la conexión, se lanza una excepción SQLException
                 // con un mensaje más descriptivo.
                 throw new SQLException("Error al cerrar la conexión: " + exception.getMessage(), exception);
             } finally {
-                // El bloque finally se ejecuta siempre, independientemente de si hubo una excepción o no.
-                // Aquí se asegura que la referencia a la conexión se establezca a null,
-                // indicando que ya no hay una conexión activa gestionada por esta instancia.
-                this.connection = null;
+                // Se asegura que el hilo ya no tenga una conexión asociada.
+                currentLease.remove();
             }
         }
     }
 
+    /**
+     * Cierra el pool y todas sus conexiones físicas. Se usa al finalizar la aplicación.
+     * Antes cierra las estructuras compartidas que lo necesitan; p. ej. la escritura diferida de
+     * movimientos confirma lo que tenga en cola.
+     */
+    public void shutdown() {
+        for (Object value : shared.values()) {
+            if (value instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ex) {
+                    System.err.println("Error al cerrar " + value.getClass().getSimpleName() + ": " + ex.getMessage());
+                }
+            }
+        }
+        breaker.close();
+        pool.close();
+    }
+
+    /**
+     * Ejecuta una lectura y, si falla por un problema de conexión (caída de la red, conmutación
+     * por error del servidor), la repite con esperas crecientes (p. ej. 100, 200, 400 ms).
+     * Solo debe usarse con operaciones idempotentes. No se reintenta si el circuito está abierto
+     * ni dentro de {@link #connect()}, porque la conexión del hilo puede tener una transacción en curso.
+     *
+     * @param call Lectura a ejecutar; obtiene su propia conexión con {@link #getConnection()}.
+     * @return El resultado de la lectura.
+     * @throws SQLException El error del último intento.
+     */
+    <T> T read(SqlCall<T> call) throws SQLException {
+        if (currentLease.get() != null) {
+            return call.call();
+        }
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (SQLException ex) {
+                if (attempt >= retryAttempts || !CircuitBreaker.isConnectionFailure(ex)
+                        || breaker.getState() != CircuitBreaker.State.CLOSED) {
+                    throw ex;
+                }
+                try {
+                    // Espera aleatoria parcial para que los clientes no reintenten todos a la vez
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff / 2 + 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw ex;
+                }
+                backoff *= 2;
+            }
+        }
+    }
+
+    /**
+     * Indica si la conexión es a SQL Server (y no, por ejemplo, a la base H2 embebida o de pruebas),
+     * para las sentencias que cambian entre motores.
+     */
+    static boolean isSqlServer(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().startsWith("Microsoft SQL Server");
+    }
+
+    /**
+     * Devuelve el interruptor de circuito, para que los formularios muestren el estado de la conexión.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /**
+     * Prueba de conexión del interruptor de circuito: el pool valida la conexión al prestarla.
+     */
+    private void probe() throws SQLException {
+        // Solo interesa que se haya podido obtener una conexión válida
+        pool.borrow().close();
+    }
+
+    /**
+     * Devuelve el pool de conexiones, útil para consultar sus estadísticas.
+     *
+     * @return El pool de conexiones.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Devuelve una estructura compartida por los DAO de esta base de datos, creándola la primera vez.
+     *
+     * @param key Clave de la estructura (p. ej. "Categorias").
+     * @param factory Crea la estructura si aún no existe.
+     * @return La estructura compartida.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T getShared(String key, Supplier<T> factory) {
+        return (T) shared.computeIfAbsent(key, k -> factory.get());
+    }
+
+    /**
+     * Operación de acceso a datos que puede repetirse con {@link #read}.
+     */
+    @FunctionalInterface
+    interface SqlCall<T> {
+        T call() throws SQLException;
+    }
+
+    /**
+     * Conexión prestada a un hilo y número de llamadas a `connect()` sin su `disconnect()`.
+     */
+    private static final class Lease {
+        private final Connection connection;
+        private int depth;
+
+        private Lease(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
     /**
      * Este método estático y sincronizado (`synchronized`) implementa el patrón Singleton.
      * Devuelve la única instancia de JDBCConnectionManager. Si la instancia aún no existe,
@@ -0,0 +1,601 @@
+package esfe.persistencia;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+
+/**
+ * Pool acotado de conexiones JDBC.
+ * Mantiene un número mínimo y máximo de conexiones físicas abiertas contra la base de datos
+ * y las presta a los DAO. La conexión que recibe el DAO es un envoltorio: al llamar a
+ * {@code close()} la conexión física no se cierra, sino que se devuelve al pool.
+ *
+ * - Validación al prestar: se comprueba con {@code isValid} que la conexión siga viva.
+ * - Expulsión de inactivas: las conexiones ociosas más allá del mínimo se cierran tras un tiempo.
+ * - Vida máxima: ninguna conexión física se reutiliza después de su tiempo de vida máximo.
+ * - Caché de sentencias: cada conexión física conserva sus sentencias preparadas (LRU por texto SQL),
+ *   de modo que las consultas frecuentes no se vuelven a preparar en cada llamada.
+ * - Métricas: cada préstamo se mide y se atribuye al método de DAO que lo pidió (ver {@link DaoMetrics}).
+ */
+public class ConnectionPool {
+    private final DataSource dataSource;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long maxLifetimeMillis;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    /**
+     * Aciertos y fallos acumulados de las cachés de sentencias de todas las conexiones.
+     */
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final DaoMetrics metrics = new DaoMetrics();
+
+    /**
+     * Conexiones físicas libres. Se usan en orden LIFO para que las más recientes se
+     * mantengan calientes y las más antiguas envejezcan hasta ser expulsadas.
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+
+    /**
+     * Limita el número de préstamos simultáneos al tamaño máximo del pool.
+     */
+    private final Semaphore permits;
+
+    /**
+     * Número total de conexiones físicas abiertas (prestadas + libres).
+     */
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+    private volatile Consumer<SQLException> failureListener;
+
+    /**
+     * Crea un pool de conexiones que abre sus conexiones físicas con DriverManager.
+     *
+     * @see #ConnectionPool(DataSource, int, int, long, long, long, int, int)
+     */
+    public ConnectionPool(String url, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds,
+                          int statementCacheSize) {
+        this(new DatabaseConfig.DriverDataSource(url, null, null), minSize, maxSize, borrowTimeoutMillis,
+                idleTimeoutMillis, maxLifetimeMillis, validationTimeoutSeconds, statementCacheSize);
+    }
+
+    /**
+     * Crea un pool de conexiones.
+     *
+     * @param dataSource Origen de las conexiones físicas (cualquier DataSource JDBC).
+     * @param minSize Número mínimo de conexiones físicas que se mantienen abiertas.
+     * @param maxSize Número máximo de conexiones físicas.
+     * @param borrowTimeoutMillis Tiempo máximo de espera para obtener una conexión.
+     * @param idleTimeoutMillis Tiempo que una conexión puede estar libre antes de ser expulsada.
+     * @param maxLifetimeMillis Tiempo de vida máximo de una conexión física.
+     * @param validationTimeoutSeconds Tiempo máximo para validar una conexión al prestarla.
+     * @param statementCacheSize Número máximo de sentencias preparadas en caché por conexión (0 la desactiva).
+     */
+    public ConnectionPool(DataSource dataSource, int minSize, int maxSize, long borrowTimeoutMillis,
+                          long idleTimeoutMillis, long maxLifetimeMillis, int validationTimeoutSeconds,
+                          int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Tamaños de pool inválidos: min=" + minSize + ", max=" + maxSize);
+        }
+        this.dataSource = dataSource;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Hilo de mantenimiento en segundo plano (daemon para no impedir el cierre de la aplicación).
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMillis, 30_000L));
+        this.housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Presta una conexión del pool. La conexión debe cerrarse (idealmente con try-with-resources)
+     * para devolverla al pool.
+     *
+     * @return Una conexión válida.
+     * @throws SQLException Si no se obtiene una conexión dentro del tiempo de espera o falla la conexión.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("El pool de conexiones está cerrado.");
+        }
+        DaoMetrics.Call call = metrics.begin();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMillis);
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw failed(call, new SQLException("Tiempo de espera agotado al obtener una conexión del pool (máximo " + maxSize + ")."));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failed(call, new SQLException("Interrumpido mientras se esperaba una conexión del pool.", e));
+        }
+
+        try {
+            PooledConnection pooled = acquire(deadline);
+            metrics.acquired(call);
+            return pooled.lease(call);
+        } catch (SQLException | RuntimeException ex) {
+            permits.release();
+            failed(call, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Registra en las métricas un préstamo que no se pudo completar.
+     */
+    private <E extends Exception> E failed(DaoMetrics.Call call, E ex) {
+        if (call != null) {
+            call.markError();
+            metrics.end(call);
+        }
+        return ex;
+    }
+
+    /**
+     * Obtiene una conexión física libre y válida, o abre una nueva si aún no se alcanza el máximo.
+     */
+    private PooledConnection acquire(long deadline) throws SQLException {
+        while (true) {
+            PooledConnection pooled = idle.pollFirst();
+            if (pooled == null) {
+                if (total.incrementAndGet() <= maxSize) {
+                    try {
+                        return open();
+                    } catch (SQLException ex) {
+                        total.decrementAndGet();
+                        throw ex;
+                    }
+                }
+                total.decrementAndGet();
+                // Otro hilo abrió la última conexión disponible; esperar a que se devuelva alguna.
+                long remaining = deadline - System.nanoTime();
+                try {
+                    pooled = remaining > 0 ? idle.pollFirst(remaining, TimeUnit.NANOSECONDS) : null;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrumpido mientras se esperaba una conexión del pool.", e);
+                }
+                if (pooled == null) {
+                    throw new SQLException("Tiempo de espera agotado al obtener una conexión del pool.");
+                }
+            }
+            if (pooled.isExpired() || !pooled.isValid()) {
+                discard(pooled);
+                continue;
+            }
+            return pooled;
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        return new PooledConnection(dataSource.getConnection());
+    }
+
+    /**
+     * Devuelve una conexión al pool. Restablece el estado transaccional y descarta la conexión
+     * si ya superó su tiempo de vida o quedó inutilizable.
+     */
+    private void release(PooledConnection pooled) {
+        try {
+            Connection physical = pooled.physical;
+            if (physical.isClosed()) {
+                discard(pooled);
+                return;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (closed || pooled.isExpired()) {
+                discard(pooled);
+            } else {
+                pooled.lastUsed = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException ex) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar una conexión del pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tarea periódica: expulsa conexiones libres que superaron el tiempo de inactividad
+     * (respetando el mínimo) o su tiempo de vida, y repone conexiones hasta el mínimo.
+     */
+    void housekeep() {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<PooledConnection> it = idle.descendingIterator(); // De la más antigua a la más reciente.
+        while (it.hasNext()) {
+            PooledConnection pooled = it.next();
+            boolean idleTooLong = now - pooled.lastUsed > idleTimeoutMillis && total.get() > minSize;
+            if ((idleTooLong || pooled.isExpired()) && idle.removeFirstOccurrence(pooled)) {
+                discard(pooled);
+            }
+        }
+        while (total.get() < minSize && !closed) {
+            if (total.incrementAndGet() > minSize) {
+                total.decrementAndGet();
+                break;
+            }
+            try {
+                idle.offerLast(open());
+            } catch (SQLException ex) {
+                total.decrementAndGet();
+                break; // La base de datos no está disponible; se reintentará en la próxima pasada.
+            }
+        }
+    }
+
+    /**
+     * Registra quién recibe los errores de conexión que ocurren al usar una conexión ya prestada
+     * (p. ej. el servidor se cae a mitad de una consulta). Los errores al prestarla los recibe
+     * quien llama a {@link #borrow()}.
+     */
+    void setFailureListener(Consumer<SQLException> listener) {
+        this.failureListener = listener;
+    }
+
+    /**
+     * Cierra todas las conexiones libres y detiene el mantenimiento. Las conexiones prestadas
+     * se cierran cuando se devuelven.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        metrics.close();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getTotalConnections() {
+        return total.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    /**
+     * Devuelve las métricas por método de DAO de las conexiones prestadas por este pool.
+     */
+    public DaoMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Conexión física administrada por el pool.
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final long createdAt;
+        private volatile long lastUsed;
+        private final StatementCache statementCache;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsed = createdAt;
+            this.statementCache = statementCacheSize > 0 ? new StatementCache(statementCacheSize) : null;
+        }
+
+        /**
+         * Reporta al observador de fallos un error de conexión al usar esta conexión prestada.
+         *
+         * @return El mismo error, para relanzarlo.
+         */
+        private Throwable failed(Throwable ex) {
+            Consumer<SQLException> listener = failureListener;
+            if (listener != null && ex instanceof SQLException sql && CircuitBreaker.isConnectionFailure(sql)) {
+                listener.accept(sql);
+            }
+            return ex;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > maxLifetimeMillis;
+        }
+
+        private boolean isValid() {
+            try {
+                return physical.isValid(validationTimeoutSeconds);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        /**
+         * Crea el envoltorio que se entrega al DAO para este préstamo.
+         */
+        private Connection lease(DaoMetrics.Call call) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new LeaseHandler(this, call));
+        }
+    }
+
+    /**
+     * Intercepta {@code close()} para devolver la conexión al pool en lugar de cerrarla,
+     * y {@code prepareStatement} para servir sentencias desde la caché de la conexión y medirlas.
+     * Tras devolverla, el envoltorio queda inutilizable.
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final DaoMetrics.Call call;
+        private boolean returned;
+
+        private LeaseHandler(PooledConnection pooled, DaoMetrics.Call call) {
+            this.pooled = pooled;
+            this.call = call;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                        metrics.end(call);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("La conexión ya fue devuelta al pool.");
+                    }
+                    if (isCacheablePrepare(method, args)) {
+                        return prepareCached(proxy, method, args);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw pooled.failed(e.getCause());
+                    }
+            }
+        }
+
+        /**
+         * Solo se cachean (y miden) {@code prepareStatement(sql)} y {@code prepareStatement(sql, autoGeneratedKeys)},
+         * las formas que usan los DAO.
+         */
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            return method.getName().equals("prepareStatement")
+                    && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+        }
+
+        private Object prepareCached(Object leaseProxy, Method method, Object[] args) throws Throwable {
+            String key = (args.length == 2 ? args[1] : "-") + ":" + args[0];
+            PreparedStatement ps = pooled.statementCache == null ? null : pooled.statementCache.take(key);
+            if (pooled.statementCache == null) {
+                try {
+                    ps = (PreparedStatement) method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw pooled.failed(e.getCause());
+                }
+            } else if (ps != null && !ps.isClosed()) {
+                statementCacheHits.increment();
+            } else {
+                statementCacheMisses.increment();
+                try {
+                    ps = (PreparedStatement) method.invoke(pooled.physical, args);
+                } catch (InvocationTargetException e) {
+                    throw pooled.failed(e.getCause());
+                }
+            }
+            return Proxy.newProxyInstance(
+                    PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new CachedStatementHandler(pooled, key, ps, (Connection) leaseProxy, metrics, call, (String) args[0]));
+        }
+    }
+
+    /**
+     * Envoltorio de una sentencia en caché: {@code close()} limpia sus parámetros y la
+     * devuelve a la caché de su conexión física en lugar de cerrarla (o la cierra si la conexión
+     * no tiene caché). Además mide cada ejecución para las métricas y guarda los parámetros
+     * asignados para poder mostrarlos si la consulta resulta lenta.
+     */
+    private static final class CachedStatementHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final String key;
+        private final PreparedStatement target;
+        private final Connection lease;
+        private final DaoMetrics metrics;
+        private final DaoMetrics.Call call;
+        private final String sql;
+        private final List<Object> parameters = new ArrayList<>();
+        private boolean closed;
+
+        private CachedStatementHandler(PooledConnection pooled, String key, PreparedStatement target, Connection lease,
+                                       DaoMetrics metrics, DaoMetrics.Call call, String sql) {
+            this.pooled = pooled;
+            this.key = key;
+            this.target = target;
+            this.lease = lease;
+            this.metrics = metrics;
+            this.call = call;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        parameters.clear();
+                        if (pooled.statementCache == null) {
+                            target.close();
+                            return null;
+                        }
+                        try {
+                            target.clearParameters();
+                            // El tamaño de fetch es propio de cada uso (p. ej. recorridos en streaming).
+                            target.setFetchSize(0);
+                            pooled.statementCache.put(key, target);
+                        } catch (SQLException ex) {
+                            target.close();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || target.isClosed();
+                case "getConnection":
+                    return lease;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + target + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("La sentencia ya fue cerrada.");
+                    }
+                    if (call == null) {
+                        return invokeTarget(method, args);
+                    }
+                    if (name.startsWith("execute")) {
+                        return execute(method, args);
+                    }
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        recordParameter((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    } else if (name.equals("clearParameters")) {
+                        parameters.clear();
+                    }
+                    return invokeTarget(method, args);
+            }
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = invokeTarget(method, args);
+            } catch (SQLException ex) {
+                call.markError();
+                throw ex;
+            } finally {
+                metrics.statementExecuted(call, sql, parameters, System.nanoTime() - start);
+            }
+            if (result instanceof ResultSet) {
+                return countingResultSet((ResultSet) result);
+            }
+            if (result instanceof Integer || result instanceof Long) {
+                call.addRows(((Number) result).longValue());
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    call.addRows(count);
+                }
+            }
+            return result;
+        }
+
+        private void recordParameter(int index, Object value) {
+            while (parameters.size() < index) {
+                parameters.add(null);
+            }
+            parameters.set(index - 1, value);
+        }
+
+        /**
+         * Envuelve el resultado para contar las filas leídas con {@code next()}.
+         */
+        private ResultSet countingResultSet(ResultSet rs) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        Object result;
+                        try {
+                            result = method.invoke(rs, args);
+                        } catch (InvocationTargetException e) {
+                            throw pooled.failed(e.getCause());
+                        }
+                        if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                            call.addRows(1);
+                        }
+                        return result;
+                    });
+        }
+
+        private Object invokeTarget(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw pooled.failed(e.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package esfe.persistencia;
+
+/**
+ * Estadísticas de un método de DAO, publicadas por JMX (esfe.persistencia:type=DaoMetrics,dao=...,method=...).
+ * Los tiempos están en milisegundos; los percentiles son aproximados (límite superior del
+ * intervalo del histograma en que caen).
+ */
+public interface DaoMethodStatsMXBean {
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMeanAcquireMillis();
+}
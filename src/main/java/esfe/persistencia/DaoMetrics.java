@@ -0,0 +1,416 @@
+package esfe.persistencia;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Métricas por método de DAO: número de llamadas, errores, filas, tiempo de espera por una
+ * conexión e histograma de latencias.
+ *
+ * Una "llamada" es un préstamo de conexión del pool: empieza al pedir la conexión y termina al
+ * devolverla, y se atribuye al método de DAO (o servicio) más interno de la pila en ese momento,
+ * p. ej. ComputadoraDAO.getById. Las filas son las leídas con ResultSet.next() más las afectadas
+ * por INSERT/UPDATE/DELETE. Además, cada sentencia que tarda más que el umbral se registra con
+ * su SQL y sus parámetros (consulta lenta).
+ *
+ * Está pensada para quedar activa en producción: cada llamada cuesta un recorrido corto de la
+ * pila y unos pocos contadores sin bloqueo (LongAdder y un arreglo atómico de intervalos).
+ * Las métricas se publican por JMX y, opcionalmente, en un resumen periódico en el log.
+ */
+public final class DaoMetrics implements DaoMetricsMXBean {
+    private static final Logger LOG = Logger.getLogger(DaoMetrics.class.getName());
+    private static final String DOMAIN = "esfe.persistencia";
+    private static final String OTHER = "otros";
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final int BUCKETS = 40;
+
+    /**
+     * Llamada en curso, asociada a un préstamo de conexión. La usa un solo hilo a la vez.
+     */
+    static final class Call {
+        private final String method;
+        private final long startNanos;
+        private long acquireNanos;
+        private long rows;
+        private boolean error;
+
+        private Call(String method, long startNanos) {
+            this.method = method;
+            this.startNanos = startNanos;
+        }
+
+        String getMethod() {
+            return method;
+        }
+
+        void addRows(long count) {
+            if (count > 0) {
+                rows += count;
+            }
+        }
+
+        void markError() {
+            error = true;
+        }
+    }
+
+    /**
+     * Estadísticas acumuladas de un método.
+     */
+    static final class MethodStats implements DaoMethodStatsMXBean {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAdder acquireNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        // Intervalo i: latencias menores que 2^i microsegundos (y mayores o iguales que 2^(i-1))
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+        private void record(long nanos, long acquire, long rowCount, boolean error) {
+            calls.increment();
+            if (error) {
+                errors.increment();
+            }
+            rows.add(rowCount);
+            totalNanos.add(nanos);
+            acquireNanos.add(acquire);
+            maxNanos.accumulate(nanos);
+            long micros = nanos / 1000;
+            int bucket = micros <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+            buckets.incrementAndGet(Math.min(bucket, BUCKETS - 1));
+        }
+
+        private void reset() {
+            calls.reset();
+            errors.reset();
+            rows.reset();
+            totalNanos.reset();
+            acquireNanos.reset();
+            maxNanos.reset();
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+        }
+
+        @Override
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public long getRows() {
+            return rows.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = calls.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentile(0.50);
+        }
+
+        @Override
+        public double getP95Millis() {
+            return percentile(0.95);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentile(0.99);
+        }
+
+        @Override
+        public double getMeanAcquireMillis() {
+            long n = calls.sum();
+            return n == 0 ? 0 : acquireNanos.sum() / 1e6 / n;
+        }
+
+        double getTotalMillis() {
+            return totalNanos.sum() / 1e6;
+        }
+
+        private double percentile(double p) {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += buckets.get(i);
+            }
+            if (count == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    // Límite superior del intervalo, sin pasar del máximo observado
+                    return Math.min((1L << i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+    }
+
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private volatile long slowQueryThresholdNanos = TimeUnit.SECONDS.toNanos(1);
+    private volatile MBeanServer mbeanServer;
+    // Nombres publicados por esta instancia, para retirar solo los suyos al cerrar
+    private final List<ObjectName> registered = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService reporter;
+
+    DaoMetrics() {
+    }
+
+    /**
+     * Empieza una llamada al pedir una conexión, o devuelve null si las métricas están desactivadas.
+     */
+    Call begin() {
+        if (!enabled) {
+            return null;
+        }
+        return new Call(callerMethod(), System.nanoTime());
+    }
+
+    /**
+     * Registra que la llamada ya obtuvo su conexión.
+     */
+    void acquired(Call call) {
+        if (call != null) {
+            call.acquireNanos = System.nanoTime() - call.startNanos;
+        }
+    }
+
+    /**
+     * Termina la llamada (al devolver la conexión, o al fallar el préstamo) y la acumula.
+     */
+    void end(Call call) {
+        if (call != null) {
+            stats(call.method).record(System.nanoTime() - call.startNanos, call.acquireNanos, call.rows, call.error);
+        }
+    }
+
+    /**
+     * Registra en el log una sentencia que superó el umbral de consulta lenta.
+     *
+     * @param call Llamada a la que pertenece (puede ser null).
+     * @param sql Texto SQL de la sentencia.
+     * @param parameters Parámetros asignados, por posición (el índice 0 corresponde al parámetro 1).
+     * @param nanos Duración de la ejecución.
+     */
+    void statementExecuted(Call call, String sql, List<Object> parameters, long nanos) {
+        if (nanos >= slowQueryThresholdNanos && LOG.isLoggable(Level.WARNING)) {
+            LOG.warning(String.format(Locale.ROOT, "Slow query in %s (%.1f ms): %s; parameters %s",
+                    call == null ? OTHER : call.method, nanos / 1e6, sql, parameters));
+        }
+    }
+
+    /**
+     * Estadísticas de un método, p. ej. "ComputadoraDAO.getById", o null si aún no se llamó.
+     */
+    public DaoMethodStatsMXBean getStats(String method) {
+        return methods.get(method);
+    }
+
+    /**
+     * Estadísticas de todos los métodos llamados, por nombre.
+     */
+    public Map<String, DaoMethodStatsMXBean> getAllStats() {
+        return new TreeMap<>(methods);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    @Override
+    public void setSlowQueryThresholdMillis(long millis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Override
+    public String getSnapshot() {
+        List<Map.Entry<String, MethodStats>> entries = new ArrayList<>(methods.entrySet());
+        entries.sort(Comparator.comparingDouble((Map.Entry<String, MethodStats> e) -> e.getValue().getTotalMillis()).reversed());
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, MethodStats> e : entries) {
+            MethodStats s = e.getValue();
+            text.append(String.format(Locale.ROOT,
+                    "%s calls=%d errors=%d rows=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms acquire=%.3fms%n",
+                    e.getKey(), s.getCalls(), s.getErrors(), s.getRows(), s.getMeanMillis(), s.getP50Millis(),
+                    s.getP95Millis(), s.getP99Millis(), s.getMaxMillis(), s.getMeanAcquireMillis()));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        for (MethodStats stats : methods.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * Publica el control y las estadísticas de cada método (incluidos los que se llamen después) por JMX.
+     */
+    public synchronized void registerMBeans() {
+        if (mbeanServer != null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        register(server, DOMAIN + ":type=DaoMetrics,name=control", this);
+        mbeanServer = server;
+        methods.forEach(this::registerMethod);
+    }
+
+    /**
+     * Escribe el resumen de las métricas en el log cada cierto tiempo (en un hilo daemon).
+     *
+     * @param intervalSeconds Intervalo entre resúmenes; 0 o menos no programa nada.
+     */
+    public synchronized void startPeriodicLog(long intervalSeconds) {
+        if (intervalSeconds <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "dao-metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            String snapshot = getSnapshot();
+            if (!snapshot.isEmpty()) {
+                LOG.info("DAO metrics:" + System.lineSeparator() + snapshot);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el resumen periódico y retira los MBeans publicados.
+     */
+    public synchronized void close() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+        MBeanServer server = mbeanServer;
+        mbeanServer = null;
+        if (server != null) {
+            for (ObjectName name : registered) {
+                try {
+                    server.unregisterMBean(name);
+                } catch (JMException ex) {
+                    System.err.println("Error al quitar el registro del MBean " + name + ": " + ex.getMessage());
+                }
+            }
+            registered.clear();
+        }
+    }
+
+    private MethodStats stats(String method) {
+        MethodStats stats = methods.get(method);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(method, k -> {
+                MethodStats created = new MethodStats();
+                registerMethod(k, created);
+                return created;
+            });
+        }
+        return stats;
+    }
+
+    private void registerMethod(String method, MethodStats stats) {
+        MBeanServer server = mbeanServer;
+        if (server == null) {
+            return;
+        }
+        int dot = method.indexOf('.');
+        String dao = dot < 0 ? method : method.substring(0, dot);
+        String name = dot < 0 ? "-" : method.substring(dot + 1);
+        register(server, DOMAIN + ":type=DaoMetrics,dao=" + ObjectName.quote(dao) + ",method=" + ObjectName.quote(name), stats);
+    }
+
+    private void register(MBeanServer server, String name, Object mbean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(mbean, objectName);
+                registered.add(objectName);
+            }
+        } catch (JMException ex) {
+            System.err.println("Error al registrar el MBean " + name + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Método de DAO o servicio más interno de la pila del hilo actual, como "Clase.metodo".
+     */
+    private static String callerMethod() {
+        Optional<String> caller = WALKER.walk(frames -> frames
+                .filter(f -> isDaoClass(f.getClassName()))
+                .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+                .findFirst());
+        return caller.orElse(OTHER);
+    }
+
+    private static boolean isDaoClass(String className) {
+        return className.startsWith(DOMAIN + ".") && (className.endsWith("DAO") || className.endsWith("Service"));
+    }
+
+    // Las lambdas se compilan como lambda$metodo$N: se atribuyen al método que las declara
+    private static String methodName(String name) {
+        if (name.startsWith("lambda$")) {
+            int end = name.indexOf('$', 7);
+            return end < 0 ? name : name.substring(7, end);
+        }
+        return name;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,24 @@
+package esfe.persistencia;
+
+/**
+ * Control de las métricas de los DAO por JMX (esfe.persistencia:type=DaoMetrics,name=control).
+ */
+public interface DaoMetricsMXBean {
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getSlowQueryThresholdMillis();
+
+    void setSlowQueryThresholdMillis(long millis);
+
+    /**
+     * Resumen de todos los métodos, una línea por método, ordenado por tiempo total.
+     */
+    String getSnapshot();
+
+    /**
+     * Pone a cero todas las estadísticas.
+     */
+    void reset();
+}
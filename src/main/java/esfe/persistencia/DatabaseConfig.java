@@ -0,0 +1,284 @@
+package esfe.persistencia;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Configuración de la conexión a la base de datos y del pool de conexiones.
+ *
+ * Cada valor se toma, en este orden de prioridad, de:
+ * <ol>
+ *     <li>Una propiedad del sistema (-Dinventario.db.url=...).</li>
+ *     <li>Una variable de entorno con el mismo nombre en mayúsculas y con '_' en lugar de '.'
+ *     (INVENTARIO_DB_URL).</li>
+ *     <li>El archivo indicado en inventario.config (propiedad del sistema o variable INVENTARIO_CONFIG).</li>
+ *     <li>El archivo inventario.properties del classpath.</li>
+ *     <li>Los valores por defecto de esta clase.</li>
+ * </ol>
+ *
+ * Con inventario.db.mode=embedded se usa una base de datos H2 en memoria, en modo compatible
+ * con SQL Server, a la que se aplica Script.sql.txt al crearla; no necesita ningún servidor.
+ */
+public final class DatabaseConfig {
+    public static final String MODE = "inventario.db.mode";
+    public static final String URL = "inventario.db.url";
+    public static final String USER = "inventario.db.user";
+    public static final String PASSWORD = "inventario.db.password";
+    /** Script del classpath que se aplica después del esquema en modo embebido (p. ej. datos de prueba). */
+    public static final String SEED_SCRIPT = "inventario.db.seedScript";
+    public static final String POOL_MIN_SIZE = "inventario.pool.minSize";
+    public static final String POOL_MAX_SIZE = "inventario.pool.maxSize";
+    public static final String POOL_BORROW_TIMEOUT_MS = "inventario.pool.borrowTimeoutMs";
+    public static final String POOL_IDLE_TIMEOUT_MS = "inventario.pool.idleTimeoutMs";
+    public static final String POOL_MAX_LIFETIME_MS = "inventario.pool.maxLifetimeMs";
+    public static final String POOL_VALIDATION_TIMEOUT_S = "inventario.pool.validationTimeoutS";
+    public static final String STATEMENT_CACHE_SIZE = "inventario.pool.statementCacheSize";
+    /** Activa las métricas por método de DAO (ver {@link DaoMetrics}). */
+    public static final String METRICS_ENABLED = "inventario.metrics.enabled";
+    /** Duración a partir de la cual una sentencia se registra como consulta lenta, en milisegundos. */
+    public static final String METRICS_SLOW_QUERY_MS = "inventario.metrics.slowQueryMs";
+    /** Intervalo del resumen de métricas en el log, en segundos (0 lo desactiva). */
+    public static final String METRICS_LOG_INTERVAL_S = "inventario.metrics.logIntervalS";
+    /** Intentos de cada lectura ante fallos de conexión (ver ConnectionManager.read). */
+    public static final String RETRY_MAX_ATTEMPTS = "inventario.retry.maxAttempts";
+    public static final String RETRY_BACKOFF_MS = "inventario.retry.backoffMs";
+    /** Interruptor de circuito (ver {@link CircuitBreaker}). */
+    public static final String BREAKER_FAILURE_THRESHOLD = "inventario.breaker.failureThreshold";
+    public static final String BREAKER_OPEN_MS = "inventario.breaker.openMs";
+    public static final String BREAKER_MAX_OPEN_MS = "inventario.breaker.maxOpenMs";
+    /** Escritura diferida de movimientos con confirmación en grupo (ver {@link MovimientoWriteBehind}). */
+    public static final String WRITE_BEHIND_ENABLED = "inventario.movimientos.writeBehind";
+    /** Modo sin conexión: los movimientos que no se pueden registrar se guardan en el diario local. */
+    public static final String OFFLINE_ENABLED = "inventario.movimientos.offline";
+    /** Diario local de movimientos pendientes (ver {@link MovimientoJournal}). */
+    public static final String WRITE_BEHIND_JOURNAL_FILE = "inventario.movimientos.journalFile";
+    public static final String WRITE_BEHIND_JOURNAL_SYNC = "inventario.movimientos.journalSync";
+    public static final String WRITE_BEHIND_QUEUE_CAPACITY = "inventario.movimientos.queueCapacity";
+    public static final String WRITE_BEHIND_BATCH_SIZE = "inventario.movimientos.batchSize";
+    public static final String WRITE_BEHIND_FLUSH_MS = "inventario.movimientos.flushMs";
+
+    private static final String CONFIG_FILE = "inventario.config";
+    private static final String RESOURCE = "inventario.properties";
+    private static final String EMBEDDED_URL = "jdbc:h2:mem:inventario;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Tipo de base de datos.
+     */
+    public enum Mode {
+        /** Servidor SQL Server indicado en inventario.db.url. */
+        SQLSERVER,
+        /** H2 en memoria con el esquema de Script.sql.txt, para pruebas y benchmarks. */
+        EMBEDDED
+    }
+
+    private final Properties file;
+
+    private DatabaseConfig(Properties file) {
+        this.file = file;
+    }
+
+    /**
+     * Lee la configuración del archivo externo (si se indica) y de inventario.properties del classpath;
+     * las propiedades del sistema y las variables de entorno se consultan al pedir cada valor.
+     *
+     * @throws IllegalStateException Si el archivo indicado en inventario.config no se puede leer.
+     */
+    public static DatabaseConfig load() {
+        Properties properties = new Properties();
+        try (InputStream in = DatabaseConfig.class.getClassLoader().getResourceAsStream(RESOURCE)) {
+            if (in != null) {
+                properties.load(in);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Error al leer " + RESOURCE + ": " + ex.getMessage(), ex);
+        }
+        String external = lookup(CONFIG_FILE, null);
+        if (external != null) {
+            try (InputStream in = Files.newInputStream(Path.of(external))) {
+                properties.load(in);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Error al leer el archivo de configuración " + external + ": " + ex.getMessage(), ex);
+            }
+        }
+        return new DatabaseConfig(properties);
+    }
+
+    /**
+     * Configuración a partir de propiedades ya cargadas (las propiedades del sistema y las
+     * variables de entorno siguen teniendo prioridad).
+     */
+    public static DatabaseConfig of(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return new DatabaseConfig(copy);
+    }
+
+    public Mode getMode() {
+        String mode = get(MODE, Mode.SQLSERVER.name());
+        try {
+            return Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalStateException("Valor inválido para " + MODE + ": " + mode, ex);
+        }
+    }
+
+    public String getUrl() {
+        String url = get(URL, getMode() == Mode.EMBEDDED ? EMBEDDED_URL : null);
+        if (url == null) {
+            throw new IllegalStateException("Falta la cadena de conexión (" + URL + ").");
+        }
+        return url;
+    }
+
+    public String getUser() {
+        return get(USER, null);
+    }
+
+    public String getPassword() {
+        return get(PASSWORD, null);
+    }
+
+    public String getSeedScript() {
+        return get(SEED_SCRIPT, null);
+    }
+
+    /**
+     * Crea el origen de las conexiones físicas del pool.
+     */
+    public DataSource createDataSource() {
+        return new DriverDataSource(getUrl(), getUser(), getPassword());
+    }
+
+    /**
+     * Crea el pool de conexiones con los parámetros configurados, incluidas sus métricas.
+     */
+    public ConnectionPool createPool() {
+        ConnectionPool pool = new ConnectionPool(createDataSource(),
+                getInt(POOL_MIN_SIZE, 2),
+                getInt(POOL_MAX_SIZE, 10),
+                getLong(POOL_BORROW_TIMEOUT_MS, 30_000L),
+                getLong(POOL_IDLE_TIMEOUT_MS, 10 * 60_000L),
+                getLong(POOL_MAX_LIFETIME_MS, 30 * 60_000L),
+                getInt(POOL_VALIDATION_TIMEOUT_S, 5),
+                getInt(STATEMENT_CACHE_SIZE, 50));
+        pool.getMetrics().setEnabled(Boolean.parseBoolean(get(METRICS_ENABLED, "true").trim()));
+        pool.getMetrics().setSlowQueryThresholdMillis(getLong(METRICS_SLOW_QUERY_MS, 1000L));
+        return pool;
+    }
+
+    /**
+     * Intervalo del resumen periódico de métricas en el log, en segundos.
+     */
+    public long getMetricsLogIntervalSeconds() {
+        return getLong(METRICS_LOG_INTERVAL_S, 300L);
+    }
+
+    /**
+     * Valor de una clave según el orden de prioridad de la clase, o el valor por defecto.
+     */
+    public String get(String key, String defaultValue) {
+        return lookup(key, file.getProperty(key, defaultValue));
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException("Valor inválido para " + key + ": " + value, ex);
+        }
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = get(key, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException("Valor inválido para " + key + ": " + value, ex);
+        }
+    }
+
+    private static String lookup(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * DataSource mínimo sobre DriverManager: abre una conexión física nueva en cada llamada.
+     * El pool es quien las reutiliza.
+     */
+    static final class DriverDataSource implements DataSource {
+        private final String url;
+        private final String user;
+        private final String password;
+        private int loginTimeout;
+
+        DriverDataSource(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return user == null ? DriverManager.getConnection(url) : DriverManager.getConnection(url, user, password);
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return DriverManager.getConnection(url, username, password);
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return DriverManager.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+            DriverManager.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+            loginTimeout = seconds;
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return loginTimeout;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            if (iface.isInstance(this)) {
+                return iface.cast(this);
+            }
+            throw new SQLException("No es un envoltorio de " + iface.getName());
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) {
+            return iface.isInstance(this);
+        }
+    }
+}
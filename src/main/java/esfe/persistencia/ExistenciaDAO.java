@@ -0,0 +1,212 @@
+package esfe.persistencia;
+
+import esfe.dominio.MovimientoInventario;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO de la tabla Existencias: el saldo de inventario de cada computadora, mantenido de forma
+ * incremental por cada alta, cambio o baja de movimientos (en la misma transacción que el movimiento).
+ * Consultar la existencia de una computadora es una búsqueda por clave primaria, sin recorrer
+ * el historial de MovimientosInventario.
+ *
+ * Las entradas suman la cantidad, las salidas la restan y los mantenimientos no la afectan.
+ */
+public class ExistenciaDAO {
+
+    /**
+     * Diferencia entre la existencia registrada y la calculada a partir del historial.
+     */
+    public static final class Discrepancia {
+        private final int computadoraID;
+        private final int esperada;
+        private final int registrada;
+
+        Discrepancia(int computadoraID, int esperada, int registrada) {
+            this.computadoraID = computadoraID;
+            this.esperada = esperada;
+            this.registrada = registrada;
+        }
+
+        public int getComputadoraID() {
+            return computadoraID;
+        }
+
+        /**
+         * Existencia calculada sumando los movimientos.
+         */
+        public int getEsperada() {
+            return esperada;
+        }
+
+        /**
+         * Existencia guardada en la tabla Existencias.
+         */
+        public int getRegistrada() {
+            return registrada;
+        }
+
+        @Override
+        public String toString() {
+            return "Computadora " + computadoraID + ": esperada " + esperada + ", registrada " + registrada;
+        }
+    }
+
+    private static final String SUM_MOVIMIENTOS =
+            "SELECT ComputadoraID, SUM(CASE WHEN TipoMovimiento = ? THEN Cantidad WHEN TipoMovimiento = ? THEN -Cantidad ELSE 0 END) "
+            + "FROM MovimientosInventario GROUP BY ComputadoraID";
+
+    // Existencia esperada y registrada por computadora; solo las que no coinciden
+    private static final String CHECK_SQL =
+            "SELECT ComputadoraID, SUM(Esperada), SUM(Registrada) FROM ("
+            + "SELECT ComputadoraID, CASE WHEN TipoMovimiento = ? THEN Cantidad WHEN TipoMovimiento = ? THEN -Cantidad ELSE 0 END AS Esperada, "
+            + "0 AS Registrada FROM MovimientosInventario "
+            + "UNION ALL SELECT ComputadoraID, 0, Existencia FROM Existencias) AS t "
+            + "GROUP BY ComputadoraID HAVING SUM(Esperada) <> SUM(Registrada) ORDER BY ComputadoraID";
+
+    private final ConnectionManager conn;
+
+    public ExistenciaDAO() {
+        this(ConnectionManager.getInstance());
+    }
+
+    ExistenciaDAO(ConnectionManager conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Devuelve la existencia actual de una computadora.
+     *
+     * @param computadoraID ID de la computadora.
+     * @return La existencia, o 0 si la computadora no tiene movimientos.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public int getExistencia(int computadoraID) throws SQLException {
+        return conn.read(() -> {
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT Existencia FROM Existencias WHERE ComputadoraID = ?")) {
+                ps.setInt(1, computadoraID);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener la existencia de la computadora: " + ex.getMessage(), ex);
+            }
+        });
+    }
+
+    /**
+     * Vuelve a calcular todas las existencias a partir del historial de movimientos, en una sola
+     * transacción. Se usa al crear la tabla en una base de datos existente o para corregir
+     * las diferencias que encuentre {@link #check()}.
+     *
+     * @throws SQLException Si ocurre un error de acceso a la base de datos; en ese caso no se cambia nada.
+     */
+    public void rebuild() throws SQLException {
+        try (Connection connection = conn.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM Existencias");
+                 PreparedStatement insert = connection.prepareStatement("INSERT INTO Existencias (ComputadoraID, Existencia) " + SUM_MOVIMIENTOS)) {
+                delete.executeUpdate();
+                insert.setByte(1, MovimientoInventario.TIPO_ENTRADA);
+                insert.setByte(2, MovimientoInventario.TIPO_SALIDA);
+                insert.executeUpdate();
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (SQLException ex) {
+            throw new SQLException("Error al reconstruir las existencias: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Compara las existencias registradas con las calculadas a partir del historial. Ambas se
+     * leen en una sola consulta y transacción (REPEATABLE READ): un movimiento confirmado durante
+     * la verificación no aparece como diferencia.
+     *
+     * @return Las computadoras cuya existencia no coincide; vacía si todo es consistente.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public List<Discrepancia> check() throws SQLException {
+        return conn.read(() -> {
+            List<Discrepancia> discrepancias = new ArrayList<>();
+            try (Connection connection = conn.getConnection()) {
+                int isolation = connection.getTransactionIsolation();
+                // Aun en una sola consulta, READ COMMITTED puede leer cada tabla en un momento distinto
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setAutoCommit(false);
+                try (PreparedStatement ps = connection.prepareStatement(CHECK_SQL)) {
+                    ps.setByte(1, MovimientoInventario.TIPO_ENTRADA);
+                    ps.setByte(2, MovimientoInventario.TIPO_SALIDA);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            discrepancias.add(new Discrepancia(rs.getInt(1), rs.getInt(2), rs.getInt(3)));
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException ex) {
+                    connection.rollback();
+                    throw ex;
+                } finally {
+                    connection.setTransactionIsolation(isolation);
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al verificar las existencias: " + ex.getMessage(), ex);
+            }
+            return discrepancias;
+        });
+    }
+
+    /**
+     * Efecto de un movimiento sobre la existencia: +cantidad para una entrada, -cantidad para
+     * una salida y 0 para un mantenimiento.
+     */
+    static int delta(byte tipoMovimiento, int cantidad) {
+        switch (tipoMovimiento) {
+            case MovimientoInventario.TIPO_ENTRADA:
+                return cantidad;
+            case MovimientoInventario.TIPO_SALIDA:
+                return -cantidad;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Suma la diferencia a la existencia de la computadora usando la conexión (y la transacción)
+     * de quien registra el movimiento. Crea la fila si la computadora aún no tiene existencia.
+     */
+    static void apply(Connection connection, int computadoraID, int delta) throws SQLException {
+        if (delta == 0) {
+            return;
+        }
+        if (addTo(connection, computadoraID, delta)) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement("INSERT INTO Existencias (ComputadoraID, Existencia) VALUES (?, ?)")) {
+            ps.setInt(1, computadoraID);
+            ps.setInt(2, delta);
+            ps.executeUpdate();
+        } catch (SQLException ex) {
+            // Otra transacción creó la fila al mismo tiempo: ahora sí existe para sumarle.
+            if (!addTo(connection, computadoraID, delta)) {
+                throw ex;
+            }
+        }
+    }
+
+    private static boolean addTo(Connection connection, int computadoraID, int delta) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("UPDATE Existencias SET Existencia = Existencia + ? WHERE ComputadoraID = ?")) {
+            ps.setInt(1, delta);
+            ps.setInt(2, computadoraID);
+            return ps.executeUpdate() > 0;
+        }
+    }
+}
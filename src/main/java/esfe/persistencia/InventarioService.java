@@ -0,0 +1,229 @@
+package esfe.persistencia;
+
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Registra movimientos de inventario y actualiza el Estado y la existencia de la computadora
+ * en la misma transacción: o se guardan todos los cambios o ninguno.
+ *
+ * No se bloquean filas mientras el usuario llena el formulario. La transacción lee el Estado y la
+ * versión de la computadora y solo la modifica si la versión no cambió (concurrencia optimista);
+ * si otro operador la modificó al mismo tiempo, el movimiento se vuelve a intentar con los datos nuevos.
+ */
+public class InventarioService {
+    /**
+     * Intentos cuando otra transacción modifica la misma computadora al mismo tiempo.
+     */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /**
+     * Espera máxima a que se confirmen los movimientos en cola antes de una salida.
+     */
+    private static final long FLUSH_TIMEOUT_MS = 10_000;
+
+    private final ConnectionManager conn;
+    private final MovimientoWriteBehind writeBehind;
+
+    public InventarioService() {
+        this(ConnectionManager.getInstance());
+    }
+
+    InventarioService(ConnectionManager conn) {
+        this.conn = conn;
+        this.writeBehind = MovimientoWriteBehind.of(conn);
+    }
+
+    /**
+     * Indica si está activa la escritura diferida de movimientos (inventario.movimientos.writeBehind).
+     */
+    public boolean isWriteBehind() {
+        return writeBehind != null && writeBehind.isWriteBehind();
+    }
+
+    /**
+     * Indica si las entradas y los mantenimientos pueden guardarse en el diario local cuando la base
+     * de datos no está disponible (inventario.movimientos.offline, o la escritura diferida activa).
+     */
+    public boolean isOfflineEnabled() {
+        return writeBehind != null;
+    }
+
+    /**
+     * Registra el movimiento con la fecha y hora actuales y actualiza el Estado de la computadora:
+     * una Entrada la deja disponible, una Salida la deja agotada y un Mantenimiento no cambia su estado.
+     *
+     * @param movimiento El movimiento a registrar.
+     * @return El mismo movimiento con su ID generado.
+     * @throws OptimisticLockException Si la computadora se siguió modificando en todos los intentos.
+     * @throws SQLException Si la computadora no existe, no está disponible para una salida o falla la base de datos.
+     */
+    public MovimientoInventario registrarMovimiento(MovimientoInventario movimiento) throws SQLException {
+        if (writeBehind != null && movimiento.getTipoMovimiento() == MovimientoInventario.TIPO_SALIDA) {
+            // La salida comprueba el Estado: antes deben confirmarse las entradas pendientes
+            writeBehind.flush(FLUSH_TIMEOUT_MS);
+        }
+        return registrarMovimiento(movimiento, null);
+    }
+
+    /**
+     * @param key Clave de idempotencia que se registra en la misma transacción, o null.
+     */
+    private MovimientoInventario registrarMovimiento(MovimientoInventario movimiento, UUID key) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return tryRegistrarMovimiento(movimiento, key);
+            } catch (OptimisticLockException ex) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+
+    /**
+     * Igual que {@link #registrarMovimiento}, pero las entradas y los mantenimientos pueden guardarse
+     * en el diario local y confirmarse en segundo plano; el futuro se completa cuando el movimiento
+     * queda confirmado en la base de datos:
+     * <ul>
+     *     <li>Con la escritura diferida activa se encolan siempre y se confirman en grupo.</li>
+     *     <li>En modo sin conexión se registran en el momento y, si la base de datos no está
+     *     disponible, se guardan en el diario y se registran cuando vuelva.</li>
+     * </ul>
+     * Las salidas (y todos los movimientos, si ninguno de los dos modos está activo) se registran
+     * en el momento.
+     *
+     * @param movimiento El movimiento a registrar.
+     * @return Futuro con el movimiento y su ID generado una vez confirmado, o con el error.
+     * @throws SQLException Si no se pudo registrar ni guardar en el diario local.
+     */
+    public CompletableFuture<MovimientoInventario> registrarMovimientoDiferido(MovimientoInventario movimiento) throws SQLException {
+        if (writeBehind == null || movimiento.getTipoMovimiento() == MovimientoInventario.TIPO_SALIDA) {
+            return CompletableFuture.completedFuture(registrarMovimiento(movimiento));
+        }
+        if (writeBehind.isWriteBehind()) {
+            return writeBehind.submit(movimiento);
+        }
+        // La clave evita duplicarlo si la conexión se cae justo después de confirmar
+        UUID key = UUID.randomUUID();
+        try {
+            return CompletableFuture.completedFuture(registrarMovimiento(movimiento, key));
+        } catch (SQLException ex) {
+            if (!CircuitBreaker.isConnectionFailure(ex)) {
+                throw ex;
+            }
+            return writeBehind.submit(movimiento, key, true);
+        }
+    }
+
+    /**
+     * Deja disponibles las computadoras con alguna entrada entre los movimientos ya insertados,
+     * con una actualización por computadora. Se usa en las confirmaciones en grupo.
+     */
+    static void marcarDisponibles(Connection connection, List<MovimientoInventario> creados) throws SQLException {
+        Set<Integer> computadoras = new LinkedHashSet<>();
+        for (MovimientoInventario movimiento : creados) {
+            if (movimiento.getTipoMovimiento() == MovimientoInventario.TIPO_ENTRADA) {
+                computadoras.add(movimiento.getComputadoraID());
+            }
+        }
+        if (computadoras.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE Computadoras SET Estado = ?, Version = Version + 1 WHERE ComputadoraID = ? AND Estado <> ?")) {
+            for (int computadoraID : computadoras) {
+                ps.setByte(1, Computadora.ESTADO_DISPONIBLE);
+                ps.setInt(2, computadoraID);
+                ps.setByte(3, Computadora.ESTADO_DISPONIBLE);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private MovimientoInventario tryRegistrarMovimiento(MovimientoInventario movimiento, UUID key) throws SQLException {
+        movimiento.setFechaMovimiento(LocalDateTime.now());
+        try (Connection connection = conn.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                int[] estadoVersion = readEstadoVersion(connection, movimiento.getComputadoraID());
+                byte estadoActual = (byte) estadoVersion[0];
+                byte nuevoEstado = nuevoEstado(movimiento.getTipoMovimiento(), estadoActual);
+                if (nuevoEstado != estadoActual) {
+                    updateEstado(connection, movimiento.getComputadoraID(), nuevoEstado, estadoVersion[1]);
+                }
+                movimiento.setMovimientoID(MovimientoInventarioDAO.insert(connection, movimiento));
+                if (key != null) {
+                    MovimientoWriteBehind.insertKey(connection, key, movimiento.getMovimientoID());
+                }
+                connection.commit();
+                return movimiento;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
+            }
+        } catch (OptimisticLockException ex) {
+            throw ex;
+        } catch (SQLException ex) {
+            throw new SQLException("Error al registrar el movimiento de inventario: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Estado de la computadora después del movimiento.
+     *
+     * @throws SQLException Si se intenta dar salida a una computadora agotada.
+     */
+    private static byte nuevoEstado(byte tipoMovimiento, byte estadoActual) throws SQLException {
+        switch (tipoMovimiento) {
+            case MovimientoInventario.TIPO_ENTRADA:
+                return Computadora.ESTADO_DISPONIBLE;
+            case MovimientoInventario.TIPO_SALIDA:
+                if (estadoActual == Computadora.ESTADO_AGOTADO) {
+                    throw new SQLException("La computadora no está disponible para una salida.");
+                }
+                return Computadora.ESTADO_AGOTADO;
+            default:
+                return estadoActual;
+        }
+    }
+
+    /**
+     * @return El Estado y la versión actuales de la computadora.
+     */
+    private static int[] readEstadoVersion(Connection connection, int computadoraID) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT Estado, Version FROM Computadoras WHERE ComputadoraID = ?")) {
+            ps.setInt(1, computadoraID);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("La computadora con ID " + computadoraID + " no existe.");
+                }
+                return new int[]{rs.getByte(1), rs.getInt(2)};
+            }
+        }
+    }
+
+    private static void updateEstado(Connection connection, int computadoraID, byte estado, int version) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE Computadoras SET Estado = ?, Version = Version + 1 WHERE ComputadoraID = ? AND Version = ?")) {
+            ps.setByte(1, estado);
+            ps.setInt(2, computadoraID);
+            ps.setInt(3, version);
+            if (ps.executeUpdate() == 0) {
+                throw new OptimisticLockException("La computadora fue modificada por otro usuario.");
+            }
+        }
+    }
+}
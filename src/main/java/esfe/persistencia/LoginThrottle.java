@@ -0,0 +1,134 @@
+package esfe.persistencia;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Límite de intentos de inicio de sesión por correo electrónico, en memoria.
+ *
+ * Cada correo tiene un cubo de fichas: admite una ráfaga de {@code burst} intentos y después
+ * uno cada {@code interval}. El estado de cada cubo es un único long (el instante teórico en que
+ * el cubo vuelve a estar lleno, algoritmo GCRA) que se actualiza con compareAndSet, sin bloqueos.
+ * Un inicio de sesión correcto vacía el historial del correo.
+ *
+ * La memoria está acotada: los cubos llenos equivalen a no tener historial y se eliminan cuando
+ * el mapa alcanza su máximo. Si aun así no hay lugar (muchos correos distintos a la vez, p. ej.
+ * un ataque con correos aleatorios), los correos nuevos comparten un cubo común, que sigue
+ * limitando la tasa total.
+ */
+final class LoginThrottle {
+    private static final String OVERFLOW = "";
+
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong overflow;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final LongSupplier clock;
+    private final LongAdder rejected = new LongAdder();
+
+    /**
+     * @param burst Intentos seguidos admitidos antes de empezar a limitar.
+     * @param interval Tiempo entre intentos una vez agotada la ráfaga.
+     * @param unit Unidad de {@code interval}.
+     * @param maxKeys Número máximo de correos con historial.
+     */
+    LoginThrottle(int burst, long interval, TimeUnit unit, int maxKeys) {
+        this(burst, interval, unit, maxKeys, System::nanoTime);
+    }
+
+    LoginThrottle(int burst, long interval, TimeUnit unit, int maxKeys, LongSupplier clock) {
+        if (burst < 1 || interval <= 0 || maxKeys < 1) {
+            throw new IllegalArgumentException("Parámetros inválidos del límite de intentos.");
+        }
+        this.intervalNanos = unit.toNanos(interval);
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.maxKeys = maxKeys;
+        this.clock = clock;
+        this.overflow = new AtomicLong(full(clock.getAsLong()));
+    }
+
+    /**
+     * Registra un intento para el correo o lo rechaza si superó el límite.
+     *
+     * @throws LoginThrottledException Si hay que esperar antes de volver a intentarlo.
+     */
+    void acquire(String email) throws LoginThrottledException {
+        long now = clock.getAsLong();
+        AtomicLong bucket = bucket(key(email), now);
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, now);
+            long wait = start - now - toleranceNanos;
+            if (wait > 0) {
+                rejected.increment();
+                long millis = TimeUnit.NANOSECONDS.toMillis(wait) + 1;
+                throw new LoginThrottledException("Demasiados intentos de inicio de sesión. Intente de nuevo en "
+                        + TimeUnit.MILLISECONDS.toSeconds(millis + 999) + " s.", millis);
+            }
+            if (bucket.compareAndSet(tat, start + intervalNanos)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Olvida los intentos del correo (después de un inicio de sesión correcto).
+     */
+    void reset(String email) {
+        buckets.remove(key(email));
+    }
+
+    /**
+     * Número de correos con historial.
+     */
+    int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Intentos rechazados desde que se creó.
+     */
+    long getRejected() {
+        return rejected.sum();
+    }
+
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            evictFull(now);
+            if (buckets.size() >= maxKeys) {
+                return overflow;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong(full(now)));
+    }
+
+    // Cubo lleno: el instante teórico ya pasó
+    private long full(long now) {
+        return now - toleranceNanos - intervalNanos;
+    }
+
+    // Los cubos llenos (sin intentos recientes) no aportan información: se pueden eliminar
+    private void evictFull(long now) {
+        Iterator<AtomicLong> it = buckets.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().get() <= now) {
+                it.remove();
+            }
+        }
+    }
+
+    private static String key(String email) {
+        return email == null ? OVERFLOW : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,24 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+
+/**
+ * Indica que se rechazó un inicio de sesión, sin consultar la base de datos, porque hubo
+ * demasiados intentos seguidos con el mismo correo electrónico.
+ * Se puede volver a intentar pasado el tiempo indicado.
+ */
+public class LoginThrottledException extends SQLException {
+    private final long retryAfterMillis;
+
+    public LoginThrottledException(String reason, long retryAfterMillis) {
+        super(reason);
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Milisegundos que faltan para que se acepte el siguiente intento.
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
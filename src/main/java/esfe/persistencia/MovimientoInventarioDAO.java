@@ -4,78 +4,126 @@ import esfe.dominio.MovimientoInventario;
 import java.sql.*;
 import java.time.LocalDateTime; // Necesario para FechaMovimiento
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * DAO de la tabla MovimientosInventario.
+ * Es seguro para uso concurrente: cada método obtiene su propia conexión del pool y
+ * declara sus sentencias y resultados como variables locales.
+ */
 public class MovimientoInventarioDAO {
-    private ConnectionManager conn;
-    private PreparedStatement ps;
-    private ResultSet rs;
+    private static final String SELECT_ALL_ORDERED =
+            "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario ORDER BY FechaMovimiento DESC";
+
+    static final String INSERT_SQL =
+            "INSERT INTO MovimientosInventario (ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion) VALUES (?, ?, ?, ?, ?)";
+    static final String ID_COLUMN = "MovimientoID";
+
+    private final ConnectionManager conn;
 
     public MovimientoInventarioDAO() {
-        conn = ConnectionManager.getInstance();
+        this(ConnectionManager.getInstance());
+    }
+
+    MovimientoInventarioDAO(ConnectionManager conn) {
+        this.conn = conn;
     }
 
     /**
      * Crea un nuevo registro de movimiento de inventario en la base de datos.
      * La FechaMovimiento se genera automáticamente con la fecha y hora actuales.
+     * En la misma transacción se actualiza la existencia de la computadora.
      *
      * @param movimiento El objeto MovimientoInventario a crear.
-     * @return El objeto MovimientoInventario con su ID generado, o null si falla.
+     * @return El mismo objeto MovimientoInventario con su ID generado (sin volver a leerlo), o null si falla.
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public MovimientoInventario create(MovimientoInventario movimiento) throws SQLException {
-        MovimientoInventario res = null;
-        ResultSet generatedKeys = null;
-        try {
-            // Asignar la fecha y hora actual automáticamente antes de insertar
-            movimiento.setFechaMovimiento(LocalDateTime.now());
-
-            ps = conn.connect().prepareStatement(
-                    "INSERT INTO MovimientosInventario (ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion) VALUES (?, ?, ?, ?, ?)",
-                    Statement.RETURN_GENERATED_KEYS
-            );
+        return create(movimiento, false);
+    }
 
-            ps.setInt(1, movimiento.getComputadoraID());
-            ps.setByte(2, movimiento.getTipoMovimiento());
-            ps.setInt(3, movimiento.getCantidad());
-            // Convertir LocalDateTime a java.sql.Timestamp para la base de datos
-            ps.setTimestamp(4, Timestamp.valueOf(movimiento.getFechaMovimiento()));
-            ps.setString(5, movimiento.getDescripcion());
+    /**
+     * Igual que {@link #create(MovimientoInventario)}, pero permite volver a leer la fila recién insertada.
+     * Solo es necesario cuando importan valores asignados por el servidor (p. ej. valores
+     * por defecto o conversiones de tipo de la columna); cuesta una consulta adicional.
+     *
+     * @param reread true para devolver la fila leída de la base de datos en lugar del objeto recibido.
+     */
+    public MovimientoInventario create(MovimientoInventario movimiento, boolean reread) throws SQLException {
+        int idGenerado;
+        // Asignar la fecha y hora actual automáticamente antes de insertar
+        movimiento.setFechaMovimiento(LocalDateTime.now());
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows != 0) {
-                generatedKeys = ps.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int idGenerado = generatedKeys.getInt(1);
-                    res = getById(idGenerado); // Recuperar el objeto completo con el ID generado
-                } else {
-                    throw new SQLException("Error al crear el movimiento, no se generó ID.");
-                }
+        try (Connection connection = conn.getConnection()) {
+            // El movimiento y la existencia de la computadora se guardan en la misma transacción
+            connection.setAutoCommit(false);
+            try {
+                idGenerado = insert(connection, movimiento);
+                connection.commit();
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al crear el movimiento de inventario: " + ex.getMessage(), ex);
-        } finally {
-            if (generatedKeys != null) try { generatedKeys.close(); } catch (SQLException e) { System.err.println("Error closing generatedKeys: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
+        movimiento.setMovimientoID(idGenerado);
+        // Solo se vuelve a leer si se pide (la conexión anterior ya fue devuelta al pool)
+        return reread ? getById(idGenerado) : movimiento;
+    }
+
+    /**
+     * Registra varios movimientos usando lotes JDBC en una sola transacción,
+     * con el tamaño de lote por defecto.
+     *
+     * @see #createAll(List, int)
+     */
+    public BatchResult<MovimientoInventario> createAll(List<MovimientoInventario> movimientos) throws SQLException {
+        return createAll(movimientos, BatchInserter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Registra varios movimientos usando lotes JDBC en una sola transacción. A cada movimiento
+     * insertado se le asigna su ID generado y la fecha y hora actuales. Una fila que falla
+     * (p. ej. una computadora inexistente) se reporta en el resultado sin detener las demás.
+     * Las existencias se actualizan antes de confirmar, una vez por computadora.
+     *
+     * @param movimientos Movimientos a registrar.
+     * @param batchSize Filas por lote.
+     * @return Los movimientos insertados y las filas que fallaron.
+     * @throws SQLException Si falla la conexión o la transacción; en ese caso no se registra ninguno.
+     */
+    public BatchResult<MovimientoInventario> createAll(List<MovimientoInventario> movimientos, int batchSize) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        for (MovimientoInventario movimiento : movimientos) {
+            movimiento.setFechaMovimiento(now);
+        }
+        try {
+            return BatchInserter.insertAll(conn, INSERT_SQL, ID_COLUMN, movimientos, batchSize,
+                    MovimientoInventarioDAO::bindInsert, MovimientoInventario::setMovimientoID,
+                    MovimientoInventarioDAO::applyToExistencias);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al crear los movimientos de inventario: " + ex.getMessage(), ex);
+        }
     }
 
     /**
-     * Actualiza un registro de movimiento de inventario existente en la base de datos.
+     * Actualiza un registro de movimiento de inventario existente en la base de datos
+     * y ajusta las existencias según la diferencia con el movimiento anterior.
      *
      * @param movimiento El objeto MovimientoInventario con los datos actualizados.
      * @return true si la actualización fue exitosa, false en caso contrario.
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public boolean update(MovimientoInventario movimiento) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "UPDATE MovimientosInventario SET ComputadoraID = ?, TipoMovimiento = ?, Cantidad = ?, FechaMovimiento = ?, Descripcion = ? WHERE MovimientoID = ?"
-            );
-
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE MovimientosInventario SET ComputadoraID = ?, TipoMovimiento = ?, Cantidad = ?, FechaMovimiento = ?, Descripcion = ? WHERE MovimientoID = ?"
+             )) {
             ps.setInt(1, movimiento.getComputadoraID());
             ps.setByte(2, movimiento.getTipoMovimiento());
             ps.setInt(3, movimiento.getCantidad());
@@ -84,43 +132,59 @@ public class MovimientoInventarioDAO {
             ps.setString(5, movimiento.getDescripcion());
             ps.setInt(6, movimiento.getMovimientoID());
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
+            // Se revierte el efecto del movimiento anterior y se aplica el nuevo, en la misma transacción
+            connection.setAutoCommit(false);
+            try {
+                MovimientoInventario anterior = readForExistencias(connection, movimiento.getMovimientoID());
+                if (anterior == null || ps.executeUpdate() == 0) {
+                    connection.rollback();
+                    return false;
+                }
+                ExistenciaDAO.apply(connection, anterior.getComputadoraID(), -ExistenciaDAO.delta(anterior.getTipoMovimiento(), anterior.getCantidad()));
+                ExistenciaDAO.apply(connection, movimiento.getComputadoraID(), ExistenciaDAO.delta(movimiento.getTipoMovimiento(), movimiento.getCantidad()));
+                connection.commit();
+                return true;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al modificar el movimiento de inventario: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
     }
 
     /**
-     * Elimina un registro de movimiento de inventario de la base de datos por su ID.
+     * Elimina un registro de movimiento de inventario de la base de datos por su ID
+     * y revierte su efecto sobre la existencia de la computadora.
      *
      * @param movimientoID El ID del movimiento a eliminar.
      * @return true si la eliminación fue exitosa, false en caso contrario.
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public boolean delete(int movimientoID) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM MovimientosInventario WHERE MovimientoID = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM MovimientosInventario WHERE MovimientoID = ?"
+             )) {
             ps.setInt(1, movimientoID);
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
+            connection.setAutoCommit(false);
+            try {
+                MovimientoInventario anterior = readForExistencias(connection, movimientoID);
+                if (anterior == null || ps.executeUpdate() == 0) {
+                    connection.rollback();
+                    return false;
+                }
+                ExistenciaDAO.apply(connection, anterior.getComputadoraID(), -ExistenciaDAO.delta(anterior.getTipoMovimiento(), anterior.getCantidad()));
+                connection.commit();
+                return true;
+            } catch (SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al eliminar el movimiento de inventario: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
     }
 
     /**
@@ -131,25 +195,44 @@ public class MovimientoInventarioDAO {
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public List<MovimientoInventario> search(String query) throws SQLException {
-        List<MovimientoInventario> records = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario WHERE Descripcion LIKE ? ORDER BY FechaMovimiento DESC"
-            );
-            ps.setString(1, "%" + query + "%");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                records.add(mapRowToMovimientoInventario(rs));
+        return search(query, null);
+    }
+
+    /**
+     * Igual que {@link #search(String)}, pero la consulta puede cancelarse desde otro hilo
+     * mediante el objeto de cancelación (p. ej. cuando el usuario sigue escribiendo).
+     *
+     * @param query Texto a buscar.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Los movimientos de inventario que coinciden con la búsqueda.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public List<MovimientoInventario> search(String query, QueryCancellation cancellation) throws SQLException {
+        return conn.read(() -> {
+            List<MovimientoInventario> records = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario WHERE Descripcion LIKE ? ORDER BY FechaMovimiento DESC"
+                 )) {
+                ps.setString(1, "%" + query + "%");
+
+                if (cancellation != null) {
+                    cancellation.register(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        records.add(mapRowToMovimientoInventario(rs));
+                    }
+                } finally {
+                    if (cancellation != null) {
+                        cancellation.unregister();
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al buscar movimientos de inventario: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException("Error al buscar movimientos de inventario: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
-        }
-        return records;
+            return records;
+        });
     }
 
     /**
@@ -160,25 +243,24 @@ public class MovimientoInventarioDAO {
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public MovimientoInventario getById(int id) throws SQLException {
-        MovimientoInventario movimiento = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario WHERE MovimientoID = ?"
-            );
-            ps.setInt(1, id);
-            rs = ps.executeQuery();
-
-            if (rs.next()) {
-                movimiento = mapRowToMovimientoInventario(rs);
+        return conn.read(() -> {
+            MovimientoInventario movimiento = null;
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario WHERE MovimientoID = ?"
+                 )) {
+                ps.setInt(1, id);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        movimiento = mapRowToMovimientoInventario(rs);
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener movimiento de inventario por ID: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException("Error al obtener movimiento de inventario por ID: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
-        }
-        return movimiento;
+            return movimiento;
+        });
     }
 
     /**
@@ -188,24 +270,177 @@ public class MovimientoInventarioDAO {
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public List<MovimientoInventario> getAllMovimientoInventario() throws SQLException {
-        List<MovimientoInventario> movimientos = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario ORDER BY FechaMovimiento DESC"
-            );
-            rs = ps.executeQuery();
+        return conn.read(() -> {
+            List<MovimientoInventario> movimientos = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(SELECT_ALL_ORDERED);
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) {
+                    movimientos.add(mapRowToMovimientoInventario(rs));
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener todos los movimientos de inventario: " + ex.getMessage(), ex);
+            }
+            return movimientos;
+        });
+    }
+
+    /**
+     * Obtiene una página de movimientos de inventario, del más reciente al más antiguo
+     * (FechaMovimiento y MovimientoID descendentes). Usa paginación por conjunto de claves,
+     * de modo que no es necesario cargar todo el historial en memoria.
+     *
+     * @param pageToken Token de continuación de la página anterior, o null para la primera página.
+     * @param pageSize Número máximo de movimientos de la página.
+     * @return La página de movimientos con el token para la siguiente.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public Page<MovimientoInventario> getMovimientosPage(String pageToken, int pageSize) throws SQLException {
+        return conn.read(() -> {
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("El tamaño de página debe ser mayor que 0.");
+            }
+            String sql = "SELECT MovimientoID, ComputadoraID, TipoMovimiento, Cantidad, FechaMovimiento, Descripcion FROM MovimientosInventario "
+                    + (pageToken == null ? "" : "WHERE FechaMovimiento < ? OR (FechaMovimiento = ? AND MovimientoID < ?) ")
+                    + "ORDER BY FechaMovimiento DESC, MovimientoID DESC OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+            List<MovimientoInventario> movimientos = new ArrayList<>(pageSize + 1);
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(sql)) {
+                int index = 1;
+                if (pageToken != null) {
+                    String[] last = PageToken.decode(pageToken, 2);
+                    Timestamp fecha = Timestamp.valueOf(last[0]);
+                    ps.setTimestamp(index++, fecha);
+                    ps.setTimestamp(index++, fecha);
+                    ps.setInt(index++, Integer.parseInt(last[1]));
+                }
+                // Se pide una fila extra para saber si existe una página siguiente.
+                ps.setInt(index, pageSize + 1);
 
-            while (rs.next()) {
-                movimientos.add(mapRowToMovimientoInventario(rs));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        movimientos.add(mapRowToMovimientoInventario(rs));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener la página de movimientos de inventario: " + ex.getMessage(), ex);
             }
+
+            String nextToken = null;
+            if (movimientos.size() > pageSize) {
+                movimientos.remove(pageSize);
+                MovimientoInventario last = movimientos.get(pageSize - 1);
+                nextToken = PageToken.encode(Timestamp.valueOf(last.getFechaMovimiento()).toString(), String.valueOf(last.getMovimientoID()));
+            }
+            return new Page<>(movimientos, nextToken);
+        });
+    }
+
+    /**
+     * Devuelve todos los movimientos de inventario como un Stream que lee las filas a medida
+     * que se consumen, en el mismo orden que getAllMovimientoInventario. Pensado para
+     * exportaciones y reportes del historial completo.
+     * El Stream mantiene una conexión prestada y debe cerrarse (try-with-resources).
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @return Stream de movimientos de inventario.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public Stream<MovimientoInventario> streamMovimientos(int fetchSize) throws SQLException {
+        try {
+            return RowStreams.stream(conn, SELECT_ALL_ORDERED, fetchSize, this::mapRowToMovimientoInventario);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al recorrer los movimientos de inventario: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Entrega cada movimiento de inventario al consumidor a medida que se lee, sin construir una lista.
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @param action Consumidor de cada movimiento.
+     * @return Número de movimientos procesados.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public int forEachMovimiento(int fetchSize, Consumer<? super MovimientoInventario> action) throws SQLException {
+        try {
+            return RowStreams.forEach(conn, SELECT_ALL_ORDERED, fetchSize, this::mapRowToMovimientoInventario, action);
         } catch (SQLException ex) {
-            throw new SQLException("Error al obtener todos los movimientos de inventario: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
+            throw new SQLException("Error al recorrer los movimientos de inventario: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Inserta el movimiento y actualiza la existencia de su computadora usando la conexión
+     * (y la transacción) recibida.
+     *
+     * @return El ID generado.
+     */
+    static int insert(Connection connection, MovimientoInventario movimiento) throws SQLException {
+        int idGenerado;
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(ps, movimiento);
+            ps.executeUpdate();
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new SQLException("Error al crear el movimiento, no se generó ID.");
+                }
+                idGenerado = generatedKeys.getInt(1);
+            }
+        }
+        ExistenciaDAO.apply(connection, movimiento.getComputadoraID(), ExistenciaDAO.delta(movimiento.getTipoMovimiento(), movimiento.getCantidad()));
+        return idGenerado;
+    }
+
+    /**
+     * Aplica a las existencias los movimientos insertados por lotes, con una sola
+     * actualización por computadora.
+     */
+    static void applyToExistencias(Connection connection, List<MovimientoInventario> creados) throws SQLException {
+        Map<Integer, Integer> deltas = new HashMap<>();
+        for (MovimientoInventario movimiento : creados) {
+            deltas.merge(movimiento.getComputadoraID(), ExistenciaDAO.delta(movimiento.getTipoMovimiento(), movimiento.getCantidad()), Integer::sum);
+        }
+        for (Map.Entry<Integer, Integer> entry : deltas.entrySet()) {
+            ExistenciaDAO.apply(connection, entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Lee la computadora, el tipo y la cantidad actuales de un movimiento, o null si no existe.
+     * La fila queda bloqueada hasta el fin de la transacción: dos cambios simultáneos del mismo
+     * movimiento no pueden revertir dos veces el mismo valor anterior.
+     */
+    private static MovimientoInventario readForExistencias(Connection connection, int movimientoID) throws SQLException {
+        String sql = ConnectionManager.isSqlServer(connection)
+                ? "SELECT ComputadoraID, TipoMovimiento, Cantidad FROM MovimientosInventario WITH (UPDLOCK, ROWLOCK) WHERE MovimientoID = ?"
+                : "SELECT ComputadoraID, TipoMovimiento, Cantidad FROM MovimientosInventario WHERE MovimientoID = ? FOR UPDATE";
+        try (PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setInt(1, movimientoID);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                MovimientoInventario mov = new MovimientoInventario();
+                mov.setComputadoraID(rs.getInt(1));
+                mov.setTipoMovimiento(rs.getByte(2));
+                mov.setCantidad(rs.getInt(3));
+                return mov;
+            }
         }
-        return movimientos;
+    }
+
+    /**
+     * Asigna los parámetros de INSERT_SQL a partir de un movimiento.
+     */
+    static void bindInsert(PreparedStatement ps, MovimientoInventario movimiento) throws SQLException {
+        ps.setInt(1, movimiento.getComputadoraID());
+        ps.setByte(2, movimiento.getTipoMovimiento());
+        ps.setInt(3, movimiento.getCantidad());
+        // Convertir LocalDateTime a java.sql.Timestamp para la base de datos
+        ps.setTimestamp(4, Timestamp.valueOf(movimiento.getFechaMovimiento()));
+        ps.setString(5, movimiento.getDescripcion());
     }
 
     /**
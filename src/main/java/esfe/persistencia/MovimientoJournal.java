@@ -0,0 +1,324 @@
+package esfe.persistencia;
+
+import esfe.dominio.MovimientoInventario;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32C;
+
+/**
+ * Diario local de solo anexado con los movimientos que aún no se confirmaron en la base de datos.
+ *
+ * El archivo se mapea en memoria: anexar un movimiento es copiar unos pocos bytes, sin llamadas al
+ * sistema. Cada registro lleva su longitud y un CRC32C:
+ * <pre>
+ *   int longitud | int crc | byte tipo | datos
+ *   tipo 1 (movimiento): clave (16) | ComputadoraID | TipoMovimiento | Cantidad | fecha (segundos, nanos) | descripción
+ *   tipo 2 (terminados): cantidad | claves (16 cada una)
+ * </pre>
+ * Cada movimiento tiene una clave de idempotencia (UUID) que se guarda con él en la base de datos
+ * (tabla MovimientosAplicados): si el diario se vuelve a enviar, lo ya registrado no se duplica.
+ *
+ * {@link #sync(long)} fuerza el archivo a disco; las llamadas concurrentes se agrupan en un solo
+ * fsync. Al abrir, los movimientos sin marca de terminados se devuelven para volver a enviarlos;
+ * la lectura se detiene en el primer registro vacío o dañado (caída a mitad de una escritura).
+ * Cuando ya no queda ninguno pendiente, el diario vuelve a empezar desde el inicio.
+ */
+final class MovimientoJournal implements Closeable {
+    /**
+     * Movimiento del diario y su clave de idempotencia.
+     */
+    record Entry(UUID key, MovimientoInventario movimiento) {
+    }
+
+    private static final int MAGIC = 0x4D564A31; // "MVJ1"
+    private static final int HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final byte MOVIMIENTO = 1;
+    private static final byte TERMINADOS = 2;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Entry> recovered;
+    private MappedByteBuffer buffer;
+    private int position;
+    private int outstanding;
+    // Bytes escritos desde que se abrió; no vuelve a 0 cuando el diario vuelve al inicio
+    private long written;
+
+    // Fsync en grupo: el primer hilo fuerza el archivo y los demás esperan su resultado
+    private final Object syncMonitor = new Object();
+    private long durable;
+    private boolean syncing;
+
+    /**
+     * Abre (o crea) el diario y lee los movimientos pendientes de una ejecución anterior.
+     *
+     * @throws IOException Si no se puede leer o crear el archivo, o no es un diario de movimientos.
+     */
+    MovimientoJournal(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean isNew = channel.size() == 0;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+        if (isNew) {
+            buffer.putInt(0, MAGIC);
+        } else if (buffer.getInt(0) != MAGIC) {
+            channel.close();
+            throw new IOException("El archivo " + path + " no es un diario de movimientos.");
+        }
+        Map<UUID, Entry> pending = new LinkedHashMap<>();
+        this.position = scan(pending);
+        this.recovered = new ArrayList<>(pending.values());
+        this.outstanding = recovered.size();
+        if (outstanding == 0) {
+            reset();
+        }
+    }
+
+    /**
+     * Movimientos que quedaron sin confirmar en una ejecución anterior, en el orden en que se escribieron.
+     * Siguen contando como pendientes hasta que se marquen con {@link #markDone(List)}.
+     */
+    List<Entry> recovered() {
+        return recovered;
+    }
+
+    /**
+     * Anexa un movimiento al diario (sin forzarlo a disco; ver {@link #sync(long)}).
+     *
+     * @return La posición lógica del final del registro, para {@link #sync(long)}.
+     */
+    synchronized long append(UUID key, MovimientoInventario movimiento) throws IOException {
+        byte[] descripcion = movimiento.getDescripcion() == null ? null : movimiento.getDescripcion().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 16 + 4 + 1 + 4 + 8 + 4 + 4 + (descripcion == null ? 0 : descripcion.length));
+        record.put(MOVIMIENTO);
+        putKey(record, key);
+        record.putInt(movimiento.getComputadoraID());
+        record.put(movimiento.getTipoMovimiento());
+        record.putInt(movimiento.getCantidad());
+        LocalDateTime fecha = movimiento.getFechaMovimiento();
+        record.putLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        record.putInt(fecha.getNano());
+        record.putInt(descripcion == null ? -1 : descripcion.length);
+        if (descripcion != null) {
+            record.put(descripcion);
+        }
+        long end = write(record.flip());
+        outstanding++;
+        return end;
+    }
+
+    /**
+     * Marca movimientos como terminados (confirmados o reportados como fallidos). Si no queda
+     * ninguno pendiente, el diario vuelve a empezar desde el inicio.
+     *
+     * @return La posición lógica del final del diario, para {@link #sync(long)}.
+     */
+    synchronized long markDone(List<UUID> keys) throws IOException {
+        if (keys.isEmpty()) {
+            return written;
+        }
+        outstanding -= keys.size();
+        if (outstanding == 0) {
+            reset();
+            return written;
+        }
+        ByteBuffer record = ByteBuffer.allocate(1 + 4 + 16 * keys.size());
+        record.put(TERMINADOS);
+        record.putInt(keys.size());
+        for (UUID key : keys) {
+            putKey(record, key);
+        }
+        return write(record.flip());
+    }
+
+    /**
+     * Fuerza a disco todo lo escrito hasta la posición indicada ({@code Long.MAX_VALUE}: todo lo
+     * escrito). Si otro hilo ya está forzando el archivo, espera y aprovecha ese fsync o el
+     * siguiente: varias escrituras, un solo fsync.
+     */
+    void sync(long upTo) throws IOException {
+        synchronized (this) {
+            upTo = Math.min(upTo, written);
+        }
+        while (true) {
+            synchronized (syncMonitor) {
+                while (syncing && durable < upTo) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Se interrumpió la espera del diario de movimientos.", ex);
+                    }
+                }
+                if (durable >= upTo) {
+                    return;
+                }
+                syncing = true;
+            }
+            long target;
+            MappedByteBuffer mapped;
+            synchronized (this) {
+                target = written;
+                mapped = buffer;
+            }
+            boolean forced = false;
+            try {
+                // Sin monitores: mientras tanto, otros hilos siguen anexando
+                mapped.force();
+                forced = true;
+            } finally {
+                synchronized (syncMonitor) {
+                    if (forced) {
+                        durable = Math.max(durable, target);
+                    }
+                    syncing = false;
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Movimientos escritos y aún no marcados como terminados.
+     */
+    synchronized int getOutstanding() {
+        return outstanding;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private long write(ByteBuffer payload) throws IOException {
+        int length = payload.remaining();
+        ensureCapacity(position + RECORD_HEADER + length + 4);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        // Primero el final vacío y los datos, y al último la longitud: un registro a medias se lee
+        // como el final del diario, y lo que quedó después de un reinicio nunca se alcanza
+        buffer.putInt(position + RECORD_HEADER + length, 0);
+        buffer.putInt(position + 4, (int) crc.getValue());
+        buffer.put(position + RECORD_HEADER, payload, payload.position(), length);
+        buffer.putInt(position, length);
+        position += RECORD_HEADER + length;
+        written += RECORD_HEADER + length;
+        return written;
+    }
+
+    private void ensureCapacity(int required) throws IOException {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        long size = buffer.capacity();
+        while (size < required) {
+            size *= 2;
+        }
+        buffer.force();
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Vuelve al inicio: el primer registro vacío marca el final del diario. Se fuerza a disco
+    // enseguida, como lo anexado; si no, tras un corte de energía reaparecerían movimientos ya
+    // terminados, y la clave de idempotencia no protege a los que se descartaron.
+    private void reset() {
+        buffer.putInt(HEADER, 0);
+        position = HEADER;
+        buffer.force();
+        synchronized (syncMonitor) {
+            durable = Math.max(durable, written);
+        }
+    }
+
+    private int scan(Map<UUID, Entry> pending) {
+        int pos = HEADER;
+        while (pos + RECORD_HEADER <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length <= 0 || pos + RECORD_HEADER + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(pos + RECORD_HEADER, length);
+            CRC32C crc = new CRC32C();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(pos + 4)) {
+                System.err.println("El diario de movimientos " + path + " termina con un registro dañado en la posición " + pos);
+                break;
+            }
+            read(payload, pending);
+            pos += RECORD_HEADER + length;
+        }
+        return pos;
+    }
+
+    private static void read(ByteBuffer payload, Map<UUID, Entry> pending) {
+        byte type = payload.get();
+        if (type == TERMINADOS) {
+            int count = payload.getInt();
+            for (int i = 0; i < count; i++) {
+                pending.remove(getKey(payload));
+            }
+            return;
+        }
+        UUID key = getKey(payload);
+        int computadoraID = payload.getInt();
+        byte tipo = payload.get();
+        int cantidad = payload.getInt();
+        LocalDateTime fecha = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+        int length = payload.getInt();
+        String descripcion = null;
+        if (length >= 0) {
+            byte[] bytes = new byte[length];
+            payload.get(bytes);
+            descripcion = new String(bytes, StandardCharsets.UTF_8);
+        }
+        MovimientoInventario movimiento = new MovimientoInventario(computadoraID, tipo, cantidad, descripcion);
+        movimiento.setFechaMovimiento(fecha);
+        pending.put(key, new Entry(key, movimiento));
+    }
+
+    private static void putKey(ByteBuffer buffer, UUID key) {
+        buffer.putLong(key.getMostSignificantBits());
+        buffer.putLong(key.getLeastSignificantBits());
+    }
+
+    private static UUID getKey(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Clave de idempotencia en el formato de la columna MovimientosAplicados.ClaveIdempotencia (BINARY(16)).
+     */
+    static byte[] toBytes(UUID key) {
+        return ByteBuffer.allocate(16).putLong(key.getMostSignificantBits()).putLong(key.getLeastSignificantBits()).array();
+    }
+
+    static UUID toKey(byte[] bytes) {
+        return getKey(ByteBuffer.wrap(bytes));
+    }
+}
@@ -0,0 +1,576 @@
+package esfe.persistencia;
+
+import esfe.dominio.MovimientoInventario;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Escritura diferida de movimientos de inventario con confirmación en grupo.
+ *
+ * {@link #submit} anexa el movimiento al diario local ({@link MovimientoJournal}), lo deja en una
+ * cola acotada y vuelve enseguida. Un hilo de fondo toma los movimientos de la cola y los inserta
+ * por lotes, en una sola transacción por grupo, cuando el grupo llega a {@code batchSize} o pasa
+ * la ventana de {@code flushMillis} desde el primero. El futuro de cada movimiento se completa
+ * cuando su transacción se confirma (con el ID ya asignado) o con el error de su fila.
+ *
+ * Cada grupo aplica lo mismo que {@link InventarioService#registrarMovimiento} para entradas y
+ * mantenimientos: las existencias de cada computadora y el Estado disponible tras una entrada.
+ * Las salidas no pasan por aquí, porque necesitan comprobar el estado ya confirmado.
+ *
+ * Si la base de datos no está disponible, los movimientos siguen llegando al diario y el grupo se
+ * reintenta hasta que vuelva; al cerrarse el interruptor de circuito se reintenta enseguida. Los
+ * interbloqueos, las esperas de bloqueo agotadas y los errores del driver también se reintentan.
+ * Solo se descarta del diario un movimiento cuya fila viola una restricción o tiene un dato
+ * inválido (p. ej. una computadora que no existe), y se deja constancia en el log con todos sus
+ * datos. Al cerrar se vacía la cola; lo que no se pudo confirmar queda en el diario y se vuelve a enviar al
+ * iniciar la siguiente vez. Cada movimiento lleva una clave de idempotencia que se registra en la
+ * misma transacción (tabla MovimientosAplicados), así que volver a enviar un movimiento que ya se
+ * confirmó (p. ej. una caída justo después de confirmar) no lo duplica.
+ */
+final class MovimientoWriteBehind implements AutoCloseable {
+    /**
+     * Clave en {@link ConnectionManager#getShared} cuando la escritura diferida o el modo sin conexión están activos.
+     */
+    static final String SHARED_KEY = "Movimientos.escrituraDiferida";
+
+    private static final String INSERT_KEY_SQL = "INSERT INTO MovimientosAplicados (ClaveIdempotencia, MovimientoID) VALUES (?, ?)";
+    private static final long MAX_RETRY_BACKOFF_MS = 5_000;
+    // Parámetros por consulta de claves ya aplicadas (SQL Server admite hasta 2100)
+    private static final int MAX_KEYS_PER_QUERY = 1_000;
+
+    /**
+     * Movimiento en la cola. Sin movimiento es una marca: {@link #flush()} o el cierre.
+     * {@code recovered} indica que pudo haberse confirmado antes (viene del diario de una ejecución anterior).
+     */
+    private record Pending(UUID key, MovimientoInventario movimiento, CompletableFuture<MovimientoInventario> done, boolean recovered) {
+    }
+
+    private static final Pending STOP = new Pending(null, null, null, false);
+
+    private final ConnectionManager conn;
+    private final MovimientoJournal journal;
+    private final BlockingQueue<Pending> queue;
+    private final int batchSize;
+    private final long flushNanos;
+    private final boolean syncJournal;
+    private final boolean writeBehind;
+    private final Thread writer;
+    private final Consumer<CircuitBreaker.State> reconnectListener;
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder groups = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * Abre el diario local, vuelve a encolar lo que quedó pendiente y arranca el hilo de escritura.
+     *
+     * @param journalFile Diario local de movimientos pendientes.
+     * @param queueCapacity Movimientos que caben en la cola; con la cola llena {@link #submit} espera.
+     * @param batchSize Movimientos por grupo (y por transacción).
+     * @param flushMillis Espera máxima desde el primer movimiento de un grupo hasta confirmarlo.
+     * @param syncJournal true para forzar el diario a disco antes de que {@link #submit} vuelva
+     * (resiste un corte de energía); false si basta con resistir una caída del proceso.
+     * @param writeBehind true si todos los movimientos admitidos se encolan; false si solo se
+     * encolan cuando la base de datos no está disponible (modo sin conexión).
+     * @throws IOException Si no se puede abrir el diario local.
+     */
+    MovimientoWriteBehind(ConnectionManager conn, Path journalFile, int queueCapacity, int batchSize, long flushMillis,
+                          boolean syncJournal, boolean writeBehind) throws IOException {
+        if (queueCapacity < 1 || batchSize < 1 || flushMillis < 0) {
+            throw new IllegalArgumentException("Parámetros inválidos de la escritura diferida.");
+        }
+        this.conn = conn;
+        this.journal = new MovimientoJournal(journalFile);
+        this.batchSize = batchSize;
+        this.flushNanos = TimeUnit.MILLISECONDS.toNanos(flushMillis);
+        this.syncJournal = syncJournal;
+        this.writeBehind = writeBehind;
+        List<MovimientoJournal.Entry> recovered = journal.recovered();
+        // Lo recuperado entra completo aunque supere la capacidad
+        this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, recovered.size()));
+        for (MovimientoJournal.Entry entry : recovered) {
+            queue.add(new Pending(entry.key(), entry.movimiento(), new CompletableFuture<>(), true));
+        }
+        if (!recovered.isEmpty()) {
+            System.err.println("Reenviando " + recovered.size() + " movimientos de inventario sin confirmar del diario " + journalFile);
+        }
+        this.writer = new Thread(this::run, "movimientos-write-behind");
+        writer.setDaemon(true);
+        // Cuando la base de datos vuelve, lo pendiente se envía sin esperar al siguiente reintento
+        this.reconnectListener = state -> {
+            if (state == CircuitBreaker.State.CLOSED) {
+                LockSupport.unpark(writer);
+            }
+        };
+        conn.getCircuitBreaker().addListener(reconnectListener);
+        writer.start();
+    }
+
+    /**
+     * Devuelve la escritura diferida del administrador de conexiones, o null si no está activa.
+     */
+    static MovimientoWriteBehind of(ConnectionManager conn) {
+        return conn.getShared(SHARED_KEY, () -> null);
+    }
+
+    /**
+     * Indica si todos los movimientos admitidos se encolan (true) o solo los que no se pueden
+     * registrar en el momento porque la base de datos no está disponible (false).
+     */
+    boolean isWriteBehind() {
+        return writeBehind;
+    }
+
+    /**
+     * Encola un movimiento (entrada o mantenimiento) con la fecha y hora actuales.
+     * Espera si la cola está llena.
+     *
+     * @return Futuro que se completa con el movimiento (y su ID) cuando se confirma, o con el error.
+     * @throws SQLException Si la escritura diferida está cerrada o no se puede escribir el diario local.
+     */
+    CompletableFuture<MovimientoInventario> submit(MovimientoInventario movimiento) throws SQLException {
+        return submit(movimiento, UUID.randomUUID(), false);
+    }
+
+    /**
+     * Igual que {@link #submit(MovimientoInventario)}, con la clave de idempotencia indicada.
+     *
+     * @param mayBeApplied true si el movimiento pudo confirmarse ya con esa clave (p. ej. la conexión
+     * se cayó durante la confirmación); entonces se comprueba la clave antes de insertarlo.
+     */
+    CompletableFuture<MovimientoInventario> submit(MovimientoInventario movimiento, UUID key, boolean mayBeApplied) throws SQLException {
+        if (movimiento.getTipoMovimiento() == MovimientoInventario.TIPO_SALIDA) {
+            throw new IllegalArgumentException("Las salidas no admiten escritura diferida.");
+        }
+        if (closed) {
+            throw new SQLException("La escritura diferida de movimientos está cerrada.");
+        }
+        movimiento.setFechaMovimiento(LocalDateTime.now());
+        Pending pending = new Pending(key, movimiento, new CompletableFuture<>(), mayBeApplied);
+        long end;
+        try {
+            end = journal.append(pending.key(), movimiento);
+        } catch (IOException ex) {
+            throw new SQLException("Error al guardar el movimiento en el diario local: " + ex.getMessage(), ex);
+        }
+        try {
+            if (syncJournal) {
+                journal.sync(end);
+            }
+            enqueue(pending);
+        } catch (IOException | SQLException ex) {
+            // A quien llama se le informa el error: el movimiento no debe quedar pendiente en el diario
+            markDone(List.of(pending));
+            throw ex instanceof SQLException sql ? sql
+                    : new SQLException("Error al guardar el movimiento en el diario local: " + ex.getMessage(), ex);
+        }
+        return pending.done();
+    }
+
+    /**
+     * Espera a que se confirme (o falle) todo lo encolado hasta ahora.
+     */
+    void flush() throws SQLException {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Igual que {@link #flush()}, con una espera máxima.
+     *
+     * @throws SQLTransientConnectionException Si no se confirmó a tiempo (la base de datos no está disponible).
+     */
+    void flush(long timeoutMillis) throws SQLException {
+        if (closed) {
+            return;
+        }
+        Pending marker = new Pending(null, null, new CompletableFuture<>(), false);
+        enqueue(marker);
+        try {
+            marker.done().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            throw new SQLTransientConnectionException("La base de datos no está disponible; hay movimientos pendientes de confirmar.", "08000", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Se interrumpió la espera de los movimientos pendientes.", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    /**
+     * Movimientos confirmados desde que se creó (sin contar los que ya estaban confirmados al reenviarlos).
+     */
+    long getCommitted() {
+        return committed.sum();
+    }
+
+    /**
+     * Transacciones (grupos) confirmadas desde que se creó.
+     */
+    long getGroups() {
+        return groups.sum();
+    }
+
+    /**
+     * Movimientos en el diario local aún sin confirmar.
+     */
+    int getOutstanding() {
+        return journal.getOutstanding();
+    }
+
+    /**
+     * Deja de aceptar movimientos y espera a que se vacíe la cola. Si la base de datos no está
+     * disponible, lo pendiente queda en el diario local para la próxima vez.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        conn.getCircuitBreaker().removeListener(reconnectListener);
+        LockSupport.unpark(writer);
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                // Con la cola llena se espera a que el hilo de escritura haga lugar
+                if (queue.offer(STOP, 100, TimeUnit.MILLISECONDS)) {
+                    writer.join();
+                }
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        // Lo que entró después de la marca de cierre sigue en el diario
+        for (Pending pending; (pending = queue.poll()) != null; ) {
+            failUnflushed(pending);
+        }
+        try {
+            journal.close();
+        } catch (IOException ex) {
+            System.err.println("Error al cerrar el diario de movimientos: " + ex.getMessage());
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Pending pending) throws SQLException {
+        try {
+            queue.put(pending);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Se interrumpió la espera de lugar en la cola de movimientos.", ex);
+        }
+    }
+
+    private void run() {
+        List<Pending> group = new ArrayList<>(batchSize);
+        while (true) {
+            Pending control;
+            try {
+                control = collect(group);
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            boolean stop = control == STOP;
+            if (!group.isEmpty() && !write(group, stop)) {
+                // Cerrando con la base de datos caída: el resto de la cola queda en el diario
+                for (Pending pending : group) {
+                    failUnflushed(pending);
+                }
+                stop = true;
+            }
+            group.clear();
+            if (control != null && control != STOP) {
+                control.done().complete(null);
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Arma el siguiente grupo: espera el primer movimiento y luego toma más hasta llenar el grupo
+     * o agotar la ventana.
+     *
+     * @return La marca que cortó el grupo, o null.
+     */
+    private Pending collect(List<Pending> group) throws InterruptedException {
+        Pending first = queue.take();
+        if (first.movimiento() == null) {
+            return first;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + flushNanos;
+        while (group.size() < batchSize) {
+            Pending next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    return null;
+                }
+            }
+            if (next.movimiento() == null) {
+                return next;
+            }
+            group.add(next);
+        }
+        return null;
+    }
+
+    /**
+     * Inserta el grupo en una transacción y completa sus futuros. Ante cualquier error que no
+     * sea propio de una fila (conexión, interbloqueo, espera de bloqueo agotada, una función que
+     * el driver no admite) repite lo que quedó pendiente con esperas crecientes, salvo que se
+     * esté cerrando. Del diario solo se quitan los movimientos confirmados y los que fallan por
+     * una restricción o un dato inválido de su fila.
+     *
+     * @return false si no se pudo escribir porque se está cerrando con la base de datos caída.
+     */
+    private boolean write(List<Pending> group, boolean stopping) {
+        // Solo hace falta buscar claves ya aplicadas si algún movimiento pudo confirmarse antes
+        boolean mayBeApplied = false;
+        for (Pending pending : group) {
+            mayBeApplied |= pending.recovered();
+        }
+        return write(group, mayBeApplied, stopping);
+    }
+
+    private boolean write(List<Pending> group, boolean mayBeApplied, boolean stopping) {
+        long backoff = Math.max(50, TimeUnit.NANOSECONDS.toMillis(flushNanos));
+        List<Pending> remaining = group;
+        while (true) {
+            try {
+                remaining = insert(remaining, mayBeApplied);
+                if (remaining.isEmpty()) {
+                    return true;
+                }
+                System.err.println("No se pudieron registrar " + remaining.size() + " movimientos de inventario, se reintentan en " + backoff + " ms");
+            } catch (SQLException ex) {
+                if (isRowError(ex)) {
+                    if (remaining.size() == 1) {
+                        drop(remaining, List.of(new SQLException("Error al registrar el movimiento de inventario: " + ex.getMessage(), ex)));
+                        return true;
+                    }
+                    // El error no es de una fila (p. ej. al actualizar las existencias): cada
+                    // movimiento se repite por separado para que solo falle el que lo provoca
+                    for (Pending pending : remaining) {
+                        if (!write(List.of(pending), mayBeApplied, stopping)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+                System.err.println("Error al registrar " + remaining.size() + " movimientos de inventario, se reintentan en " + backoff + " ms: " + ex.getMessage());
+            }
+            if (stopping || closed) {
+                return false;
+            }
+            // La conexión pudo caerse durante la confirmación: al reintentar se comprueban las claves
+            mayBeApplied = true;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+            backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Indica si el error se debe a los datos de la fila: una restricción violada (SQLState clase
+     * 23) o un dato inválido (clase 22). Repetir ese movimiento no sirve de nada. Cualquier otro
+     * error (conexión, bloqueos, una función que el driver no admite) se reintenta.
+     */
+    static boolean isRowError(SQLException ex) {
+        for (Throwable t = ex; t instanceof SQLException sql; t = t.getCause()) {
+            if (sql instanceof SQLFeatureNotSupportedException || CircuitBreaker.isConnectionFailure(sql)) {
+                return false;
+            }
+            String state = sql.getSQLState();
+            if (state != null) {
+                return state.startsWith("22") || state.startsWith("23");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserta el grupo en una transacción.
+     *
+     * @return Los movimientos cuya fila falló por un error que no es de sus datos; siguen en el diario y hay que repetirlos.
+     */
+    private List<Pending> insert(List<Pending> group, boolean mayBeApplied) throws SQLException {
+        Map<UUID, Integer> applied = mayBeApplied ? findApplied(group) : Map.of();
+        List<Pending> nuevos = new ArrayList<>(group.size());
+        List<MovimientoInventario> movimientos = new ArrayList<>(group.size());
+        Map<MovimientoInventario, UUID> keys = new IdentityHashMap<>();
+        for (Pending pending : group) {
+            Integer movimientoID = applied.get(pending.key());
+            if (movimientoID != null) {
+                pending.movimiento().setMovimientoID(movimientoID);
+                continue;
+            }
+            nuevos.add(pending);
+            movimientos.add(pending.movimiento());
+            keys.put(pending.movimiento(), pending.key());
+        }
+        BatchResult<MovimientoInventario> result = BatchInserter.insertAll(conn,
+                MovimientoInventarioDAO.INSERT_SQL, MovimientoInventarioDAO.ID_COLUMN, movimientos, batchSize,
+                MovimientoInventarioDAO::bindInsert, MovimientoInventario::setMovimientoID,
+                (connection, creados) -> afterInsert(connection, creados, keys));
+        if (!movimientos.isEmpty()) {
+            groups.increment();
+        }
+        committed.add(result.getCreated().size());
+
+        Set<Pending> unfinished = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Pending> retry = new ArrayList<>();
+        List<Pending> failed = new ArrayList<>();
+        List<SQLException> errors = new ArrayList<>();
+        for (BatchResult.Failure<MovimientoInventario> failure : result.getFailures()) {
+            Pending pending = nuevos.get(failure.getIndex());
+            unfinished.add(pending);
+            if (isRowError(failure.getError())) {
+                failed.add(pending);
+                errors.add(failure.getError());
+            } else {
+                retry.add(pending);
+            }
+        }
+        List<Pending> confirmed = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            if (!unfinished.contains(pending)) {
+                confirmed.add(pending);
+            }
+        }
+        markDone(confirmed);
+        for (Pending pending : confirmed) {
+            pending.done().complete(pending.movimiento());
+        }
+        drop(failed, errors);
+        return retry;
+    }
+
+    /**
+     * Quita del diario movimientos que fallaron por un error propio de su fila y entrega el error.
+     * Se registran en el log con todos sus datos: los que se reenvían desde el diario no tienen
+     * a nadie esperando el resultado.
+     */
+    private void drop(List<Pending> failed, List<SQLException> errors) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        markDone(failed);
+        for (int i = 0; i < failed.size(); i++) {
+            Pending pending = failed.get(i);
+            MovimientoInventario m = pending.movimiento();
+            System.err.println("Se descarta el movimiento de inventario " + pending.key() + " (ComputadoraID=" + m.getComputadoraID()
+                    + ", TipoMovimiento=" + m.getTipoMovimiento() + ", Cantidad=" + m.getCantidad()
+                    + ", FechaMovimiento=" + m.getFechaMovimiento() + ", Descripcion=" + m.getDescripcion()
+                    + (pending.recovered() ? ", del diario" : "") + "): " + errors.get(i).getMessage());
+            pending.done().completeExceptionally(errors.get(i));
+        }
+    }
+
+    /**
+     * Claves del grupo que ya están registradas, con el ID de su movimiento.
+     */
+    private Map<UUID, Integer> findApplied(List<Pending> group) throws SQLException {
+        Map<UUID, Integer> applied = new HashMap<>();
+        try (Connection connection = conn.getConnection()) {
+            for (int from = 0; from < group.size(); from += MAX_KEYS_PER_QUERY) {
+                int to = Math.min(from + MAX_KEYS_PER_QUERY, group.size());
+                StringBuilder sql = new StringBuilder("SELECT ClaveIdempotencia, MovimientoID FROM MovimientosAplicados WHERE ClaveIdempotencia IN (");
+                for (int i = from; i < to; i++) {
+                    sql.append(i == from ? "?" : ", ?");
+                }
+                try (PreparedStatement ps = connection.prepareStatement(sql.append(')').toString())) {
+                    for (int i = from; i < to; i++) {
+                        ps.setBytes(i - from + 1, MovimientoJournal.toBytes(group.get(i).key()));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            applied.put(MovimientoJournal.toKey(rs.getBytes(1)), rs.getInt(2));
+                        }
+                    }
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Existencias y Estado de las computadoras del grupo y claves de idempotencia, en la misma transacción.
+     */
+    private static void afterInsert(Connection connection, List<MovimientoInventario> creados,
+                                    Map<MovimientoInventario, UUID> keys) throws SQLException {
+        MovimientoInventarioDAO.applyToExistencias(connection, creados);
+        InventarioService.marcarDisponibles(connection, creados);
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_KEY_SQL)) {
+            for (MovimientoInventario movimiento : creados) {
+                ps.setBytes(1, MovimientoJournal.toBytes(keys.get(movimiento)));
+                ps.setInt(2, movimiento.getMovimientoID());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /**
+     * Registra la clave de idempotencia de un movimiento, en la transacción de la conexión recibida.
+     */
+    static void insertKey(Connection connection, UUID key, int movimientoID) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(INSERT_KEY_SQL)) {
+            ps.setBytes(1, MovimientoJournal.toBytes(key));
+            ps.setInt(2, movimientoID);
+            ps.executeUpdate();
+        }
+    }
+
+    private void markDone(List<Pending> group) {
+        List<UUID> done = new ArrayList<>(group.size());
+        for (Pending pending : group) {
+            done.add(pending.key());
+        }
+        try {
+            journal.markDone(done);
+        } catch (IOException ex) {
+            // Ya están en la base de datos; al reenviarlos, las claves evitan duplicarlos
+            System.err.println("Error al actualizar el diario de movimientos: " + ex.getMessage());
+        }
+    }
+
+    private static void failUnflushed(Pending pending) {
+        if (pending.movimiento() == null) {
+            if (pending.done() != null) {
+                pending.done().complete(null);
+            }
+            return;
+        }
+        pending.done().completeExceptionally(new SQLException(
+                "La base de datos no está disponible; el movimiento quedó guardado localmente y se registrará al reiniciar la aplicación."));
+    }
+}
@@ -0,0 +1,15 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+
+/**
+ * Indica que una fila no se guardó porque otro usuario la modificó después de leerla
+ * (control de concurrencia optimista por número de versión).
+ * La operación se puede repetir después de volver a leer la fila.
+ */
+public class OptimisticLockException extends SQLException {
+
+    public OptimisticLockException(String reason) {
+        super(reason);
+    }
+}
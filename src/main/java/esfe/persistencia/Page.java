@@ -0,0 +1,36 @@
+package esfe.persistencia;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Página de resultados de una consulta paginada por conjunto de claves (keyset).
+ * Además de los elementos, contiene el token de continuación que se debe enviar
+ * para pedir la página siguiente.
+ *
+ * @param <T> Tipo de los elementos de la página.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextPageToken;
+
+    public Page(List<T> items, String nextPageToken) {
+        this.items = Collections.unmodifiableList(items);
+        this.nextPageToken = nextPageToken;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Token para obtener la página siguiente, o null si esta es la última página.
+     */
+    public String getNextPageToken() {
+        return nextPageToken;
+    }
+
+    public boolean hasNext() {
+        return nextPageToken != null;
+    }
+}
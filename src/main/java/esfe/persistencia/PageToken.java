@@ -0,0 +1,50 @@
+package esfe.persistencia;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Codifica y decodifica los tokens de continuación de la paginación por conjunto de claves.
+ * El token contiene los valores de las columnas de ordenamiento de la última fila de la página,
+ * cada uno en Base64 (URL-safe) y separados por puntos, para que sea opaco para quien lo usa.
+ */
+final class PageToken {
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private PageToken() {
+    }
+
+    static String encode(String... values) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(ENCODER.encodeToString(values[i].getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param token El token recibido.
+     * @param expectedParts Número de valores que debe contener.
+     * @return Los valores decodificados.
+     * @throws IllegalArgumentException Si el token no es válido.
+     */
+    static String[] decode(String token, int expectedParts) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("Token de página inválido: " + token);
+        }
+        try {
+            String[] values = new String[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                values[i] = new String(DECODER.decode(parts[i]), StandardCharsets.UTF_8);
+            }
+            return values;
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Token de página inválido: " + token, ex);
+        }
+    }
+}
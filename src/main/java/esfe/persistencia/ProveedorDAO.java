@@ -1,5 +1,6 @@
 package esfe.persistencia;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -8,167 +9,227 @@ import java.util.List;
 
 import esfe.dominio.Proveedor; // Asegúrate de que la clase Proveedor esté correctamente importada
 
+/**
+ * DAO de la tabla Proveedores.
+ * Es seguro para uso concurrente: cada método obtiene su propia conexión del pool y
+ * declara sus sentencias y resultados como variables locales.
+ */
 public class ProveedorDAO {
-    private ConnectionManager conn;
-    private PreparedStatement ps;
-    private ResultSet rs;
+    /**
+     * Tiempo de vida de la caché de proveedores. Los cambios hechos con este DAO la invalidan
+     * al instante; el TTL solo cubre cambios hechos desde otra instancia de la aplicación.
+     */
+    private static final long CACHE_TTL_MS = 5 * 60_000L;
+
+    private final ConnectionManager conn;
+    private final ReferenceCache<Proveedor> cache;
 
     public ProveedorDAO() {
-        conn = ConnectionManager.getInstance();
+        this(ConnectionManager.getInstance());
+    }
+
+    ProveedorDAO(ConnectionManager conn) {
+        this.conn = conn;
+        this.cache = conn.getShared("Proveedores", () -> new ReferenceCache<>(
+                this::loadAllProveedores,
+                Proveedor::getProveedorID,
+                p -> new Proveedor(p.getProveedorID(), p.getNombre(), p.getTelefono(), p.getEmail(), p.getDireccion()),
+                CACHE_TTL_MS));
     }
 
+    /**
+     * Devuelve todos los proveedores ordenados por nombre, leídos de la caché de datos de referencia.
+     */
     public List<Proveedor> getAllProveedores() throws SQLException {
-        List<Proveedor> proveedores = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement("SELECT ProveedorID, Nombre, Telefono, Email, Direccion FROM Proveedores ORDER BY Nombre");
-            rs = ps.executeQuery();
-            while (rs.next()) {
-                Proveedor proveedor = new Proveedor();
-                proveedor.setProveedorID(rs.getInt("ProveedorID"));
-                proveedor.setNombre(rs.getString("Nombre"));
-                proveedor.setTelefono(rs.getString("Telefono"));
-                proveedor.setEmail(rs.getString("Email"));
-                proveedor.setDireccion(rs.getString("Direccion"));
-                proveedores.add(proveedor);
+        return cache.getAll();
+    }
+
+    /**
+     * Devuelve la caché de proveedores, útil para búsquedas por ID sin ir a la base de datos
+     * y para consultar sus estadísticas.
+     */
+    public ReferenceCache<Proveedor> getCache() {
+        return cache;
+    }
+
+    private List<Proveedor> loadAllProveedores() throws SQLException {
+        return conn.read(() -> {
+            List<Proveedor> proveedores = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT ProveedorID, Nombre, Telefono, Email, Direccion FROM Proveedores ORDER BY Nombre");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Proveedor proveedor = new Proveedor();
+                    proveedor.setProveedorID(rs.getInt("ProveedorID"));
+                    proveedor.setNombre(rs.getString("Nombre"));
+                    proveedor.setTelefono(rs.getString("Telefono"));
+                    proveedor.setEmail(rs.getString("Email"));
+                    proveedor.setDireccion(rs.getString("Direccion"));
+                    proveedores.add(proveedor);
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener todos los proveedores de la base de datos: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException("Error al obtener todos los proveedores de la base de datos: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) {}
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
-        }
-        return proveedores;
+            return proveedores;
+        });
     }
+
+    /**
+     * Inserta el proveedor y le asigna el ID generado. Cuesta un solo viaje a la base de datos:
+     * se devuelve el mismo objeto recibido, sin volver a leerlo.
+     */
     public Proveedor create(Proveedor proveedor) throws SQLException {
-        Proveedor res = null;
-        ResultSet generatedKeys = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "INSERT INTO Proveedores (Nombre, Telefono, Email, Direccion) VALUES (?, ?, ?, ?)",
-                    java.sql.Statement.RETURN_GENERATED_KEYS
-            );
+        return create(proveedor, false);
+    }
+
+    /**
+     * Igual que {@link #create(Proveedor)}, pero permite volver a leer la fila recién insertada.
+     * Solo es necesario cuando importan valores asignados por el servidor (p. ej. valores
+     * por defecto o conversiones de tipo de la columna); cuesta una consulta adicional.
+     *
+     * @param reread true para devolver la fila leída de la base de datos en lugar del objeto recibido.
+     */
+    public Proveedor create(Proveedor proveedor, boolean reread) throws SQLException {
+        int idGenerado;
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO Proveedores (Nombre, Telefono, Email, Direccion) VALUES (?, ?, ?, ?)",
+                     java.sql.Statement.RETURN_GENERATED_KEYS
+             )) {
             ps.setString(1, proveedor.getNombre());
             ps.setString(2, proveedor.getTelefono());
             ps.setString(3, proveedor.getEmail());
             ps.setString(4, proveedor.getDireccion());
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows != 0) {
-                generatedKeys = ps.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    int idGenerado = generatedKeys.getInt(1);
-                    res = getById(idGenerado);
-                } else {
+            if (ps.executeUpdate() == 0) {
+                return null;
+            }
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
                     throw new SQLException("Error al crear el proveedor, no se generó ID.");
                 }
+                idGenerado = generatedKeys.getInt(1);
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al crear el proveedor: " + ex.getMessage(), ex);
-        } finally {
-            if (generatedKeys != null) try { generatedKeys.close(); } catch (SQLException e) {}
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
         }
-        return res;
+        cache.invalidate();
+        proveedor.setProveedorID(idGenerado);
+        return reread ? getById(idGenerado) : proveedor;
     }
 
     public boolean update(Proveedor proveedor) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Proveedores SET Nombre = ?, Telefono = ?, Email = ?, Direccion = ? WHERE ProveedorId = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Proveedores SET Nombre = ?, Telefono = ?, Email = ?, Direccion = ? WHERE ProveedorId = ?"
+             )) {
             ps.setString(1, proveedor.getNombre());
             ps.setString(2, proveedor.getTelefono());
             ps.setString(3, proveedor.getEmail());
             ps.setString(4, proveedor.getDireccion());
             ps.setInt(5, proveedor.getProveedorID());
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
+            if (!invalidateIfChanged(ps.executeUpdate())) {
+                return false;
             }
         } catch (SQLException ex) {
             throw new SQLException("Error al modificar el proveedor: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
         }
-        return res;
+        // El nombre y el email del proveedor también se buscan desde las computadoras
+        ComputadoraDAO.searchIndex(conn).updateProveedor(proveedor.getProveedorID(), proveedor.getNombre(), proveedor.getEmail());
+        return true;
     }
 
     public boolean delete(int proveedorId) throws SQLException {
-        boolean res = false;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Proveedores WHERE ProveedorId = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM Proveedores WHERE ProveedorId = ?"
+             )) {
             ps.setInt(1, proveedorId);
 
-            if (ps.executeUpdate() > 0) {
-                res = true;
-            }
+            return invalidateIfChanged(ps.executeUpdate());
         } catch (SQLException ex) {
             throw new SQLException("Error al eliminar el proveedor: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
         }
-        return res;
     }
 
     public ArrayList<Proveedor> search(String nombre) throws SQLException {
-        ArrayList<Proveedor> records = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT ProveedorId, Nombre, Telefono, Email, Direccion FROM Proveedores WHERE Nombre LIKE ?"
-            );
-            ps.setString(1, "%" + nombre + "%");
-            rs = ps.executeQuery();
-
-            while (rs.next()) {
-                Proveedor prov = new Proveedor();
-                prov.setProveedorID(rs.getInt(1));
-                prov.setNombre(rs.getString(2));
-                prov.setTelefono(rs.getString(3));
-                prov.setEmail(rs.getString(4));
-                prov.setDireccion(rs.getString(5));
-                records.add(prov);
+        return search(nombre, null);
+    }
+
+    /**
+     * Igual que {@link #search(String)}, pero la consulta puede cancelarse desde otro hilo
+     * mediante el objeto de cancelación (p. ej. cuando el usuario sigue escribiendo).
+     *
+     * @param nombre Texto a buscar.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Los proveedores que coinciden con la búsqueda.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public ArrayList<Proveedor> search(String nombre, QueryCancellation cancellation) throws SQLException {
+        return conn.read(() -> {
+            ArrayList<Proveedor> records = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT ProveedorId, Nombre, Telefono, Email, Direccion FROM Proveedores WHERE Nombre LIKE ?"
+                 )) {
+                ps.setString(1, "%" + nombre + "%");
+
+                if (cancellation != null) {
+                    cancellation.register(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Proveedor prov = new Proveedor();
+                        prov.setProveedorID(rs.getInt(1));
+                        prov.setNombre(rs.getString(2));
+                        prov.setTelefono(rs.getString(3));
+                        prov.setEmail(rs.getString(4));
+                        prov.setDireccion(rs.getString(5));
+                        records.add(prov);
+                    }
+                } finally {
+                    if (cancellation != null) {
+                        cancellation.unregister();
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al buscar proveedores: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException("Error al buscar proveedores: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) {}
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
-        }
-        return records;
+            return records;
+        });
     }
 
     public Proveedor getById(int id) throws SQLException {
-        Proveedor prov = null;
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT ProveedorId, Nombre, Telefono, Email, Direccion FROM Proveedores WHERE ProveedorId = ?"
-            );
-            ps.setInt(1, id);
-            rs = ps.executeQuery();
-
-            if (rs.next()) {
-                prov = new Proveedor();
-                prov.setProveedorID(rs.getInt(1));
-                prov.setNombre(rs.getString(2));
-                prov.setTelefono(rs.getString(3));
-                prov.setEmail(rs.getString(4));
-                prov.setDireccion(rs.getString(5));
+        return conn.read(() -> {
+            Proveedor prov = null;
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(
+                         "SELECT ProveedorId, Nombre, Telefono, Email, Direccion FROM Proveedores WHERE ProveedorId = ?"
+                 )) {
+                ps.setInt(1, id);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        prov = new Proveedor();
+                        prov.setProveedorID(rs.getInt(1));
+                        prov.setNombre(rs.getString(2));
+                        prov.setTelefono(rs.getString(3));
+                        prov.setEmail(rs.getString(4));
+                        prov.setDireccion(rs.getString(5));
+                    }
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener proveedor por ID: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex) {
-            throw new SQLException("Error al obtener proveedor por ID: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) {}
-            if (ps != null) try { ps.close(); } catch (SQLException e) {}
-            conn.disconnect();
+            return prov;
+        });
+    }
+
+    private boolean invalidateIfChanged(int affectedRows) {
+        if (affectedRows > 0) {
+            cache.invalidate();
         }
-        return prov;
+        return affectedRows > 0;
     }
 }
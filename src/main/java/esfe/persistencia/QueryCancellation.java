@@ -0,0 +1,50 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permite cancelar desde otro hilo una consulta que se está ejecutando.
+ * El DAO registra su sentencia antes de ejecutarla y la retira al terminar; {@link #cancel()}
+ * invoca Statement.cancel() sobre la sentencia registrada para que la base de datos
+ * abandone la consulta en lugar de terminarla.
+ * Una instancia corresponde a una sola consulta.
+ */
+public class QueryCancellation {
+    private Statement statement;
+    private boolean cancelled;
+
+    /**
+     * Registra la sentencia que está por ejecutarse.
+     *
+     * @throws SQLException Si la consulta ya fue cancelada, para no llegar a ejecutarla.
+     */
+    synchronized void register(Statement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("La consulta fue cancelada.");
+        }
+        this.statement = statement;
+    }
+
+    synchronized void unregister() {
+        this.statement = null;
+    }
+
+    /**
+     * Cancela la consulta. Si todavía no empezó, ya no se ejecutará.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Error al cancelar la sentencia: " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,147 @@
+package esfe.persistencia;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché de lectura para tablas de referencia pequeñas que casi no cambian (Categorias, Proveedores).
+ * La primera lectura carga la tabla completa; a partir de ahí la lista ordenada y la búsqueda
+ * por ID se resuelven en memoria hasta que la caché se invalida o vence su tiempo de vida.
+ *
+ * Los DAO invalidan la caché en cada alta, cambio o baja. El tiempo de vida (TTL) cubre los
+ * cambios hechos por otras instancias de la aplicación sobre la misma base de datos.
+ *
+ * Los objetos que entrega son copias: los formularios pueden modificarlos sin alterar la caché.
+ * Es segura para uso concurrente.
+ *
+ * @param <T> Tipo de las entidades de la tabla.
+ */
+public class ReferenceCache<T> {
+
+    /**
+     * Lectura de la tabla completa, ya ordenada.
+     */
+    @FunctionalInterface
+    interface Loader<T> {
+        List<T> loadAll() throws SQLException;
+    }
+
+    /**
+     * Contenido cargado en un momento dado. Es inmutable una vez publicado.
+     */
+    private static final class Snapshot<T> {
+        private final List<T> sorted;
+        private final Map<Integer, T> byId;
+        private final long loadedAt;
+
+        private Snapshot(List<T> sorted, Map<Integer, T> byId, long loadedAt) {
+            this.sorted = sorted;
+            this.byId = byId;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final Loader<T> loader;
+    private final ToIntFunction<T> idOf;
+    private final UnaryOperator<T> copier;
+    private volatile long ttlMillis;
+    private volatile Snapshot<T> snapshot;
+    // Cambia con cada invalidación; una carga iniciada antes de invalidar no se publica
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param loader Lectura de la tabla completa, ya ordenada.
+     * @param idOf Devuelve el ID de una entidad.
+     * @param copier Crea una copia de una entidad.
+     * @param ttlMillis Tiempo de vida de los datos en milisegundos; 0 para que solo venzan al invalidarse.
+     */
+    ReferenceCache(Loader<T> loader, ToIntFunction<T> idOf, UnaryOperator<T> copier, long ttlMillis) {
+        this.loader = loader;
+        this.idOf = idOf;
+        this.copier = copier;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Devuelve todas las entidades en el orden de la consulta (copias).
+     *
+     * @throws SQLException Si hay que cargar la tabla y la consulta falla.
+     */
+    public List<T> getAll() throws SQLException {
+        Snapshot<T> current = current();
+        List<T> copies = new ArrayList<>(current.sorted.size());
+        for (T item : current.sorted) {
+            copies.add(copier.apply(item));
+        }
+        return copies;
+    }
+
+    /**
+     * Devuelve la entidad con el ID indicado (copia), o null si no existe.
+     *
+     * @throws SQLException Si hay que cargar la tabla y la consulta falla.
+     */
+    public T getById(int id) throws SQLException {
+        T item = current().byId.get(id);
+        return item == null ? null : copier.apply(item);
+    }
+
+    /**
+     * Descarta el contenido; la próxima lectura vuelve a la base de datos.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        snapshot = null;
+    }
+
+    public void setTtlMillis(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private Snapshot<T> current() throws SQLException {
+        Snapshot<T> current = snapshot;
+        if (current != null && !isExpired(current)) {
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        long loadVersion = version.get();
+        List<T> loaded = loader.loadAll();
+        Map<Integer, T> byId = new HashMap<>(loaded.size() * 2);
+        for (T item : loaded) {
+            byId.put(idOf.applyAsInt(item), item);
+        }
+        Snapshot<T> fresh = new Snapshot<>(Collections.unmodifiableList(new ArrayList<>(loaded)), byId, System.currentTimeMillis());
+        synchronized (this) {
+            // Si hubo una invalidación durante la carga, estos datos pueden estar desactualizados:
+            // se usan para esta llamada pero no se guardan.
+            if (version.get() == loadVersion) {
+                snapshot = fresh;
+            }
+        }
+        return fresh;
+    }
+
+    private boolean isExpired(Snapshot<T> current) {
+        long ttl = ttlMillis;
+        return ttl > 0 && System.currentTimeMillis() - current.loadedAt > ttl;
+    }
+}
@@ -0,0 +1,14 @@
+package esfe.persistencia;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Convierte la fila actual de un ResultSet en un objeto del dominio.
+ *
+ * @param <T> Tipo del objeto resultante.
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
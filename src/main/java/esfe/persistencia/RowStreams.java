@@ -0,0 +1,107 @@
+package esfe.persistencia;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Recorre el resultado de una consulta fila por fila, sin acumularlo en una lista.
+ * Lo usan los DAO para exportaciones y reportes que deben funcionar con memoria constante
+ * sin importar el tamaño de la tabla.
+ */
+final class RowStreams {
+
+    private RowStreams() {
+    }
+
+    /**
+     * Ejecuta la consulta y devuelve un Stream perezoso sobre sus filas.
+     * La conexión queda prestada hasta que se cierre el Stream, por lo que el llamador
+     * debe usarlo dentro de un try-with-resources.
+     * Los errores de lectura durante el recorrido se lanzan como RuntimeException
+     * con la SQLException original como causa.
+     *
+     * @param conn Administrador de conexiones del que se toma la conexión.
+     * @param sql Consulta a ejecutar (sin parámetros).
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @param mapper Función que convierte cada fila.
+     * @return Stream de filas que libera la conexión al cerrarse.
+     * @throws SQLException Si falla la ejecución de la consulta.
+     */
+    static <T> Stream<T> stream(ConnectionManager conn, String sql, int fetchSize, RowMapper<T> mapper) throws SQLException {
+        Connection connection = conn.getConnection();
+        PreparedStatement ps = null;
+        ResultSet rs = null;
+        try {
+            ps = connection.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            rs = ps.executeQuery();
+        } catch (SQLException | RuntimeException ex) {
+            closeAll(rs, ps, connection);
+            throw ex;
+        }
+        ResultSet rows = rs;
+        PreparedStatement statement = ps;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (!rows.next()) {
+                        return false;
+                    }
+                    action.accept(mapper.map(rows));
+                    return true;
+                } catch (SQLException ex) {
+                    throw new RuntimeException("Error al leer la fila: " + ex.getMessage(), ex);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> closeAll(rows, statement, connection));
+    }
+
+    /**
+     * Ejecuta la consulta y entrega cada fila al consumidor a medida que se lee.
+     * La conexión se devuelve al pool al terminar, incluso si el consumidor lanza una excepción.
+     *
+     * @param conn Administrador de conexiones del que se toma la conexión.
+     * @param sql Consulta a ejecutar (sin parámetros).
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @param mapper Función que convierte cada fila.
+     * @param action Consumidor de cada fila.
+     * @return Número de filas entregadas.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    static <T> int forEach(ConnectionManager conn, String sql, int fetchSize, RowMapper<T> mapper, Consumer<? super T> action) throws SQLException {
+        int count = 0;
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(sql)) {
+            ps.setFetchSize(fetchSize);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    action.accept(mapper.map(rs));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void closeAll(AutoCloseable... resources) {
+        for (AutoCloseable resource : resources) {
+            if (resource == null) {
+                continue;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                System.err.println("Error al cerrar un recurso de la consulta en streaming: " + e.getMessage());
+            }
+        }
+    }
+}
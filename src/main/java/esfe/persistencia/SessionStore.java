@@ -0,0 +1,199 @@
+package esfe.persistencia;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+import esfe.dominio.User;
+
+/**
+ * Sesiones de usuarios autenticados, en memoria: token de sesión -> usuario.
+ *
+ * Durante la sesión, los datos del usuario (y las comprobaciones de que sigue activo) se
+ * resuelven aquí, sin consultar la tabla Users. Una sesión vence por tiempo de vida total o
+ * por inactividad, y se invalida al instante cuando UserDAO cambia, desactiva o elimina al
+ * usuario, o cambia su contraseña.
+ *
+ * La sesión también conserva el hash de la contraseña, de modo que volver a iniciar sesión con
+ * el mismo correo mientras la sesión sigue viva (p. ej. "Cambiar de usuario") se verifica en
+ * memoria. El hash nunca sale de esta clase.
+ *
+ * Los usuarios que entrega son copias. Es segura para uso concurrente.
+ */
+public final class SessionStore {
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final int TOKEN_BYTES = 32;
+
+    /**
+     * Sesión abierta. El usuario y el hash no cambian: si el usuario cambia, la sesión se elimina.
+     */
+    private static final class Session {
+        private final User user;
+        private final String passwordHash;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        private Session(User user, String passwordHash, long now) {
+            this.user = user;
+            this.passwordHash = passwordHash;
+            this.createdAt = now;
+            this.lastAccess = now;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final long idleMillis;
+    private final LongSupplier clock;
+
+    /**
+     * @param ttlMillis Duración máxima de una sesión desde que se abre.
+     * @param idleMillis Tiempo sin uso tras el cual la sesión vence.
+     */
+    SessionStore(long ttlMillis, long idleMillis) {
+        this(ttlMillis, idleMillis, System::currentTimeMillis);
+    }
+
+    SessionStore(long ttlMillis, long idleMillis, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.idleMillis = idleMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Abre una sesión para un usuario ya autenticado.
+     *
+     * @param user Usuario autenticado.
+     * @param passwordHash Hash guardado de su contraseña, para verificar nuevos inicios de sesión en memoria.
+     * @return Token de la sesión (aleatorio, 256 bits).
+     */
+    String open(User user, String passwordHash) {
+        long now = clock.getAsLong();
+        purgeExpired(now);
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(copy(user), passwordHash, now));
+        return token;
+    }
+
+    /**
+     * Devuelve el usuario de una sesión vigente (una copia) y renueva su inactividad.
+     *
+     * @return El usuario, o null si el token no existe o la sesión venció.
+     */
+    public User getUser(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        long now = clock.getAsLong();
+        if (session == null || isExpired(session, now)) {
+            if (session != null) {
+                sessions.remove(token, session);
+            }
+            return null;
+        }
+        session.lastAccess = now;
+        return copy(session.user);
+    }
+
+    /**
+     * Cierra una sesión.
+     */
+    public void close(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Usuario de alguna sesión vigente con ese ID, sin renovar su inactividad.
+     */
+    User findUser(int userId) {
+        long now = clock.getAsLong();
+        for (Session session : sessions.values()) {
+            if (session.user.getId() == userId && !isExpired(session, now)) {
+                return copy(session.user);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Verifica un nuevo inicio de sesión contra una sesión vigente del mismo correo, sin consultar
+     * la base de datos.
+     *
+     * @param verifier Comprueba la contraseña contra el hash guardado en la sesión.
+     * @return El usuario (una copia) si hay una sesión vigente de ese correo y la contraseña es
+     * correcta; null en otro caso (entonces hay que consultar la base de datos).
+     */
+    User authenticate(String email, Predicate<String> verifier) {
+        Session session = verified(email, verifier);
+        return session == null ? null : copy(session.user);
+    }
+
+    /**
+     * Igual que {@link #authenticate}, pero abre una sesión nueva para el usuario.
+     *
+     * @return Token de la sesión nueva, o null.
+     */
+    String openFromSession(String email, Predicate<String> verifier) {
+        Session session = verified(email, verifier);
+        return session == null ? null : open(session.user, session.passwordHash);
+    }
+
+    /**
+     * Cierra todas las sesiones de un usuario (se cambió, desactivó o eliminó, o cambió su contraseña).
+     */
+    void invalidateUser(int userId) {
+        sessions.values().removeIf(session -> session.user.getId() == userId);
+    }
+
+    /**
+     * Número de sesiones guardadas, incluidas las vencidas que aún no se eliminaron.
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    private Session verified(String email, Predicate<String> verifier) {
+        Session session = findByEmail(email);
+        return session != null && session.passwordHash != null && verifier.test(session.passwordHash) ? session : null;
+    }
+
+    private Session findByEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        for (Session session : sessions.values()) {
+            if (email.equalsIgnoreCase(session.user.getEmail()) && !isExpired(session, now)) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    private boolean isExpired(Session session, long now) {
+        return now - session.createdAt >= ttlMillis || now - session.lastAccess >= idleMillis;
+    }
+
+    private void purgeExpired(long now) {
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            if (isExpired(it.next(), now)) {
+                it.remove();
+            }
+        }
+    }
+
+    private static User copy(User user) {
+        // Sin la contraseña: los usuarios de la sesión nunca la llevan
+        return new User(user.getId(), user.getName(), null, user.getEmail(), user.getStatus());
+    }
+}
@@ -0,0 +1,127 @@
+package esfe.persistencia;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Ejecuta scripts SQL del classpath con el formato de Script.sql.txt: lotes separados por
+ * líneas "GO" y sentencias terminadas en ';'. Se omiten los comentarios de línea completa y
+ * las sentencias CREATE DATABASE y USE, que en la base de datos embebida no aplican.
+ */
+final class SqlScript {
+    /**
+     * Esquema de la base de datos, el mismo que se ejecuta en SQL Server.
+     */
+    static final String SCHEMA = "esfe/persistencia/Script.sql.txt";
+
+    private SqlScript() {
+    }
+
+    /**
+     * Aplica el esquema si la base de datos aún no lo tiene, y después el script de datos indicado.
+     *
+     * @param conn Base de datos a preparar.
+     * @param seedScript Script de datos del classpath, o null.
+     * @throws SQLException Si falla alguna sentencia o no se encuentra un script.
+     */
+    static void applySchema(ConnectionManager conn, String seedScript) throws SQLException {
+        try (Connection connection = conn.getConnection()) {
+            if (!hasTable(connection, "Computadoras")) {
+                apply(connection, SCHEMA);
+                if (seedScript != null) {
+                    apply(connection, seedScript);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ejecuta todas las sentencias del script, en orden.
+     */
+    static void apply(Connection connection, String resource) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            for (String sql : parse(read(resource))) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException ex) {
+                    throw new SQLException("Error al ejecutar " + resource + ": " + ex.getMessage() + " en: " + sql, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Divide el texto del script en sentencias.
+     */
+    static List<String> parse(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("--")) {
+                continue;
+            }
+            if (trimmed.equalsIgnoreCase("GO")) {
+                add(statements, current);
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                add(statements, current);
+            }
+        }
+        add(statements, current);
+        return statements;
+    }
+
+    private static void add(List<String> statements, StringBuilder current) {
+        String sql = current.toString().trim();
+        current.setLength(0);
+        if (sql.endsWith(";")) {
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        String upper = sql.toUpperCase(Locale.ROOT);
+        if (!sql.isEmpty() && !upper.startsWith("CREATE DATABASE") && !upper.startsWith("USE ")) {
+            statements.add(sql);
+        }
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = ?")) {
+            ps.setString(1, table.toUpperCase(Locale.ROOT));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static String read(String resource) throws SQLException {
+        try (InputStream in = SqlScript.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new SQLException("No se encontró el script " + resource + " en el classpath.");
+            }
+            StringBuilder text = new StringBuilder();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    text.append(line).append('\n');
+                }
+            }
+            return text.toString();
+        } catch (IOException ex) {
+            throw new SQLException("Error al leer el script " + resource + ": " + ex.getMessage(), ex);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package esfe.persistencia;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché LRU de sentencias preparadas asociada a una única conexión física.
+ * La clave es el texto SQL (más el modo de claves generadas). Una sentencia se retira
+ * de la caché mientras está en uso y se devuelve al cerrarla, de modo que nunca dos
+ * usuarios comparten la misma sentencia.
+ *
+ * No es segura para hilos por sí sola: el pool garantiza que cada conexión física,
+ * y por lo tanto su caché, la usa un solo hilo a la vez.
+ */
+class StatementCache {
+    private final int maxSize;
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private long hits;
+    private long misses;
+
+    StatementCache(int maxSize) {
+        this.maxSize = maxSize;
+        // accessOrder = true: el orden de iteración va de la menos a la más recientemente usada.
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Retira de la caché la sentencia asociada a la clave.
+     *
+     * @return La sentencia en caché, o null si no existe (fallo de caché).
+     */
+    PreparedStatement take(String key) {
+        PreparedStatement ps = statements.remove(key);
+        if (ps != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return ps;
+    }
+
+    /**
+     * Devuelve una sentencia a la caché. Si se supera el tamaño máximo se cierra la menos usada.
+     */
+    void put(String key, PreparedStatement ps) {
+        PreparedStatement previous = statements.put(key, ps);
+        if (previous != null && previous != ps) {
+            closeQuietly(previous);
+        }
+        Iterator<Map.Entry<String, PreparedStatement>> it = statements.entrySet().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            closeQuietly(it.next().getValue());
+            it.remove();
+        }
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (SQLException e) {
+            System.err.println("Error al cerrar una sentencia preparada de la caché: " + e.getMessage());
+        }
+    }
+}
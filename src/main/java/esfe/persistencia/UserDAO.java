@@ -1,21 +1,65 @@
 package esfe.persistencia;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List; // Importar List para el tipo de retorno
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import esfe.dominio.User;
 import esfe.utils.PasswordHasher;
 
+/**
+ * DAO de la tabla Users.
+ * Es seguro para uso concurrente: cada método obtiene su propia conexión del pool y
+ * declara sus sentencias y resultados como variables locales.
+ */
 public class UserDAO {
-    private ConnectionManager conn;
-    private PreparedStatement ps;
-    private ResultSet rs;
+    private static final String SELECT_ALL_ORDERED = "SELECT id, name, email, status FROM Users ORDER BY name";
+
+    /**
+     * Duración máxima de una sesión y tiempo de inactividad tras el cual vence.
+     */
+    private static final long SESSION_TTL_MS = 8 * 60 * 60_000L;
+    private static final long SESSION_IDLE_MS = 30 * 60_000L;
+
+    /**
+     * Límite de intentos de inicio de sesión por correo: 5 seguidos y después uno cada 30 s.
+     */
+    private static final int LOGIN_BURST = 5;
+    private static final long LOGIN_INTERVAL_S = 30;
+    private static final int LOGIN_MAX_EMAILS = 10_000;
+
+    private final ConnectionManager conn;
+    private final SessionStore sessions;
+    private final LoginThrottle loginThrottle;
+
+    /**
+     * Usuario autenticado junto con el hash guardado de su contraseña.
+     */
+    private record Credentials(User user, String passwordHash) {
+    }
 
     public UserDAO(){
-        conn = ConnectionManager.getInstance();
+        this(ConnectionManager.getInstance());
+    }
+
+    UserDAO(ConnectionManager conn){
+        this.conn = conn;
+        this.sessions = conn.getShared("Sesiones", () -> new SessionStore(SESSION_TTL_MS, SESSION_IDLE_MS));
+        this.loginThrottle = conn.getShared("Login.intentos",
+                () -> new LoginThrottle(LOGIN_BURST, LOGIN_INTERVAL_S, TimeUnit.SECONDS, LOGIN_MAX_EMAILS));
+    }
+
+    /**
+     * Devuelve las sesiones abiertas con {@link #login(User)}.
+     */
+    public SessionStore getSessions() {
+        return sessions;
     }
 
     /**
@@ -25,56 +69,63 @@ public class UserDAO {
      * Se espera que el objeto User tenga los campos 'name', 'passwordHash',
      * 'email' y 'status' correctamente establecidos. El campo 'id' será
      * generado automáticamente por la base de datos.
-     * @return El objeto User recién creado, incluyendo el ID generado por la base de datos,
-     * o null si ocurre algún error durante la creación.
+     * @return El objeto User recién creado (sin la contraseña), incluyendo el ID generado por la base
+     * de datos, o null si ocurre algún error durante la creación. Se arma con los datos recibidos,
+     * sin volver a consultar la base de datos.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante la creación del usuario.
      */
     public User create(User user) throws SQLException {
-        User res = null;
-        ResultSet generatedKeys = null; // Declarar generatedKeys aquí para el finally
-        try{
-            // Preparar la sentencia SQL para la inserción de un nuevo usuario.
-            // Se especifica que se retornen las claves generadas automáticamente.
-            ps = conn.connect().prepareStatement( // Asignar a la variable de instancia ps
-                    "INSERT INTO " +
-                            "Users (name, passwordHash, email, status)" +
-                            "VALUES (?, ?, ?, ?)",
-                    java.sql.Statement.RETURN_GENERATED_KEYS
-            );
+        return create(user, false);
+    }
+
+    /**
+     * Igual que {@link #create(User)}, pero permite volver a leer la fila recién insertada.
+     * Solo es necesario cuando importan valores asignados por el servidor (p. ej. valores
+     * por defecto o conversiones de tipo de la columna); cuesta una consulta adicional.
+     *
+     * @param reread true para devolver la fila leída de la base de datos en lugar de armarla con los datos recibidos.
+     */
+    public User create(User user, boolean reread) throws SQLException {
+        int idGenerado;
+        // Preparar la sentencia SQL para la inserción de un nuevo usuario.
+        // Se especifica que se retornen las claves generadas automáticamente.
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "INSERT INTO " +
+                             "Users (name, passwordHash, email, status)" +
+                             "VALUES (?, ?, ?, ?)",
+                     java.sql.Statement.RETURN_GENERATED_KEYS
+             )) {
             // Establecer los valores de los parámetros en la sentencia preparada.
             ps.setString(1, user.getName());
             ps.setString(2, PasswordHasher.hashPassword(user.getPasswordHash()));
             ps.setString(3, user.getEmail());
             ps.setByte(4, user.getStatus());
 
-            // Ejecutar la sentencia de inserción y obtener el número de filas afectadas.
-            int affectedRows = ps.executeUpdate();
-
-            // Verificar si la inserción fue exitosa (al menos una fila afectada).
-            if (affectedRows != 0) {
-                // Obtener las claves generadas automáticamente por la base de datos (en este caso, el ID).
-                generatedKeys = ps.getGeneratedKeys();
+            // Ejecutar la sentencia de inserción y verificar si fue exitosa (al menos una fila afectada).
+            if (ps.executeUpdate() == 0) {
+                return null;
+            }
+            // Obtener las claves generadas automáticamente por la base de datos (en este caso, el ID).
+            try (ResultSet generatedKeys = ps.getGeneratedKeys()) {
                 // Mover el cursor al primer resultado (si existe).
-                if (generatedKeys.next()) {
-                    // Obtener el ID generado. Generalmente la primera columna contiene la clave primaria.
-                    int idGenerado= generatedKeys.getInt(1);
-                    // Recuperar el usuario completo utilizando el ID generado.
-                    res = getById(idGenerado);
-                } else {
+                if (!generatedKeys.next()) {
                     // Lanzar una excepción si la creación del usuario falló y no se obtuvo un ID.
                     throw new SQLException("Creating user failed, no ID obtained.");
                 }
+                // Obtener el ID generado. Generalmente la primera columna contiene la clave primaria.
+                idGenerado = generatedKeys.getInt(1);
             }
         }catch (SQLException ex){
             throw new SQLException("Error al crear el usuario: " + ex.getMessage(), ex);
-        } finally {
-            // Asegurar que los recursos se liberen en el bloque finally
-            if (generatedKeys != null) try { generatedKeys.close(); } catch (SQLException e) { System.err.println("Error closing generatedKeys: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
+        if (reread) {
+            // Recuperar el usuario completo utilizando el ID generado (la conexión anterior ya fue devuelta al pool).
+            return getById(idGenerado);
+        }
+        // Se arma el resultado con los datos ya conocidos, igual que getById: sin la contraseña.
+        return new User(idGenerado, user.getName(), null, user.getEmail(), user.getStatus());
     }
 
     /**
@@ -89,29 +140,22 @@ public class UserDAO {
      * durante la actualización del usuario.
      */
     public boolean update(User user) throws SQLException{
-        boolean res = false;
-        try{
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Users " +
-                            "SET name = ?, email = ?, status = ? " +
-                            "WHERE id = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Users " +
+                             "SET name = ?, email = ?, status = ? " +
+                             "WHERE id = ?"
+             )){
 
             ps.setString(1, user.getName());
             ps.setString(2, user.getEmail());
             ps.setByte(3, user.getStatus());
             ps.setInt(4, user.getId());
 
-            if(ps.executeUpdate() > 0){
-                res = true;
-            }
+            return invalidateSessionsIfChanged(user.getId(), ps.executeUpdate());
         }catch (SQLException ex){
             throw new SQLException("Error al modificar el usuario: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
     }
 
     /**
@@ -125,23 +169,16 @@ public class UserDAO {
      * durante la eliminación del usuario.
      */
     public boolean delete(User user) throws SQLException{
-        boolean res = false;
-        try{
-            ps = conn.connect().prepareStatement(
-                    "DELETE FROM Users WHERE id = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "DELETE FROM Users WHERE id = ?"
+             )){
             ps.setInt(1, user.getId());
 
-            if(ps.executeUpdate() > 0){
-                res = true;
-            }
+            return invalidateSessionsIfChanged(user.getId(), ps.executeUpdate());
         }catch (SQLException ex){
             throw new SQLException("Error al eliminar el usuario: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
     }
 
     /**
@@ -155,29 +192,47 @@ public class UserDAO {
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante la búsqueda de usuarios.
      */
-    public List<User> search(String name) throws SQLException{ // Cambiado a List<User>
-        List<User> records  = new ArrayList<>(); // Cambiado a List<User>
+    public List<User> search(String name) throws SQLException {
+        return search(name, null);
+    }
 
-        try {
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
-                    "FROM Users " +
-                    "WHERE name LIKE ?");
+    /**
+     * Igual que {@link #search(String)}, pero la consulta puede cancelarse desde otro hilo
+     * mediante el objeto de cancelación (p. ej. cuando el usuario sigue escribiendo).
+     *
+     * @param name Texto a buscar.
+     * @param cancellation Cancelación de la consulta, o null si no se necesita.
+     * @return Los usuarios que coinciden con la búsqueda.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos o la consulta se cancela.
+     */
+    public List<User> search(String name, QueryCancellation cancellation) throws SQLException{ // Cambiado a List<User>
+        return conn.read(() -> {
+            List<User> records  = new ArrayList<>(); // Cambiado a List<User>
 
-            ps.setString(1, "%" + name + "%");
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT id, name, email, status " +
+                         "FROM Users " +
+                         "WHERE name LIKE ?")) {
 
-            rs = ps.executeQuery();
+                ps.setString(1, "%" + name + "%");
 
-            while (rs.next()){
-                records.add(mapRowToUser(rs)); // Usar el método auxiliar
+                if (cancellation != null) {
+                    cancellation.register(ps);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()){
+                        records.add(mapRowToUser(rs)); // Usar el método auxiliar
+                    }
+                } finally {
+                    if (cancellation != null) {
+                        cancellation.unregister();
+                    }
+                }
+            } catch (SQLException ex){
+                throw new SQLException("Error al buscar usuarios: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex){
-            throw new SQLException("Error al buscar usuarios: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
-        }
-        return records;
+            return records;
+        });
     }
 
     /**
@@ -190,33 +245,42 @@ public class UserDAO {
      * durante la obtención del usuario.
      */
     public User getById(int id) throws SQLException{
-        User user  = null; // Inicializar a null, no a new User()
-
-        try {
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
-                    "FROM Users " +
-                    "WHERE id = ?");
+        // Un usuario con sesión abierta se resuelve en memoria
+        User sessionUser = sessions.findUser(id);
+        if (sessionUser != null) {
+            return sessionUser;
+        }
+        return conn.read(() -> {
+            User user  = null; // Inicializar a null, no a new User()
 
-            ps.setInt(1, id);
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT id, name, email, status " +
+                         "FROM Users " +
+                         "WHERE id = ?")) {
 
-            rs = ps.executeQuery();
+                ps.setInt(1, id);
 
-            if (rs.next()) {
-                user = mapRowToUser(rs); // Usar el método auxiliar
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        user = mapRowToUser(rs); // Usar el método auxiliar
+                    }
+                }
+            } catch (SQLException ex){
+                throw new SQLException("Error al obtener un usuario por id: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex){
-            throw new SQLException("Error al obtener un usuario por id: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
-        }
-        return user;
+            return user;
+        });
     }
 
     /**
-     * Autentica a un usuario en la base de datos verificando su correo electrónico,
-     * contraseña (comparando el hash) y estado (activo).
+     * Autentica a un usuario en la base de datos: busca al usuario activo por su correo electrónico
+     * y verifica la contraseña en Java, en tiempo constante, contra el hash guardado
+     * (ver {@link PasswordHasher#verifyPassword(String, String)}). Si el hash guardado usa un formato
+     * o un costo anterior, se reemplaza por uno nuevo tras una autenticación correcta.
+     * Si el usuario ya tiene una sesión abierta (ver {@link #login(User)}), la contraseña se
+     * verifica contra esa sesión, sin consultar la base de datos.
+     * Tras varios intentos seguidos con el mismo correo, los siguientes se rechazan con
+     * {@link LoginThrottledException} antes de verificar nada; un intento correcto reinicia la cuenta.
      *
      * @param user El objeto User que contiene el correo electrónico y la contraseña
      * del usuario que se intenta autenticar. Se espera que estos campos estén
@@ -227,30 +291,117 @@ public class UserDAO {
      * correo electrónico y estado del usuario autenticado.
      * @throws SQLException Si ocurre un error al interactuar con la base de datos
      * durante el proceso de autenticación.
+     * @throws LoginThrottledException Si hubo demasiados intentos con ese correo.
      */
     public User authenticate(User user) throws SQLException{
-        User userAutenticate = null; // Inicializar a null, no a new User()
+        loginThrottle.acquire(user.getEmail());
+        // Si el usuario ya tiene una sesión abierta, la contraseña se verifica en memoria
+        User sessionUser = sessions.authenticate(user.getEmail(), hash -> PasswordHasher.verifyPassword(user.getPasswordHash(), hash));
+        if (sessionUser == null) {
+            Credentials credentials = verifyCredentials(user);
+            sessionUser = credentials == null ? null : credentials.user();
+        }
+        if (sessionUser != null) {
+            loginThrottle.reset(user.getEmail());
+        }
+        return sessionUser;
+    }
 
-        try {
-            ps = conn.connect().prepareStatement("SELECT id, name, email, status " +
-                    "FROM Users " +
-                    "WHERE email = ? AND passwordHash = ? AND status = 1");
+    /**
+     * Autentica al usuario igual que {@link #authenticate(User)} y abre una sesión. Durante la
+     * sesión, {@link #getSessionUser(String)} y {@link #getById(int)} no consultan la base de datos.
+     *
+     * @param user Correo electrónico y contraseña (sin hashear) del usuario.
+     * @return Token de la sesión, o null si las credenciales no son válidas.
+     * @throws SQLException Si ocurre un error al interactuar con la base de datos.
+     * @throws LoginThrottledException Si hubo demasiados intentos con ese correo.
+     */
+    public String login(User user) throws SQLException {
+        loginThrottle.acquire(user.getEmail());
+        String token = sessions.openFromSession(user.getEmail(), hash -> PasswordHasher.verifyPassword(user.getPasswordHash(), hash));
+        if (token == null) {
+            Credentials credentials = verifyCredentials(user);
+            token = credentials == null ? null : sessions.open(credentials.user(), credentials.passwordHash());
+        }
+        if (token != null) {
+            loginThrottle.reset(user.getEmail());
+        }
+        return token;
+    }
 
-            ps.setString(1, user.getEmail());
-            ps.setString(2, PasswordHasher.hashPassword(user.getPasswordHash()));
-            rs = ps.executeQuery();
+    /**
+     * Devuelve el usuario de una sesión vigente, sin consultar la base de datos.
+     *
+     * @param token Token devuelto por {@link #login(User)}.
+     * @return El usuario, o null si la sesión venció o se invalidó (hay que volver a iniciar sesión).
+     */
+    public User getSessionUser(String token) {
+        return sessions.getUser(token);
+    }
+
+    /**
+     * Cierra la sesión.
+     */
+    public void logout(String token) {
+        sessions.close(token);
+    }
 
-            if (rs.next()) {
-                userAutenticate = mapRowToUser(rs); // Usar el método auxiliar
+    /**
+     * Busca al usuario activo por correo y verifica su contraseña contra el hash guardado.
+     */
+    private Credentials verifyCredentials(User user) throws SQLException {
+        String[] storedHash = new String[1];
+        User candidate = conn.read(() -> {
+            User found = null;
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement("SELECT id, name, email, status, passwordHash " +
+                         "FROM Users " +
+                         "WHERE email = ? AND status = 1")) {
+
+                ps.setString(1, user.getEmail());
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        found = mapRowToUser(rs); // Usar el método auxiliar
+                        storedHash[0] = rs.getString("passwordHash");
+                    }
+                }
+            } catch (SQLException ex){
+                throw new SQLException("Error al autenticar un usuario por id: " + ex.getMessage(), ex);
             }
-        } catch (SQLException ex){
-            throw new SQLException("Error al autenticar un usuario por id: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
+            return found;
+        });
+
+        // Sin usuario también se calcula un hash, para que el tiempo no revele si el correo existe.
+        if (!PasswordHasher.verifyPassword(user.getPasswordHash(), candidate == null ? null : storedHash[0])) {
+            return null;
+        }
+        String hash = storedHash[0];
+        if (PasswordHasher.needsRehash(hash)) {
+            hash = rehash(candidate.getId(), user.getPasswordHash(), hash);
+        }
+        return new Credentials(candidate, hash);
+    }
+
+    /**
+     * Reemplaza un hash de formato o costo anterior por uno con el motor actual. Solo se cambia si
+     * el hash guardado sigue siendo el mismo (otro hilo pudo cambiar la contraseña mientras tanto).
+     * Un error aquí no impide el inicio de sesión: se volverá a intentar en el siguiente.
+     *
+     * @return El hash que quedó guardado.
+     */
+    private String rehash(int id, String password, String oldHash) {
+        String newHash = PasswordHasher.hashPassword(password);
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Users SET passwordHash = ? WHERE id = ? AND passwordHash = ?")) {
+            ps.setString(1, newHash);
+            ps.setInt(2, id);
+            ps.setString(3, oldHash);
+            return ps.executeUpdate() > 0 ? newHash : oldHash;
+        } catch (SQLException ex) {
+            System.err.println("Error al actualizar el hash de la contraseña del usuario " + id + ": " + ex.getMessage());
+            return oldHash;
         }
-        return userAutenticate;
     }
 
     /**
@@ -267,26 +418,26 @@ public class UserDAO {
      * durante la actualización de la contraseña.
      */
     public boolean updatePassword(User user) throws SQLException{
-        boolean res = false;
-        try{
-            ps = conn.connect().prepareStatement(
-                    "UPDATE Users " +
-                            "SET passwordHash = ? " +
-                            "WHERE id = ?"
-            );
+        try (Connection connection = conn.getConnection();
+             PreparedStatement ps = connection.prepareStatement(
+                     "UPDATE Users " +
+                             "SET passwordHash = ? " +
+                             "WHERE id = ?"
+             )){
             ps.setString(1, PasswordHasher.hashPassword(user.getPasswordHash()));
             ps.setInt(2, user.getId());
 
-            if(ps.executeUpdate() > 0){
-                res = true;
-            }
+            return invalidateSessionsIfChanged(user.getId(), ps.executeUpdate());
         }catch (SQLException ex){
             throw new SQLException("Error al modificar el password del usuario: " + ex.getMessage(), ex);
-        } finally {
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
         }
-        return res;
+    }
+
+    private boolean invalidateSessionsIfChanged(int userId, int affectedRows) {
+        if (affectedRows > 0) {
+            sessions.invalidateUser(userId);
+        }
+        return affectedRows > 0;
     }
 
     /**
@@ -296,24 +447,53 @@ public class UserDAO {
      * @throws SQLException Si ocurre un error de acceso a la base de datos.
      */
     public List<User> getAllUsers() throws SQLException {
-        List<User> users = new ArrayList<>();
-        try {
-            ps = conn.connect().prepareStatement(
-                    "SELECT id, name, email, status FROM Users ORDER BY name"
-            );
-            rs = ps.executeQuery();
+        return conn.read(() -> {
+            List<User> users = new ArrayList<>();
+            try (Connection connection = conn.getConnection();
+                 PreparedStatement ps = connection.prepareStatement(SELECT_ALL_ORDERED);
+                 ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) {
-                users.add(mapRowToUser(rs)); // Reutiliza el método de mapeo
+                while (rs.next()) {
+                    users.add(mapRowToUser(rs)); // Reutiliza el método de mapeo
+                }
+            } catch (SQLException ex) {
+                throw new SQLException("Error al obtener todos los usuarios: " + ex.getMessage(), ex);
             }
+            return users;
+        });
+    }
+
+    /**
+     * Devuelve todos los usuarios como un Stream que lee las filas a medida que se consumen,
+     * en el mismo orden que getAllUsers.
+     * El Stream mantiene una conexión prestada y debe cerrarse (try-with-resources).
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @return Stream de usuarios (sin passwordHash).
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public Stream<User> streamUsers(int fetchSize) throws SQLException {
+        try {
+            return RowStreams.stream(conn, SELECT_ALL_ORDERED, fetchSize, this::mapRowToUser);
+        } catch (SQLException ex) {
+            throw new SQLException("Error al recorrer los usuarios: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Entrega cada usuario al consumidor a medida que se lee, sin construir una lista.
+     *
+     * @param fetchSize Número de filas que el driver trae por viaje a la base de datos; 0 usa el valor del driver.
+     * @param action Consumidor de cada usuario.
+     * @return Número de usuarios procesados.
+     * @throws SQLException Si ocurre un error de acceso a la base de datos.
+     */
+    public int forEachUser(int fetchSize, Consumer<? super User> action) throws SQLException {
+        try {
+            return RowStreams.forEach(conn, SELECT_ALL_ORDERED, fetchSize, this::mapRowToUser, action);
         } catch (SQLException ex) {
-            throw new SQLException("Error al obtener todos los usuarios: " + ex.getMessage(), ex);
-        } finally {
-            if (rs != null) try { rs.close(); } catch (SQLException e) { System.err.println("Error closing result set: " + e.getMessage()); }
-            if (ps != null) try { ps.close(); } catch (SQLException e) { System.err.println("Error closing prepared statement: " + e.getMessage()); }
-            conn.disconnect();
+            throw new SQLException("Error al recorrer los usuarios: " + ex.getMessage(), ex);
         }
-        return users;
     }
 
     /**
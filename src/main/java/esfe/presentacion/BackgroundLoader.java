@@ -0,0 +1,147 @@
+package esfe.presentacion;
+
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.awt.Cursor;
+import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Ejecuta el acceso a datos de un formulario fuera del Event Dispatch Thread (EDT).
+ * Cada llamada corre en un hilo virtual; el resultado o el error se entregan de vuelta
+ * en el EDT, donde el formulario puede actualizar sus componentes.
+ *
+ * Hay dos formas de enviar trabajo:
+ * <ul>
+ *     <li>{@link #submit}: para lecturas que reemplazan a la anterior (refrescar, buscar).
+ *     Al enviar una nueva se cancela la pendiente y su resultado, si llega, se descarta.</li>
+ *     <li>{@link #execute}: para escrituras, que nunca se cancelan ni se descartan.</li>
+ * </ul>
+ * Mientras haya trabajo pendiente el componente indicado muestra el cursor de espera.
+ *
+ * Los métodos de esta clase deben llamarse desde el EDT.
+ */
+public class BackgroundLoader {
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Operación de acceso a datos que se ejecuta fuera del EDT.
+     */
+    @FunctionalInterface
+    public interface DataCall<T> {
+        T call() throws SQLException;
+    }
+
+    private final Component busyComponent;
+    private Future<?> current;
+    private long generation;
+    private int pending;
+
+    /**
+     * @param busyComponent Componente que muestra el cursor de espera mientras hay trabajo pendiente, o null.
+     */
+    public BackgroundLoader(Component busyComponent) {
+        this.busyComponent = busyComponent;
+    }
+
+    /**
+     * Envía una lectura que reemplaza a la anterior enviada con este método.
+     *
+     * @param call Operación a ejecutar fuera del EDT.
+     * @param onSuccess Recibe el resultado en el EDT, solo si sigue siendo la lectura más reciente.
+     * @param onError Recibe el error en el EDT, solo si sigue siendo la lectura más reciente.
+     */
+    public <T> void submit(DataCall<T> call, Consumer<? super T> onSuccess, Consumer<? super SQLException> onError) {
+        cancel();
+        long requestGeneration = generation;
+        current = EXECUTOR.submit(task(call, () -> {
+            // Las lecturas reemplazadas ya no tienen nada que publicar.
+            if (requestGeneration != generation) {
+                return false;
+            }
+            current = null;
+            updateCursor();
+            return true;
+        }, onSuccess, onError));
+        updateCursor();
+    }
+
+    /**
+     * Envía una operación que no se cancela ni se descarta (altas, cambios y bajas).
+     *
+     * @param call Operación a ejecutar fuera del EDT.
+     * @param onSuccess Recibe el resultado en el EDT.
+     * @param onError Recibe el error en el EDT.
+     */
+    public <T> void execute(DataCall<T> call, Consumer<? super T> onSuccess, Consumer<? super SQLException> onError) {
+        pending++;
+        EXECUTOR.submit(task(call, () -> {
+            pending--;
+            updateCursor();
+            return true;
+        }, onSuccess, onError));
+        updateCursor();
+    }
+
+    /**
+     * Cancela la lectura pendiente enviada con {@link #submit}; su resultado se descartará.
+     * No se interrumpe el hilo: un hilo virtual interrumpido en plena E/S cierra el socket y
+     * con él la conexión del pool. Las búsquedas se detienen con {@code QueryCancellation}.
+     */
+    public void cancel() {
+        generation++;
+        if (current != null) {
+            current.cancel(false);
+            current = null;
+            updateCursor();
+        }
+    }
+
+    /**
+     * Indica si hay operaciones en curso.
+     */
+    public boolean isBusy() {
+        return pending > 0 || current != null;
+    }
+
+    /**
+     * Crea la tarea que ejecuta la llamada en segundo plano y publica su desenlace en el EDT.
+     *
+     * @param complete Se ejecuta en el EDT antes de publicar; si devuelve false el desenlace se descarta.
+     */
+    private static <T> Runnable task(DataCall<T> call, BooleanSupplier complete,
+                                     Consumer<? super T> onSuccess, Consumer<? super SQLException> onError) {
+        return () -> {
+            try {
+                T result = call.call();
+                SwingUtilities.invokeLater(() -> {
+                    if (complete.getAsBoolean()) {
+                        onSuccess.accept(result);
+                    }
+                });
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    if (complete.getAsBoolean()) {
+                        onError.accept(ex);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    if (complete.getAsBoolean()) {
+                        throw ex; // Se reporta por el manejador de excepciones del EDT
+                    }
+                });
+            }
+        };
+    }
+
+    private void updateCursor() {
+        if (busyComponent != null) {
+            busyComponent.setCursor(isBusy() ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+        }
+    }
+}
@@ -11,9 +11,9 @@ import javax.swing.border.EmptyBorder; // Para padding
 import javax.swing.border.TitledBorder; // Para título del borde
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.sql.SQLException; // Importar SQLException para un mejor manejo de errores
 import java.util.ArrayList;
 import java.util.List; // Usar List en lugar de ArrayList para flexibilidad
+import java.util.function.Consumer;
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 
@@ -27,6 +27,10 @@ public class CategoriaForm extends JDialog {
 
     private CategoriaDAO categoriaDAO;
     private MainForm mainForm;
+    // Acceso a datos fuera del EDT: la búsqueda o recarga más reciente reemplaza a la anterior
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+    // Búsqueda incremental sobre txtName
+    private final SearchController<Categoria> searchController;
 
     public CategoriaForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -114,15 +118,19 @@ public class CategoriaForm extends JDialog {
 
         // --- FIN: MEJORAS DE DISEÑO ---
 
-        // Listener para buscar por nombre
+        // Búsqueda incremental: espera una pausa al escribir, cancela la consulta anterior
+        // y filtra en memoria cuando el texto nuevo contiene al anterior
+        searchController = new SearchController<>(dataLoader, categoriaDAO::search,
+                (c, q) -> SearchController.containsIgnoreCase(c.getNombre(), q),
+                this::createTable, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al buscar categorías: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace(); // Imprimir la traza completa para depuración
+                });
+        searchController.setOnEmptyQuery(this::refreshTable);
         txtName.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                if (!txtName.getText().trim().isEmpty()) {
-                    search(txtName.getText());
-                } else {
-                    refreshTable(); // Refrescar para mostrar todas si el campo de búsqueda está vacío
-                }
+                searchController.queryChanged(txtName.getText());
             }
         });
 
@@ -134,39 +142,23 @@ public class CategoriaForm extends JDialog {
         });
 
         // ActionListener para actualizar una categoría
-        btnUpdate.addActionListener(s -> {
-            Categoria categoria = getCategoriaFromTableRow();
-            if (categoria != null) {
-                CategoriaWriteForm categoriaWriteForm = new CategoriaWriteForm(this.mainForm, CUD.UPDATE, categoria);
-                categoriaWriteForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnUpdate.addActionListener(s -> loadCategoriaFromTableRow(categoria -> {
+            CategoriaWriteForm categoriaWriteForm = new CategoriaWriteForm(this.mainForm, CUD.UPDATE, categoria);
+            categoriaWriteForm.setVisible(true);
+            refreshTable();
+        }));
 
         // ActionListener para eliminar una categoría
-        btnDelete.addActionListener(s -> {
-            Categoria categoria = getCategoriaFromTableRow();
-            if (categoria != null) {
-                CategoriaWriteForm categoriaWriteForm = new CategoriaWriteForm(this.mainForm, CUD.DELETE, categoria);
-                categoriaWriteForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnDelete.addActionListener(s -> loadCategoriaFromTableRow(categoria -> {
+            CategoriaWriteForm categoriaWriteForm = new CategoriaWriteForm(this.mainForm, CUD.DELETE, categoria);
+            categoriaWriteForm.setVisible(true);
+            refreshTable();
+        }));
 
         // Al iniciar el formulario, mostrar todas las categorías
         refreshTable();
     }
 
-    private void search(String query) {
-        try {
-            List<Categoria> categorias = categoriaDAO.search(query); // Cambiado a List<Categoria>
-            createTable(categorias);
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
-            JOptionPane.showMessageDialog(this, "Error al buscar categorías: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(); // Imprimir la traza completa para depuración
-        }
-    }
-
     public void createTable(List<Categoria> categorias) { // Cambiado a List<Categoria>
         DefaultTableModel model = new DefaultTableModel() {
             @Override
@@ -194,39 +186,37 @@ public class CategoriaForm extends JDialog {
         this.tableCategoria.getTableHeader().getColumnModel().getColumn(columnIndex).setMinWidth(0);
     }
 
-    private Categoria getCategoriaFromTableRow() {
-        Categoria categoria = null;
-        try {
-            int filaSelect = this.tableCategoria.getSelectedRow();
-            if (filaSelect != -1) {
-                int id = (int) this.tableCategoria.getValueAt(filaSelect, 0);
-                categoria = categoriaDAO.getById(id);
-                if (categoria == null) {
-                    JOptionPane.showMessageDialog(this, "No se encontró ninguna categoría para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
-                }
+    /**
+     * Lee de la base de datos la categoría de la fila seleccionada y la entrega, en el EDT, a la acción indicada.
+     */
+    private void loadCategoriaFromTableRow(Consumer<Categoria> action) {
+        int filaSelect = this.tableCategoria.getSelectedRow();
+        if (filaSelect == -1) {
+            JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int id = (int) this.tableCategoria.getValueAt(filaSelect, 0);
+        dataLoader.execute(() -> categoriaDAO.getById(id), categoria -> {
+            if (categoria == null) {
+                JOptionPane.showMessageDialog(this, "No se encontró ninguna categoría para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
             } else {
-                JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+                action.accept(categoria);
             }
-            return categoria;
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error al obtener categoría de la fila seleccionada: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-            return null;
-        }
+        });
     }
 
     private void refreshTable() {
         // Si el campo de búsqueda tiene texto, realiza una búsqueda, de lo contrario, muestra todas las categorías
         if (!txtName.getText().trim().isEmpty()) {
-            search(txtName.getText());
+            searchController.searchNow(txtName.getText());
         } else {
-            try {
-                List<Categoria> allCategorias = categoriaDAO.getAllCategorias(); // Asumo que tienes este método en CategoriaDAO
-                createTable(allCategorias);
-            } catch (SQLException ex) {
+            dataLoader.submit(categoriaDAO::getAllCategorias, this::createTable, ex -> {
                 JOptionPane.showMessageDialog(this, "Error al cargar todas las categorías: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
-            }
+            });
         }
     }
 }
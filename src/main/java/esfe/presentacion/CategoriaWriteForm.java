@@ -23,6 +23,8 @@ public class CategoriaWriteForm extends JDialog {
     private CategoriaDAO categoriaDAO;
     private MainForm mainForm;
     private CUD cud;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
     private Categoria categoria;
 
     public CategoriaWriteForm(MainForm mainForm, CUD cud, Categoria categoria) {
@@ -137,54 +139,58 @@ public class CategoriaWriteForm extends JDialog {
     }
 
     private void ok() {
-        try {
-            String nombre = txtName.getText().trim();
-            String descripcion = txtDescripcion.getText().trim();
-
-            if (this.cud != CUD.DELETE && (nombre.isEmpty() || descripcion.isEmpty())) { // Validar solo para CREATE/UPDATE
-                JOptionPane.showMessageDialog(this, "Todos los campos son obligatorios", "Validación", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            switch (this.cud) {
-                case CREATE:
-                    Categoria nuevaCategoria = new Categoria();
-                    nuevaCategoria.setNombre(nombre);
-                    nuevaCategoria.setDescripcion(descripcion);
-                    Categoria created = categoriaDAO.create(nuevaCategoria);
+        String nombre = txtName.getText().trim();
+        String descripcion = txtDescripcion.getText().trim();
+
+        if (this.cud != CUD.DELETE && (nombre.isEmpty() || descripcion.isEmpty())) { // Validar solo para CREATE/UPDATE
+            JOptionPane.showMessageDialog(this, "Todos los campos son obligatorios", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        // Se bloquea el botón mientras la operación está en curso para evitar dobles envíos
+        btnOk.setEnabled(false);
+        switch (this.cud) {
+            case CREATE:
+                Categoria nuevaCategoria = new Categoria();
+                nuevaCategoria.setNombre(nombre);
+                nuevaCategoria.setDescripcion(descripcion);
+                dataLoader.execute(() -> categoriaDAO.create(nuevaCategoria), created -> {
                     if (created != null) {
                         JOptionPane.showMessageDialog(this, "Categoría creada exitosamente con ID: " + created.getCategoriaID(), "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo crear la categoría.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-                case UPDATE:
-                    categoria.setNombre(nombre);
-                    categoria.setDescripcion(descripcion);
-                    boolean updated = categoriaDAO.update(categoria);
+                    this.dispose(); // Cerrar el formulario después de la operación
+                }, this::showError);
+                break;
+            case UPDATE:
+                categoria.setNombre(nombre);
+                categoria.setDescripcion(descripcion);
+                dataLoader.execute(() -> categoriaDAO.update(categoria), updated -> {
                     if (updated) {
                         JOptionPane.showMessageDialog(this, "Categoría actualizada exitosamente", "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo actualizar la categoría.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-                case DELETE:
-                    boolean deleted = categoriaDAO.delete(categoria.getCategoriaID());
+                    this.dispose();
+                }, this::showError);
+                break;
+            case DELETE:
+                dataLoader.execute(() -> categoriaDAO.delete(categoria.getCategoriaID()), deleted -> {
                     if (deleted) {
                         JOptionPane.showMessageDialog(this, "Categoría eliminada exitosamente", "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo eliminar la categoría.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-            }
-
-            this.dispose(); // Cerrar el formulario después de la operación
-        } catch (SQLException ex) { // Capturar SQLException para errores de DB
-            JOptionPane.showMessageDialog(this, "Error de base de datos: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
-        } catch (Exception ex) { // Capturar cualquier otra excepción
-            JOptionPane.showMessageDialog(this, "Ocurrió un error inesperado: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
+                    this.dispose();
+                }, this::showError);
+                break;
         }
     }
+
+    private void showError(SQLException ex) { // Errores de DB de la operación en segundo plano
+        btnOk.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Error de base de datos: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
+    }
 }
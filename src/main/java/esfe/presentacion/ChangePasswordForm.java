@@ -10,7 +10,6 @@ import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 import java.awt.event.ActionEvent; // Se mantiene para consistencia, aunque se usen lambdas
 import java.awt.event.ActionListener; // Se mantiene para consistencia, aunque se usen lambdas
-import java.sql.SQLException; // Importar SQLException para un mejor manejo de errores
 
 
 public class ChangePasswordForm extends JDialog {
@@ -21,6 +20,8 @@ public class ChangePasswordForm extends JDialog {
 
     private UserDAO userDAO;
     private MainForm mainForm;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
 
     public ChangePasswordForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -85,21 +86,31 @@ public class ChangePasswordForm extends JDialog {
     }
 
     private void changePassword() {
-        try {
-            User userAut = mainForm.getUserAutenticate();
-            User user = new User();
-            user.setId(userAut.getId());
-            user.setPasswordHash(new String(txtPassword.getPassword()));
-
-            if (user.getPasswordHash().trim().isEmpty()) {
-                JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
-                        "La contraseña es obligatoria.",
-                        "Validación", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
+        User userAut = mainForm.getUserAutenticate();
+        if (userAut == null) {
+            JOptionPane.showMessageDialog(this,
+                    "La sesión venció. Por favor, inicie sesión de nuevo.",
+                    "Cambiar Contraseña", JOptionPane.WARNING_MESSAGE);
+            this.dispose();
+            LoginForm loginForm = new LoginForm(this.mainForm);
+            loginForm.setVisible(true);
+            return;
+        }
+        User user = new User();
+        user.setId(userAut.getId());
+        user.setPasswordHash(new String(txtPassword.getPassword()));
 
-            boolean res = userDAO.updatePassword(user);
+        if (user.getPasswordHash().trim().isEmpty()) {
+            JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
+                    "La contraseña es obligatoria.",
+                    "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
+        // Se bloquea el botón mientras el cambio está en curso
+        btnChangePassword.setEnabled(false);
+        dataLoader.execute(() -> userDAO.updatePassword(user), res -> {
+            btnChangePassword.setEnabled(true);
             if (res) {
                 JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
                         "Contraseña cambiada exitosamente. Por favor, inicie sesión con su nueva contraseña.",
@@ -113,16 +124,12 @@ public class ChangePasswordForm extends JDialog {
                         "No se logró cambiar la contraseña.",
                         "Cambiar Contraseña", JOptionPane.WARNING_MESSAGE);
             }
-        } catch (SQLException ex) { // Capturar SQLException específicamente
+        }, ex -> {
+            btnChangePassword.setEnabled(true);
             JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
                     "Error de base de datos al cambiar la contraseña: " + ex.getMessage(),
                     "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace(); // Imprimir la traza completa para depuración
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
-                    "Ocurrió un error inesperado al cambiar la contraseña: " + ex.getMessage(),
-                    "Sistema", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
+        });
     }
 }
@@ -5,16 +5,13 @@ import esfe.persistencia.CategoriaDAO;
 import esfe.persistencia.ProveedorDAO;
 import esfe.dominio.Computadora;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader; // Para estilizar el encabezado de la tabla
 import javax.swing.border.EmptyBorder; // Para padding
 import javax.swing.border.TitledBorder; // Para título del borde
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.sql.SQLException; // Importar SQLException
-import java.time.format.DateTimeFormatter; // Para formatear LocalDateTime
-import java.util.ArrayList; // Mantener ArrayList si el DAO lo devuelve así
 import java.util.List; // Usar List en la interfaz para flexibilidad
+import java.util.function.Consumer;
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 
@@ -31,8 +28,13 @@ public class ComputadoraForm extends JDialog {
     private ProveedorDAO proveedorDAO;
     private MainForm mainForm;
 
-    // Formateador para la fecha/hora en la tabla
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Modelo de la tabla: se crea una sola vez y carga las filas por páginas
+    private final ComputadoraTableModel tableModel = new ComputadoraTableModel();
+    // Acceso a datos fuera del EDT: la búsqueda o recarga más reciente reemplaza a la anterior
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+    // Búsqueda incremental sobre txtName, con los resultados más relevantes primero
+    private final SearchController<Computadora> searchController;
+    private static final int SEARCH_LIMIT = 200;
 
     public ComputadoraForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -108,6 +110,12 @@ public class ComputadoraForm extends JDialog {
         tableComputadora.setGridColor(new Color(230, 230, 230)); // Color de las líneas de la cuadrícula
         tableComputadora.setSelectionBackground(new Color(173, 216, 230)); // Color de selección (azul claro)
         tableComputadora.setFillsViewportHeight(true); // Para que la tabla ocupe todo el espacio disponible
+        tableComputadora.setModel(tableModel);
+        hideCol(0); // Ocultar la columna "ID"
+        tableModel.setErrorHandler(ex -> {
+            JOptionPane.showMessageDialog(this, "Error al cargar más computadoras: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
 
         // Estilo del encabezado de la tabla
         JTableHeader tableHeader = tableComputadora.getTableHeader();
@@ -124,15 +132,22 @@ public class ComputadoraForm extends JDialog {
 
         // --- FIN: MEJORAS DE DISEÑO ---
 
-        // Listener para buscar computadoras
+        // Búsqueda incremental: espera una pausa al escribir y cancela la consulta anterior.
+        // La resuelve el índice en memoria (también busca en observaciones y en el nombre y email
+        // del proveedor), así que cada texto se busca de nuevo en lugar de filtrar el resultado anterior.
+        searchController = new SearchController<>(dataLoader,
+                (query, cancellation) -> computadoraDAO.search(query, ComputadoraDAO.SearchMode.SUBSTRING, SEARCH_LIMIT, cancellation),
+                null,
+                this::createTable, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al buscar computadoras: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
+        searchController.setResultLimit(SEARCH_LIMIT);
+        searchController.setOnEmptyQuery(this::refreshTable);
         txtName.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                if (!txtName.getText().trim().isEmpty()) {
-                    search(txtName.getText());
-                } else {
-                    refreshTable();
-                }
+                searchController.queryChanged(txtName.getText());
             }
         });
 
@@ -147,83 +162,38 @@ public class ComputadoraForm extends JDialog {
         });
 
         // ActionListener para actualizar una computadora
-        btnUpdate.addActionListener(s -> {
-            Computadora computadora = getSelectedComputadora();
-            if (computadora != null) {
-                ComputadoraWriteForm writeForm = new ComputadoraWriteForm(this.mainForm, computadora);
-                writeForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnUpdate.addActionListener(s -> loadSelectedComputadora(computadora -> {
+            ComputadoraWriteForm writeForm = new ComputadoraWriteForm(this.mainForm, computadora);
+            writeForm.setVisible(true);
+            refreshTable();
+        }));
 
         // ActionListener para eliminar una computadora
-        btnDelete.addActionListener(s -> {
-            Computadora computadora = getSelectedComputadora();
-            if (computadora != null) {
-                int confirm = JOptionPane.showConfirmDialog(this, "¿Estás seguro de que deseas eliminar la computadora con SN: " + computadora.getNumeroSerie() + "?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    try {
-                        boolean deleted = computadoraDAO.delete(computadora.getComputadoraID());
-                        if (deleted) {
-                            JOptionPane.showMessageDialog(this, "Computadora eliminada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            refreshTable();
-                        } else {
-                            JOptionPane.showMessageDialog(this, "No se pudo eliminar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
-                        }
-                    } catch (SQLException ex) {
-                        JOptionPane.showMessageDialog(this, "Error al eliminar la computadora: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-                        ex.printStackTrace();
+        btnDelete.addActionListener(s -> loadSelectedComputadora(computadora -> {
+            int confirm = JOptionPane.showConfirmDialog(this, "¿Estás seguro de que deseas eliminar la computadora con SN: " + computadora.getNumeroSerie() + "?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                dataLoader.execute(() -> computadoraDAO.delete(computadora.getComputadoraID()), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(this, "Computadora eliminada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        refreshTable();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo eliminar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                }
+                }, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al eliminar la computadora: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
             }
-        });
+        }));
 
         // Inicializar la tabla al abrir el formulario
         refreshTable();
     }
 
-    private void search(String query) {
-        try {
-            // Se mantiene ArrayList aquí si el DAO devuelve ArrayList,
-            // pero se recomienda usar List en la interfaz del método en el DAO.
-            ArrayList<Computadora> computadoras = computadoraDAO.search(query);
-            createTable(computadoras);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error al buscar computadoras: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
-    }
-
     // Se cambió el parámetro a List para mayor flexibilidad, aunque el DAO pueda devolver ArrayList
     public void createTable(List<Computadora> computadoras) {
-        String[] columnNames = {"ID", "Categoría ID", "Proveedor ID", "Marca", "Modelo", "Número de Serie", "Fecha Compra", "Precio", "Estado", "Observaciones"};
-
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-
-        this.tableComputadora.setModel(model);
-
-        for (Computadora computadora : computadoras) {
-            Object[] rowData = new Object[]{
-                    computadora.getComputadoraID(),
-                    computadora.getCategoriaID(),
-                    computadora.getProveedorID(),
-                    computadora.getMarca(),
-                    computadora.getModelo(),
-                    computadora.getNumeroSerie(),
-                    computadora.getFechaCompra() != null ? computadora.getFechaCompra().format(DATE_TIME_FORMATTER) : "N/A",
-                    String.format("%.2f", computadora.getPrecio()),
-                    computadora.getStrEstado(),
-                    computadora.getObservaciones()
-            };
-            model.addRow(rowData);
-        }
-
-        hideCol(0); // Ocultar la columna "ID"
+        // Un solo evento de cambio; las celdas se formatean al dibujarse
+        tableModel.setRows(computadoras);
     }
 
     private void hideCol(int columnIndex) {
@@ -233,34 +203,37 @@ public class ComputadoraForm extends JDialog {
         this.tableComputadora.getTableHeader().getColumnModel().getColumn(columnIndex).setMinWidth(0);
     }
 
-    private Computadora getSelectedComputadora() {
+    /**
+     * Lee de la base de datos la computadora seleccionada en la tabla y la entrega, en el EDT, a la acción indicada.
+     */
+    private void loadSelectedComputadora(Consumer<Computadora> action) {
         int row = tableComputadora.getSelectedRow();
-        if (row != -1) {
-            try {
-                int id = (int) tableComputadora.getModel().getValueAt(row, 0);
-                return computadoraDAO.getById(id);
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error al obtener los detalles de la computadora seleccionada: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
-                return null;
-            }
+        if (row == -1) {
+            JOptionPane.showMessageDialog(this, "Por favor, seleccione una computadora de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
         }
-        JOptionPane.showMessageDialog(this, "Por favor, seleccione una computadora de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
-        return null;
+        int id = (int) tableComputadora.getModel().getValueAt(row, 0);
+        dataLoader.execute(() -> computadoraDAO.getById(id), computadora -> {
+            if (computadora != null) {
+                action.accept(computadora);
+            }
+        }, ex -> {
+            JOptionPane.showMessageDialog(this, "Error al obtener los detalles de la computadora seleccionada: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
     }
 
     private void refreshTable() {
         // Se asegura de mostrar todas las computadoras si el campo de búsqueda está vacío
         if (!txtName.getText().trim().isEmpty()) {
-            search(txtName.getText());
+            searchController.searchNow(txtName.getText());
         } else {
-            try {
-                List<Computadora> allComputadoras = computadoraDAO.getAllComputadoras(); // Asegúrate de que este método exista en ComputadoraDAO
-                createTable(allComputadoras);
-            } catch (SQLException ex) {
+            // Solo se lee la primera página; el resto se carga al desplazarse por la tabla
+            LazyTableModel.PageLoader<Computadora> pages = computadoraDAO::getComputadorasPage;
+            dataLoader.submit(() -> pages.load(null, tableModel.getPageSize()), first -> tableModel.setFirstPage(pages, first), ex -> {
                 JOptionPane.showMessageDialog(this, "Error al cargar todas las computadoras: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
-            }
+            });
         }
     }
 }
@@ -0,0 +1,39 @@
+package esfe.presentacion;
+
+import esfe.dominio.Computadora;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Modelo de la tabla de ComputadoraForm. Carga las computadoras por páginas, con los nombres
+ * de categoría y proveedor ya resueltos en la misma consulta, y formatea fecha y precio
+ * solo al dibujar cada celda.
+ */
+public class ComputadoraTableModel extends LazyTableModel<Computadora> {
+    private static final String[] COLUMN_NAMES = {"ID", "Categoría", "Proveedor", "Marca", "Modelo", "Número de Serie", "Fecha Compra", "Precio", "Estado", "Observaciones"};
+    private static final int PAGE_SIZE = 200;
+
+    // Formateador para la fecha/hora en la tabla
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public ComputadoraTableModel() {
+        super(COLUMN_NAMES, PAGE_SIZE);
+    }
+
+    @Override
+    protected Object getColumnValue(Computadora computadora, int columnIndex) {
+        switch (columnIndex) {
+            case 0: return computadora.getComputadoraID();
+            case 1: return computadora.getCategoriaNombre();
+            case 2: return computadora.getProveedorNombre() != null ? computadora.getProveedorNombre() : "N/A";
+            case 3: return computadora.getMarca();
+            case 4: return computadora.getModelo();
+            case 5: return computadora.getNumeroSerie();
+            case 6: return computadora.getFechaCompra() != null ? computadora.getFechaCompra().format(DATE_TIME_FORMATTER) : "N/A";
+            case 7: return String.format("%.2f", computadora.getPrecio());
+            case 8: return computadora.getStrEstado();
+            case 9: return computadora.getObservaciones();
+            default: return null;
+        }
+    }
+}
@@ -37,6 +37,12 @@ public class ComputadoraWriteForm extends JDialog {
     private final ProveedorDAO proveedorDAO;
     private final Computadora computadoraActual;
     private final MainForm mainForm;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+
+    // Categorías y proveedores leídos juntos para llenar los combos
+    private record ComboData(List<Categoria> categorias, List<Proveedor> proveedores) {
+    }
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
@@ -153,22 +159,24 @@ public class ComputadoraWriteForm extends JDialog {
     }
 
     private void populateComboBoxes() {
-        try {
-            List<Categoria> categorias = categoriaDAO.getAllCategorias();
+        // No se permite guardar hasta que los combos estén cargados
+        okButton.setEnabled(false);
+        dataLoader.submit(() -> new ComboData(categoriaDAO.getAllCategorias(), proveedorDAO.getAllProveedores()), data -> {
             cbCategoria.addItem(null); // Permite la opción "Ninguno" o "Nulo"
-            for (Categoria cat : categorias) {
+            for (Categoria cat : data.categorias()) {
                 cbCategoria.addItem(cat);
             }
 
-            List<Proveedor> proveedores = proveedorDAO.getAllProveedores();
             cbProveedor.addItem(null); // Permite la opción "Ninguno" o "Nulo"
-            for (Proveedor prov : proveedores) {
+            for (Proveedor prov : data.proveedores()) {
                 cbProveedor.addItem(prov);
             }
-        } catch (SQLException ex) {
+            selectComboValues();
+            okButton.setEnabled(true);
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error al cargar categorías/proveedores: " + ex.getMessage(), "Error de Carga", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        }
+        });
     }
 
     private void populateEstadoComboBox() {
@@ -196,6 +204,29 @@ public class ComputadoraWriteForm extends JDialog {
             txtPrecio.setText(String.format("%.2f", computadoraActual.getPrecio()));
             txtObservaciones.setText(computadoraActual.getObservaciones());
 
+            cbEstado.setSelectedItem(computadoraActual.getStrEstado());
+
+        } else {
+            setTitle("Registrar Nueva Computadora");
+            okButton.setText("Guardar"); // Texto del botón para nueva creación
+            okButton.setBackground(new Color(60, 179, 113)); // Color verde para guardar
+
+            txtMarca.setText("");
+            txtModelo.setText("");
+            txtNumeroSerie.setText("");
+            lblFechaCompra.setText("Se generará automáticamente");
+            txtPrecio.setText("0.00");
+            txtObservaciones.setText("");
+
+            cbEstado.setSelectedItem(computadoraActual.getStrEstado(Computadora.ESTADO_DISPONIBLE));
+        }
+    }
+
+    /**
+     * Selecciona en los combos la categoría y el proveedor de la computadora; se llama cuando terminan de cargarse.
+     */
+    private void selectComboValues() {
+        if (computadoraActual.getComputadoraID() > 0) {
             for (int i = 0; i < cbCategoria.getItemCount(); i++) {
                 Categoria cat = cbCategoria.getItemAt(i);
                 if (cat != null && cat.getCategoriaID() == computadoraActual.getCategoriaID()) {
@@ -215,24 +246,9 @@ public class ComputadoraWriteForm extends JDialog {
             } else {
                 cbProveedor.setSelectedItem(null);
             }
-
-            cbEstado.setSelectedItem(computadoraActual.getStrEstado());
-
         } else {
-            setTitle("Registrar Nueva Computadora");
-            okButton.setText("Guardar"); // Texto del botón para nueva creación
-            okButton.setBackground(new Color(60, 179, 113)); // Color verde para guardar
-
-            txtMarca.setText("");
-            txtModelo.setText("");
-            txtNumeroSerie.setText("");
-            lblFechaCompra.setText("Se generará automáticamente");
-            txtPrecio.setText("0.00");
-            txtObservaciones.setText("");
-
             if (cbCategoria.getItemCount() > 0) cbCategoria.setSelectedIndex(0);
             if (cbProveedor.getItemCount() > 0) cbProveedor.setSelectedIndex(0);
-            cbEstado.setSelectedItem(computadoraActual.getStrEstado(Computadora.ESTADO_DISPONIBLE));
         }
     }
 
@@ -279,33 +295,42 @@ public class ComputadoraWriteForm extends JDialog {
                 }
             }
 
+            // Se bloquea el botón mientras la escritura está en curso para evitar dobles envíos
+            okButton.setEnabled(false);
             if (computadoraActual.getComputadoraID() == 0) {
-                Computadora created = computadoraDAO.create(computadoraActual);
-                if (created != null) {
-                    JOptionPane.showMessageDialog(this, "Computadora registrada exitosamente con ID: " + created.getComputadoraID(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    this.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(this, "No se pudo registrar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                dataLoader.execute(() -> computadoraDAO.create(computadoraActual), created -> {
+                    okButton.setEnabled(true);
+                    if (created != null) {
+                        JOptionPane.showMessageDialog(this, "Computadora registrada exitosamente con ID: " + created.getComputadoraID(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        this.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo registrar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, this::showSaveError);
             } else {
-                boolean updated = computadoraDAO.update(computadoraActual);
-                if (updated) {
-                    JOptionPane.showMessageDialog(this, "Computadora actualizada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    this.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(this, "No se pudo actualizar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                dataLoader.execute(() -> computadoraDAO.update(computadoraActual), updated -> {
+                    okButton.setEnabled(true);
+                    if (updated) {
+                        JOptionPane.showMessageDialog(this, "Computadora actualizada exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        this.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo actualizar la computadora.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, this::showSaveError);
             }
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Error de formato en el Precio. Asegúrate de que sea un número válido.", "Error de Entrada", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error de base de datos al guardar la computadora: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Ocurrió un error inesperado al guardar la computadora: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
         }
     }
+
+    private void showSaveError(SQLException ex) {
+        okButton.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Error de base de datos al guardar la computadora: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace();
+    }
 }
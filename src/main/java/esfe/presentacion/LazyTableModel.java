@@ -0,0 +1,155 @@
+package esfe.presentacion;
+
+import esfe.persistencia.Page;
+
+import javax.swing.JOptionPane;
+import javax.swing.table.AbstractTableModel;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Modelo de tabla de solo lectura que carga sus filas por páginas a medida que se muestran.
+ * Al abrir la tabla solo se muestra la primera página; cuando la vista pide una fila cercana al
+ * final de lo ya cargado se lee la página siguiente en segundo plano y se agrega en el EDT.
+ * Los valores de las celdas se calculan (y se formatean) en getValueAt, es decir, solo
+ * para las celdas que se están dibujando.
+ *
+ * @param <T> Tipo de las entidades que muestra cada fila.
+ */
+public abstract class LazyTableModel<T> extends AbstractTableModel {
+
+    /**
+     * Fuente de páginas, normalmente un método getXxxPage de un DAO.
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        Page<T> load(String pageToken, int pageSize) throws SQLException;
+    }
+
+    private final String[] columnNames;
+    private final int pageSize;
+    private final List<T> rows = new ArrayList<>();
+    private PageLoader<T> loader;
+    private String nextPageToken;
+    private boolean loadScheduled;
+    private final BackgroundLoader background = new BackgroundLoader(null);
+    private Consumer<SQLException> errorHandler = LazyTableModel::showLoadError;
+
+    protected LazyTableModel(String[] columnNames, int pageSize) {
+        this.columnNames = columnNames;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Valor de la columna indicada para la entidad. Se invoca solo para las celdas visibles.
+     */
+    protected abstract Object getColumnValue(T item, int columnIndex);
+
+    /**
+     * Tamaño de página con el que se debe leer la primera página.
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Reemplaza el contenido por la primera página de una consulta paginada; las siguientes
+     * se piden al mismo loader a medida que se muestran.
+     * Dispara un único evento de cambio para toda la tabla.
+     */
+    public void setFirstPage(PageLoader<T> loader, Page<T> first) {
+        background.cancel();
+        this.loader = loader;
+        this.nextPageToken = first.getNextPageToken();
+        this.loadScheduled = false;
+        rows.clear();
+        rows.addAll(first.getItems());
+        fireTableDataChanged();
+    }
+
+    /**
+     * Reemplaza el contenido por una lista ya cargada en memoria (p. ej. resultados de búsqueda).
+     * Dispara un único evento de cambio para toda la tabla.
+     */
+    public void setRows(List<T> items) {
+        background.cancel();
+        this.loader = null;
+        this.nextPageToken = null;
+        this.loadScheduled = false;
+        rows.clear();
+        rows.addAll(items);
+        fireTableDataChanged();
+    }
+
+    /**
+     * Define qué hacer si falla la carga de una página posterior a la primera. Se invoca en el EDT;
+     * por omisión se muestra el error en un cuadro de diálogo.
+     */
+    public void setErrorHandler(Consumer<SQLException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public T getRow(int rowIndex) {
+        return rows.get(rowIndex);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int rowIndex, int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        // Al acercarse al final de lo cargado se pide la página siguiente (media página de margen).
+        if (rowIndex >= rows.size() - pageSize / 2) {
+            scheduleNextPage();
+        }
+        return getColumnValue(rows.get(rowIndex), columnIndex);
+    }
+
+    private static void showLoadError(SQLException ex) {
+        JOptionPane.showMessageDialog(null, "Error al cargar más filas de la tabla: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace();
+    }
+
+    private void scheduleNextPage() {
+        if (loader == null || nextPageToken == null || loadScheduled) {
+            return;
+        }
+        loadScheduled = true;
+        PageLoader<T> current = loader;
+        String token = nextPageToken;
+        // El resultado se agrega en el EDT, después de que termine el repintado en curso.
+        background.submit(() -> current.load(token, pageSize), page -> {
+            loadScheduled = false;
+            int first = rows.size();
+            rows.addAll(page.getItems());
+            nextPageToken = page.getNextPageToken();
+            if (!page.getItems().isEmpty()) {
+                fireTableRowsInserted(first, rows.size() - 1);
+            }
+        }, ex -> {
+            loadScheduled = false;
+            // Se deja de paginar para no repetir el error en cada repintado.
+            nextPageToken = null;
+            errorHandler.accept(ex);
+        });
+    }
+}
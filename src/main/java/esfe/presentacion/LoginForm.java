@@ -7,11 +7,11 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.event.ActionEvent; // Este import ahora estará activo
 import java.awt.event.ActionListener; // Este import ahora estará activo
-import java.sql.SQLException; // Importar SQLException para un mejor manejo de errores
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 
 import esfe.dominio.User;
+import esfe.persistencia.LoginThrottledException;
 import esfe.persistencia.UserDAO;
 
 /**
@@ -29,6 +29,8 @@ public class LoginForm extends JDialog {
 
     private UserDAO userDAO;
     private MainForm mainForm;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
 
     public LoginForm(MainForm mainForm){
         this.mainForm = mainForm;
@@ -115,23 +117,24 @@ public class LoginForm extends JDialog {
     }
 
     private void login() {
-        try{
-            User user = new User();
-            user.setEmail(txtEmail.getText().trim()); // Usar trim() para eliminar espacios en blanco
-            user.setPasswordHash(new String(txtPassword.getPassword()));
+        User user = new User();
+        user.setEmail(txtEmail.getText().trim()); // Usar trim() para eliminar espacios en blanco
+        user.setPasswordHash(new String(txtPassword.getPassword()));
 
-            // Validación de campos vacíos
-            if (user.getEmail().isEmpty() || user.getPasswordHash().isEmpty()) {
-                JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
-                        "Por favor, ingrese su correo electrónico y contraseña.",
-                        "Validación de Login", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
-
-            User userAut = userDAO.authenticate(user);
+        // Validación de campos vacíos
+        if (user.getEmail().isEmpty() || user.getPasswordHash().isEmpty()) {
+            JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
+                    "Por favor, ingrese su correo electrónico y contraseña.",
+                    "Validación de Login", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
-            if(userAut != null && userAut.getId() > 0 && userAut.getEmail().equals(user.getEmail())){ // Comprobación de email redundante si userAut no es null
-                this.mainForm.setUserAutenticate(userAut);
+        // Se bloquea el botón mientras se valida para evitar intentos duplicados
+        btnLogin.setEnabled(false);
+        dataLoader.execute(() -> userDAO.login(user), token -> {
+            btnLogin.setEnabled(true);
+            if(token != null){
+                this.mainForm.setSessionToken(token);
                 this.dispose();
             }
             else{
@@ -140,18 +143,19 @@ public class LoginForm extends JDialog {
                         "Login Fallido",
                         JOptionPane.WARNING_MESSAGE);
             }
-        }
-        catch (SQLException ex){ // Capturar SQLException específicamente
+        }, ex -> { // Errores de base de datos
+            btnLogin.setEnabled(true);
+            if (ex instanceof LoginThrottledException) {
+                // Demasiados intentos seguidos: no es un error de la base de datos
+                JOptionPane.showMessageDialog(this,
+                        ex.getMessage(),
+                        "Login Fallido", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
             JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
                     "Error de base de datos al intentar iniciar sesión: " + ex.getMessage(),
                     "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace(); // Imprimir la traza completa para depuración
-        }
-        catch (Exception ex){
-            JOptionPane.showMessageDialog(this, // Usar 'this' para centrar
-                    "Ocurrió un error inesperado durante el login: " + ex.getMessage(),
-                    "Error del Sistema", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
+        });
     }
 }
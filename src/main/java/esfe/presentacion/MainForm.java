@@ -7,6 +7,8 @@ import java.awt.Font; // Importar para cambiar la fuente
 import java.awt.Color; // Importar para cambiar colores
 
 import esfe.dominio.User;
+import esfe.persistencia.CircuitBreaker;
+import esfe.persistencia.ConnectionManager;
 import esfe.persistencia.UserDAO;
 
 /**
@@ -16,14 +18,27 @@ import esfe.persistencia.UserDAO;
  */
 public class MainForm extends JFrame {
 
-    private User userAutenticate; // Almacena la información del usuario autenticado.
+    private final UserDAO userDAO = new UserDAO();
+    private String sessionToken; // Token de la sesión del usuario autenticado.
+    private final JLabel connectionStatus = new JLabel(); // Estado de la conexión a la base de datos.
 
+    /**
+     * Devuelve el usuario de la sesión actual. Se resuelve en memoria, sin consultar la base de datos.
+     *
+     * @return El usuario autenticado, o null si la sesión venció o se invalidó (p. ej. tras cambiar la contraseña).
+     */
     public User getUserAutenticate() {
-        return userAutenticate;
+        return userDAO.getSessionUser(sessionToken);
     }
 
-    public void setUserAutenticate(User userAutenticate) {
-        this.userAutenticate = userAutenticate;
+    /**
+     * Reemplaza la sesión actual (si había una, se cierra) por la de un nuevo inicio de sesión.
+     *
+     * @param sessionToken Token devuelto por UserDAO.login.
+     */
+    public void setSessionToken(String sessionToken) {
+        userDAO.logout(this.sessionToken);
+        this.sessionToken = sessionToken;
     }
 
     public MainForm(){
@@ -79,6 +94,12 @@ public class MainForm extends JFrame {
         // itemChangePassword.setArmedColor(menuItemSelectionBackground); // REMOVIDO: Este método no existe en JMenuItem
         menuPerfil.add(itemChangePassword);
         itemChangePassword.addActionListener(e -> {
+            if (getUserAutenticate() == null) {
+                // La sesión venció: se pide iniciar sesión de nuevo
+                LoginForm loginForm = new LoginForm(this);
+                loginForm.setVisible(true);
+                return;
+            }
             ChangePasswordForm changePassword = new ChangePasswordForm(this);
             changePassword.setVisible(true);
         });
@@ -159,5 +180,27 @@ public class MainForm extends JFrame {
             MovimientoInventarioForm movimientoInventarioForm = new MovimientoInventarioForm(this);
             movimientoInventarioForm.setVisible(true);
         });
+
+        // Estado de la conexión, a la derecha de la barra de menú
+        connectionStatus.setFont(menuItemFont);
+        connectionStatus.setForeground(menuForeground);
+        connectionStatus.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
+        menuBar.add(Box.createHorizontalGlue());
+        menuBar.add(connectionStatus);
+        CircuitBreaker breaker = ConnectionManager.getInstance().getCircuitBreaker();
+        breaker.addListener(state -> SwingUtilities.invokeLater(() -> showConnectionState(state)));
+        showConnectionState(breaker.getState());
+    }
+
+    /**
+     * Muestra el estado del interruptor de circuito de la base de datos. Con el circuito abierto
+     * los formularios fallan de inmediato y la conexión se vuelve a probar sola en segundo plano.
+     */
+    private void showConnectionState(CircuitBreaker.State state) {
+        switch (state) {
+            case CLOSED -> connectionStatus.setText("");
+            case OPEN -> connectionStatus.setText("Sin conexión a la base de datos. Reintentando...");
+            case HALF_OPEN -> connectionStatus.setText("Reconectando con la base de datos...");
+        }
     }
 }
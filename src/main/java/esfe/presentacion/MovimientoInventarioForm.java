@@ -4,16 +4,13 @@ import esfe.dominio.MovimientoInventario;
 import esfe.persistencia.MovimientoInventarioDAO;
 import esfe.persistencia.ComputadoraDAO;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader; // Para estilizar el encabezado de la tabla
 import javax.swing.border.EmptyBorder; // Para padding
 import javax.swing.border.TitledBorder; // Para título del borde
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.sql.SQLException;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 
@@ -29,7 +26,12 @@ public class MovimientoInventarioForm extends JDialog {
     private ComputadoraDAO computadoraDAO;
     private MainForm mainForm;
 
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    // Modelo de la tabla: se crea una sola vez y carga las filas por páginas
+    private final MovimientoInventarioTableModel tableModel = new MovimientoInventarioTableModel();
+    // Acceso a datos fuera del EDT: la búsqueda o recarga más reciente reemplaza a la anterior
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+    // Búsqueda incremental sobre txtName
+    private final SearchController<MovimientoInventario> searchController;
 
     public MovimientoInventarioForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -104,6 +106,12 @@ public class MovimientoInventarioForm extends JDialog {
         tableMoviminentoInventario.setGridColor(new Color(230, 230, 230)); // Color de las líneas de la cuadrícula
         tableMoviminentoInventario.setSelectionBackground(new Color(173, 216, 230)); // Color de selección (azul claro)
         tableMoviminentoInventario.setFillsViewportHeight(true); // Para que la tabla ocupe todo el espacio disponible
+        tableMoviminentoInventario.setModel(tableModel);
+        hideCol(0); // Ocultar la columna "ID"
+        tableModel.setErrorHandler(ex -> {
+            JOptionPane.showMessageDialog(this, "Error al cargar más movimientos: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
 
         // Estilo del encabezado de la tabla
         JTableHeader tableHeader = tableMoviminentoInventario.getTableHeader();
@@ -122,15 +130,19 @@ public class MovimientoInventarioForm extends JDialog {
 
         // --- FIN: MEJORAS DE DISEÑO ---
 
-        // Listener para buscar movimientos
+        // Búsqueda incremental: espera una pausa al escribir, cancela la consulta anterior
+        // y filtra en memoria cuando el texto nuevo contiene al anterior
+        searchController = new SearchController<>(dataLoader, movimientoInventarioDAO::search,
+                (m, q) -> SearchController.containsIgnoreCase(m.getDescripcion(), q),
+                this::createTable, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al buscar movimientos: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
+        searchController.setOnEmptyQuery(this::refreshTable);
         txtName.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                if (!txtName.getText().trim().isEmpty()) {
-                    search(txtName.getText());
-                } else {
-                    refreshTable();
-                }
+                searchController.queryChanged(txtName.getText());
             }
         });
 
@@ -143,75 +155,36 @@ public class MovimientoInventarioForm extends JDialog {
         });
 
         // ActionListener para actualizar un movimiento
-        btnUpdate.addActionListener(s -> {
-            MovimientoInventario movimiento = getSelectedMovimiento();
-            if (movimiento != null) {
-                MovimientoInventarioWriteForm writeForm = new MovimientoInventarioWriteForm(this.mainForm, movimiento);
-                writeForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnUpdate.addActionListener(s -> loadSelectedMovimiento(movimiento -> {
+            MovimientoInventarioWriteForm writeForm = new MovimientoInventarioWriteForm(this.mainForm, movimiento);
+            writeForm.setVisible(true);
+            refreshTable();
+        }));
 
         // ActionListener para eliminar un movimiento
-        btnDelete.addActionListener(s -> {
-            MovimientoInventario movimiento = getSelectedMovimiento();
-            if (movimiento != null) {
-                int confirm = JOptionPane.showConfirmDialog(this, "¿Estás seguro de que deseas eliminar este movimiento de inventario?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
-                if (confirm == JOptionPane.YES_OPTION) {
-                    try {
-                        boolean deleted = movimientoInventarioDAO.delete(movimiento.getMovimientoID());
-                        if (deleted) {
-                            JOptionPane.showMessageDialog(this, "Movimiento eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                            refreshTable();
-                        } else {
-                            JOptionPane.showMessageDialog(this, "No se pudo eliminar el movimiento.", "Error", JOptionPane.ERROR_MESSAGE);
-                        }
-                    } catch (SQLException ex) {
-                        JOptionPane.showMessageDialog(this, "Error al eliminar el movimiento: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-                        ex.printStackTrace();
+        btnDelete.addActionListener(s -> loadSelectedMovimiento(movimiento -> {
+            int confirm = JOptionPane.showConfirmDialog(this, "¿Estás seguro de que deseas eliminar este movimiento de inventario?", "Confirmar Eliminación", JOptionPane.YES_NO_OPTION);
+            if (confirm == JOptionPane.YES_OPTION) {
+                dataLoader.execute(() -> movimientoInventarioDAO.delete(movimiento.getMovimientoID()), deleted -> {
+                    if (deleted) {
+                        JOptionPane.showMessageDialog(this, "Movimiento eliminado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        refreshTable();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo eliminar el movimiento.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                }
+                }, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al eliminar el movimiento: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace();
+                });
             }
-        });
+        }));
 
         refreshTable();
     }
 
-    private void search(String query) {
-        try {
-            List<MovimientoInventario> movimientos = movimientoInventarioDAO.search(query);
-            createTable(movimientos);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error al buscar movimientos: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
-        }
-    }
-
     public void createTable(List<MovimientoInventario> movimientos) {
-        String[] columnNames = {"ID", "ID Computadora", "Tipo Movimiento", "Cantidad", "Fecha Movimiento", "Descripción"};
-
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-
-        this.tableMoviminentoInventario.setModel(model);
-
-        for (MovimientoInventario movimiento : movimientos) {
-            Object[] rowData = new Object[]{
-                    movimiento.getMovimientoID(),
-                    movimiento.getComputadoraID(),
-                    movimiento.getStrTipoMovimiento(),
-                    movimiento.getCantidad(),
-                    movimiento.getFechaMovimiento() != null ? movimiento.getFechaMovimiento().format(DATE_TIME_FORMATTER) : "N/A",
-                    movimiento.getDescripcion()
-            };
-            model.addRow(rowData);
-        }
-
-        hideCol(0); // Ocultar la columna "ID"
+        // Un solo evento de cambio; las celdas se formatean al dibujarse
+        tableModel.setRows(movimientos);
     }
 
     private void hideCol(int columnIndex) {
@@ -221,33 +194,36 @@ public class MovimientoInventarioForm extends JDialog {
         this.tableMoviminentoInventario.getTableHeader().getColumnModel().getColumn(columnIndex).setMinWidth(0);
     }
 
-    private MovimientoInventario getSelectedMovimiento() {
+    /**
+     * Lee de la base de datos el movimiento seleccionado en la tabla y lo entrega, en el EDT, a la acción indicada.
+     */
+    private void loadSelectedMovimiento(Consumer<MovimientoInventario> action) {
         int row = tableMoviminentoInventario.getSelectedRow();
-        if (row != -1) {
-            try {
-                int id = (int) tableMoviminentoInventario.getModel().getValueAt(row, 0);
-                return movimientoInventarioDAO.getById(id);
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, "Error al obtener los detalles del movimiento seleccionado: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                ex.printStackTrace();
-                return null;
-            }
+        if (row == -1) {
+            JOptionPane.showMessageDialog(this, "Por favor, seleccione un movimiento de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
         }
-        JOptionPane.showMessageDialog(this, "Por favor, seleccione un movimiento de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
-        return null;
+        int id = (int) tableMoviminentoInventario.getModel().getValueAt(row, 0);
+        dataLoader.execute(() -> movimientoInventarioDAO.getById(id), movimiento -> {
+            if (movimiento != null) {
+                action.accept(movimiento);
+            }
+        }, ex -> {
+            JOptionPane.showMessageDialog(this, "Error al obtener los detalles del movimiento seleccionado: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            ex.printStackTrace();
+        });
     }
 
     private void refreshTable() {
         if (!txtName.getText().trim().isEmpty()) {
-            search(txtName.getText());
+            searchController.searchNow(txtName.getText());
         } else {
-            try {
-                List<MovimientoInventario> allMovimientos = movimientoInventarioDAO.getAllMovimientoInventario();
-                createTable(allMovimientos);
-            } catch (SQLException ex) {
+            // Solo se lee la primera página; el resto se carga al desplazarse por la tabla
+            LazyTableModel.PageLoader<MovimientoInventario> pages = movimientoInventarioDAO::getMovimientosPage;
+            dataLoader.submit(() -> pages.load(null, tableModel.getPageSize()), first -> tableModel.setFirstPage(pages, first), ex -> {
                 JOptionPane.showMessageDialog(this, "Error al cargar todos los movimientos: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
-            }
+            });
         }
     }
 }
@@ -0,0 +1,33 @@
+package esfe.presentacion;
+
+import esfe.dominio.MovimientoInventario;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Modelo de la tabla de MovimientoInventarioForm. Carga el historial por páginas,
+ * del movimiento más reciente al más antiguo, y formatea la fecha solo al dibujar cada celda.
+ */
+public class MovimientoInventarioTableModel extends LazyTableModel<MovimientoInventario> {
+    private static final String[] COLUMN_NAMES = {"ID", "ID Computadora", "Tipo Movimiento", "Cantidad", "Fecha Movimiento", "Descripción"};
+    private static final int PAGE_SIZE = 200;
+
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    public MovimientoInventarioTableModel() {
+        super(COLUMN_NAMES, PAGE_SIZE);
+    }
+
+    @Override
+    protected Object getColumnValue(MovimientoInventario movimiento, int columnIndex) {
+        switch (columnIndex) {
+            case 0: return movimiento.getMovimientoID();
+            case 1: return movimiento.getComputadoraID();
+            case 2: return movimiento.getStrTipoMovimiento();
+            case 3: return movimiento.getCantidad();
+            case 4: return movimiento.getFechaMovimiento() != null ? movimiento.getFechaMovimiento().format(DATE_TIME_FORMATTER) : "N/A";
+            case 5: return movimiento.getDescripcion();
+            default: return null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import esfe.dominio.MovimientoInventario;
 import esfe.dominio.Computadora;
 import esfe.persistencia.MovimientoInventarioDAO;
 import esfe.persistencia.ComputadoraDAO;
+import esfe.persistencia.InventarioService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder; // Importar para padding
@@ -27,8 +28,12 @@ public class MovimientoInventarioWriteForm extends JDialog {
 
     private final MovimientoInventarioDAO movimientoInventarioDAO;
     private final ComputadoraDAO computadoraDAO;
+    // Registra el movimiento y actualiza el estado de la computadora en una sola transacción
+    private final InventarioService inventarioService;
     private final MovimientoInventario movimientoActual;
     private final MainForm mainForm;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
 
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
@@ -38,6 +43,7 @@ public class MovimientoInventarioWriteForm extends JDialog {
 
         movimientoInventarioDAO = new MovimientoInventarioDAO();
         computadoraDAO = new ComputadoraDAO();
+        inventarioService = new InventarioService();
 
         setContentPane(mainPanel);
         setModal(true);
@@ -103,22 +109,42 @@ public class MovimientoInventarioWriteForm extends JDialog {
     }
 
     private void populateComboBoxes() {
-        try {
-            List<Computadora> computadoras = computadoraDAO.getAllComputadoras();
+        cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_ENTRADA));
+        cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_SALIDA));
+        cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_MANTENIMIENTO));
+
+        // Las computadoras se leen en segundo plano; no se permite guardar hasta tenerlas
+        btnOk.setEnabled(false);
+        dataLoader.submit(computadoraDAO::getAllComputadoras, computadoras -> {
             if (computadoras.isEmpty()) {
                 JOptionPane.showMessageDialog(this, "No hay computadoras registradas. Por favor, registre una computadora primero para poder crear movimientos.", "Advertencia", JOptionPane.WARNING_MESSAGE);
-                btnOk.setEnabled(false);
+                return;
             }
             for (Computadora comp : computadoras) {
                 cbComputadora.addItem(comp);
             }
-
-            cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_ENTRADA));
-            cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_SALIDA));
-            cbTipoMovimiento.addItem(movimientoActual.getStrTipoMovimiento(MovimientoInventario.TIPO_MANTENIMIENTO));
-        } catch (SQLException ex) {
+            selectComputadora();
+            btnOk.setEnabled(true);
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error al cargar datos para los ComboBoxes: " + ex.getMessage(), "Error de Carga", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
+        });
+    }
+
+    /**
+     * Selecciona en el combo la computadora del movimiento; se llama cuando termina de cargarse.
+     */
+    private void selectComputadora() {
+        if (movimientoActual.getMovimientoID() > 0) {
+            for (int i = 0; i < cbComputadora.getItemCount(); i++) {
+                Computadora comp = cbComputadora.getItemAt(i);
+                if (comp != null && comp.getComputadoraID() == movimientoActual.getComputadoraID()) {
+                    cbComputadora.setSelectedItem(comp);
+                    break;
+                }
+            }
+        } else if (cbComputadora.getItemCount() > 0) {
+            cbComputadora.setSelectedIndex(0);
         }
     }
 
@@ -134,14 +160,6 @@ public class MovimientoInventarioWriteForm extends JDialog {
                 lblFechaMovimiento.setText("N/A");
             }
 
-            for (int i = 0; i < cbComputadora.getItemCount(); i++) {
-                Computadora comp = cbComputadora.getItemAt(i);
-                if (comp != null && comp.getComputadoraID() == movimientoActual.getComputadoraID()) {
-                    cbComputadora.setSelectedItem(comp);
-                    break;
-                }
-            }
-
             cbTipoMovimiento.setSelectedItem(movimientoActual.getStrTipoMovimiento());
 
         } else {
@@ -150,7 +168,6 @@ public class MovimientoInventarioWriteForm extends JDialog {
             txtDescripcion.setText("");
             lblFechaMovimiento.setText("Se generará automáticamente al guardar");
 
-            if (cbComputadora.getItemCount() > 0) cbComputadora.setSelectedIndex(0);
             if (cbTipoMovimiento.getItemCount() > 0) cbTipoMovimiento.setSelectedIndex(0);
         }
     }
@@ -192,33 +209,63 @@ public class MovimientoInventarioWriteForm extends JDialog {
             }
             movimientoActual.setDescripcion(txtDescripcion.getText().trim());
 
-            if (movimientoActual.getMovimientoID() == 0) {
-                MovimientoInventario created = movimientoInventarioDAO.create(movimientoActual);
-                if (created != null) {
-                    JOptionPane.showMessageDialog(this, "Movimiento de inventario registrado exitosamente con ID: " + created.getMovimientoID(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+            // Se bloquea el botón mientras la escritura está en curso para evitar dobles envíos
+            btnOk.setEnabled(false);
+            if (movimientoActual.getMovimientoID() == 0 && inventarioService.isOfflineEnabled()
+                    && movimientoActual.getTipoMovimiento() != MovimientoInventario.TIPO_SALIDA) {
+                // Escritura diferida o sin conexión: el movimiento puede quedar en el diario local y
+                // confirmarse en segundo plano; si falla al confirmarse se avisa en la ventana principal
+                dataLoader.execute(() -> inventarioService.registrarMovimientoDiferido(movimientoActual), pendiente -> {
+                    btnOk.setEnabled(true);
+                    if (pendiente.isDone() && !pendiente.isCompletedExceptionally()) {
+                        JOptionPane.showMessageDialog(this, "Movimiento de inventario registrado exitosamente con ID: " + pendiente.join().getMovimientoID(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                    } else if (!inventarioService.isWriteBehind()) {
+                        JOptionPane.showMessageDialog(this, "Sin conexión: el movimiento se guardó localmente y se registrará al volver la conexión.", "Sin conexión", JOptionPane.WARNING_MESSAGE);
+                    }
+                    pendiente.whenComplete((created, error) -> {
+                        if (error != null) {
+                            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainForm,
+                                    "No se pudo registrar el movimiento de inventario (" + movimientoActual.getDescripcion() + "): "
+                                            + (error.getCause() != null ? error.getCause() : error).getMessage(),
+                                    "Error de Base de Datos", JOptionPane.ERROR_MESSAGE));
+                        }
+                    });
                     this.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(this, "No se pudo registrar el movimiento de inventario.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                }, this::showSaveError);
+            } else if (movimientoActual.getMovimientoID() == 0) {
+                dataLoader.execute(() -> inventarioService.registrarMovimiento(movimientoActual), created -> {
+                    btnOk.setEnabled(true);
+                    if (created != null) {
+                        JOptionPane.showMessageDialog(this, "Movimiento de inventario registrado exitosamente con ID: " + created.getMovimientoID(), "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        this.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo registrar el movimiento de inventario.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, this::showSaveError);
             } else {
-                boolean updated = movimientoInventarioDAO.update(movimientoActual);
-                if (updated) {
-                    JOptionPane.showMessageDialog(this, "Movimiento de inventario actualizado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
-                    this.dispose();
-                } else {
-                    JOptionPane.showMessageDialog(this, "No se pudo actualizar el movimiento de inventario.", "Error", JOptionPane.ERROR_MESSAGE);
-                }
+                dataLoader.execute(() -> movimientoInventarioDAO.update(movimientoActual), updated -> {
+                    btnOk.setEnabled(true);
+                    if (updated) {
+                        JOptionPane.showMessageDialog(this, "Movimiento de inventario actualizado exitosamente.", "Éxito", JOptionPane.INFORMATION_MESSAGE);
+                        this.dispose();
+                    } else {
+                        JOptionPane.showMessageDialog(this, "No se pudo actualizar el movimiento de inventario.", "Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                }, this::showSaveError);
             }
 
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Error de formato en la Cantidad. Asegúrate de que sea un número entero válido.", "Error de Entrada", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error de base de datos al guardar el movimiento: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, "Ocurrió un error inesperado al guardar el movimiento: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
         }
     }
-}
\ No newline at end of file
+
+    private void showSaveError(SQLException ex) {
+        btnOk.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Error de base de datos al guardar el movimiento: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace();
+    }
+}
@@ -11,9 +11,8 @@ import javax.swing.border.EmptyBorder; // Para padding
 import javax.swing.border.TitledBorder; // Para título del borde
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.sql.SQLException; // Importar SQLException para un mejor manejo de errores
-import java.util.ArrayList; // Mantener ArrayList si el DAO lo devuelve así
 import java.util.List; // Usar List en la interfaz para flexibilidad
+import java.util.function.Consumer;
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 
@@ -27,6 +26,10 @@ public class ProveedorForm extends JDialog {
 
     private ProveedorDAO proveedorDAO;
     private MainForm mainForm;
+    // Acceso a datos fuera del EDT: la búsqueda o recarga más reciente reemplaza a la anterior
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+    // Búsqueda incremental sobre txtName
+    private final SearchController<Proveedor> searchController;
 
     public ProveedorForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -115,15 +118,19 @@ public class ProveedorForm extends JDialog {
 
         // --- FIN: MEJORAS DE DISEÑO ---
 
-        // Listener para buscar por nombre
+        // Búsqueda incremental: espera una pausa al escribir, cancela la consulta anterior
+        // y filtra en memoria cuando el texto nuevo contiene al anterior
+        searchController = new SearchController<>(dataLoader, proveedorDAO::search,
+                (p, q) -> SearchController.containsIgnoreCase(p.getNombre(), q),
+                this::createTable, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al buscar proveedores: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace(); // Imprimir la traza completa para depuración
+                });
+        searchController.setOnEmptyQuery(this::refreshTable);
         txtName.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                if (!txtName.getText().trim().isEmpty()) {
-                    search(txtName.getText());
-                } else {
-                    refreshTable(); // Refrescar para mostrar todos si el campo está vacío
-                }
+                searchController.queryChanged(txtName.getText());
             }
         });
 
@@ -135,39 +142,23 @@ public class ProveedorForm extends JDialog {
         });
 
         // ActionListener para actualizar un proveedor
-        btnUpdate.addActionListener(s -> {
-            Proveedor proveedor = getProveedorFromTableRow();
-            if (proveedor != null) {
-                ProveedorWriteForm proveedorWriteForm = new ProveedorWriteForm(this.mainForm, CUD.UPDATE, proveedor);
-                proveedorWriteForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnUpdate.addActionListener(s -> loadProveedorFromTableRow(proveedor -> {
+            ProveedorWriteForm proveedorWriteForm = new ProveedorWriteForm(this.mainForm, CUD.UPDATE, proveedor);
+            proveedorWriteForm.setVisible(true);
+            refreshTable();
+        }));
 
         // ActionListener para eliminar un proveedor
-        btnDelete.addActionListener(s -> {
-            Proveedor proveedor = getProveedorFromTableRow();
-            if (proveedor != null) {
-                ProveedorWriteForm proveedorWriteForm = new ProveedorWriteForm(this.mainForm, CUD.DELETE, proveedor);
-                proveedorWriteForm.setVisible(true);
-                refreshTable();
-            }
-        });
+        btnDelete.addActionListener(s -> loadProveedorFromTableRow(proveedor -> {
+            ProveedorWriteForm proveedorWriteForm = new ProveedorWriteForm(this.mainForm, CUD.DELETE, proveedor);
+            proveedorWriteForm.setVisible(true);
+            refreshTable();
+        }));
 
         // Al iniciar el formulario, mostrar todos los proveedores
         refreshTable();
     }
 
-    private void search(String query) {
-        try {
-            List<Proveedor> proveedores = proveedorDAO.search(query); // Cambiado a List<Proveedor>
-            createTable(proveedores);
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
-            JOptionPane.showMessageDialog(this, "Error al buscar proveedores: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(); // Imprimir la traza completa para depuración
-        }
-    }
-
     public void createTable(List<Proveedor> proveedores) { // Cambiado a List<Proveedor>
         DefaultTableModel model = new DefaultTableModel() {
             @Override
@@ -197,40 +188,37 @@ public class ProveedorForm extends JDialog {
         this.tableProveedor.getTableHeader().getColumnModel().getColumn(columnIndex).setMinWidth(0);
     }
 
-    private Proveedor getProveedorFromTableRow() {
-        Proveedor proveedor = null;
-        try {
-            int filaSelect = this.tableProveedor.getSelectedRow();
-            if (filaSelect != -1) {
-                int id = (int) this.tableProveedor.getValueAt(filaSelect, 0);
-                proveedor = proveedorDAO.getById(id);
-                if (proveedor == null) {
-                    JOptionPane.showMessageDialog(this, "No se encontró ningún proveedor para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
-                }
+    /**
+     * Lee de la base de datos el proveedor de la fila seleccionada y lo entrega, en el EDT, a la acción indicada.
+     */
+    private void loadProveedorFromTableRow(Consumer<Proveedor> action) {
+        int filaSelect = this.tableProveedor.getSelectedRow();
+        if (filaSelect == -1) {
+            JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int id = (int) this.tableProveedor.getValueAt(filaSelect, 0);
+        dataLoader.execute(() -> proveedorDAO.getById(id), proveedor -> {
+            if (proveedor == null) {
+                JOptionPane.showMessageDialog(this, "No se encontró ningún proveedor para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
             } else {
-                JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+                action.accept(proveedor);
             }
-            return proveedor;
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error al obtener proveedor de la fila seleccionada: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-            return null;
-        }
+        });
     }
 
     private void refreshTable() {
         // Si el campo de búsqueda tiene texto, realiza una búsqueda, de lo contrario, muestra todos los proveedores
         if (!txtName.getText().trim().isEmpty()) {
-            search(txtName.getText());
+            searchController.searchNow(txtName.getText());
         } else {
-            try {
-                // Asumo que tienes este método en ProveedorDAO, si no, deberás agregarlo.
-                List<Proveedor> allProveedores = proveedorDAO.getAllProveedores();
-                createTable(allProveedores);
-            } catch (SQLException ex) {
+            dataLoader.submit(proveedorDAO::getAllProveedores, this::createTable, ex -> {
                 JOptionPane.showMessageDialog(this, "Error al cargar todos los proveedores: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
-            }
+            });
         }
     }
 }
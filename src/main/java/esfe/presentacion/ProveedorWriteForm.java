@@ -25,6 +25,8 @@ public class ProveedorWriteForm extends JDialog {
     private ProveedorDAO proveedorDAO;
     private MainForm mainForm;
     private CUD cud;
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
     private Proveedor proveedor;
 
     public ProveedorWriteForm(MainForm mainForm, CUD cud, Proveedor proveedor) {
@@ -159,61 +161,65 @@ public class ProveedorWriteForm extends JDialog {
     }
 
     private void ok() {
-        try {
-            String nombre = txtName.getText().trim();
-            String telefono = txtTelefono.getText().trim();
-            String email = txtEmail.getText().trim();
-            String direccion = txtDireccion.getText().trim();
-
-            // Validación de campos obligatorios solo para CREATE y UPDATE
-            if (this.cud != CUD.DELETE && (nombre.isEmpty() || telefono.isEmpty() || email.isEmpty() || direccion.isEmpty())) {
-                JOptionPane.showMessageDialog(this, "Todos los campos son obligatorios", "Validación", JOptionPane.WARNING_MESSAGE);
-                return;
-            }
+        String nombre = txtName.getText().trim();
+        String telefono = txtTelefono.getText().trim();
+        String email = txtEmail.getText().trim();
+        String direccion = txtDireccion.getText().trim();
+
+        // Validación de campos obligatorios solo para CREATE y UPDATE
+        if (this.cud != CUD.DELETE && (nombre.isEmpty() || telefono.isEmpty() || email.isEmpty() || direccion.isEmpty())) {
+            JOptionPane.showMessageDialog(this, "Todos los campos son obligatorios", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
 
-            switch (this.cud) {
-                case CREATE:
-                    Proveedor nuevoProveedor = new Proveedor();
-                    nuevoProveedor.setNombre(nombre);
-                    nuevoProveedor.setTelefono(telefono);
-                    nuevoProveedor.setEmail(email);
-                    nuevoProveedor.setDireccion(direccion);
-                    Proveedor created = proveedorDAO.create(nuevoProveedor);
+        // Se bloquea el botón mientras la operación está en curso para evitar dobles envíos
+        btnOk.setEnabled(false);
+        switch (this.cud) {
+            case CREATE:
+                Proveedor nuevoProveedor = new Proveedor();
+                nuevoProveedor.setNombre(nombre);
+                nuevoProveedor.setTelefono(telefono);
+                nuevoProveedor.setEmail(email);
+                nuevoProveedor.setDireccion(direccion);
+                dataLoader.execute(() -> proveedorDAO.create(nuevoProveedor), created -> {
                     if (created != null) {
                         JOptionPane.showMessageDialog(this, "Proveedor creado exitosamente con ID: " + created.getProveedorID(), "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo crear el proveedor.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-                case UPDATE:
-                    proveedor.setNombre(nombre);
-                    proveedor.setTelefono(telefono);
-                    proveedor.setEmail(email);
-                    proveedor.setDireccion(direccion);
-                    boolean updated = proveedorDAO.update(proveedor);
+                    this.dispose(); // Cerrar el formulario después de la operación
+                }, this::showError);
+                break;
+            case UPDATE:
+                proveedor.setNombre(nombre);
+                proveedor.setTelefono(telefono);
+                proveedor.setEmail(email);
+                proveedor.setDireccion(direccion);
+                dataLoader.execute(() -> proveedorDAO.update(proveedor), updated -> {
                     if (updated) {
                         JOptionPane.showMessageDialog(this, "Proveedor actualizado exitosamente", "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo actualizar el proveedor.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-                case DELETE:
-                    boolean deleted = proveedorDAO.delete(proveedor.getProveedorID());
+                    this.dispose();
+                }, this::showError);
+                break;
+            case DELETE:
+                dataLoader.execute(() -> proveedorDAO.delete(proveedor.getProveedorID()), deleted -> {
                     if (deleted) {
                         JOptionPane.showMessageDialog(this, "Proveedor eliminado exitosamente", "Información", JOptionPane.INFORMATION_MESSAGE);
                     } else {
                         JOptionPane.showMessageDialog(this, "No se pudo eliminar el proveedor.", "Error", JOptionPane.ERROR_MESSAGE);
                     }
-                    break;
-            }
-
-            this.dispose(); // Cerrar el formulario después de la operación
-        } catch (SQLException ex) { // Capturar SQLException para errores de DB
-            JOptionPane.showMessageDialog(this, "Error de base de datos: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
-        } catch (Exception ex) { // Capturar cualquier otra excepción
-            JOptionPane.showMessageDialog(this, "Ocurrió un error inesperado: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
+                    this.dispose();
+                }, this::showError);
+                break;
         }
     }
+
+    private void showError(SQLException ex) { // Errores de DB de la operación en segundo plano
+        btnOk.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Error de base de datos: " + ex.getMessage(), "ERROR", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace(System.err); // Imprimir la traza completa a System.err
+    }
 }
@@ -0,0 +1,176 @@
+package esfe.presentacion;
+
+import esfe.persistencia.QueryCancellation;
+
+import javax.swing.Timer;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+/**
+ * Búsqueda incremental para los campos de búsqueda de los formularios de listado.
+ * <ul>
+ *     <li>Espera a que el usuario haga una pausa al escribir (debounce) antes de consultar.</li>
+ *     <li>Cancela con Statement.cancel() la consulta anterior si sigue en curso.</li>
+ *     <li>Si el nuevo texto contiene al anterior, filtra en memoria los resultados ya
+ *     obtenidos en lugar de volver a consultar: cualquier fila que coincide con el texto
+ *     más largo también coincidía con el más corto.</li>
+ * </ul>
+ * Así, escribir cuesta como máximo una consulta a la base de datos por pausa.
+ * Los métodos de esta clase deben llamarse desde el EDT.
+ *
+ * @param <T> Tipo de las entidades buscadas.
+ */
+public class SearchController<T> {
+    public static final int DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    /**
+     * Búsqueda en la base de datos, normalmente el método search(String, QueryCancellation) de un DAO.
+     */
+    @FunctionalInterface
+    public interface SearchFunction<T> {
+        List<T> search(String query, QueryCancellation cancellation) throws SQLException;
+    }
+
+    private final BackgroundLoader loader;
+    private final SearchFunction<T> searchFunction;
+    private final BiPredicate<T, String> matcher;
+    private final Consumer<List<T>> onResults;
+    private final Consumer<SQLException> onError;
+    private final Timer debounceTimer;
+    private Runnable onEmptyQuery = () -> { };
+    private int resultLimit;
+
+    private String pendingQuery = "";
+    private QueryCancellation inFlight;
+    // Última búsqueda resuelta en la base de datos y sus resultados completos
+    private String lastQuery;
+    private List<T> lastResults;
+
+    /**
+     * @param loader Ejecutor del formulario; la búsqueda reemplaza cualquier lectura pendiente enviada con él.
+     * @param searchFunction Búsqueda en la base de datos.
+     * @param matcher Indica si una entidad coincide con un texto (ya en minúsculas); debe seguir el mismo criterio que la consulta.
+     *                Puede ser null si la búsqueda ya es rápida o usa campos que la entidad no tiene: cada texto se vuelve a buscar.
+     * @param onResults Recibe los resultados en el EDT.
+     * @param onError Recibe los errores de la consulta en el EDT (no se informan las consultas canceladas).
+     */
+    public SearchController(BackgroundLoader loader, SearchFunction<T> searchFunction, BiPredicate<T, String> matcher,
+                            Consumer<List<T>> onResults, Consumer<SQLException> onError) {
+        this.loader = loader;
+        this.searchFunction = searchFunction;
+        this.matcher = matcher;
+        this.onResults = onResults;
+        this.onError = onError;
+        this.debounceTimer = new Timer(DEFAULT_DEBOUNCE_MILLIS, e -> run(pendingQuery));
+        this.debounceTimer.setRepeats(false);
+    }
+
+    /**
+     * Define la espera, en milisegundos, desde la última pulsación hasta lanzar la búsqueda.
+     */
+    public void setDebounceMillis(int debounceMillis) {
+        debounceTimer.setInitialDelay(debounceMillis);
+    }
+
+    /**
+     * Acción a ejecutar cuando el texto queda vacío (normalmente, mostrar todos los registros).
+     */
+    public void setOnEmptyQuery(Runnable onEmptyQuery) {
+        this.onEmptyQuery = onEmptyQuery;
+    }
+
+    /**
+     * Indica el número máximo de resultados que devuelve la búsqueda, o 0 si no tiene límite.
+     * Un resultado que llega al límite puede estar incompleto, así que no se filtra en memoria:
+     * el siguiente texto vuelve a consultar.
+     */
+    public void setResultLimit(int resultLimit) {
+        this.resultLimit = resultLimit;
+    }
+
+    /**
+     * Notifica un cambio en el texto de búsqueda; la búsqueda se lanza tras la pausa configurada.
+     */
+    public void queryChanged(String text) {
+        pendingQuery = text;
+        debounceTimer.restart();
+    }
+
+    /**
+     * Busca de inmediato en la base de datos, sin usar los resultados anteriores
+     * (por ejemplo, después de crear, modificar o eliminar registros).
+     */
+    public void searchNow(String text) {
+        debounceTimer.stop();
+        invalidate();
+        run(text);
+    }
+
+    /**
+     * Olvida los resultados guardados para que la próxima búsqueda vaya a la base de datos.
+     */
+    public void invalidate() {
+        lastQuery = null;
+        lastResults = null;
+    }
+
+    private void run(String text) {
+        String query = text.trim();
+        cancelInFlight();
+        if (query.isEmpty()) {
+            invalidate();
+            onEmptyQuery.run();
+            return;
+        }
+
+        String normalized = query.toLowerCase(Locale.ROOT);
+        if (matcher != null && lastQuery != null && normalized.contains(lastQuery)) {
+            // Refinamiento: el nuevo texto contiene al anterior, basta filtrar lo que ya se tiene
+            loader.cancel();
+            List<T> refined = new ArrayList<>();
+            for (T item : lastResults) {
+                if (matcher.test(item, normalized)) {
+                    refined.add(item);
+                }
+            }
+            onResults.accept(refined);
+            return;
+        }
+
+        QueryCancellation cancellation = new QueryCancellation();
+        inFlight = cancellation;
+        loader.submit(() -> searchFunction.search(query, cancellation), results -> {
+            inFlight = null;
+            boolean complete = resultLimit <= 0 || results.size() < resultLimit;
+            lastQuery = complete ? normalized : null;
+            lastResults = complete ? results : null;
+            onResults.accept(results);
+        }, ex -> {
+            inFlight = null;
+            if (!cancellation.isCancelled()) {
+                onError.accept(ex);
+            }
+        });
+    }
+
+    private void cancelInFlight() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    /**
+     * Comparación sin distinguir mayúsculas, como la intercalación por defecto de SQL Server.
+     *
+     * @param value Valor del campo (puede ser null).
+     * @param normalizedQuery Texto buscado, ya en minúsculas.
+     */
+    public static boolean containsIgnoreCase(String value, String normalizedQuery) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(normalizedQuery);
+    }
+}
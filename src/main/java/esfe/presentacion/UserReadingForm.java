@@ -9,9 +9,8 @@ import esfe.utils.CUD;
 
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
-import java.sql.SQLException; // Importar SQLException para un mejor manejo de errores
-import java.util.ArrayList; // Mantener ArrayList si el DAO lo devuelve así
 import java.util.List; // Usar List en la interfaz para flexibilidad
+import java.util.function.Consumer;
 import java.awt.Font; // Para cambiar la fuente
 import java.awt.Color; // Para cambiar colores
 import javax.swing.border.EmptyBorder; // Para padding
@@ -28,6 +27,10 @@ public class UserReadingForm extends JDialog {
 
     private UserDAO userDAO;
     private MainForm mainForm;
+    // Acceso a datos fuera del EDT: la búsqueda o recarga más reciente reemplaza a la anterior
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
+    // Búsqueda incremental sobre txtName
+    private final SearchController<User> searchController;
 
     public UserReadingForm(MainForm mainForm) {
         this.mainForm = mainForm;
@@ -114,15 +117,19 @@ public class UserReadingForm extends JDialog {
 
         // --- FIN: MEJORAS DE DISEÑO ---
 
-        // Agrega un listener de teclado al campo de texto txtName.
+        // Búsqueda incremental: espera una pausa al escribir, cancela la consulta anterior
+        // y filtra en memoria cuando el texto nuevo contiene al anterior
+        searchController = new SearchController<>(dataLoader, userDAO::search,
+                (u, q) -> SearchController.containsIgnoreCase(u.getName(), q),
+                this::createTable, ex -> {
+                    JOptionPane.showMessageDialog(this, "Error al buscar usuarios: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
+                    ex.printStackTrace(); // Imprimir la traza completa para depuración
+                });
+        searchController.setOnEmptyQuery(this::refreshTable);
         txtName.addKeyListener(new KeyAdapter() {
             @Override
             public void keyReleased(KeyEvent e) {
-                if (!txtName.getText().trim().isEmpty()) {
-                    search(txtName.getText());
-                } else {
-                    refreshTable(); // Refrescar la tabla para mostrar todos los usuarios
-                }
+                searchController.queryChanged(txtName.getText());
             }
         });
 
@@ -134,40 +141,23 @@ public class UserReadingForm extends JDialog {
         });
 
         // Agrega un ActionListener al botón btnUpdate.
-        btnUpdate.addActionListener(s -> {
-            User user = getUserFromTableRow();
-            if (user != null) {
-                UserWriteForm userWriteForm = new UserWriteForm(this.mainForm, CUD.UPDATE, user);
-                userWriteForm.setVisible(true);
-                refreshTable(); // Refrescar la tabla después de la operación
-            }
-        });
+        btnUpdate.addActionListener(s -> loadUserFromTableRow(user -> {
+            UserWriteForm userWriteForm = new UserWriteForm(this.mainForm, CUD.UPDATE, user);
+            userWriteForm.setVisible(true);
+            refreshTable(); // Refrescar la tabla después de la operación
+        }));
 
         // Agrega un ActionListener al botón btnDelete.
-        btnDelete.addActionListener(s -> {
-            User user = getUserFromTableRow();
-            if (user != null) {
-                UserWriteForm userWriteForm = new UserWriteForm(this.mainForm, CUD.DELETE, user);
-                userWriteForm.setVisible(true);
-                refreshTable(); // Refrescar la tabla después de la operación
-            }
-        });
+        btnDelete.addActionListener(s -> loadUserFromTableRow(user -> {
+            UserWriteForm userWriteForm = new UserWriteForm(this.mainForm, CUD.DELETE, user);
+            userWriteForm.setVisible(true);
+            refreshTable(); // Refrescar la tabla después de la operación
+        }));
 
         // Al iniciar el formulario, mostrar todos los usuarios
         refreshTable();
     }
 
-    private void search(String query) {
-        try {
-            // Asegúrate de que UserDAO.search devuelva List<User> o ArrayList<User>
-            List<User> users = userDAO.search(query);
-            createTable(users);
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
-            JOptionPane.showMessageDialog(this, "Error al buscar usuarios: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(); // Imprimir la traza completa para depuración
-        }
-    }
-
     public void createTable(List<User> users) { // Cambiado a List<User>
         String[] columnNames = {"Id", "Nombre", "Email", "Estatus"};
 
@@ -200,27 +190,27 @@ public class UserReadingForm extends JDialog {
         this.tableUsers.getTableHeader().getColumnModel().getColumn(columnIndex).setMinWidth(0);
     }
 
-    private User getUserFromTableRow() {
-        User user = null;
-        try {
-            int filaSelect = this.tableUsers.getSelectedRow();
-            if (filaSelect != -1) {
-                int id = (int) this.tableUsers.getModel().getValueAt(filaSelect, 0);
-                user = userDAO.getById(id);
-                // La condición user.getId() == 0 no es robusta para saber si se encontró un usuario.
-                // Es mejor verificar si el objeto 'user' devuelto por getById es null.
-                if (user == null) {
-                    JOptionPane.showMessageDialog(this, "No se encontró ningún usuario para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
-                }
+    /**
+     * Lee de la base de datos el usuario de la fila seleccionada y lo entrega, en el EDT, a la acción indicada.
+     */
+    private void loadUserFromTableRow(Consumer<User> action) {
+        int filaSelect = this.tableUsers.getSelectedRow();
+        if (filaSelect == -1) {
+            JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        int id = (int) this.tableUsers.getModel().getValueAt(filaSelect, 0);
+        dataLoader.execute(() -> userDAO.getById(id), user -> {
+            // Es mejor verificar si el objeto 'user' devuelto por getById es null.
+            if (user == null) {
+                JOptionPane.showMessageDialog(this, "No se encontró ningún usuario para el ID seleccionado.", "Validación", JOptionPane.WARNING_MESSAGE);
             } else {
-                JOptionPane.showMessageDialog(this, "Por favor, seleccione una fila de la tabla.", "Validación", JOptionPane.WARNING_MESSAGE);
+                action.accept(user);
             }
-            return user;
-        } catch (SQLException ex) { // Capturar SQLException para mejor manejo
+        }, ex -> {
             JOptionPane.showMessageDialog(this, "Error al obtener usuario de la fila seleccionada: " + ex.getMessage(), "ERROR de Base de Datos", JOptionPane.ERROR_MESSAGE);
             ex.printStackTrace();
-            return null;
-        }
+        });
     }
 
     /**
@@ -229,16 +219,12 @@ public class UserReadingForm extends JDialog {
      */
     private void refreshTable() {
         if (!txtName.getText().trim().isEmpty()) {
-            search(txtName.getText());
+            searchController.searchNow(txtName.getText());
         } else {
-            try {
-                // Asumo que tu UserDAO tiene un método getAllUsers() que retorna List<User>
-                List<User> allUsers = userDAO.getAllUsers();
-                createTable(allUsers);
-            } catch (SQLException ex) {
+            dataLoader.submit(userDAO::getAllUsers, this::createTable, ex -> {
                 JOptionPane.showMessageDialog(this, "Error al cargar todos los usuarios: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
                 ex.printStackTrace();
-            }
+            });
         }
     }
 }
@@ -29,6 +29,8 @@ public class UserWriteForm extends JDialog {
     private MainForm mainForm;
     private CUD cud;
     private User en; // 'en' es el objeto User que se está creando, actualizando o eliminando
+    // Acceso a datos fuera del EDT
+    private final BackgroundLoader dataLoader = new BackgroundLoader(this);
 
     public UserWriteForm(MainForm mainForm, CUD cud, User user) {
         this.cud = cud;
@@ -237,61 +239,49 @@ public class UserWriteForm extends JDialog {
     }
 
     private void ok() {
-        try {
-            if (!getValuesControls()) { // Si la validación falla, sale
-                return;
-            }
-
-            boolean operationSuccessful = false;
-            String message = "";
-            String title = "Información";
-            int messageType = JOptionPane.INFORMATION_MESSAGE;
+        if (!getValuesControls()) { // Si la validación falla, sale
+            return;
+        }
 
-            switch (this.cud) {
-                case CREATE:
-                    User createdUser = userDAO.create(this.en); // en.passwordHash ya contiene la contraseña sin hashear
+        // Se bloquea el botón mientras la operación está en curso para evitar dobles envíos
+        btnOk.setEnabled(false);
+        switch (this.cud) {
+            case CREATE:
+                // en.passwordHash ya contiene la contraseña sin hashear
+                dataLoader.execute(() -> userDAO.create(this.en), createdUser -> {
                     if (createdUser != null && createdUser.getId() > 0) {
-                        operationSuccessful = true;
-                        message = "Usuario registrado exitosamente con ID: " + createdUser.getId();
+                        showResult(true, "Usuario registrado exitosamente con ID: " + createdUser.getId(), null);
                     } else {
-                        message = "No se pudo registrar el usuario.";
-                        messageType = JOptionPane.ERROR_MESSAGE;
-                        title = "Error";
+                        showResult(false, null, "No se pudo registrar el usuario.");
                     }
-                    break;
-                case UPDATE:
-                    operationSuccessful = userDAO.update(this.en);
-                    if (operationSuccessful) {
-                        message = "Usuario actualizado exitosamente.";
-                    } else {
-                        message = "No se pudo actualizar el usuario.";
-                        messageType = JOptionPane.ERROR_MESSAGE;
-                        title = "Error";
-                    }
-                    break;
-                case DELETE:
-                    operationSuccessful = userDAO.delete(this.en);
-                    if (operationSuccessful) {
-                        message = "Usuario eliminado exitosamente.";
-                    } else {
-                        message = "No se pudo eliminar el usuario.";
-                        messageType = JOptionPane.ERROR_MESSAGE;
-                        title = "Error";
-                    }
-                    break;
-            }
-
-            JOptionPane.showMessageDialog(this, message, title, messageType);
+                }, this::showError);
+                break;
+            case UPDATE:
+                dataLoader.execute(() -> userDAO.update(this.en),
+                        updated -> showResult(updated, "Usuario actualizado exitosamente.", "No se pudo actualizar el usuario."),
+                        this::showError);
+                break;
+            case DELETE:
+                dataLoader.execute(() -> userDAO.delete(this.en),
+                        deleted -> showResult(deleted, "Usuario eliminado exitosamente.", "No se pudo eliminar el usuario."),
+                        this::showError);
+                break;
+        }
+    }
 
-            if (operationSuccessful) {
-                this.dispose(); // Cerrar el formulario solo si la operación fue exitosa
-            }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, "Error de base de datos al guardar el usuario: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(); // Imprimir la traza completa para depuración
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, "Ocurrió un error inesperado al guardar el usuario: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace(); // Imprimir la traza completa para depuración
+    private void showResult(boolean operationSuccessful, String successMessage, String errorMessage) {
+        btnOk.setEnabled(true);
+        if (operationSuccessful) {
+            JOptionPane.showMessageDialog(this, successMessage, "Información", JOptionPane.INFORMATION_MESSAGE);
+            this.dispose(); // Cerrar el formulario solo si la operación fue exitosa
+        } else {
+            JOptionPane.showMessageDialog(this, errorMessage, "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private void showError(SQLException ex) {
+        btnOk.setEnabled(true);
+        JOptionPane.showMessageDialog(this, "Error de base de datos al guardar el usuario: " + ex.getMessage(), "Error de Base de Datos", JOptionPane.ERROR_MESSAGE);
+        ex.printStackTrace(); // Imprimir la traza completa para depuración
+    }
 }
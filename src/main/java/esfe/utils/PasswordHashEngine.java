@@ -0,0 +1,30 @@
+package esfe.utils;
+
+/**
+ * Algoritmo de hash de contraseñas usado por {@link PasswordHasher}.
+ *
+ * Cada implementación produce hashes con un prefijo propio ("$id$...") para que
+ * PasswordHasher sepa qué motor verifica cada hash guardado, aunque se cambie el
+ * algoritmo o su costo con usuarios ya registrados.
+ */
+public interface PasswordHashEngine {
+    /**
+     * Identificador del formato, p. ej. "pbkdf2-sha256". Los hashes que produce empiezan con "$id$".
+     */
+    String id();
+
+    /**
+     * Calcula el hash de la contraseña con una sal nueva.
+     */
+    String hash(String password);
+
+    /**
+     * Comprueba la contraseña contra un hash de este motor, en tiempo constante respecto del contenido.
+     */
+    boolean verify(String password, String stored);
+
+    /**
+     * Indica si el hash se generó con parámetros más débiles que los actuales y conviene recalcularlo.
+     */
+    boolean needsRehash(String stored);
+}
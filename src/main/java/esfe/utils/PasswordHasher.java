@@ -1,35 +1,254 @@
 package esfe.utils;
 
 import java.nio.charset.StandardCharsets; // Clase que define juegos de caracteres estándar, como UTF-8, utilizado para codificar la contraseña antes de hashearla.
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;      // Clase que proporciona funcionalidades para algoritmos de resumen de mensajes criptográficos, como SHA-256, para hashear contraseñas.
 import java.security.NoSuchAlgorithmException; // Clase para manejar excepciones que ocurren cuando un algoritmo criptográfico solicitado no está disponible en el entorno.
-import java.util.Base64;                 // Clase utilitaria para codificar y decodificar datos en formato Base64, aunque en este contexto (hasheo de contraseñas) no se utiliza directamente para el hash en sí, sino que podría usarse para codificar el hash resultante para su almacenamiento.
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;                 // Clase utilitaria para codificar y decodificar datos en formato Base64, usada para guardar la sal y el hash como texto.
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 
+/**
+ * Hash y verificación de contraseñas.
+ *
+ * Las contraseñas nuevas se guardan con PBKDF2-HMAC-SHA256, con sal aleatoria y un número de
+ * iteraciones configurable (propiedad del sistema inventario.password.iterations), en el formato
+ * versionado {@code $pbkdf2-sha256$<iteraciones>$<sal>$<hash>} (sal y hash en Base64).
+ * El prefijo indica qué {@link PasswordHashEngine} verifica cada hash, de modo que se puede
+ * cambiar el algoritmo o subir el costo sin invalidar las contraseñas ya guardadas.
+ *
+ * Los hashes de versiones anteriores (SHA-256 sin sal, en Base64 y sin prefijo) se siguen
+ * aceptando; {@link #needsRehash(String)} indica cuándo conviene reemplazarlos.
+ *
+ * Los objetos Mac y MessageDigest se reutilizan por hilo, para no buscar el proveedor
+ * criptográfico en cada llamada.
+ */
 public class PasswordHasher {
+    /** Propiedad del sistema con el número de iteraciones de PBKDF2. */
+    public static final String ITERATIONS_PROPERTY = "inventario.password.iterations";
+    public static final int DEFAULT_ITERATIONS = 210_000;
+
+    private static final Map<String, PasswordHashEngine> ENGINES = new ConcurrentHashMap<>();
+    private static volatile PasswordHashEngine current;
+    // Hash de referencia para verificar aunque el usuario no exista (ver verifyPassword)
+    private static volatile String dummyHash;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 no está disponible: " + ex.getMessage(), ex);
+        }
+    });
+
+    static {
+        setCurrentEngine(new Pbkdf2Sha256(Integer.getInteger(ITERATIONS_PROPERTY, DEFAULT_ITERATIONS)));
+    }
 
     /**
-     * Hashea una contraseña utilizando el algoritmo SHA-256 y la codifica en Base64.
+     * Hashea una contraseña con el motor actual (PBKDF2-HMAC-SHA256 por defecto) y una sal nueva.
+     * Dos llamadas con la misma contraseña devuelven hashes distintos: para comprobar una
+     * contraseña debe usarse {@link #verifyPassword(String, String)}.
      *
      * @param password La contraseña en texto plano que se va a hashear.
-     * @return Una cadena que representa la contraseña hasheada y codificada en Base64.
-     * Retorna null si el algoritmo SHA-256 no está disponible en el entorno.
+     * @return El hash en el formato versionado del motor.
      */
     public static String hashPassword(String password) {
-        try {
-            // Obtiene una instancia del algoritmo de resumen de mensajes SHA-256.
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return current.hash(password);
+    }
+
+    /**
+     * Comprueba una contraseña contra el hash guardado, en tiempo constante respecto del contenido
+     * del hash. Si no hay hash (p. ej. el usuario no existe), se verifica igualmente contra un hash
+     * de referencia y se devuelve false, para que el tiempo de respuesta no revele si el usuario existe.
+     *
+     * @param password La contraseña en texto plano.
+     * @param stored El hash guardado, o null.
+     * @return true si la contraseña corresponde al hash.
+     */
+    public static boolean verifyPassword(String password, String stored) {
+        if (stored == null) {
+            current.verify(password, dummyHash());
+            return false;
+        }
+        if (!stored.startsWith("$")) {
+            return MessageDigest.isEqual(legacySha256(password), stored.getBytes(StandardCharsets.US_ASCII));
+        }
+        PasswordHashEngine engine = ENGINES.get(engineId(stored));
+        return engine != null && engine.verify(password, stored);
+    }
+
+    /**
+     * Indica si el hash guardado debe recalcularse con el motor actual: hashes SHA-256 antiguos,
+     * de otro motor o con menos iteraciones que las configuradas.
+     */
+    public static boolean needsRehash(String stored) {
+        if (stored == null || !stored.startsWith("$")) {
+            return true;
+        }
+        PasswordHashEngine engine = current;
+        return !engine.id().equals(engineId(stored)) || engine.needsRehash(stored);
+    }
 
-            // Convierte la contraseña a bytes utilizando la codificación UTF-8 y calcula su hash.
-            byte[] hashBytes = digest.digest(password.getBytes(StandardCharsets.UTF_8));
+    /**
+     * Registra un motor para poder verificar sus hashes, sin usarlo para los nuevos.
+     */
+    public static void register(PasswordHashEngine engine) {
+        ENGINES.put(engine.id(), engine);
+    }
 
-            // Codifica el array de bytes del hash resultante a una cadena utilizando la codificación Base64
-            // para que sea fácilmente almacenable y transportable.
-            return Base64.getEncoder().encodeToString(hashBytes);
+    /**
+     * Registra el motor y lo usa para los hashes nuevos.
+     */
+    public static synchronized void setCurrentEngine(PasswordHashEngine engine) {
+        register(engine);
+        current = engine;
+        dummyHash = null;
+    }
 
-        } catch (NoSuchAlgorithmException ex) {
-            // Captura la excepción que ocurre si el algoritmo SHA-256 no está disponible.
-            // En este caso, retorna null para indicar que el hasheo falló.
-            return null;
+    public static PasswordHashEngine getCurrentEngine() {
+        return current;
+    }
+
+    private static String dummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = current.hash("");
+            dummyHash = hash;
+        }
+        return hash;
+    }
+
+    private static String engineId(String stored) {
+        int end = stored.indexOf('$', 1);
+        return end < 0 ? "" : stored.substring(1, end);
+    }
+
+    // Formato anterior: SHA-256 de la contraseña, sin sal, en Base64
+    private static byte[] legacySha256(String password) {
+        byte[] hashBytes = SHA256.get().digest(password.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encode(hashBytes);
+    }
+
+    /**
+     * PBKDF2 con HMAC-SHA256 (RFC 8018) y un hash de 32 bytes, es decir, un solo bloque.
+     * Se implementa sobre un Mac reutilizado por hilo, sin reservar memoria en cada iteración.
+     */
+    public static final class Pbkdf2Sha256 implements PasswordHashEngine {
+        public static final String ID = "pbkdf2-sha256";
+        private static final int SALT_BYTES = 16;
+        private static final int HASH_BYTES = 32;
+        private static final int MAX_ITERATIONS_FACTOR = 10;
+        private static final SecureRandom RANDOM = new SecureRandom();
+        private static final ThreadLocal<Mac> MAC = ThreadLocal.withInitial(() -> {
+            try {
+                return Mac.getInstance("HmacSHA256");
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("HmacSHA256 no está disponible: " + ex.getMessage(), ex);
+            }
+        });
+
+        private final int iterations;
+
+        /**
+         * @param iterations Número de iteraciones (factor de trabajo); cada una cuesta un HMAC-SHA256.
+         */
+        public Pbkdf2Sha256(int iterations) {
+            if (iterations < 1) {
+                throw new IllegalArgumentException("El número de iteraciones debe ser mayor que 0.");
+            }
+            this.iterations = iterations;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * Máximo de iteraciones que se acepta en un hash guardado: {@value #MAX_ITERATIONS_FACTOR}
+         * veces el valor configurado (o el valor por defecto, si es mayor).
+         */
+        public int getMaxIterations() {
+            return (int) Math.min(Integer.MAX_VALUE, (long) MAX_ITERATIONS_FACTOR * Math.max(iterations, DEFAULT_ITERATIONS));
+        }
+
+        @Override
+        public String id() {
+            return ID;
+        }
+
+        @Override
+        public String hash(String password) {
+            byte[] salt = new byte[SALT_BYTES];
+            RANDOM.nextBytes(salt);
+            Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+            return "$" + ID + "$" + iterations + "$" + encoder.encodeToString(salt) + "$"
+                    + encoder.encodeToString(derive(password, salt, iterations));
+        }
+
+        @Override
+        public boolean verify(String password, String stored) {
+            String[] parts = stored.split("\\$");
+            if (parts.length != 5 || !ID.equals(parts[1])) {
+                return false;
+            }
+            try {
+                int storedIterations = Integer.parseInt(parts[2]);
+                // Un hash alterado o dañado con un número enorme de iteraciones ocuparía el hilo por horas
+                if (storedIterations < 1 || storedIterations > getMaxIterations()) {
+                    return false;
+                }
+                byte[] salt = Base64.getDecoder().decode(parts[3]);
+                byte[] expected = Base64.getDecoder().decode(parts[4]);
+                return MessageDigest.isEqual(derive(password, salt, storedIterations), expected);
+            } catch (IllegalArgumentException ex) {
+                return false; // Hash mal formado
+            }
+        }
+
+        @Override
+        public boolean needsRehash(String stored) {
+            String[] parts = stored.split("\\$");
+            try {
+                return parts.length != 5 || Integer.parseInt(parts[2]) < iterations;
+            } catch (NumberFormatException ex) {
+                return true;
+            }
+        }
+
+        static byte[] derive(String password, byte[] salt, int iterations) {
+            byte[] key = password.getBytes(StandardCharsets.UTF_8);
+            if (key.length == 0) {
+                // SecretKeySpec no acepta claves vacías; HMAC completa la clave con ceros, así que es equivalente
+                key = new byte[1];
+            }
+            Mac mac = MAC.get();
+            byte[] u = new byte[HASH_BYTES];
+            byte[] t = new byte[HASH_BYTES];
+            try {
+                mac.init(new SecretKeySpec(key, "HmacSHA256"));
+                // U1 = HMAC(P, S || INT(1)); Ui = HMAC(P, Ui-1); T = U1 ^ U2 ^ ... ^ Uc
+                mac.update(salt);
+                mac.update(new byte[]{0, 0, 0, 1});
+                mac.doFinal(u, 0);
+                System.arraycopy(u, 0, t, 0, HASH_BYTES);
+                for (int i = 1; i < iterations; i++) {
+                    mac.update(u);
+                    mac.doFinal(u, 0);
+                    for (int j = 0; j < HASH_BYTES; j++) {
+                        t[j] ^= u[j];
+                    }
+                }
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Error al calcular PBKDF2: " + ex.getMessage(), ex);
+            } finally {
+                Arrays.fill(key, (byte) 0);
+            }
+            return t;
         }
     }
 }
@@ -0,0 +1,162 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la inserción por lotes de computadoras y movimientos sobre H2 en memoria.
+ */
+class BatchInsertTest {
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+    private int categoriaId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("batchinsert");
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        movimientoInventarioDAO = new MovimientoInventarioDAO(db.getConnectionManager());
+        categoriaId = new CategoriaDAO(db.getConnectionManager()).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    private List<Computadora> envio(int cantidad, String prefijo) {
+        List<Computadora> computadoras = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            computadoras.add(new Computadora(categoriaId, null, "Lenovo", "ThinkPad", prefijo + i, 750.0, null));
+        }
+        return computadoras;
+    }
+
+    @Test
+    @DisplayName("Test: Insertar un envío de 500 computadoras en lotes asigna un ID a cada una")
+    void testCreateAllComputadoras() throws SQLException {
+        List<Computadora> computadoras = envio(500, "SN-");
+
+        BatchResult<Computadora> result = computadoraDAO.createAll(computadoras, 64);
+
+        assertFalse(result.hasFailures());
+        assertEquals(500, result.getCreated().size());
+        assertEquals(500, new HashSet<>(result.getGeneratedIds()).size(), "Cada fila debe tener un ID distinto.");
+        assertEquals(computadoras.get(0).getComputadoraID(), result.getGeneratedIds().get(0));
+        assertEquals(500, computadoraDAO.getAllComputadoras().size());
+        assertEquals("SN-499", computadoraDAO.getById(computadoras.get(499).getComputadoraID()).getNumeroSerie());
+        assertEquals(0, db.getPool().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Test: Un NumeroSerie duplicado se reporta sin abortar el resto del lote")
+    void testCreateAllReportsRowFailures() throws SQLException {
+        computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-3", 900.0, null));
+        List<Computadora> computadoras = envio(10, "SN-");
+
+        BatchResult<Computadora> result = computadoraDAO.createAll(computadoras, 4);
+
+        assertEquals(1, result.getFailures().size());
+        assertEquals(3, result.getFailures().get(0).getIndex());
+        assertNotNull(result.getFailures().get(0).getError());
+        assertEquals(9, result.getCreated().size());
+        assertEquals(10, computadoraDAO.getAllComputadoras().size(), "Las filas válidas deben quedar guardadas.");
+    }
+
+    @Test
+    @DisplayName("Test: Insertar movimientos en lotes")
+    void testCreateAllMovimientos() throws SQLException {
+        Computadora comp = computadoraDAO.create(new Computadora(categoriaId, null, "HP", "ProBook", "SN-MOV", 800.0, null));
+        List<MovimientoInventario> movimientos = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            movimientos.add(new MovimientoInventario(comp.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, "Lote " + i));
+        }
+        // Una computadora inexistente viola la clave foránea
+        movimientos.add(new MovimientoInventario(-1, MovimientoInventario.TIPO_SALIDA, "Inválido"));
+
+        BatchResult<MovimientoInventario> result = movimientoInventarioDAO.createAll(movimientos, 8);
+
+        assertEquals(30, result.getCreated().size());
+        assertEquals(1, result.getFailures().size());
+        assertEquals(30, result.getFailures().get(0).getIndex());
+        assertTrue(movimientos.get(0).getMovimientoID() > 0);
+        assertEquals(30, movimientoInventarioDAO.getAllMovimientoInventario().size());
+    }
+
+    @Test
+    @DisplayName("Test: Los lotes se insertan aunque el driver no permita liberar savepoints")
+    void testCreateAllWithoutReleaseSavepoint() throws SQLException {
+        // Como el driver de SQL Server, que siempre rechaza releaseSavepoint
+        DataSource target = new DatabaseConfig.DriverDataSource("jdbc:h2:mem:batchinsert;MODE=MSSQLServer;DB_CLOSE_DELAY=-1", null, null);
+        DataSource dataSource = proxy(DataSource.class, target, (name, result) ->
+                name.equals("getConnection") ? proxy(Connection.class, result, null) : result);
+        ConnectionPool pool = new ConnectionPool(dataSource, 0, 2, 10_000, 60_000, 60_000, 2, 10);
+        try {
+            ComputadoraDAO dao = new ComputadoraDAO(new ConnectionManager(pool));
+            computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-3", 900.0, null));
+
+            BatchResult<Computadora> result = dao.createAll(envio(10, "SN-"), 4);
+
+            assertEquals(1, result.getFailures().size(), "Solo falla la fila duplicada.");
+            assertEquals(3, result.getFailures().get(0).getIndex());
+            assertEquals(9, result.getCreated().size());
+            assertEquals(10, computadoraDAO.getAllComputadoras().size());
+        } finally {
+            pool.close();
+        }
+    }
+
+    /**
+     * Delega en {@code target}; una conexión rechaza {@code releaseSavepoint}. {@code wrap}
+     * transforma el resultado de cada llamada (o es null si no hace falta).
+     */
+    private static <T> T proxy(Class<T> type, Object target, BiFunction<String, Object, Object> wrap) {
+        return type.cast(Proxy.newProxyInstance(BatchInsertTest.class.getClassLoader(), new Class<?>[]{type}, (p, method, args) -> {
+            if (method.getName().equals("releaseSavepoint")) {
+                throw new SQLFeatureNotSupportedException("releaseSavepoint no está soportado.");
+            }
+            try {
+                Object result = method.invoke(target, args);
+                return wrap != null ? wrap.apply(method.getName(), result) : result;
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }));
+    }
+
+    @Test
+    @DisplayName("Test: En SQL Server cada lote es un único INSERT de varias filas que devuelve los IDs en orden")
+    void testMultiRowSql() {
+        String sql = BatchInserter.multiRowSql("INSERT INTO T (A, B) VALUES (?, ?)", "TID", 3);
+
+        assertEquals("INSERT INTO T (A, B) OUTPUT INSERTED.TID SELECT A, B FROM (VALUES (?, ?, 0), (?, ?, 1), (?, ?, 2)) "
+                + "AS v (A, B, Orden) ORDER BY Orden", sql);
+        assertEquals(6, sql.chars().filter(c -> c == '?').count());
+        assertThrows(IllegalArgumentException.class, () -> BatchInserter.multiRowSql("UPDATE T SET A = ?", "TID", 2));
+    }
+
+    @Test
+    @DisplayName("Test: Un tamaño de lote inválido se rechaza")
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> computadoraDAO.createAll(envio(2, "X-"), 0));
+    }
+}
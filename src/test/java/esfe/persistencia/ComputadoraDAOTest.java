@@ -115,7 +115,7 @@ class ComputadoraDAOTest {
         assertEquals(1200.50, updatedComputadora.getPrecio(), 0.001, "El precio actualizado debe coincidir.");
         assertEquals("Obs. Actualizadas", updatedComputadora.getObservaciones(), "Las observaciones actualizadas deben coincidir.");
         // La fecha de compra no debería cambiar en un update a menos que lo especifiquemos explícitamente en el DAO
-        assertEquals(computadoraOriginal.getFechaCompra(), updatedComputadora.getFechaCompra(), "La fecha de compra no debería cambiar en el update.");
+        assertEquals(computadoraOriginal.getFechaCompra().toLocalDate(), updatedComputadora.getFechaCompra().toLocalDate(), "La fecha de compra no debería cambiar en el update.");
     }
 
     /**
@@ -158,7 +158,8 @@ class ComputadoraDAOTest {
         assertEquals(expectedComputadora.getModelo(), foundComputadora.getModelo(), "El modelo debe coincidir.");
         assertEquals(expectedComputadora.getNumeroSerie(), foundComputadora.getNumeroSerie(), "El número de serie debe coincidir.");
         assertNotNull(foundComputadora.getFechaCompra(), "La fecha de compra no debe ser nula.");
-        assertEquals(expectedComputadora.getFechaCompra(), foundComputadora.getFechaCompra(), "La fecha de compra debe coincidir.");
+        // FechaCompra es una columna DATE: solo se compara el día
+        assertEquals(expectedComputadora.getFechaCompra().toLocalDate(), foundComputadora.getFechaCompra().toLocalDate(), "La fecha de compra debe coincidir.");
         assertEquals(expectedComputadora.getPrecio(), foundComputadora.getPrecio(), 0.001, "El precio debe coincidir.");
         assertEquals(expectedComputadora.getEstado(), foundComputadora.getEstado(), "El estado debe coincidir.");
         assertEquals(expectedComputadora.getObservaciones(), foundComputadora.getObservaciones(), "Las observaciones deben coincidir.");
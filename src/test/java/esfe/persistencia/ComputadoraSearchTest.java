@@ -0,0 +1,147 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.Proveedor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static esfe.persistencia.ComputadoraDAO.SearchMode.PREFIX;
+import static esfe.persistencia.ComputadoraDAO.SearchMode.SUBSTRING;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la búsqueda por prefijo y por subcadena (índice invertido en memoria) de computadoras
+ * sobre H2 en memoria.
+ */
+class ComputadoraSearchTest {
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private int categoriaId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("computadorasearch");
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        categoriaId = new CategoriaDAO(db.getConnectionManager()).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+        crear("Dell", "Latitude 5420", "DL-100");
+        crear("Dell", "Vostro", "DL-1000");
+        crear("HP", "ProBook Dell Edition", "HP-200");
+        crear("Lenovo", "ThinkPad", "LN_300");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    private Computadora crear(String marca, String modelo, String serie) throws SQLException {
+        return computadoraDAO.create(new Computadora(categoriaId, null, marca, modelo, serie, 500.0, null));
+    }
+
+    private static List<String> series(List<Computadora> computadoras) {
+        return computadoras.stream().map(Computadora::getNumeroSerie).toList();
+    }
+
+    @Test
+    @DisplayName("Test: La búsqueda por prefijo ordena por relevancia y respeta el límite")
+    void testPrefixRankedAndLimited() throws SQLException {
+        assertEquals(List.of("DL-100", "DL-1000"), series(computadoraDAO.search("DL-100", PREFIX, 10, null)),
+                "La coincidencia exacta del número de serie va primero.");
+        assertEquals(List.of("DL-100", "DL-1000"), series(computadoraDAO.search("Dell", PREFIX, 10, null)),
+                "El prefijo no encuentra 'Dell' en medio del modelo.");
+        assertEquals(1, computadoraDAO.search("D", PREFIX, 1, null).size());
+    }
+
+    @Test
+    @DisplayName("Test: Los comodines de LIKE se buscan como texto")
+    void testPrefixEscapesWildcards() throws SQLException {
+        assertEquals(List.of("LN_300"), series(computadoraDAO.search("LN_", PREFIX, 10, null)));
+        assertTrue(computadoraDAO.search("%", PREFIX, 10, null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: La búsqueda por subcadena encuentra el texto en cualquier parte, sin distinguir mayúsculas")
+    void testSubstringSearch() throws SQLException {
+        List<Computadora> result = computadoraDAO.search("dell", SUBSTRING, 10, null);
+
+        assertEquals(List.of("DL-100", "DL-1000", "HP-200"), series(result),
+                "Primero los prefijos de marca y después las demás coincidencias.");
+        assertEquals("Laptops", result.get(0).getCategoriaNombre());
+        assertEquals(List.of("HP-200"), series(computadoraDAO.search("edition", SUBSTRING, 10, null)));
+        assertEquals(List.of("LN_300"), series(computadoraDAO.search("n_", SUBSTRING, 10, null)), "Textos cortos también se resuelven en memoria.");
+        assertEquals(2, computadoraDAO.search("dell", SUBSTRING, 2, null).size());
+        assertTrue(computadoraDAO.search("dellx", SUBSTRING, 10, null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: El índice de subcadenas se actualiza al crear, modificar y eliminar")
+    void testSubstringIndexFollowsWrites() throws SQLException {
+        assertTrue(computadoraDAO.search("zbook", SUBSTRING, 10, null).isEmpty());
+
+        Computadora zbook = crear("HP", "ZBook", "HP-900");
+        assertEquals(List.of("HP-900"), series(computadoraDAO.search("zbook", SUBSTRING, 10, null)));
+
+        zbook.setModelo("Elite");
+        assertTrue(computadoraDAO.update(zbook));
+        assertTrue(computadoraDAO.search("zbook", SUBSTRING, 10, null).isEmpty());
+
+        assertTrue(computadoraDAO.delete(zbook.getComputadoraID()));
+        assertTrue(computadoraDAO.search("elite", SUBSTRING, 10, null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: Vencido el tiempo de vida, el índice ve los cambios hechos por otra instancia")
+    void testSubstringIndexReloadsAfterTtl() throws Exception {
+        assertTrue(computadoraDAO.search("Aspire", SUBSTRING, 10, null).isEmpty());
+        // Otra instancia de la aplicación escribe directamente en la base de datos
+        db.execute("INSERT INTO Computadoras (CategoriaID, Marca, Modelo, NumeroSerie, Estado) VALUES ("
+                + categoriaId + ", 'Acer', 'Aspire 5', 'AC-1', " + Computadora.ESTADO_DISPONIBLE + ")");
+        assertTrue(computadoraDAO.search("Aspire", SUBSTRING, 10, null).isEmpty(), "Dentro del tiempo de vida se usa el índice cargado.");
+
+        ComputadoraDAO.searchIndex(db.getConnectionManager()).setTtlMillis(1);
+        Thread.sleep(5);
+        assertEquals(List.of("AC-1"), series(computadoraDAO.search("Aspire", SUBSTRING, 10, null)));
+        assertEquals(5, ComputadoraDAO.searchIndex(db.getConnectionManager()).size());
+    }
+
+    @Test
+    @DisplayName("Test: La búsqueda por subcadena incluye observaciones y el nombre y email del proveedor")
+    void testSubstringSearchesObservacionesAndProveedor() throws SQLException {
+        ProveedorDAO proveedorDAO = new ProveedorDAO(db.getConnectionManager());
+        Proveedor proveedor = proveedorDAO.create(new Proveedor(0, "Tecnosur", null, "ventas@tecnosur.com", null));
+        computadoraDAO.create(new Computadora(categoriaId, proveedor.getProveedorID(), "Asus", "VivoBook", "AS-400", 700.0, "Pantalla rayada"));
+
+        assertEquals(List.of("AS-400"), series(computadoraDAO.search("rayada", SUBSTRING, 10, null)));
+        assertEquals(List.of("AS-400"), series(computadoraDAO.search("tecnosur", SUBSTRING, 10, null)));
+        assertEquals(List.of("AS-400"), series(computadoraDAO.search("ventas@", SUBSTRING, 10, null)));
+
+        proveedor.setNombre("Compumax");
+        proveedor.setEmail("info@compumax.com");
+        assertTrue(proveedorDAO.update(proveedor));
+        assertTrue(computadoraDAO.search("tecnosur", SUBSTRING, 10, null).isEmpty(), "El índice refleja el cambio del proveedor.");
+        assertEquals(List.of("AS-400"), series(computadoraDAO.search("compumax", SUBSTRING, 10, null)));
+    }
+
+    @Test
+    @DisplayName("Test: El índice cargado al inicio ignora los cambios con una versión anterior")
+    void testIndexIgnoresStaleVersions() throws SQLException {
+        ComputadoraSearchIndex index = ComputadoraDAO.searchIndex(db.getConnectionManager());
+        computadoraDAO.loadSearchIndex();
+        assertEquals(4, index.size());
+
+        Computadora dell = computadoraDAO.search("DL-100", PREFIX, 1, null).get(0);
+        dell.setModelo("Precision");
+        assertTrue(computadoraDAO.update(dell));
+        // Un aviso atrasado con la versión leída antes del cambio no debe restaurar el modelo anterior
+        index.put(new ComputadoraSearchIndex.Document(dell.getComputadoraID(), 0, null, "Dell", "Latitude 5420", "DL-100", null, null, null));
+
+        assertTrue(computadoraDAO.search("latitude", SUBSTRING, 10, null).isEmpty());
+        assertEquals(List.of("DL-100"), series(computadoraDAO.search("precision", SUBSTRING, 10, null)));
+    }
+}
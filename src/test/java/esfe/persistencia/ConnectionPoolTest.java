@@ -0,0 +1,179 @@
+package esfe.persistencia;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del pool de conexiones contra una base de datos H2 en memoria,
+ * por lo que no requieren un servidor SQL Server.
+ */
+class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ConnectionPool(URL, 0, 2, 200, 60_000, 60_000, 2, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    @DisplayName("Test: Al cerrar la conexión prestada, la conexión física se reutiliza")
+    void testReusePhysicalConnection() throws SQLException {
+        Connection first = pool.borrow();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        assertTrue(first.isClosed(), "El préstamo debe quedar cerrado tras devolverlo.");
+        assertEquals(1, pool.getIdleConnections(), "La conexión debe volver al pool.");
+
+        try (Connection second = pool.borrow()) {
+            assertSame(physical, second.unwrap(Connection.class), "Debe reutilizarse la misma conexión física.");
+            assertEquals(1, pool.getActiveConnections());
+        }
+        assertEquals(1, pool.getTotalConnections(), "No deben abrirse conexiones físicas adicionales.");
+    }
+
+    @Test
+    @DisplayName("Test: El pool no presta más conexiones que su máximo")
+    void testMaxSize() throws SQLException {
+        Connection c1 = pool.borrow();
+        Connection c2 = pool.borrow();
+        assertThrows(SQLException.class, () -> pool.borrow(), "Debe agotarse el tiempo de espera al superar el máximo.");
+        c1.close();
+        try (Connection c3 = pool.borrow()) {
+            assertNotNull(c3);
+        }
+        c2.close();
+        assertEquals(2, pool.getTotalConnections());
+    }
+
+    @Test
+    @DisplayName("Test: Una conexión física cerrada se descarta al prestarla")
+    void testValidationOnBorrow() throws SQLException {
+        Connection first = pool.borrow();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        physical.close(); // Simula una conexión caída mientras estaba libre en el pool.
+
+        try (Connection second = pool.borrow()) {
+            assertNotSame(physical, second.unwrap(Connection.class), "La conexión inválida no debe reutilizarse.");
+            assertFalse(second.isClosed());
+        }
+    }
+
+    @Test
+    @DisplayName("Test: Una conexión devuelta no se puede seguir usando")
+    void testClosedLeaseRejectsCalls() throws SQLException {
+        Connection conn = pool.borrow();
+        conn.close();
+        assertThrows(SQLException.class, conn::createStatement);
+    }
+
+    @Test
+    @DisplayName("Test: Las conexiones que superan su vida máxima no se reutilizan")
+    void testMaxLifetime() throws SQLException, InterruptedException {
+        pool.close();
+        pool = new ConnectionPool(URL, 0, 2, 200, 60_000, 50, 2, 10);
+        Connection first = pool.borrow();
+        Connection physical = first.unwrap(Connection.class);
+        first.close();
+        Thread.sleep(100);
+
+        try (Connection second = pool.borrow()) {
+            assertNotSame(physical, second.unwrap(Connection.class));
+        }
+        assertTrue(physical.isClosed(), "La conexión expirada debe cerrarse.");
+    }
+
+    @Test
+    @DisplayName("Test: El mantenimiento expulsa conexiones inactivas por encima del mínimo")
+    void testIdleEviction() throws SQLException, InterruptedException {
+        pool.close();
+        pool = new ConnectionPool(URL, 1, 2, 200, 50, 60_000, 2, 10);
+        Connection c1 = pool.borrow();
+        Connection c2 = pool.borrow();
+        c1.close();
+        c2.close();
+        assertEquals(2, pool.getIdleConnections());
+        Thread.sleep(100);
+
+        pool.housekeep();
+        assertEquals(1, pool.getTotalConnections(), "Debe conservarse solo el mínimo de conexiones.");
+    }
+
+    @Test
+    @DisplayName("Test: Las sentencias preparadas se reutilizan desde la caché de la conexión")
+    void testStatementCacheReuse() throws SQLException {
+        String sql = "SELECT ? + 1";
+        PreparedStatement physical;
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                physical = ps.unwrap(PreparedStatement.class);
+                ps.setInt(1, 1);
+                try (ResultSet rs = ps.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(2, rs.getInt(1));
+                }
+            }
+        }
+        // Un nuevo préstamo de la misma conexión física debe recibir la misma sentencia.
+        try (Connection conn = pool.borrow();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            assertSame(physical, ps.unwrap(PreparedStatement.class), "La sentencia debe venir de la caché.");
+            assertSame(conn, ps.getConnection(), "La sentencia debe exponer la conexión prestada.");
+            ps.setInt(1, 41);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                assertEquals(42, rs.getInt(1));
+            }
+        }
+        assertEquals(1, pool.getStatementCacheHits());
+        assertEquals(1, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    @DisplayName("Test: La caché de sentencias descarta la menos usada al superar su tamaño")
+    void testStatementCacheLruEviction() throws SQLException {
+        pool.close();
+        pool = new ConnectionPool(URL, 0, 1, 200, 60_000, 60_000, 2, 1);
+        PreparedStatement first;
+        try (Connection conn = pool.borrow()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+                first = ps.unwrap(PreparedStatement.class);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 2")) {
+                assertNotSame(first, ps.unwrap(PreparedStatement.class));
+            }
+            assertTrue(first.isClosed(), "La sentencia expulsada de la caché debe cerrarse.");
+            try (PreparedStatement ps = conn.prepareStatement("SELECT 2")) {
+                assertFalse(ps.isClosed());
+            }
+        }
+        assertEquals(1, pool.getStatementCacheHits());
+        assertEquals(2, pool.getStatementCacheMisses());
+    }
+
+    @Test
+    @DisplayName("Test: Una sentencia cerrada no se puede seguir usando")
+    void testClosedCachedStatementRejectsCalls() throws SQLException {
+        try (Connection conn = pool.borrow()) {
+            PreparedStatement ps = conn.prepareStatement("SELECT 1");
+            ps.close();
+            assertTrue(ps.isClosed());
+            assertThrows(SQLException.class, ps::executeQuery);
+        }
+    }
+}
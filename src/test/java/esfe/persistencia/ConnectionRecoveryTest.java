@@ -0,0 +1,323 @@
+package esfe.persistencia;
+
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los reintentos de lecturas, del interruptor de circuito y del modo sin conexión,
+ * con un origen de conexiones H2 que puede simular una caída de la base de datos.
+ */
+class ConnectionRecoveryTest {
+    private static final String URL = "jdbc:h2:mem:recoverytest;MODE=MSSQLServer;DB_CLOSE_DELAY=-1";
+
+    /**
+     * Origen de conexiones que falla como un servidor caído mientras se le indique. Con
+     * {@code failExecute}, las sentencias de sus conexiones fallan al ejecutarse, como si el
+     * servidor se cayera a mitad de la sesión. Con {@code rejectReleaseSavepoint}, sus conexiones
+     * rechazan {@code releaseSavepoint} como el driver de SQL Server.
+     */
+    private static final class FlakyDataSource implements DataSource {
+        private final DataSource target = new DatabaseConfig.DriverDataSource(URL, null, null);
+        private final AtomicInteger failuresLeft = new AtomicInteger();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private volatile boolean failExecute;
+        private volatile boolean rejectReleaseSavepoint;
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            attempts.incrementAndGet();
+            if (failuresLeft.get() > 0) {
+                failuresLeft.decrementAndGet();
+                throw new SQLNonTransientConnectionException("Servidor no disponible", "08001");
+            }
+            return wrap(target.getConnection());
+        }
+
+        private Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(ConnectionRecoveryTest.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                        if (rejectReleaseSavepoint && method.getName().equals("releaseSavepoint")) {
+                            throw new SQLFeatureNotSupportedException("releaseSavepoint no está soportado.");
+                        }
+                        Object result = invoke(connection, method, args);
+                        return result instanceof PreparedStatement ps ? wrap(ps) : result;
+                    });
+        }
+
+        private PreparedStatement wrap(PreparedStatement ps) {
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionRecoveryTest.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                        if (failExecute && method.getName().startsWith("execute")) {
+                            throw new SQLNonTransientConnectionException("Conexión interrumpida", "08S01");
+                        }
+                        return invoke(ps, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() throws SQLException {
+            return target.getLogWriter();
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) throws SQLException {
+            target.setLogWriter(out);
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) throws SQLException {
+            target.setLoginTimeout(seconds);
+        }
+
+        @Override
+        public int getLoginTimeout() throws SQLException {
+            return target.getLoginTimeout();
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            return target.getParentLogger();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> iface) throws SQLException {
+            return target.unwrap(iface);
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> iface) throws SQLException {
+            return target.isWrapperFor(iface);
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private FlakyDataSource dataSource;
+    private ConnectionPool pool;
+    private ConnectionManager conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // El esquema se crea fuera del pool para que este empiece sin conexiones
+        try (Connection c = DriverManager.getConnection(URL)) {
+            SqlScript.apply(c, SqlScript.SCHEMA);
+        }
+        dataSource = new FlakyDataSource();
+        pool = new ConnectionPool(dataSource, 0, 4, 1_000, 60_000, 60_000, 2, 10);
+        conn = new ConnectionManager(pool, 3, 10L, 3, 200L, 400L);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.shutdown();
+        try (Connection c = DriverManager.getConnection(URL); Statement st = c.createStatement()) {
+            st.execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @DisplayName("Test: Una lectura se reintenta hasta que la conexión vuelve")
+    void testReadRetriesConnectionFailures() throws SQLException {
+        dataSource.failuresLeft.set(2);
+
+        assertNull(new CategoriaDAO(conn).getById(99), "La lectura termina bien en el tercer intento.");
+        assertEquals(3, dataSource.attempts.get());
+        assertEquals(CircuitBreaker.State.CLOSED, conn.getCircuitBreaker().getState(),
+                "Dos fallos no alcanzan el umbral del circuito.");
+    }
+
+    @Test
+    @DisplayName("Test: Solo se reintentan los errores de conexión y nunca dentro de connect()")
+    void testOnlyConnectionFailuresAreRetried() throws SQLException {
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(SQLException.class, () -> conn.read(() -> {
+            calls.incrementAndGet();
+            throw new SQLException("Tabla inexistente", "42S02");
+        }));
+        assertEquals(1, calls.get(), "Un error de la sentencia no se reintenta.");
+
+        calls.set(0);
+        assertThrows(SQLException.class, () -> conn.read(() -> {
+            calls.incrementAndGet();
+            throw new SQLException("Conexión interrumpida", "08S01");
+        }));
+        assertEquals(3, calls.get(), "Un error de conexión se reintenta hasta agotar los intentos.");
+
+        calls.set(0);
+        conn.connect();
+        try {
+            assertThrows(SQLException.class, () -> conn.read(() -> {
+                calls.incrementAndGet();
+                throw new SQLException("Conexión interrumpida", "08S01");
+            }));
+        } finally {
+            conn.disconnect();
+        }
+        assertEquals(1, calls.get(), "Dentro de connect() no se reintenta.");
+    }
+
+    @Test
+    @DisplayName("Test: El circuito se abre tras varios fallos, falla de inmediato y se cierra al volver la conexión")
+    void testCircuitBreakerOpensAndRecovers() throws Exception {
+        List<CircuitBreaker.State> states = new CopyOnWriteArrayList<>();
+        conn.getCircuitBreaker().addListener(states::add);
+        CategoriaDAO dao = new CategoriaDAO(conn);
+        dataSource.failuresLeft.set(Integer.MAX_VALUE);
+
+        assertThrows(SQLException.class, () -> dao.getById(1));
+        assertEquals(CircuitBreaker.State.OPEN, conn.getCircuitBreaker().getState(), "Tres fallos seguidos abren el circuito.");
+
+        int attempts = dataSource.attempts.get();
+        long start = System.nanoTime();
+        SQLException fast = assertThrows(SQLException.class, () -> dao.getById(1));
+        assertTrue(System.nanoTime() - start < 50_000_000L, "Con el circuito abierto la llamada falla de inmediato.");
+        assertEquals(attempts, dataSource.attempts.get(), "No se intenta conectar con el circuito abierto.");
+        assertTrue(fast.getMessage().contains("no está disponible"));
+
+        dataSource.failuresLeft.set(0);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (conn.getCircuitBreaker().getState() != CircuitBreaker.State.CLOSED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, conn.getCircuitBreaker().getState(), "La prueba en segundo plano cierra el circuito.");
+        assertEquals(CircuitBreaker.State.OPEN, states.get(0));
+        assertTrue(states.contains(CircuitBreaker.State.HALF_OPEN));
+        assertEquals(CircuitBreaker.State.CLOSED, states.get(states.size() - 1));
+        assertNull(dao.getById(99), "Las lecturas vuelven a funcionar.");
+    }
+
+    @Test
+    @DisplayName("Test: Los errores de conexión al ejecutar una sentencia también abren el circuito")
+    void testExecuteFailuresOpenCircuit() throws SQLException {
+        try (Connection connection = conn.getConnection()) {
+            dataSource.failExecute = true;
+            for (int i = 0; i < 3; i++) {
+                assertThrows(SQLException.class, () -> {
+                    try (PreparedStatement ps = connection.prepareStatement("SELECT 1")) {
+                        ps.executeQuery();
+                    }
+                });
+            }
+        }
+        assertEquals(CircuitBreaker.State.OPEN, conn.getCircuitBreaker().getState(),
+                "Tres fallos al ejecutar abren el circuito aunque la conexión se haya prestado bien.");
+        assertThrows(SQLException.class, () -> new CategoriaDAO(conn).getById(1), "Con el circuito abierto se falla de inmediato.");
+    }
+
+    @Test
+    @DisplayName("Test: Sin base de datos el movimiento va al diario local y se confirma cuando vuelve")
+    void testOfflineMovementIsReplayedWhenDatabaseReturns() throws Exception {
+        int computadoraID = createComputadora();
+
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(conn, tempDir.resolve("movimientos.journal"), 100, 10, 0, true, false)) {
+            conn.getShared(MovimientoWriteBehind.SHARED_KEY, () -> writeBehind);
+            dataSource.failuresLeft.set(Integer.MAX_VALUE);
+
+            CompletableFuture<MovimientoInventario> pendiente = new InventarioService(conn).registrarMovimientoDiferido(
+                    new MovimientoInventario(computadoraID, MovimientoInventario.TIPO_ENTRADA, "Sin conexión"));
+            assertFalse(pendiente.isDone(), "Sin base de datos el movimiento queda pendiente.");
+            assertEquals(1, writeBehind.getOutstanding(), "El movimiento se guardó en el diario local.");
+
+            dataSource.failuresLeft.set(0);
+            assertTrue(pendiente.get(10, TimeUnit.SECONDS).getMovimientoID() > 0, "Al volver la conexión se confirma.");
+            assertEquals(0, writeBehind.getOutstanding());
+        }
+
+        try (Connection c = DriverManager.getConnection(URL); Statement st = c.createStatement()) {
+            assertEquals(1, queryInt(st, "SELECT COUNT(*) FROM MovimientosInventario"), "Se registró una sola vez.");
+            assertEquals(1, queryInt(st, "SELECT COUNT(*) FROM MovimientosAplicados"), "Con su clave de idempotencia.");
+            assertEquals(1, queryInt(st, "SELECT Existencia FROM Existencias WHERE ComputadoraID = " + computadoraID));
+            assertEquals(Computadora.ESTADO_DISPONIBLE, queryInt(st, "SELECT Estado FROM Computadoras WHERE ComputadoraID = " + computadoraID));
+        }
+    }
+
+    @Test
+    @DisplayName("Test: Al iniciar se aplican los movimientos del diario aunque el driver no libere savepoints")
+    void testJournalReplayWithoutReleaseSavepoint() throws Exception {
+        int computadoraID = createComputadora();
+        Path journalFile = tempDir.resolve("movimientos.journal");
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            for (int i = 0; i < 3; i++) {
+                MovimientoInventario movimiento = new MovimientoInventario(computadoraID, MovimientoInventario.TIPO_ENTRADA, "Sin conexión " + i);
+                movimiento.setFechaMovimiento(LocalDateTime.now());
+                journal.append(UUID.randomUUID(), movimiento);
+            }
+            journal.sync(Long.MAX_VALUE);
+        }
+        dataSource.rejectReleaseSavepoint = true;
+
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(conn, journalFile, 100, 10, 0, true, false)) {
+            writeBehind.flush();
+            assertEquals(3, writeBehind.getCommitted(), "Los movimientos del diario se aplicaron.");
+            assertEquals(0, writeBehind.getOutstanding());
+        }
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            assertTrue(journal.recovered().isEmpty(), "El diario volvió al inicio.");
+        }
+        try (Connection c = DriverManager.getConnection(URL); Statement st = c.createStatement()) {
+            assertEquals(3, queryInt(st, "SELECT COUNT(*) FROM MovimientosInventario"));
+            assertEquals(3, queryInt(st, "SELECT Existencia FROM Existencias WHERE ComputadoraID = " + computadoraID));
+        }
+    }
+
+    // Directamente, sin pasar por el pool, para que este siga sin conexiones
+    private static int createComputadora() throws SQLException {
+        try (Connection c = DriverManager.getConnection(URL); Statement st = c.createStatement()) {
+            st.executeUpdate("INSERT INTO Categorias (Nombre) VALUES ('Laptops')");
+            st.executeUpdate("INSERT INTO Computadoras (CategoriaID, Marca, Modelo, NumeroSerie, Estado) "
+                    + "SELECT MAX(CategoriaID), 'Dell', 'Latitude', 'SN-1', " + Computadora.ESTADO_AGOTADO + " FROM Categorias");
+            return queryInt(st, "SELECT MAX(ComputadoraID) FROM Computadoras");
+        }
+    }
+
+    private static int queryInt(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import esfe.dominio.Proveedor;
+import esfe.dominio.User;
+import esfe.utils.PasswordHashEngine;
+import esfe.utils.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Prueba de estrés: varios hilos usan las mismas instancias de los cinco DAO en paralelo
+ * contra una base de datos H2 en memoria. Antes, las sentencias y resultados compartidos
+ * como campos de instancia (y la conexión única) hacían fallar este escenario.
+ */
+class DAOConcurrencyTest {
+    private static final int THREADS = 16;
+    private static final int ITERATIONS = 25;
+
+    private TestDatabase db;
+    private ConnectionPool pool;
+
+    private ComputadoraDAO computadoraDAO;
+    private CategoriaDAO categoriaDAO;
+    private ProveedorDAO proveedorDAO;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+    private UserDAO userDAO;
+
+    private int categoriaId;
+    private int proveedorId;
+    private PasswordHashEngine passwordEngine;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        // Pool más pequeño que el número de hilos para forzar la espera y reutilización de conexiones.
+        db = TestDatabase.create("concurrency", 8);
+        // La prueba mide la concurrencia de los DAO, no el costo de PBKDF2: se usan pocas iteraciones.
+        passwordEngine = PasswordHasher.getCurrentEngine();
+        PasswordHasher.setCurrentEngine(new PasswordHasher.Pbkdf2Sha256(1_000));
+        pool = db.getPool();
+        ConnectionManager connectionManager = db.getConnectionManager();
+
+        computadoraDAO = new ComputadoraDAO(connectionManager);
+        categoriaDAO = new CategoriaDAO(connectionManager);
+        proveedorDAO = new ProveedorDAO(connectionManager);
+        movimientoInventarioDAO = new MovimientoInventarioDAO(connectionManager);
+        userDAO = new UserDAO(connectionManager);
+
+        categoriaId = categoriaDAO.create(new Categoria(0, "Laptops", "Categoría de prueba")).getCategoriaID();
+        proveedorId = proveedorDAO.create(new Proveedor(null, "Proveedor Test", "2222-2222", "prov@test.com", "San Salvador")).getProveedorID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        PasswordHasher.setCurrentEngine(passwordEngine);
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Los cinco DAO funcionan en paralelo desde varios hilos")
+    void testParallelCrud() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int thread = t;
+            Callable<Integer> worker = () -> {
+                start.await();
+                int operations = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    operations += runCycle(thread, i);
+                }
+                return operations;
+            };
+            results.add(executor.submit(worker));
+        }
+        start.countDown();
+
+        int totalOperations = 0;
+        for (Future<Integer> result : results) {
+            totalOperations += result.get(60, TimeUnit.SECONDS); // Propaga cualquier excepción de los hilos.
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * ITERATIONS * 5, totalOperations, "Todos los ciclos deben completarse.");
+        assertTrue(computadoraDAO.getAllComputadoras().isEmpty(), "Cada hilo elimina lo que crea.");
+        assertTrue(movimientoInventarioDAO.getAllMovimientoInventario().isEmpty());
+        assertTrue(userDAO.getAllUsers().isEmpty());
+        assertEquals(1, categoriaDAO.getAllCategorias().size());
+        assertEquals(1, proveedorDAO.getAllProveedores().size());
+        assertEquals(0, pool.getActiveConnections(), "Todas las conexiones deben haberse devuelto al pool.");
+        assertTrue(pool.getTotalConnections() <= 8, "El pool no debe superar su máximo.");
+    }
+
+    /**
+     * Ciclo de operaciones sobre los cinco DAO. Verifica que cada hilo vea exactamente sus propios datos.
+     */
+    private int runCycle(int thread, int i) throws SQLException {
+        String tag = "T" + thread + "-" + i;
+
+        Computadora comp = computadoraDAO.create(new Computadora(categoriaId, proveedorId, "Marca" + tag, "Modelo" + tag, "SN-" + tag, 500.0, "Obs " + tag));
+        assertNotNull(comp);
+        assertEquals("SN-" + tag, computadoraDAO.getById(comp.getComputadoraID()).getNumeroSerie());
+        List<Computadora> found = computadoraDAO.search("SN-" + tag);
+        assertEquals(1, found.size());
+        assertEquals(comp.getComputadoraID(), found.get(0).getComputadoraID());
+
+        MovimientoInventario mov = movimientoInventarioDAO.create(new MovimientoInventario(comp.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, 2, "Mov " + tag));
+        assertNotNull(mov);
+        mov.setCantidad(3);
+        assertTrue(movimientoInventarioDAO.update(mov));
+        assertEquals(3, movimientoInventarioDAO.getById(mov.getMovimientoID()).getCantidad());
+
+        assertEquals(categoriaId, categoriaDAO.getById(categoriaId).getCategoriaID());
+        assertEquals(proveedorId, proveedorDAO.getById(proveedorId).getProveedorID());
+
+        User user = userDAO.create(new User(0, "User" + tag, "secret", tag + "@test.com", (byte) 1));
+        assertNotNull(user);
+        User login = new User();
+        login.setEmail(tag + "@test.com");
+        login.setPasswordHash("secret");
+        User authenticated = userDAO.authenticate(login);
+        assertNotNull(authenticated);
+        assertEquals(user.getId(), authenticated.getId());
+
+        assertTrue(movimientoInventarioDAO.delete(mov.getMovimientoID()));
+        assertTrue(computadoraDAO.delete(comp.getComputadoraID()));
+        assertTrue(userDAO.delete(user));
+        return 5;
+    }
+}
@@ -0,0 +1,72 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de create() sin la lectura adicional por ID, sobre H2 en memoria.
+ */
+class DAOCreateTest {
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private int categoriaId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("daocreate");
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        categoriaId = new CategoriaDAO(db.getConnectionManager()).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: create devuelve el mismo objeto con el ID generado")
+    void testCreateReturnsInputWithId() throws SQLException {
+        Computadora nueva = new Computadora(categoriaId, null, "Dell", "Latitude", "SN-1", 900.0, null);
+
+        Computadora creada = computadoraDAO.create(nueva);
+
+        assertSame(nueva, creada, "Sin relectura se devuelve el objeto recibido.");
+        assertTrue(creada.getComputadoraID() > 0);
+        assertEquals("SN-1", computadoraDAO.getById(creada.getComputadoraID()).getNumeroSerie());
+    }
+
+    @Test
+    @DisplayName("Test: create con relectura devuelve la fila leída de la base de datos")
+    void testCreateWithReread() throws SQLException {
+        Computadora nueva = new Computadora(categoriaId, null, "HP", "ProBook", "SN-2", 800.0, null);
+
+        Computadora creada = computadoraDAO.create(nueva, true);
+
+        assertNotSame(nueva, creada);
+        assertEquals(nueva.getComputadoraID(), creada.getComputadoraID());
+        assertEquals("HP", creada.getMarca());
+    }
+
+    @Test
+    @DisplayName("Test: create de usuario no devuelve la contraseña")
+    void testUserCreateOmitsPassword() throws SQLException {
+        UserDAO userDAO = new UserDAO(db.getConnectionManager());
+        User nuevo = new User(0, "Ana", "secreta", "ana@example.com", (byte) 1);
+
+        User creado = userDAO.create(nuevo);
+
+        assertTrue(creado.getId() > 0);
+        assertNull(creado.getPasswordHash(), "Igual que getById, el resultado no incluye la contraseña.");
+        assertEquals("ana@example.com", creado.getEmail());
+        assertEquals("Ana", userDAO.getById(creado.getId()).getName());
+    }
+}
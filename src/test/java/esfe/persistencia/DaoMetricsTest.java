@@ -0,0 +1,128 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las métricas por método de DAO sobre una base de datos H2 en memoria.
+ */
+class DaoMetricsTest {
+    private TestDatabase db;
+    private DaoMetrics metrics;
+    private CategoriaDAO categoriaDAO;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("metricstest");
+        metrics = db.getPool().getMetrics();
+        categoriaDAO = new CategoriaDAO(db.getConnectionManager());
+        metrics.reset();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Cada método de DAO acumula sus llamadas, filas y errores")
+    void testCallsRowsAndErrors() throws SQLException {
+        categoriaDAO.create(new Categoria(0, "Portátiles", "Equipos portátiles"));
+        categoriaDAO.create(new Categoria(0, "Escritorio", "Equipos de escritorio"));
+        categoriaDAO.search("");
+        categoriaDAO.search("Port");
+
+        DaoMethodStatsMXBean search = metrics.getStats("CategoriaDAO.search");
+        assertNotNull(search, "Se registran las llamadas a CategoriaDAO.search.");
+        assertEquals(2, search.getCalls());
+        assertEquals(3, search.getRows(), "Se cuentan las filas leídas por las dos búsquedas.");
+        assertEquals(0, search.getErrors());
+        assertTrue(search.getMaxMillis() >= search.getP50Millis(), "El percentil 50 no supera el máximo.");
+
+        DaoMethodStatsMXBean create = metrics.getStats("CategoriaDAO.create");
+        assertNotNull(create, "Se registran las llamadas a CategoriaDAO.create.");
+        assertTrue(create.getRows() >= 2, "Se cuentan las filas insertadas.");
+
+        db.execute("DROP TABLE Categorias CASCADE");
+        assertThrows(SQLException.class, () -> categoriaDAO.search("x"));
+        assertEquals(1, metrics.getStats("CategoriaDAO.search").getErrors(), "La sentencia fallida cuenta como error.");
+    }
+
+    @Test
+    @DisplayName("Test: Las sentencias que superan el umbral se registran con su SQL y sus parámetros")
+    void testSlowQueryLog() throws SQLException {
+        List<LogRecord> records = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(DaoMetrics.class.getName());
+        logger.addHandler(handler);
+        metrics.setSlowQueryThresholdMillis(0);
+        try {
+            categoriaDAO.search("Monitores");
+        } finally {
+            logger.removeHandler(handler);
+            metrics.setSlowQueryThresholdMillis(1000);
+        }
+
+        assertFalse(records.isEmpty(), "Se registra la consulta lenta.");
+        String message = records.get(0).getMessage();
+        assertTrue(message.contains("CategoriaDAO.search"), "El mensaje indica el método.");
+        assertTrue(message.contains("Monitores"), "El mensaje incluye los parámetros.");
+    }
+
+    @Test
+    @DisplayName("Test: Con las métricas desactivadas no se registra nada")
+    void testDisabled() throws SQLException {
+        metrics.setEnabled(false);
+        try {
+            categoriaDAO.search("");
+        } finally {
+            metrics.setEnabled(true);
+        }
+        assertNull(metrics.getStats("CategoriaDAO.search"));
+    }
+
+    @Test
+    @DisplayName("Test: Las métricas se publican por JMX y se retiran al cerrar")
+    void testMBeans() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName method = new ObjectName("esfe.persistencia:type=DaoMetrics,dao=\"CategoriaDAO\",method=\"getById\"");
+        metrics.registerMBeans();
+        try {
+            categoriaDAO.getById(1);
+            assertTrue(server.isRegistered(new ObjectName("esfe.persistencia:type=DaoMetrics,name=control")));
+            assertTrue(server.isRegistered(method), "Los métodos llamados después del registro también se publican.");
+            assertEquals(1L, server.getAttribute(method, "Calls"));
+        } finally {
+            metrics.close();
+        }
+        assertFalse(server.isRegistered(method), "Al cerrar se retiran los MBeans.");
+    }
+}
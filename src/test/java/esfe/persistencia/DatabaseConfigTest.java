@@ -0,0 +1,82 @@
+package esfe.persistencia;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la configuración de la conexión y de la base de datos embebida.
+ */
+class DatabaseConfigTest {
+
+    @Test
+    @DisplayName("Test: El script se divide en sentencias omitiendo comentarios, CREATE DATABASE y USE")
+    void testParseScript() {
+        List<String> statements = SqlScript.parse("""
+                CREATE DATABASE Inventario;
+                GO
+                USE Inventario;
+                GO
+                -- Comentario; con punto y coma
+                CREATE TABLE A (
+                    ID INT PRIMARY KEY -- comentario al final
+                );
+                GO
+                INSERT INTO A VALUES (1);
+                INSERT INTO A VALUES (2);
+                """);
+
+        assertEquals(3, statements.size());
+        assertTrue(statements.get(0).startsWith("CREATE TABLE A ("));
+        assertEquals("INSERT INTO A VALUES (2)", statements.get(2));
+    }
+
+    @Test
+    @DisplayName("Test: Las propiedades del sistema tienen prioridad sobre el archivo")
+    void testSystemPropertyOverridesFile() {
+        Properties file = new Properties();
+        file.setProperty(DatabaseConfig.POOL_MAX_SIZE, "10");
+        DatabaseConfig config = DatabaseConfig.of(file);
+        assertEquals(10, config.getInt(DatabaseConfig.POOL_MAX_SIZE, 1));
+
+        System.setProperty(DatabaseConfig.POOL_MAX_SIZE, "3");
+        try {
+            assertEquals(3, config.getInt(DatabaseConfig.POOL_MAX_SIZE, 1));
+        } finally {
+            System.clearProperty(DatabaseConfig.POOL_MAX_SIZE);
+        }
+    }
+
+    @Test
+    @DisplayName("Test: El modo embebido crea el esquema de Script.sql.txt y aplica los datos iniciales")
+    void testEmbeddedModeAppliesSchema() throws SQLException {
+        Properties file = new Properties();
+        file.setProperty(DatabaseConfig.MODE, "embedded");
+        file.setProperty(DatabaseConfig.URL, "jdbc:h2:mem:configtest;MODE=MSSQLServer;DB_CLOSE_DELAY=-1");
+        file.setProperty(DatabaseConfig.SEED_SCRIPT, "esfe/persistencia/datos-prueba.sql");
+        file.setProperty(DatabaseConfig.POOL_MIN_SIZE, "0");
+
+        ConnectionManager conn = new ConnectionManager(DatabaseConfig.of(file));
+        try {
+            assertEquals(6, new ComputadoraDAO(conn).getAllComputadoras().size(), "Se cargan las computadoras de los datos iniciales.");
+            assertEquals(0, new ExistenciaDAO(conn).getExistencia(1), "Existe la tabla Existencias del esquema.");
+
+            // Una segunda instancia sobre la misma base de datos no vuelve a crear el esquema
+            ConnectionManager again = new ConnectionManager(DatabaseConfig.of(file));
+            assertEquals(6, new ComputadoraDAO(again).getAllComputadoras().size());
+            again.shutdown();
+        } finally {
+            try (Connection c = conn.getConnection(); Statement st = c.createStatement()) {
+                st.execute("DROP ALL OBJECTS");
+            }
+            conn.shutdown();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del mantenimiento incremental de existencias sobre H2 en memoria.
+ */
+class ExistenciaDAOTest {
+    private TestDatabase db;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+    private ExistenciaDAO existenciaDAO;
+    private int compA;
+    private int compB;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("existencias");
+        ConnectionManager connectionManager = db.getConnectionManager();
+        movimientoInventarioDAO = new MovimientoInventarioDAO(connectionManager);
+        existenciaDAO = new ExistenciaDAO(connectionManager);
+        ComputadoraDAO computadoraDAO = new ComputadoraDAO(connectionManager);
+        int categoriaId = new CategoriaDAO(connectionManager).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+        compA = computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-A", 900.0, null)).getComputadoraID();
+        compB = computadoraDAO.create(new Computadora(categoriaId, null, "HP", "ProBook", "SN-B", 800.0, null)).getComputadoraID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    private MovimientoInventario movimiento(int computadoraID, byte tipo, int cantidad) {
+        return new MovimientoInventario(computadoraID, tipo, cantidad, "Prueba");
+    }
+
+    @Test
+    @DisplayName("Test: Entradas suman, salidas restan y mantenimientos no afectan la existencia")
+    void testCreateMaintainsExistencia() throws SQLException {
+        assertEquals(0, existenciaDAO.getExistencia(compA), "Sin movimientos la existencia es 0.");
+
+        movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_ENTRADA, 10));
+        movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_SALIDA, 3));
+        movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_MANTENIMIENTO, 1));
+
+        assertEquals(7, existenciaDAO.getExistencia(compA));
+        assertTrue(existenciaDAO.check().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: Modificar y eliminar movimientos ajusta las existencias")
+    void testUpdateAndDeleteAdjustExistencia() throws SQLException {
+        MovimientoInventario entrada = movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_ENTRADA, 10));
+        movimientoInventarioDAO.create(movimiento(compB, MovimientoInventario.TIPO_ENTRADA, 2));
+
+        // Se corrige la cantidad y la computadora del movimiento
+        entrada.setCantidad(4);
+        entrada.setComputadoraID(compB);
+        assertTrue(movimientoInventarioDAO.update(entrada));
+        assertEquals(0, existenciaDAO.getExistencia(compA));
+        assertEquals(6, existenciaDAO.getExistencia(compB));
+
+        assertTrue(movimientoInventarioDAO.delete(entrada.getMovimientoID()));
+        assertEquals(2, existenciaDAO.getExistencia(compB));
+        assertFalse(movimientoInventarioDAO.delete(entrada.getMovimientoID()), "Eliminar dos veces no debe restar de nuevo.");
+        assertEquals(2, existenciaDAO.getExistencia(compB));
+        assertTrue(existenciaDAO.check().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: Modificar el mismo movimiento desde varios hilos no descuadra las existencias")
+    void testConcurrentUpdatesOfSameMovimiento() throws Exception {
+        int movimientoID = movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_ENTRADA, 5)).getMovimientoID();
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int cantidad = t + 1;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20; i++) {
+                    MovimientoInventario cambio = movimiento(compA, MovimientoInventario.TIPO_ENTRADA, cantidad);
+                    cambio.setMovimientoID(movimientoID);
+                    cambio.setFechaMovimiento(LocalDateTime.now());
+                    movimientoInventarioDAO.update(cambio);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int cantidad = movimientoInventarioDAO.getById(movimientoID).getCantidad();
+        assertEquals(cantidad, existenciaDAO.getExistencia(compA), "La existencia corresponde al último cambio confirmado.");
+        assertTrue(existenciaDAO.check().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: Los movimientos por lotes y del servicio de inventario también actualizan la existencia")
+    void testBatchAndServiceMaintainExistencia() throws SQLException {
+        List<MovimientoInventario> lote = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lote.add(movimiento(i % 2 == 0 ? compA : compB, MovimientoInventario.TIPO_ENTRADA, 1));
+        }
+        lote.add(movimiento(-1, MovimientoInventario.TIPO_ENTRADA, 100)); // Falla: no se debe contar
+        movimientoInventarioDAO.createAll(lote, 6);
+
+        new InventarioService(db.getConnectionManager()).registrarMovimiento(movimiento(compA, MovimientoInventario.TIPO_SALIDA, 1));
+
+        assertEquals(9, existenciaDAO.getExistencia(compA));
+        assertEquals(10, existenciaDAO.getExistencia(compB));
+        assertTrue(existenciaDAO.check().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: El verificador detecta diferencias y la reconstrucción las corrige")
+    void testCheckAndRebuild() throws SQLException {
+        movimientoInventarioDAO.create(movimiento(compA, MovimientoInventario.TIPO_ENTRADA, 5));
+        movimientoInventarioDAO.create(movimiento(compB, MovimientoInventario.TIPO_ENTRADA, 3));
+        db.execute("UPDATE Existencias SET Existencia = 42 WHERE ComputadoraID = " + compA);
+        db.execute("DELETE FROM Existencias WHERE ComputadoraID = " + compB);
+
+        List<ExistenciaDAO.Discrepancia> discrepancias = existenciaDAO.check();
+        assertEquals(2, discrepancias.size());
+        ExistenciaDAO.Discrepancia a = discrepancias.get(0).getComputadoraID() == compA ? discrepancias.get(0) : discrepancias.get(1);
+        assertEquals(5, a.getEsperada());
+        assertEquals(42, a.getRegistrada());
+
+        existenciaDAO.rebuild();
+
+        assertTrue(existenciaDAO.check().isEmpty());
+        assertEquals(5, existenciaDAO.getExistencia(compA));
+        assertEquals(3, existenciaDAO.getExistencia(compB));
+    }
+
+    @Test
+    @DisplayName("Test: Los movimientos que se confirman durante la verificación no aparecen como diferencias")
+    void testCheckWhileMovimientosAreCommitted() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    movimientoInventarioDAO.create(movimiento(i % 2 == 0 ? compA : compB, MovimientoInventario.TIPO_ENTRADA, 1));
+                }
+                return null;
+            });
+            while (!writer.isDone()) {
+                assertTrue(existenciaDAO.check().isEmpty(), "La verificación no debe ver un movimiento a medias.");
+            }
+            writer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(150, existenciaDAO.getExistencia(compA));
+    }
+}
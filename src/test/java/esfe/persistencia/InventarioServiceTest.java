@@ -0,0 +1,129 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del registro transaccional de movimientos y de la concurrencia optimista
+ * sobre H2 en memoria.
+ */
+class InventarioServiceTest {
+    private static final int THREADS = 8;
+
+    private TestDatabase db;
+    private InventarioService inventarioService;
+    private ComputadoraDAO computadoraDAO;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+    private Computadora computadora;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("inventarioservice", THREADS);
+        ConnectionManager connectionManager = db.getConnectionManager();
+        inventarioService = new InventarioService(connectionManager);
+        computadoraDAO = new ComputadoraDAO(connectionManager);
+        movimientoInventarioDAO = new MovimientoInventarioDAO(connectionManager);
+        int categoriaId = new CategoriaDAO(connectionManager).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+        computadora = computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-1", 900.0, null));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Una salida registra el movimiento y deja la computadora agotada")
+    void testSalidaUpdatesEstado() throws SQLException {
+        MovimientoInventario salida = inventarioService.registrarMovimiento(
+                new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Venta"));
+
+        assertTrue(salida.getMovimientoID() > 0);
+        Computadora leida = computadoraDAO.getById(computadora.getComputadoraID());
+        assertEquals(Computadora.ESTADO_AGOTADO, leida.getEstado());
+        assertEquals(computadora.getVersion() + 1, leida.getVersion(), "El cambio de estado debe incrementar la versión.");
+
+        inventarioService.registrarMovimiento(
+                new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, "Devolución"));
+        assertEquals(Computadora.ESTADO_DISPONIBLE, computadoraDAO.getById(computadora.getComputadoraID()).getEstado());
+        assertEquals(2, movimientoInventarioDAO.getAllMovimientoInventario().size());
+    }
+
+    @Test
+    @DisplayName("Test: Una salida rechazada no deja ningún cambio a medias")
+    void testRejectedSalidaRollsBack() throws SQLException {
+        inventarioService.registrarMovimiento(
+                new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Venta"));
+
+        assertThrows(SQLException.class, () -> inventarioService.registrarMovimiento(
+                new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Segunda venta")));
+        assertThrows(SQLException.class, () -> inventarioService.registrarMovimiento(
+                new MovimientoInventario(-1, MovimientoInventario.TIPO_ENTRADA, "Inexistente")));
+
+        assertEquals(1, movimientoInventarioDAO.getAllMovimientoInventario().size());
+        assertEquals(0, db.getPool().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Test: Salidas simultáneas de la misma computadora: solo una se registra")
+    void testConcurrentSalidasNoLostUpdate() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                try {
+                    inventarioService.registrarMovimiento(
+                            new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Venta"));
+                    return true;
+                } catch (SQLException ex) {
+                    return false;
+                }
+            }));
+        }
+        start.countDown();
+        int registradas = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                registradas++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, registradas, "Solo una salida puede registrarse sobre una computadora disponible.");
+        assertEquals(1, movimientoInventarioDAO.getAllMovimientoInventario().size());
+        assertEquals(Computadora.ESTADO_AGOTADO, computadoraDAO.getById(computadora.getComputadoraID()).getEstado());
+    }
+
+    @Test
+    @DisplayName("Test: Guardar una computadora leída antes de un movimiento se rechaza")
+    void testStaleUpdateThrows() throws SQLException {
+        Computadora enFormulario = computadoraDAO.getById(computadora.getComputadoraID());
+        inventarioService.registrarMovimiento(
+                new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Venta"));
+
+        enFormulario.setObservaciones("Editada con datos viejos");
+        assertThrows(OptimisticLockException.class, () -> computadoraDAO.update(enFormulario));
+
+        Computadora actual = computadoraDAO.getById(computadora.getComputadoraID());
+        actual.setObservaciones("Editada con datos actuales");
+        assertTrue(computadoraDAO.update(actual));
+        assertEquals(Computadora.ESTADO_AGOTADO, computadoraDAO.getById(computadora.getComputadoraID()).getEstado());
+    }
+}
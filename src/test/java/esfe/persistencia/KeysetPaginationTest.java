@@ -0,0 +1,128 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import esfe.dominio.Proveedor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la paginación por conjunto de claves de ComputadoraDAO y MovimientoInventarioDAO
+ * sobre una base de datos H2 en memoria.
+ */
+class KeysetPaginationTest {
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+    private int categoriaId;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("pagination");
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        movimientoInventarioDAO = new MovimientoInventarioDAO(db.getConnectionManager());
+        categoriaId = new CategoriaDAO(db.getConnectionManager()).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Recorrer todas las páginas de computadoras en orden Marca, Modelo, ID")
+    void testComputadorasPages() throws SQLException {
+        // Marcas y modelos repetidos para probar el desempate por ComputadoraID.
+        String[] marcas = {"Lenovo", "Dell", "HP"};
+        for (int i = 0; i < 25; i++) {
+            computadoraDAO.create(new Computadora(categoriaId, null, marcas[i % 3], "Modelo" + (i % 2), "SN-" + i, 100.0 + i, null));
+        }
+        List<Computadora> expected = new ArrayList<>(computadoraDAO.getAllComputadoras());
+        expected.sort(Comparator.comparing(Computadora::getMarca).thenComparing(Computadora::getModelo).thenComparingInt(Computadora::getComputadoraID));
+
+        List<Integer> seen = new ArrayList<>();
+        String token = null;
+        int pages = 0;
+        do {
+            Page<Computadora> page = computadoraDAO.getComputadorasPage(token, 7);
+            assertTrue(page.getItems().size() <= 7, "Ninguna página debe superar el tamaño pedido.");
+            page.getItems().forEach(c -> seen.add(c.getComputadoraID()));
+            token = page.getNextPageToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(4, pages, "25 filas en páginas de 7 deben dar 4 páginas.");
+        assertEquals(expected.stream().map(Computadora::getComputadoraID).toList(), seen, "Las páginas deben cubrir todas las filas, en orden y sin repetir.");
+    }
+
+    @Test
+    @DisplayName("Test: Las páginas y la búsqueda traen los nombres de categoría y proveedor")
+    void testComputadorasPageIncludesNames() throws SQLException {
+        int proveedorId = new ProveedorDAO(db.getConnectionManager())
+                .create(new Proveedor(null, "Tecno SA", null, null, null)).getProveedorID();
+        computadoraDAO.create(new Computadora(categoriaId, proveedorId, "Dell", "Latitude", "SN-1", 900.0, null));
+        computadoraDAO.create(new Computadora(categoriaId, null, "HP", "ProBook", "SN-2", 800.0, null));
+
+        List<Computadora> items = computadoraDAO.getComputadorasPage(null, 10).getItems();
+        assertEquals("Laptops", items.get(0).getCategoriaNombre());
+        assertEquals("Tecno SA", items.get(0).getProveedorNombre());
+        assertEquals("Laptops", items.get(1).getCategoriaNombre());
+        assertNull(items.get(1).getProveedorNombre(), "Sin proveedor, el nombre debe ser null.");
+
+        List<Computadora> found = computadoraDAO.search("Latitude");
+        assertEquals(1, found.size());
+        assertEquals("Tecno SA", found.get(0).getProveedorNombre());
+    }
+
+    @Test
+    @DisplayName("Test: Recorrer el historial de movimientos del más reciente al más antiguo")
+    void testMovimientosPages() throws SQLException {
+        Computadora comp = computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-MOV", 900.0, null));
+        List<Integer> created = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            created.add(movimientoInventarioDAO.create(new MovimientoInventario(comp.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, "Mov " + i)).getMovimientoID());
+        }
+
+        List<MovimientoInventario> all = new ArrayList<>();
+        String token = null;
+        do {
+            Page<MovimientoInventario> page = movimientoInventarioDAO.getMovimientosPage(token, 5);
+            all.addAll(page.getItems());
+            token = page.getNextPageToken();
+        } while (token != null);
+
+        assertEquals(12, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            MovimientoInventario prev = all.get(i - 1);
+            MovimientoInventario cur = all.get(i);
+            assertTrue(prev.getFechaMovimiento().isAfter(cur.getFechaMovimiento())
+                    || (prev.getFechaMovimiento().equals(cur.getFechaMovimiento()) && prev.getMovimientoID() > cur.getMovimientoID()),
+                    "Los movimientos deben venir en orden descendente.");
+        }
+        assertTrue(all.stream().map(MovimientoInventario::getMovimientoID).toList().containsAll(created));
+    }
+
+    @Test
+    @DisplayName("Test: Una tabla vacía devuelve una sola página sin token")
+    void testEmptyPage() throws SQLException {
+        Page<Computadora> page = computadoraDAO.getComputadorasPage(null, 10);
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    @DisplayName("Test: Un token inválido se rechaza")
+    void testInvalidToken() {
+        assertThrows(IllegalArgumentException.class, () -> computadoraDAO.getComputadorasPage("no-es-un-token", 10));
+    }
+}
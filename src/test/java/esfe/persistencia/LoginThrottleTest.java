@@ -0,0 +1,146 @@
+package esfe.persistencia;
+
+import esfe.dominio.User;
+import esfe.utils.PasswordHashEngine;
+import esfe.utils.PasswordHasher;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del límite de intentos de inicio de sesión: ráfaga por correo bajo concurrencia,
+ * recarga con el tiempo, memoria acotada y rechazo sin consultar la base de datos.
+ */
+class LoginThrottleTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Test: Con muchos hilos a la vez sobre el mismo correo solo se admite la ráfaga")
+    void testConcurrentAttempts() throws Exception {
+        LoginThrottle throttle = new LoginThrottle(5, 30, TimeUnit.SECONDS, 100, () -> 0L);
+        int threads = 16;
+        int attemptsPerThread = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            // La mitad de los hilos escribe el correo con otras mayúsculas y espacios
+            String email = t % 2 == 0 ? "ana@test.com" : " ANA@test.com ";
+            results.add(executor.submit(() -> {
+                start.await();
+                int allowed = 0;
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        throttle.acquire(email);
+                        allowed++;
+                    } catch (LoginThrottledException ex) {
+                        assertTrue(ex.getRetryAfterMillis() > 0);
+                    }
+                }
+                return allowed;
+            }));
+        }
+        start.countDown();
+        int allowed = 0;
+        for (Future<Integer> result : results) {
+            allowed += result.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(5, allowed, "Solo se admiten los intentos de la ráfaga.");
+        assertEquals(threads * attemptsPerThread - 5, throttle.getRejected());
+        assertEquals(1, throttle.size(), "El correo se normaliza antes de contar.");
+        assertDoesNotThrow(() -> throttle.acquire("otro@test.com"), "Otros correos no se ven afectados.");
+    }
+
+    @Test
+    @DisplayName("Test: Los intentos se recargan con el tiempo y un inicio de sesión correcto los reinicia")
+    void testRefillAndReset() throws Exception {
+        AtomicLong now = new AtomicLong(1_000 * SECOND);
+        LoginThrottle throttle = new LoginThrottle(3, 10, TimeUnit.SECONDS, 100, now::get);
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("ana@test.com");
+        }
+        LoginThrottledException ex = assertThrows(LoginThrottledException.class, () -> throttle.acquire("ana@test.com"));
+        assertEquals(10_000, ex.getRetryAfterMillis(), 1, "Hay que esperar un intervalo.");
+
+        now.addAndGet(10 * SECOND);
+        throttle.acquire("ana@test.com");
+        assertThrows(LoginThrottledException.class, () -> throttle.acquire("ana@test.com"), "Cada intervalo recarga un solo intento.");
+
+        throttle.reset("Ana@Test.com");
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("ana@test.com");
+        }
+    }
+
+    @Test
+    @DisplayName("Test: La memoria está acotada: se eliminan los correos sin intentos recientes")
+    void testBoundedMemory() throws Exception {
+        AtomicLong now = new AtomicLong(0);
+        LoginThrottle throttle = new LoginThrottle(2, 10, TimeUnit.SECONDS, 3, now::get);
+        for (int i = 0; i < 3; i++) {
+            throttle.acquire("usuario" + i + "@test.com");
+        }
+        assertEquals(3, throttle.size());
+
+        // Mapa lleno de correos con intentos recientes: los correos nuevos comparten un cubo común
+        throttle.acquire("nuevo1@test.com");
+        throttle.acquire("nuevo2@test.com");
+        assertThrows(LoginThrottledException.class, () -> throttle.acquire("nuevo3@test.com"));
+        assertEquals(3, throttle.size(), "El mapa no crece por encima del máximo.");
+
+        // Pasado el intervalo los cubos vuelven a estar llenos y se pueden eliminar
+        now.addAndGet(10 * SECOND);
+        throttle.acquire("nuevo3@test.com");
+        assertEquals(1, throttle.size(), "Se eliminaron los correos sin intentos recientes.");
+    }
+
+    @Test
+    @DisplayName("Test: Los intentos rechazados no consultan la base de datos")
+    void testRejectedBeforeDatabase() throws SQLException {
+        PasswordHashEngine passwordEngine = PasswordHasher.getCurrentEngine();
+        PasswordHasher.setCurrentEngine(new PasswordHasher.Pbkdf2Sha256(1_000));
+        TestDatabase db = TestDatabase.create("throttletest");
+        try {
+            UserDAO userDAO = new UserDAO(db.getConnectionManager());
+            userDAO.create(new User(0, "Ana", "clave", "ana@test.com", (byte) 1));
+            DaoMetrics metrics = db.getPool().getMetrics();
+            metrics.reset();
+
+            for (int i = 0; i < 5; i++) {
+                assertNull(userDAO.login(credentials("ana@test.com", "incorrecta" + i)));
+            }
+            assertThrows(LoginThrottledException.class, () -> userDAO.login(credentials("ana@test.com", "clave")),
+                    "Ni siquiera la contraseña correcta se acepta mientras dura el bloqueo.");
+            assertThrows(LoginThrottledException.class, () -> userDAO.authenticate(credentials("ANA@test.com", "clave")));
+
+            assertEquals(5, metrics.getStats("UserDAO.verifyCredentials").getCalls(),
+                    "Los intentos rechazados no llegaron a la base de datos.");
+
+            assertNull(userDAO.login(credentials("otro@test.com", "clave")));
+            assertEquals(6, metrics.getStats("UserDAO.verifyCredentials").getCalls(), "Otro correo se sigue verificando.");
+        } finally {
+            PasswordHasher.setCurrentEngine(passwordEngine);
+            db.close();
+        }
+    }
+
+    private static User credentials(String email, String password) {
+        User login = new User();
+        login.setEmail(email);
+        login.setPasswordHash(password);
+        return login;
+    }
+}
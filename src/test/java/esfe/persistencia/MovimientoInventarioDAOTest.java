@@ -7,6 +7,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -116,7 +117,7 @@ class MovimientoInventarioDAOTest {
         assertEquals(nuevaDescripcion, updatedMovimiento.getDescripcion(), "La descripción actualizada debe coincidir.");
         assertEquals(nuevaCantidad, updatedMovimiento.getCantidad(), "La cantidad actualizada debe coincidir.");
         // La fecha de movimiento no debería cambiar en un update a menos que se especifique explícitamente en el DAO
-        assertEquals(movimientoOriginal.getFechaMovimiento(), updatedMovimiento.getFechaMovimiento(), "La fecha de movimiento no debería cambiar en el update.");
+        assertSameFecha(movimientoOriginal.getFechaMovimiento(), updatedMovimiento.getFechaMovimiento(), "La fecha de movimiento no debería cambiar en el update.");
     }
 
     @Test
@@ -188,7 +189,7 @@ class MovimientoInventarioDAOTest {
         assertEquals(movimientoCreado.getComputadoraID(), foundMovimiento.getComputadoraID(), "El ID de la computadora debe coincidir.");
         assertEquals(movimientoCreado.getTipoMovimiento(), foundMovimiento.getTipoMovimiento(), "El tipo de movimiento debe coincidir.");
         assertEquals(movimientoCreado.getCantidad(), foundMovimiento.getCantidad(), "La cantidad debe coincidir.");
-        assertEquals(movimientoCreado.getFechaMovimiento(), foundMovimiento.getFechaMovimiento(), "La fecha de movimiento debe coincidir.");
+        assertSameFecha(movimientoCreado.getFechaMovimiento(), foundMovimiento.getFechaMovimiento(), "La fecha de movimiento debe coincidir.");
         assertEquals(movimientoCreado.getDescripcion(), foundMovimiento.getDescripcion(), "La descripción debe coincidir.");
     }
 
@@ -210,4 +211,12 @@ class MovimientoInventarioDAOTest {
         assertTrue(allMovimientos.stream().anyMatch(m -> m.getMovimientoID() == mov2.getMovimientoID()), "El movimiento 2 debe estar en la lista.");
         assertTrue(allMovimientos.stream().anyMatch(m -> m.getMovimientoID() == mov3.getMovimientoID()), "El movimiento 3 debe estar en la lista.");
     }
-}
\ No newline at end of file
+
+    /**
+     * FechaMovimiento es DATETIME: la base de datos redondea la hora (H2 a microsegundos,
+     * SQL Server a 1/300 de segundo), así que se compara con esa precisión.
+     */
+    private static void assertSameFecha(LocalDateTime expected, LocalDateTime actual, String message) {
+        assertTrue(Duration.between(expected, actual).abs().toMillis() <= 4, message + " ==> expected: <" + expected + "> but was: <" + actual + ">");
+    }
+}
@@ -0,0 +1,266 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la escritura diferida de movimientos: confirmación en grupo, errores por fila,
+ * vaciado de la cola al cerrar, recuperación del diario local y claves de idempotencia.
+ */
+class MovimientoWriteBehindTest {
+    @TempDir
+    Path tempDir;
+
+    private TestDatabase db;
+    private ConnectionManager connectionManager;
+    private ComputadoraDAO computadoraDAO;
+    private Computadora computadora;
+    private Path journalFile;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("writebehind");
+        connectionManager = db.getConnectionManager();
+        computadoraDAO = new ComputadoraDAO(connectionManager);
+        int categoriaId = new CategoriaDAO(connectionManager).create(new Categoria(0, "Laptops", null)).getCategoriaID();
+        computadora = computadoraDAO.create(new Computadora(categoriaId, null, "Dell", "Latitude", "SN-1", 900.0, null));
+        journalFile = tempDir.resolve("movimientos.journal");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Los movimientos se confirman en grupo y actualizan existencias y Estado")
+    void testGroupCommit() throws Exception {
+        inventarioService().registrarMovimiento(salida());
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 1_000, 200, 50, true, true)) {
+            connectionManager.getShared(MovimientoWriteBehind.SHARED_KEY, () -> writeBehind);
+            InventarioService inventarioService = inventarioService();
+            assertTrue(inventarioService.isWriteBehind());
+
+            List<CompletableFuture<MovimientoInventario>> pendientes = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                pendientes.add(inventarioService.registrarMovimientoDiferido(
+                        new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, 2, "Ingreso " + i)));
+            }
+            for (CompletableFuture<MovimientoInventario> pendiente : pendientes) {
+                assertTrue(pendiente.get(30, TimeUnit.SECONDS).getMovimientoID() > 0, "Cada movimiento confirmado tiene su ID.");
+            }
+
+            assertEquals(500, writeBehind.getCommitted());
+            assertTrue(writeBehind.getGroups() <= 25, "Se confirmaron en grupos, no uno por uno: " + writeBehind.getGroups());
+            assertEquals(999, new ExistenciaDAO(connectionManager).getExistencia(computadora.getComputadoraID()));
+            assertEquals(Computadora.ESTADO_DISPONIBLE, computadoraDAO.getById(computadora.getComputadoraID()).getEstado());
+            assertEquals(0, writeBehind.getOutstanding(), "Sin pendientes el diario local vuelve al inicio.");
+            assertEquals(500, countAplicados(), "Cada movimiento registró su clave de idempotencia.");
+
+            // La salida espera a que se confirmen las entradas en cola
+            inventarioService.registrarMovimientoDiferido(
+                    new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, "Otra"));
+            assertTrue(inventarioService.registrarMovimientoDiferido(salida()).isDone(), "Las salidas se registran en el momento.");
+            assertEquals(Computadora.ESTADO_AGOTADO, computadoraDAO.getById(computadora.getComputadoraID()).getEstado());
+        }
+    }
+
+    @Test
+    @DisplayName("Test: Una fila inválida falla sola y al cerrar se confirma lo que quedó en cola")
+    void testRowFailureAndDrainOnClose() throws Exception {
+        List<CompletableFuture<MovimientoInventario>> pendientes = new ArrayList<>();
+        CompletableFuture<MovimientoInventario> invalido;
+        // Ventana larga: sin el cierre, nada se confirmaría durante la prueba
+        MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 1_000, 1_000, 60_000, false, true);
+        try {
+            for (int i = 0; i < 10; i++) {
+                pendientes.add(writeBehind.submit(entrada(computadora.getComputadoraID())));
+            }
+            invalido = writeBehind.submit(entrada(-1));
+            pendientes.add(writeBehind.submit(entrada(computadora.getComputadoraID())));
+            assertFalse(invalido.isDone());
+        } finally {
+            writeBehind.close();
+        }
+
+        for (CompletableFuture<MovimientoInventario> pendiente : pendientes) {
+            assertTrue(pendiente.isDone() && !pendiente.isCompletedExceptionally(), "Al cerrar se confirmó la cola.");
+        }
+        ExecutionException ex = assertThrows(ExecutionException.class, invalido::get);
+        assertInstanceOf(SQLException.class, ex.getCause(), "El error de la fila llega a quien la envió.");
+        assertEquals(11, new MovimientoInventarioDAO(connectionManager).getAllMovimientoInventario().size());
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            assertTrue(journal.recovered().isEmpty(), "No queda nada pendiente en el diario.");
+        }
+        assertThrows(SQLException.class, () -> writeBehind.submit(entrada(computadora.getComputadoraID())));
+    }
+
+    @Test
+    @DisplayName("Test: Los movimientos sin confirmar de una ejecución anterior se vuelven a enviar")
+    void testRecoveryFromJournal() throws Exception {
+        long end;
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            UUID first = UUID.randomUUID();
+            journal.append(first, entrada(computadora.getComputadoraID()));
+            journal.append(UUID.randomUUID(), entrada(computadora.getComputadoraID()));
+            MovimientoInventario conDescripcion = entrada(computadora.getComputadoraID());
+            conDescripcion.setDescripcion("Lote 7: cargador y mouse");
+            journal.append(UUID.randomUUID(), conDescripcion);
+            end = journal.markDone(List.of(first));
+            journal.append(UUID.randomUUID(), entrada(computadora.getComputadoraID()));
+        }
+        // Caída a mitad de una escritura: los datos del último registro no coinciden con su CRC
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 8 + end + 4);
+        }
+
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 10, 10, 0, true, true)) {
+            writeBehind.flush();
+            assertEquals(2, writeBehind.getCommitted(), "Solo se reenvían los pendientes completos.");
+            assertEquals(0, writeBehind.getOutstanding());
+        }
+        List<MovimientoInventario> movimientos = new MovimientoInventarioDAO(connectionManager).getAllMovimientoInventario();
+        assertEquals(2, movimientos.size());
+        assertTrue(movimientos.stream().anyMatch(m -> "Lote 7: cargador y mouse".equals(m.getDescripcion())));
+    }
+
+    @Test
+    @DisplayName("Test: Volver a enviar un movimiento ya registrado no lo duplica")
+    void testReplayIsIdempotent() throws Exception {
+        // Un movimiento confirmado en modo sin conexión, pero que sigue en el diario (caída antes de marcarlo)
+        UUID key = UUID.randomUUID();
+        MovimientoInventario registrado = inventarioService().registrarMovimientoDiferido(entrada(computadora.getComputadoraID())).get();
+        try (Connection connection = connectionManager.getConnection()) {
+            MovimientoWriteBehind.insertKey(connection, key, registrado.getMovimientoID());
+        }
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            journal.append(key, entrada(computadora.getComputadoraID()));
+            journal.append(UUID.randomUUID(), entrada(computadora.getComputadoraID()));
+            journal.sync(Long.MAX_VALUE);
+        }
+
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 10, 10, 0, true, false)) {
+            connectionManager.getShared(MovimientoWriteBehind.SHARED_KEY, () -> writeBehind);
+            InventarioService inventarioService = inventarioService();
+            assertFalse(inventarioService.isWriteBehind());
+            assertTrue(inventarioService.isOfflineEnabled());
+            writeBehind.flush();
+            assertEquals(1, writeBehind.getCommitted(), "El movimiento con la clave ya registrada no se vuelve a insertar.");
+
+            // Con la base de datos disponible, el modo sin conexión registra en el momento
+            CompletableFuture<MovimientoInventario> enLinea = inventarioService.registrarMovimientoDiferido(entrada(computadora.getComputadoraID()));
+            assertTrue(enLinea.isDone() && enLinea.get().getMovimientoID() > 0);
+            assertEquals(1, writeBehind.getCommitted(), "No pasó por el diario local.");
+        }
+        assertEquals(3, new MovimientoInventarioDAO(connectionManager).getAllMovimientoInventario().size());
+        assertEquals(3, countAplicados(), "El movimiento reenviado y el registrado en línea también guardaron su clave.");
+        assertEquals(3, new ExistenciaDAO(connectionManager).getExistencia(computadora.getComputadoraID()));
+    }
+
+    @Test
+    @DisplayName("Test: Una espera de bloqueo agotada se reintenta sin perder el movimiento")
+    void testLockTimeoutIsRetried() throws Exception {
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 10, 10, 0, true, true)) {
+            writeBehind.submit(entrada(computadora.getComputadoraID())).get(10, TimeUnit.SECONDS);
+
+            CompletableFuture<MovimientoInventario> pendiente;
+            try (Connection otra = connectionManager.getConnection()) {
+                // Otra transacción retiene la fila de existencias más que la espera de bloqueo de H2 (2 s)
+                otra.setAutoCommit(false);
+                try (Statement st = otra.createStatement()) {
+                    st.executeUpdate("UPDATE Existencias SET Existencia = Existencia WHERE ComputadoraID = " + computadora.getComputadoraID());
+                }
+                pendiente = writeBehind.submit(entrada(computadora.getComputadoraID()));
+                Thread.sleep(2_500);
+                assertFalse(pendiente.isDone(), "El movimiento sigue pendiente mientras la fila está bloqueada.");
+                assertEquals(1, writeBehind.getOutstanding(), "El movimiento sigue en el diario local.");
+                otra.commit();
+            }
+
+            assertTrue(pendiente.get(10, TimeUnit.SECONDS).getMovimientoID() > 0, "Se confirmó al liberarse el bloqueo.");
+            assertEquals(0, writeBehind.getOutstanding());
+        }
+        assertEquals(2, new ExistenciaDAO(connectionManager).getExistencia(computadora.getComputadoraID()));
+        assertEquals(2, countAplicados());
+    }
+
+    @Test
+    @DisplayName("Test: Si el envío se interrumpe, el movimiento no queda pendiente en el diario")
+    void testInterruptedSubmitLeavesNothingInJournal() throws Exception {
+        try (MovimientoWriteBehind writeBehind = new MovimientoWriteBehind(connectionManager, journalFile, 10, 10, 0, false, true)) {
+            Thread.currentThread().interrupt();
+            try {
+                assertThrows(SQLException.class, () -> writeBehind.submit(entrada(computadora.getComputadoraID())));
+            } finally {
+                assertTrue(Thread.interrupted(), "Se conserva la interrupción de quien llama.");
+            }
+            assertEquals(0, writeBehind.getOutstanding(), "El movimiento rechazado no queda pendiente.");
+        }
+        try (MovimientoJournal journal = new MovimientoJournal(journalFile)) {
+            assertTrue(journal.recovered().isEmpty(), "No se vuelve a enviar al iniciar la siguiente vez.");
+        }
+        assertTrue(new MovimientoInventarioDAO(connectionManager).getAllMovimientoInventario().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test: Solo una restricción o un dato inválido de la fila descartan el movimiento")
+    void testOnlyRowErrorsAreDropped() {
+        assertTrue(MovimientoWriteBehind.isRowError(new SQLException("Clave foránea", "23000")));
+        assertTrue(MovimientoWriteBehind.isRowError(new SQLException("Dato truncado", "22001")));
+        assertTrue(MovimientoWriteBehind.isRowError(new SQLException("Error al crear los movimientos", new SQLException("Duplicado", "23505"))));
+        assertFalse(MovimientoWriteBehind.isRowError(new SQLFeatureNotSupportedException("No soportado", "23000")),
+                "Una función que el driver no admite se reintenta.");
+        assertFalse(MovimientoWriteBehind.isRowError(new SQLException("Interbloqueo", "40001", 1205)));
+        assertFalse(MovimientoWriteBehind.isRowError(new SQLException("Espera de bloqueo agotada", "HYT00")));
+        assertFalse(MovimientoWriteBehind.isRowError(new SQLException("Conexión interrumpida", "08S01")));
+        assertFalse(MovimientoWriteBehind.isRowError(new SQLException("No se generó ID.")), "Sin SQLState no se descarta.");
+    }
+
+    private int countAplicados() throws SQLException {
+        try (Connection connection = connectionManager.getConnection();
+             Statement st = connection.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM MovimientosAplicados")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private InventarioService inventarioService() {
+        return new InventarioService(connectionManager);
+    }
+
+    private MovimientoInventario salida() {
+        return new MovimientoInventario(computadora.getComputadoraID(), MovimientoInventario.TIPO_SALIDA, "Venta");
+    }
+
+    private static MovimientoInventario entrada(int computadoraID) {
+        MovimientoInventario movimiento = new MovimientoInventario(computadoraID, MovimientoInventario.TIPO_ENTRADA, null);
+        movimiento.setFechaMovimiento(LocalDateTime.now());
+        return movimiento;
+    }
+}
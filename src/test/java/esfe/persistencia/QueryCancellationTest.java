@@ -0,0 +1,54 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la cancelación de búsquedas sobre una base de datos H2 en memoria.
+ */
+class QueryCancellationTest {
+    private TestDatabase db;
+    private CategoriaDAO categoriaDAO;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("cancellation");
+        categoriaDAO = new CategoriaDAO(db.getConnectionManager());
+        categoriaDAO.create(new Categoria(0, "Laptops", "Portátiles"));
+        categoriaDAO.create(new Categoria(0, "Monitores", "Pantallas"));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Una búsqueda con cancelación sin usar devuelve los resultados normales")
+    void testSearchNotCancelled() throws SQLException {
+        QueryCancellation cancellation = new QueryCancellation();
+        List<Categoria> result = categoriaDAO.search("Lap", cancellation);
+        assertEquals(1, result.size());
+        assertFalse(cancellation.isCancelled());
+        // Cancelar después de terminar no afecta a nadie: la sentencia ya fue retirada.
+        cancellation.cancel();
+        assertEquals(0, db.getPool().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Test: Una búsqueda cancelada antes de ejecutarse no llega a la base de datos")
+    void testSearchCancelledBeforeExecution() {
+        QueryCancellation cancellation = new QueryCancellation();
+        cancellation.cancel();
+        assertThrows(SQLException.class, () -> categoriaDAO.search("Lap", cancellation));
+        assertEquals(0, db.getPool().getActiveConnections(), "La conexión debe volver al pool aunque se cancele.");
+    }
+}
@@ -0,0 +1,121 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Proveedor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de la caché de datos de referencia de categorías y proveedores sobre H2 en memoria.
+ */
+class ReferenceCacheTest {
+    private TestDatabase db;
+    private CategoriaDAO categoriaDAO;
+    private ProveedorDAO proveedorDAO;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("referencecache");
+        categoriaDAO = new CategoriaDAO(db.getConnectionManager());
+        proveedorDAO = new ProveedorDAO(db.getConnectionManager());
+        categoriaDAO.create(new Categoria(0, "Monitores", "Pantallas"));
+        categoriaDAO.create(new Categoria(0, "Laptops", "Portátiles"));
+        proveedorDAO.create(new Proveedor(null, "Tecno SA", "2222-0000", "ventas@tecno.com", "San Salvador"));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Las lecturas repetidas se sirven desde la caché")
+    void testRepeatedReadsHitCache() throws SQLException {
+        ReferenceCache<Categoria> cache = categoriaDAO.getCache();
+        long misses = cache.getMisses();
+
+        List<Categoria> first = categoriaDAO.getAllCategorias();
+        List<Categoria> second = categoriaDAO.getAllCategorias();
+
+        assertEquals(2, first.size());
+        assertEquals("Laptops", first.get(0).getNombre(), "La lista debe seguir ordenada por nombre");
+        assertEquals(first.size(), second.size());
+        assertEquals(misses + 1, cache.getMisses(), "Solo la primera lectura debe ir a la base de datos");
+        assertTrue(cache.getHits() >= 1);
+    }
+
+    @Test
+    @DisplayName("Test: La búsqueda por ID usa la misma caché")
+    void testGetByIdFromCache() throws SQLException {
+        Categoria laptops = categoriaDAO.getAllCategorias().get(0);
+        long misses = categoriaDAO.getCache().getMisses();
+
+        Categoria cached = categoriaDAO.getCache().getById(laptops.getCategoriaID());
+
+        assertNotNull(cached);
+        assertEquals("Laptops", cached.getNombre());
+        assertNull(categoriaDAO.getCache().getById(-1));
+        assertEquals(misses, categoriaDAO.getCache().getMisses());
+    }
+
+    @Test
+    @DisplayName("Test: Crear, modificar y eliminar invalidan la caché")
+    void testWritesInvalidateCache() throws SQLException {
+        assertEquals(1, proveedorDAO.getAllProveedores().size());
+
+        Proveedor creado = proveedorDAO.create(new Proveedor(null, "Alfa", "2222-1111", "info@alfa.com", "Santa Ana"));
+        assertEquals(2, proveedorDAO.getAllProveedores().size(), "El alta debe verse en la siguiente lectura");
+
+        creado.setNombre("Zeta");
+        assertTrue(proveedorDAO.update(creado));
+        List<Proveedor> proveedores = proveedorDAO.getAllProveedores();
+        assertEquals("Zeta", proveedores.get(1).getNombre(), "El cambio debe verse en la siguiente lectura");
+
+        assertTrue(proveedorDAO.delete(creado.getProveedorID()));
+        assertEquals(1, proveedorDAO.getAllProveedores().size(), "La baja debe verse en la siguiente lectura");
+    }
+
+    @Test
+    @DisplayName("Test: Instancias distintas del DAO comparten la caché de su base de datos")
+    void testCacheSharedAcrossDaoInstances() throws SQLException {
+        CategoriaDAO otroDAO = new CategoriaDAO(db.getConnectionManager());
+        assertSame(categoriaDAO.getCache(), otroDAO.getCache());
+
+        categoriaDAO.getAllCategorias();
+        otroDAO.create(new Categoria(0, "Impresoras", "Láser"));
+
+        assertEquals(3, categoriaDAO.getAllCategorias().size());
+    }
+
+    @Test
+    @DisplayName("Test: Los datos vencen al cumplirse el TTL")
+    void testTtlExpiry() throws Exception {
+        ReferenceCache<Categoria> cache = categoriaDAO.getCache();
+        cache.setTtlMillis(50);
+        categoriaDAO.getAllCategorias();
+        // Un cambio hecho fuera del DAO (otra instancia de la aplicación) no invalida la caché
+        db.execute("INSERT INTO Categorias (Nombre, Descripcion) VALUES ('Redes', 'Routers')");
+        assertEquals(2, categoriaDAO.getAllCategorias().size());
+
+        Thread.sleep(100);
+
+        assertEquals(3, categoriaDAO.getAllCategorias().size());
+    }
+
+    @Test
+    @DisplayName("Test: Modificar un objeto devuelto no altera la caché")
+    void testReturnedObjectsAreCopies() throws SQLException {
+        Categoria categoria = categoriaDAO.getAllCategorias().get(0);
+        categoria.setNombre("Cambiado sin guardar");
+
+        assertEquals("Laptops", categoriaDAO.getAllCategorias().get(0).getNombre());
+        assertEquals("Laptops", categoriaDAO.getCache().getById(categoria.getCategoriaID()).getNombre());
+    }
+}
@@ -0,0 +1,91 @@
+package esfe.persistencia;
+
+import esfe.dominio.Categoria;
+import esfe.dominio.Computadora;
+import esfe.dominio.MovimientoInventario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de los recorridos en streaming de los DAO sobre una base de datos H2 en memoria.
+ */
+class RowStreamsTest {
+    private TestDatabase db;
+    private ComputadoraDAO computadoraDAO;
+    private MovimientoInventarioDAO movimientoInventarioDAO;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        db = TestDatabase.create("streams");
+        computadoraDAO = new ComputadoraDAO(db.getConnectionManager());
+        movimientoInventarioDAO = new MovimientoInventarioDAO(db.getConnectionManager());
+        int categoriaId = new CategoriaDAO(db.getConnectionManager()).create(new Categoria(0, "Escritorio", null)).getCategoriaID();
+        for (int i = 0; i < 20; i++) {
+            Computadora comp = computadoraDAO.create(new Computadora(categoriaId, null, "Marca" + (i % 4), "Modelo" + i, "SN-ST-" + i, 500.0, null));
+            movimientoInventarioDAO.create(new MovimientoInventario(comp.getComputadoraID(), MovimientoInventario.TIPO_ENTRADA, "Ingreso " + i));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: El Stream de computadoras devuelve las mismas filas que la lista y libera la conexión")
+    void testStreamComputadoras() throws SQLException {
+        List<Integer> expected = computadoraDAO.getAllComputadoras().stream().map(Computadora::getComputadoraID).toList();
+        List<Integer> streamed;
+        try (Stream<Computadora> stream = computadoraDAO.streamComputadoras(5)) {
+            assertEquals(1, db.getPool().getActiveConnections(), "El Stream abierto debe retener una conexión.");
+            streamed = stream.map(Computadora::getComputadoraID).toList();
+        }
+        assertEquals(expected, streamed);
+        assertEquals(0, db.getPool().getActiveConnections(), "Al cerrar el Stream la conexión debe volver al pool.");
+    }
+
+    @Test
+    @DisplayName("Test: Cerrar el Stream antes de terminar libera la conexión")
+    void testStreamClosedEarly() throws SQLException {
+        try (Stream<MovimientoInventario> stream = movimientoInventarioDAO.streamMovimientos(2)) {
+            Iterator<MovimientoInventario> it = stream.iterator();
+            assertTrue(it.hasNext());
+            assertNotNull(it.next());
+        }
+        assertEquals(0, db.getPool().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Test: El recorrido con consumidor entrega cada fila y libera la conexión si el consumidor falla")
+    void testForEach() throws SQLException {
+        List<MovimientoInventario> seen = new ArrayList<>();
+        int count = movimientoInventarioDAO.forEachMovimiento(4, seen::add);
+        assertEquals(20, count);
+        assertEquals(20, seen.size());
+
+        assertThrows(IllegalStateException.class, () -> computadoraDAO.forEachComputadora(4, c -> {
+            throw new IllegalStateException("corte");
+        }));
+        assertEquals(0, db.getPool().getActiveConnections());
+    }
+
+    @Test
+    @DisplayName("Test: El tamaño de fetch no queda en la sentencia reutilizada desde la caché")
+    void testFetchSizeResetOnCachedStatement() throws SQLException {
+        computadoraDAO.forEachComputadora(7, c -> { });
+        try (var connection = db.getConnectionManager().getConnection();
+             var ps = connection.prepareStatement("SELECT ComputadoraID, CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones FROM Computadoras ORDER BY Marca, Modelo")) {
+            assertNotEquals(7, ps.getFetchSize());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package esfe.persistencia;
+
+import esfe.dominio.User;
+import esfe.utils.PasswordHashEngine;
+import esfe.utils.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de las sesiones de usuario: vencimiento, invalidación al cambiar el usuario y
+ * consultas resueltas en memoria durante la sesión.
+ */
+class SessionStoreTest {
+    private TestDatabase db;
+    private UserDAO userDAO;
+    private DaoMetrics metrics;
+    private PasswordHashEngine passwordEngine;
+    private User user;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        passwordEngine = PasswordHasher.getCurrentEngine();
+        PasswordHasher.setCurrentEngine(new PasswordHasher.Pbkdf2Sha256(1_000));
+        db = TestDatabase.create("sessiontest");
+        userDAO = new UserDAO(db.getConnectionManager());
+        metrics = db.getPool().getMetrics();
+        user = userDAO.create(new User(0, "Ana", "clave", "ana@test.com", (byte) 1));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        PasswordHasher.setCurrentEngine(passwordEngine);
+        db.close();
+    }
+
+    @Test
+    @DisplayName("Test: Durante la sesión el usuario se obtiene sin consultar la base de datos")
+    void testSessionLookupsStayInMemory() throws SQLException {
+        String token = userDAO.login(credentials("ana@test.com", "clave"));
+        assertNotNull(token);
+        assertNull(userDAO.login(credentials("ana@test.com", "otra")), "Una contraseña incorrecta no abre sesión.");
+        metrics.reset();
+
+        assertEquals("Ana", userDAO.getSessionUser(token).getName());
+        assertEquals("Ana", userDAO.getById(user.getId()).getName());
+        assertNotNull(userDAO.authenticate(credentials("ana@test.com", "clave")), "Volver a autenticarse usa la sesión.");
+        assertNull(userDAO.authenticate(credentials("ana@test.com", "otra")));
+        assertNotNull(userDAO.login(credentials("ANA@test.com", "clave")));
+
+        assertNull(metrics.getStats("UserDAO.getById"), "getById se resolvió desde la sesión.");
+        DaoMethodStatsMXBean verify = metrics.getStats("UserDAO.verifyCredentials");
+        assertEquals(1, verify == null ? 0 : verify.getCalls(), "Solo la contraseña incorrecta se consultó en la base de datos.");
+        assertNull(userDAO.getSessionUser(token).getPasswordHash(), "El usuario de la sesión no lleva la contraseña.");
+    }
+
+    @Test
+    @DisplayName("Test: Cambiar, desactivar, eliminar o cambiar la contraseña del usuario invalida sus sesiones")
+    void testInvalidation() throws SQLException {
+        String token = userDAO.login(credentials("ana@test.com", "clave"));
+        user.setPasswordHash("nueva");
+        assertTrue(userDAO.updatePassword(user));
+        assertNull(userDAO.getSessionUser(token), "El cambio de contraseña cierra la sesión.");
+        assertNull(userDAO.login(credentials("ana@test.com", "clave")), "La contraseña anterior ya no sirve.");
+
+        token = userDAO.login(credentials("ana@test.com", "nueva"));
+        user.setStatus((byte) 2);
+        assertTrue(userDAO.update(user));
+        assertNull(userDAO.getSessionUser(token), "Desactivar al usuario cierra la sesión.");
+        assertNull(userDAO.login(credentials("ana@test.com", "nueva")), "Un usuario inactivo no puede iniciar sesión.");
+
+        user.setStatus((byte) 1);
+        assertTrue(userDAO.update(user));
+        token = userDAO.login(credentials("ana@test.com", "nueva"));
+        assertTrue(userDAO.delete(user));
+        assertNull(userDAO.getSessionUser(token), "Eliminar al usuario cierra la sesión.");
+        assertNull(userDAO.getById(user.getId()));
+    }
+
+    @Test
+    @DisplayName("Test: Las sesiones vencen por tiempo de vida y por inactividad")
+    void testExpiry() {
+        AtomicLong now = new AtomicLong(1_000);
+        SessionStore sessions = new SessionStore(10_000, 3_000, now::get);
+        String token = sessions.open(user, "hash");
+
+        now.addAndGet(2_000);
+        assertNotNull(sessions.getUser(token), "El uso renueva la inactividad.");
+        now.addAndGet(2_000);
+        assertNotNull(sessions.getUser(token));
+        now.addAndGet(3_000);
+        assertNull(sessions.getUser(token), "Vence tras 3 s sin uso.");
+
+        String other = sessions.open(user, "hash");
+        for (int i = 0; i < 5; i++) {
+            now.addAndGet(2_000);
+            sessions.getUser(other);
+        }
+        assertNull(sessions.getUser(other), "Vence a los 10 s aunque se siga usando.");
+
+        sessions.open(user, "hash");
+        assertEquals(1, sessions.size(), "Al abrir una sesión se eliminan las vencidas.");
+    }
+
+    private static User credentials(String email, String password) {
+        User login = new User();
+        login.setEmail(email);
+        login.setPasswordHash(password);
+        return login;
+    }
+}
@@ -0,0 +1,55 @@
+package esfe.persistencia;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Base de datos H2 en memoria (modo compatible con SQL Server) para las pruebas que
+ * no deben depender de un servidor real. Crea el esquema ejecutando Script.sql.txt.
+ */
+final class TestDatabase implements AutoCloseable {
+    private final ConnectionPool pool;
+    private final ConnectionManager connectionManager;
+
+    private TestDatabase(String name, int maxConnections) throws SQLException {
+        pool = new ConnectionPool("jdbc:h2:mem:" + name + ";MODE=MSSQLServer;DB_CLOSE_DELAY=-1",
+                1, maxConnections, 10_000, 60_000, 60_000, 2, 10);
+        connectionManager = new ConnectionManager(pool);
+        createSchema();
+    }
+
+    static TestDatabase create(String name) throws SQLException {
+        return new TestDatabase(name, 8);
+    }
+
+    static TestDatabase create(String name, int maxConnections) throws SQLException {
+        return new TestDatabase(name, maxConnections);
+    }
+
+    ConnectionManager getConnectionManager() {
+        return connectionManager;
+    }
+
+    ConnectionPool getPool() {
+        return pool;
+    }
+
+    void execute(String sql) throws SQLException {
+        try (Connection c = pool.borrow(); Statement st = c.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private void createSchema() throws SQLException {
+        try (Connection c = pool.borrow()) {
+            SqlScript.apply(c, SqlScript.SCHEMA);
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        execute("DROP ALL OBJECTS");
+        pool.close();
+    }
+}
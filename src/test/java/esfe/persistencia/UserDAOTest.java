@@ -6,8 +6,14 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach; // Para asegurar la limpieza después de cada test
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List; // Importar List
 import java.util.Random;
 
@@ -212,6 +218,41 @@ class UserDAOTest {
         authenticateAndAssert(createdUser.getEmail(), testUser.getPasswordHash()); // Usar la contraseña original
     }
 
+    @Test
+    void testAuthenticateUpgradesLegacyHash() throws Exception {
+        User createdUser = createAndAssert(testUser);
+        testUser.setId(createdUser.getId()); // Guardar ID para tearDown
+        // Simular un usuario guardado con el formato anterior (SHA-256 sin sal)
+        String legacy = Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest(testUser.getPasswordHash().getBytes(StandardCharsets.UTF_8)));
+        setStoredHash(createdUser.getId(), legacy);
+
+        authenticateAndAssert(createdUser.getEmail(), testUser.getPasswordHash());
+        String upgraded = getStoredHash(createdUser.getId());
+        assertTrue(upgraded.startsWith("$pbkdf2-sha256$"), "El hash anterior se reemplaza al iniciar sesión.");
+        assertTrue(PasswordHasher.verifyPassword(testUser.getPasswordHash(), upgraded));
+        authenticateAndAssert(createdUser.getEmail(), testUser.getPasswordHash());
+    }
+
+    private void setStoredHash(int id, String hash) throws SQLException {
+        try (Connection connection = ConnectionManager.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("UPDATE Users SET passwordHash = ? WHERE id = ?")) {
+            ps.setString(1, hash);
+            ps.setInt(2, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private String getStoredHash(int id) throws SQLException {
+        try (Connection connection = ConnectionManager.getInstance().getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT passwordHash FROM Users WHERE id = ?")) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
     @Test
     void testAuthenticateFailsIncorrectPassword() throws SQLException {
         User createdUser = createAndAssert(testUser);
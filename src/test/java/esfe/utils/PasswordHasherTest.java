@@ -0,0 +1,87 @@
+package esfe.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del hash de contraseñas con PBKDF2 y de la compatibilidad con el formato anterior.
+ */
+class PasswordHasherTest {
+    private final PasswordHashEngine original = PasswordHasher.getCurrentEngine();
+
+    @AfterEach
+    void tearDown() {
+        PasswordHasher.setCurrentEngine(original);
+    }
+
+    @Test
+    @DisplayName("Test: El hash usa el formato versionado, lleva sal y se verifica")
+    void testHashAndVerify() {
+        String first = PasswordHasher.hashPassword("Inventario#2024");
+        String second = PasswordHasher.hashPassword("Inventario#2024");
+
+        assertTrue(first.startsWith("$pbkdf2-sha256$" + PasswordHasher.DEFAULT_ITERATIONS + "$"), "El hash indica el motor y las iteraciones.");
+        assertNotEquals(first, second, "Cada hash lleva una sal distinta.");
+        assertTrue(PasswordHasher.verifyPassword("Inventario#2024", first));
+        assertTrue(PasswordHasher.verifyPassword("Inventario#2024", second));
+        assertFalse(PasswordHasher.verifyPassword("inventario#2024", first));
+        assertFalse(PasswordHasher.verifyPassword("Inventario#2024", null), "Sin hash guardado la verificación falla.");
+        assertFalse(PasswordHasher.verifyPassword("Inventario#2024", "$pbkdf2-sha256$x$y"), "Un hash mal formado no se acepta.");
+        assertFalse(PasswordHasher.needsRehash(first));
+    }
+
+    @Test
+    @DisplayName("Test: La derivación coincide con PBKDF2WithHmacSHA256 del JDK")
+    void testMatchesJdkPbkdf2() throws Exception {
+        byte[] salt = "sal-de-prueba-16".getBytes(StandardCharsets.UTF_8);
+        SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        byte[] expected = factory.generateSecret(new PBEKeySpec("contraseña".toCharArray(), salt, 1000, 256)).getEncoded();
+
+        assertArrayEquals(expected, PasswordHasher.Pbkdf2Sha256.derive("contraseña", salt, 1000));
+    }
+
+    @Test
+    @DisplayName("Test: Los hashes SHA-256 anteriores se aceptan y se marcan para recalcular")
+    void testLegacyHashes() throws Exception {
+        String legacy = Base64.getEncoder().encodeToString(
+                MessageDigest.getInstance("SHA-256").digest("12345".getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(PasswordHasher.verifyPassword("12345", legacy));
+        assertFalse(PasswordHasher.verifyPassword("123456", legacy));
+        assertTrue(PasswordHasher.needsRehash(legacy));
+    }
+
+    @Test
+    @DisplayName("Test: Subir las iteraciones no invalida los hashes guardados, pero pide recalcularlos")
+    void testWorkFactorUpgrade() {
+        PasswordHasher.setCurrentEngine(new PasswordHasher.Pbkdf2Sha256(1_000));
+        String weak = PasswordHasher.hashPassword("secreto");
+
+        PasswordHasher.setCurrentEngine(new PasswordHasher.Pbkdf2Sha256(2_000));
+        assertTrue(PasswordHasher.verifyPassword("secreto", weak), "El hash anterior se sigue verificando con sus iteraciones.");
+        assertTrue(PasswordHasher.needsRehash(weak));
+        assertFalse(PasswordHasher.needsRehash(PasswordHasher.hashPassword("secreto")));
+    }
+
+    @Test
+    @DisplayName("Test: Un hash con un número de iteraciones desmedido se rechaza sin calcularlo")
+    void testRejectsExcessiveIterations() {
+        PasswordHasher.Pbkdf2Sha256 engine = new PasswordHasher.Pbkdf2Sha256(1_000);
+        String[] parts = engine.hash("secreto").split("\\$");
+        String tampered = "$" + parts[1] + "$" + Integer.MAX_VALUE + "$" + parts[3] + "$" + parts[4];
+
+        long start = System.nanoTime();
+        assertFalse(engine.verify("secreto", tampered));
+        assertTrue(System.nanoTime() - start < 1_000_000_000L, "El rechazo no debe calcular el hash.");
+        assertEquals(10 * PasswordHasher.DEFAULT_ITERATIONS, engine.getMaxIterations());
+    }
+}
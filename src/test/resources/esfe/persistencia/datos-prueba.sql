@@ -0,0 +1,10 @@
+-- Datos mínimos que suponen las pruebas que usan ConnectionManager.getInstance():
+-- la categoría y el proveedor con ID 1 y las computadoras con ID 1 a 6.
+INSERT INTO Categorias (Nombre, Descripcion) VALUES ('Laptops', 'Categoría de prueba');
+INSERT INTO Proveedores (Nombre, Telefono, Email, Direccion) VALUES ('Proveedor de prueba', '2222-0000', 'prueba@proveedor.com', 'San Salvador');
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, 1, 'Dell', 'Latitude 5420', 'SEED-001', '2024-01-15', 850.00, '1', NULL);
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, 1, 'HP', 'ProBook 450', 'SEED-002', '2024-02-20', 780.00, '1', NULL);
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, NULL, 'Lenovo', 'ThinkPad T14', 'SEED-003', '2024-03-05', 920.00, '1', NULL);
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, 1, 'Asus', 'VivoBook 15', 'SEED-004', '2024-04-10', 610.00, '1', NULL);
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, NULL, 'Acer', 'Aspire 5', 'SEED-005', '2024-05-12', 540.00, '1', NULL);
+INSERT INTO Computadoras (CategoriaID, ProveedorID, Marca, Modelo, NumeroSerie, FechaCompra, Precio, Estado, Observaciones) VALUES (1, 1, 'Apple', 'MacBook Air', 'SEED-006', '2024-06-18', 1200.00, '1', NULL);